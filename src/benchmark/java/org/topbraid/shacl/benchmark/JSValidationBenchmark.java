@@ -0,0 +1,75 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.js.SHACLScriptEngineManager;
+import org.topbraid.shacl.validation.ValidationUtil;
+
+/**
+ * Benchmarks the validation of a sh:JSConstraint, i.e. the JavaScript executor path
+ * including the conversion of RDF terms between Jena and the script engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JSValidationBenchmark {
+
+	@Param({"1000", "10000"})
+	public int size;
+
+	private Model dataModel;
+
+	private ShapesGraph shapesGraph;
+
+
+	@Setup
+	public void setup() {
+		dataModel = SyntheticData.createDataModel(size);
+		shapesGraph = ValidationUtil.createShapesGraph(SyntheticData.createJSShapesModel(), false);
+	}
+
+
+	@Benchmark
+	public Resource validateModel() {
+		boolean nested = SHACLScriptEngineManager.begin();
+		try {
+			return ValidationUtil.validateModel(dataModel, shapesGraph);
+		}
+		finally {
+			SHACLScriptEngineManager.end(nested);
+		}
+	}
+}
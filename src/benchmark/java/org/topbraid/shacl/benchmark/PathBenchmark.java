@@ -0,0 +1,101 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.path.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.topbraid.shacl.arq.SHACLPaths;
+
+/**
+ * Benchmarks the evaluation of SHACL property paths for a sample of focus nodes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathBenchmark {
+
+	private final static int SAMPLE_SIZE = 100;
+
+	@Param({"1000", "10000"})
+	public int size;
+
+	@Param({"predicate", "inverse", "sequence", "alternative", "oneOrMore"})
+	public String pathType;
+
+	private List<Resource> focusNodes = new ArrayList<>();
+
+	private Resource path;
+
+
+	@Setup
+	public void setup() {
+		Model dataModel = SyntheticData.createDataModel(size);
+		String knows = "<" + SyntheticData.knows.getURI() + ">";
+		String worksFor = "<" + SyntheticData.worksFor.getURI() + ">";
+		String locatedIn = "<" + SyntheticData.locatedIn.getURI() + ">";
+		String pathString;
+		switch(pathType) {
+			case "inverse": pathString = "^" + knows; break;
+			case "sequence": pathString = worksFor + "/" + locatedIn; break;
+			case "alternative": pathString = knows + "|" + worksFor; break;
+			case "oneOrMore": pathString = knows + "+"; break;
+			default: pathString = knows;
+		}
+		Object jenaPath = SHACLPaths.getJenaPath(pathString, dataModel);
+		if(jenaPath instanceof Path) {
+			path = SHACLPaths.createPath((Path)jenaPath, dataModel);
+		}
+		else {
+			path = (Resource) jenaPath;
+		}
+		for(int i = 0; i < SAMPLE_SIZE; i++) {
+			focusNodes.add(dataModel.asRDFNode(SyntheticData.getPerson(i * size / SAMPLE_SIZE).asNode()).asResource());
+		}
+	}
+
+
+	@Benchmark
+	public int addValueNodes() {
+		int count = 0;
+		for(Resource focusNode : focusNodes) {
+			List<RDFNode> results = new ArrayList<>();
+			SHACLPaths.addValueNodes(focusNode, path, results);
+			count += results.size();
+		}
+		return count;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.topbraid.shacl.validation.sparql.SPARQLSubstitutions;
+
+/**
+ * Benchmarks the insertion of variable bindings into sh:message templates,
+ * which happens once for each validation result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubstitutionsBenchmark {
+
+	private QuerySolutionMap bindings;
+
+	private Function<RDFNode,String> labelFunction;
+
+	private Literal template;
+
+
+	@Setup
+	public void setup() {
+		template = ResourceFactory.createStringLiteral("Value {$value} of {?this} must have at least {$minCount} values at {$path}");
+		bindings = new QuerySolutionMap();
+		bindings.add("value", ResourceFactory.createPlainLiteral("Invalid 27"));
+		bindings.add("this", SyntheticData.getPerson(27));
+		bindings.add("minCount", ResourceFactory.createTypedLiteral(1));
+		bindings.add("path", SyntheticData.name);
+		labelFunction = node -> node.isURIResource() ? node.asResource().getLocalName() :
+			node.isLiteral() ? node.asLiteral().getLexicalForm() : node.toString();
+	}
+
+
+	@Benchmark
+	public Literal withSubstitutions() {
+		return SPARQLSubstitutions.withSubstitutions(template, bindings, labelFunction);
+	}
+}
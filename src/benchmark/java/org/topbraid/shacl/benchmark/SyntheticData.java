@@ -0,0 +1,202 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmark;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.util.FileUtils;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Generates synthetic data and shapes graphs of configurable size for the benchmarks.
+ *
+ * The data consists of instances of ex:Person (and its subclass ex:Employee) that know each other,
+ * work for organizations that are located in cities, and have a name and an age.
+ * About one in twenty persons violates one of the constraints of {@link #createShapesModel()}.
+ * The generated graphs are deterministic for a given size.
+ */
+public class SyntheticData {
+
+	public final static String NS = "http://example.org/benchmark#";
+
+	public final static Resource Agent = ResourceFactory.createResource(NS + "Agent");
+
+	public final static Resource City = ResourceFactory.createResource(NS + "City");
+
+	public final static Resource Employee = ResourceFactory.createResource(NS + "Employee");
+
+	public final static Resource Organization = ResourceFactory.createResource(NS + "Organization");
+
+	public final static Resource Person = ResourceFactory.createResource(NS + "Person");
+
+	public final static Property age = ResourceFactory.createProperty(NS + "age");
+
+	public final static Property knows = ResourceFactory.createProperty(NS + "knows");
+
+	public final static Property locatedIn = ResourceFactory.createProperty(NS + "locatedIn");
+
+	public final static Property name = ResourceFactory.createProperty(NS + "name");
+
+	public final static Property worksFor = ResourceFactory.createProperty(NS + "worksFor");
+
+	private final static String PREFIXES =
+			"@prefix ex: <" + NS + "> .\n" +
+			"@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n" +
+			"@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n" +
+			"@prefix sh: <http://www.w3.org/ns/shacl#> .\n" +
+			"@prefix sp: <http://spinrdf.org/sp#> .\n" +
+			"@prefix spin: <http://spinrdf.org/spin#> .\n" +
+			"@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n";
+
+
+	/**
+	 * Creates a data graph with a given number of persons.
+	 * @param size  the number of persons
+	 * @return a new Model
+	 */
+	public static Model createDataModel(int size) {
+		Model model = JenaUtil.createMemoryModel();
+		model.add(Person, RDFS.subClassOf, Agent);
+		model.add(Employee, RDFS.subClassOf, Person);
+		Random random = new Random(size);
+		int cityCount = Math.max(1, size / 100);
+		int organizationCount = Math.max(1, size / 10);
+		for(int i = 0; i < cityCount; i++) {
+			model.add(getCity(i), RDF.type, City);
+		}
+		for(int i = 0; i < organizationCount; i++) {
+			Resource organization = getOrganization(i);
+			model.add(organization, RDF.type, Organization);
+			model.add(organization, locatedIn, getCity(random.nextInt(cityCount)));
+		}
+		for(int i = 0; i < size; i++) {
+			Resource person = getPerson(i);
+			boolean invalid = i % 20 == 7;
+			model.add(person, RDF.type, i % 3 == 0 ? Employee : Person);
+			if(!invalid || i % 40 != 7) {
+				model.add(person, name, invalid ? "Invalid " + i : "Person " + i);
+			}
+			model.addLiteral(person, age, (long)(invalid && i % 40 == 7 ? -1 : 18 + random.nextInt(60)));
+			model.add(person, knows, getPerson((i + 1) % size));
+			model.add(person, knows, getPerson(random.nextInt(size)));
+			model.add(person, worksFor, getOrganization(random.nextInt(organizationCount)));
+		}
+		return model;
+	}
+
+
+	/**
+	 * Creates a shapes graph for ex:Person using a mix of SHACL Core constraints
+	 * (including sh:class, sh:node and a sequence path) and one SPARQL-based constraint.
+	 * @return a new Model
+	 */
+	public static Model createShapesModel() {
+		return parse(
+			"ex:PersonShape a sh:NodeShape ;\n" +
+			"  sh:targetClass ex:Person ;\n" +
+			"  sh:property [ sh:path ex:name ; sh:minCount 1 ; sh:maxCount 1 ; sh:datatype xsd:string ; sh:pattern \"^Person\" ] ;\n" +
+			"  sh:property [ sh:path ex:age ; sh:datatype xsd:long ; sh:minInclusive 0 ; sh:maxInclusive 150 ] ;\n" +
+			"  sh:property [ sh:path ex:knows ; sh:class ex:Agent ; sh:node ex:NamedShape ] ;\n" +
+			"  sh:property [ sh:path ( ex:worksFor ex:locatedIn ) ; sh:class ex:City ; sh:minCount 1 ] ;\n" +
+			"  sh:sparql [\n" +
+			"    sh:message \"Persons cannot know themselves\" ;\n" +
+			"    sh:select \"\"\"SELECT $this WHERE { $this <" + NS + "knows> $this }\"\"\" ;\n" +
+			"  ] .\n" +
+			"ex:NamedShape a sh:NodeShape ;\n" +
+			"  sh:property [ sh:path ex:name ; sh:minCount 1 ] .\n");
+	}
+
+
+	/**
+	 * Creates a shapes graph with a sh:TripleRule and a sh:SPARQLRule for ex:Person.
+	 * @return a new Model
+	 */
+	public static Model createRulesModel() {
+		return parse(
+			"ex:PersonRulesShape a sh:NodeShape ;\n" +
+			"  sh:targetClass ex:Person ;\n" +
+			"  sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate rdf:type ; sh:object ex:Agent ] ;\n" +
+			"  sh:rule [\n" +
+			"    a sh:SPARQLRule ;\n" +
+			"    sh:construct \"\"\"CONSTRUCT { $this <" + NS + "colleague> ?other }\n" +
+			"      WHERE { $this <" + NS + "worksFor> ?org . ?other <" + NS + "worksFor> ?org . FILTER (?other != $this) }\"\"\" ;\n" +
+			"  ] .\n");
+	}
+
+
+	/**
+	 * Creates a shapes graph with a sh:JSConstraint that calls a function from the
+	 * benchmark.js library on the classpath.
+	 * @return a new Model
+	 */
+	public static Model createJSShapesModel() {
+		String url = SyntheticData.class.getResource("benchmark.js").toString();
+		return parse(
+			"ex:PersonJSShape a sh:NodeShape ;\n" +
+			"  sh:targetClass ex:Person ;\n" +
+			"  sh:js [\n" +
+			"    a sh:JSConstraint ;\n" +
+			"    sh:message \"Invalid name\" ;\n" +
+			"    sh:jsFunctionName \"validatePersonName\" ;\n" +
+			"    sh:jsLibrary [ a sh:JSLibrary ; sh:jsLibraryURL \"" + url + "\"^^xsd:anyURI ] ;\n" +
+			"  ] .\n");
+	}
+
+
+	/**
+	 * Creates a Model with a SPIN rule (in sp:text form) attached to ex:Person.
+	 * The Model is meant to be added to the data Model as the query Model of SPINInferences.
+	 * @return a new Model
+	 */
+	public static Model createSPINRulesModel() {
+		return parse(
+			"ex:Person spin:rule [\n" +
+			"  a sp:Construct ;\n" +
+			"  sp:text \"\"\"CONSTRUCT { ?this <" + NS + "livesNear> ?city }\n" +
+			"    WHERE { ?this <" + NS + "worksFor> ?org . ?org <" + NS + "locatedIn> ?city }\"\"\" ;\n" +
+			"] .\n");
+	}
+
+
+	public static Resource getCity(int index) {
+		return ResourceFactory.createResource(NS + "City" + index);
+	}
+
+
+	public static Resource getOrganization(int index) {
+		return ResourceFactory.createResource(NS + "Organization" + index);
+	}
+
+
+	public static Resource getPerson(int index) {
+		return ResourceFactory.createResource(NS + "Person" + index);
+	}
+
+
+	private static Model parse(String turtle) {
+		Model model = JenaUtil.createMemoryModel();
+		model.read(new StringReader(PREFIXES + turtle), NS, FileUtils.langTurtle);
+		return model;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.atlas.web.HttpException;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.Assume;
+import org.junit.Test;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.vocabulary.SPL;
+
+/**
+ * Runs each benchmark once on a small data graph, to make sure that the benchmarks measure
+ * what they claim to measure.
+ * These tests only run with the benchmarks profile: mvn -Pbenchmarks test
+ */
+public class TestBenchmarks {
+	
+	private final static int SIZE = 200;
+	
+	
+	private static int countResults(Resource report) {
+		return report.listProperties(SH.result).toList().size();
+	}
+	
+	
+	@Test
+	public void testSyntheticDataIsDeterministic() {
+		assertTrue(SyntheticData.createDataModel(SIZE).isIsomorphicWith(SyntheticData.createDataModel(SIZE)));
+	}
+	
+	
+	@Test
+	public void testValidation() throws InterruptedException {
+		ValidationBenchmark benchmark = new ValidationBenchmark();
+		benchmark.size = SIZE;
+		benchmark.setup();
+		int count = countResults(benchmark.validateModel());
+		assertTrue(count >= SIZE / 20);
+		assertEquals(count, countResults(benchmark.validateModelWithShapesGraph()));
+		assertNotNull(benchmark.validateNode());
+	}
+	
+	
+	@Test
+	public void testJSValidation() {
+		JSValidationBenchmark benchmark = new JSValidationBenchmark();
+		benchmark.size = SIZE;
+		benchmark.setup();
+		assertTrue(countResults(benchmark.validateModel()) > 0);
+	}
+	
+	
+	@Test
+	public void testPaths() {
+		for(String pathType : new String[] { "predicate", "inverse", "sequence", "alternative", "oneOrMore" }) {
+			PathBenchmark benchmark = new PathBenchmark();
+			benchmark.size = SIZE;
+			benchmark.pathType = pathType;
+			benchmark.setup();
+			assertTrue(pathType, benchmark.addValueNodes() > 0);
+		}
+	}
+	
+	
+	@Test
+	public void testRules() {
+		RulesBenchmark benchmark = new RulesBenchmark();
+		benchmark.size = SIZE;
+		benchmark.setup();
+		assertFalse(benchmark.executeRules().isEmpty());
+	}
+	
+	
+	@Test
+	public void testSPINInferences() {
+		// SPL is not bundled with this API and is otherwise downloaded from spinrdf.org
+		try {
+			SPL.getModel();
+		}
+		catch(HttpException ex) {
+			Assume.assumeNoException(ex);
+		}
+		SPINInferencesBenchmark benchmark = new SPINInferencesBenchmark();
+		benchmark.size = SIZE;
+		benchmark.setup();
+		assertFalse(benchmark.run().isEmpty());
+	}
+	
+	
+	@Test
+	public void testSubstitutions() {
+		SubstitutionsBenchmark benchmark = new SubstitutionsBenchmark();
+		benchmark.setup();
+		assertEquals("Value Invalid 27 of Person27 must have at least 1 values at name", benchmark.withSubstitutions().getLexicalForm());
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.benchmark;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationEngineFactory;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.spin.arq.ARQFactory;
+
+/**
+ * Benchmarks for the validation of complete data graphs and of individual nodes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+	@Param({"1000", "10000"})
+	public int size;
+
+	private Model dataModel;
+
+	private Dataset dataset;
+
+	private Resource focusNode;
+
+	private Model shapesModel;
+
+	private ShapesGraph shapesGraph;
+
+	private URI shapesGraphURI;
+
+
+	@Setup
+	public void setup() {
+		dataModel = SyntheticData.createDataModel(size);
+		shapesModel = SyntheticData.createShapesModel();
+		shapesGraph = ValidationUtil.createShapesGraph(shapesModel, false);
+		shapesGraphURI = URI.create("urn:x-shacl-shapes-graph:benchmark");
+		dataset = ARQFactory.get().getDataset(dataModel);
+		dataset.addNamedModel(shapesGraphURI.toString(), shapesGraph.getShapesModel());
+		focusNode = SyntheticData.getPerson(size / 2);
+	}
+
+
+	/**
+	 * Validates the whole data graph, including the preparation of the shapes graph.
+	 */
+	@Benchmark
+	public Resource validateModel() {
+		return ValidationUtil.validateModel(dataModel, shapesModel, false);
+	}
+
+
+	/**
+	 * Validates the whole data graph against a pre-compiled ShapesGraph.
+	 */
+	@Benchmark
+	public Resource validateModelWithShapesGraph() {
+		return ValidationUtil.validateModel(dataModel, shapesGraph);
+	}
+
+
+	/**
+	 * Validates a single node, as done by editors after each change.
+	 */
+	@Benchmark
+	public Resource validateNode() throws InterruptedException {
+		ValidationEngine engine = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
+		return engine.validateNode(focusNode.asNode());
+	}
+}
@@ -0,0 +1,11 @@
+function validatePersonName($this) {
+	var p = TermFactory.namedNode("http://example.org/benchmark#name");
+	var s = $data.find($this, p, null);
+	for(var t = s.next(); t; t = s.next()) {
+		if(t.object.lex.indexOf("Person") != 0) {
+			s.close();
+			return false;
+		}
+	}
+	return true;
+}
@@ -0,0 +1,438 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.arq;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.path.P_Alt;
+import org.apache.jena.sparql.path.P_Inverse;
+import org.apache.jena.sparql.path.P_Link;
+import org.apache.jena.sparql.path.P_OneOrMore1;
+import org.apache.jena.sparql.path.P_OneOrMoreN;
+import org.apache.jena.sparql.path.P_ReverseLink;
+import org.apache.jena.sparql.path.P_Seq;
+import org.apache.jena.sparql.path.P_ZeroOrMore1;
+import org.apache.jena.sparql.path.P_ZeroOrMoreN;
+import org.apache.jena.sparql.path.P_ZeroOrOne;
+import org.apache.jena.sparql.path.Path;
+import org.apache.jena.sparql.path.eval.PathEval;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * A SHACL path that has been compiled into a tree of steps that operate directly on Graph.find,
+ * evaluating all nodes of a step at once.
+ * Compiled paths are immutable and can be reused for any number of focus nodes, also from
+ * multiple threads.
+ * 
+ * The transitive closures of sh:zeroOrMorePath and sh:oneOrMorePath can optionally be
+ * memoized in a {@link PathClosureCache}, so that for example deep rdfs:subClassOf* paths
+ * from many focus nodes only get walked once per start node.
+ */
+public abstract class CompiledPath {
+	
+	private static final int capacity = 1000;
+	
+	@SuppressWarnings("serial")
+	private static class MyCache extends LinkedHashMap<Path,CompiledPath> {
+
+		MyCache() {
+			super(capacity + 1, 1.1f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Entry<Path, CompiledPath> eldest) {
+			if(size() > capacity) {
+				return true;
+			}
+			else {
+				return false;
+			}
+		}
+	}
+	
+	private static Map<Path,CompiledPath> cache = Collections.synchronizedMap(new MyCache());
+	
+	
+	/**
+	 * Compiles a given SPARQL property path.
+	 * Unsupported path elements (such as negated property sets) are evaluated by ARQ.
+	 * @param path  the Path to compile
+	 * @return the CompiledPath
+	 */
+	public static CompiledPath compile(Path path) {
+		if(path instanceof P_Link) {
+			return new LinkPath(((P_Link)path).getNode());
+		}
+		else if(path instanceof P_ReverseLink) {
+			return new InversePath(new LinkPath(((P_ReverseLink)path).getNode()));
+		}
+		else if(path instanceof P_Inverse) {
+			return new InversePath(compile(((P_Inverse)path).getSubPath()));
+		}
+		else if(path instanceof P_Seq) {
+			return new SequencePath(compile(((P_Seq)path).getLeft()), compile(((P_Seq)path).getRight()));
+		}
+		else if(path instanceof P_Alt) {
+			return new AlternativePath(compile(((P_Alt)path).getLeft()), compile(((P_Alt)path).getRight()));
+		}
+		else if(path instanceof P_ZeroOrMore1) {
+			return new ClosurePath(compile(((P_ZeroOrMore1)path).getSubPath()), true);
+		}
+		else if(path instanceof P_ZeroOrMoreN) {
+			return new ClosurePath(compile(((P_ZeroOrMoreN)path).getSubPath()), true);
+		}
+		else if(path instanceof P_OneOrMore1) {
+			return new ClosurePath(compile(((P_OneOrMore1)path).getSubPath()), false);
+		}
+		else if(path instanceof P_OneOrMoreN) {
+			return new ClosurePath(compile(((P_OneOrMoreN)path).getSubPath()), false);
+		}
+		else if(path instanceof P_ZeroOrOne) {
+			return new ZeroOrOnePath(compile(((P_ZeroOrOne)path).getSubPath()));
+		}
+		else {
+			return new ARQPath(path);
+		}
+	}
+	
+	
+	/**
+	 * Compiles a SHACL path in its RDF representation, e.g. the value of sh:path.
+	 * @param path  the path resource
+	 * @return the CompiledPath or null if the path is malformed
+	 */
+	public static CompiledPath compile(Resource path) {
+		if(path.isURIResource()) {
+			return new LinkPath(path.asNode());
+		}
+		else if(path.isAnon()) {
+			if(path.hasProperty(RDF.first)) {
+				return fold(path.as(RDFList.class).iterator().toList(), false);
+			}
+			Resource inverse = JenaUtil.getResourceProperty(path, SH.inversePath);
+			if(inverse != null) {
+				CompiledPath sub = compile(inverse);
+				return sub != null ? new InversePath(sub) : null;
+			}
+			Resource alternatives = JenaUtil.getResourceProperty(path, SH.alternativePath);
+			if(alternatives != null && alternatives.canAs(RDFList.class)) {
+				return fold(alternatives.as(RDFList.class).iterator().toList(), true);
+			}
+			Resource zeroOrMore = JenaUtil.getResourceProperty(path, SH.zeroOrMorePath);
+			if(zeroOrMore != null) {
+				CompiledPath sub = compile(zeroOrMore);
+				return sub != null ? new ClosurePath(sub, true) : null;
+			}
+			Resource oneOrMore = JenaUtil.getResourceProperty(path, SH.oneOrMorePath);
+			if(oneOrMore != null) {
+				CompiledPath sub = compile(oneOrMore);
+				return sub != null ? new ClosurePath(sub, false) : null;
+			}
+			Resource zeroOrOne = JenaUtil.getResourceProperty(path, SH.zeroOrOnePath);
+			if(zeroOrOne != null) {
+				CompiledPath sub = compile(zeroOrOne);
+				return sub != null ? new ZeroOrOnePath(sub) : null;
+			}
+		}
+		return null;
+	}
+	
+	
+	private static CompiledPath fold(List<RDFNode> members, boolean alternative) {
+		CompiledPath result = null;
+		for(RDFNode member : members) {
+			if(!member.isResource()) {
+				return null;
+			}
+			CompiledPath next = compile((Resource)member);
+			if(next == null) {
+				return null;
+			}
+			else if(result == null) {
+				result = next;
+			}
+			else {
+				result = alternative ? new AlternativePath(result, next) : new SequencePath(result, next);
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Gets a shared CompiledPath for a given SPARQL property path.
+	 * @param path  the Path
+	 * @return the CompiledPath
+	 */
+	public static CompiledPath get(Path path) {
+		CompiledPath result = cache.get(path);
+		if(result == null) {
+			result = compile(path);
+			cache.put(path, result);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Adds the value nodes of a given focus node, without duplicates, to a Collection.
+	 * @param focusNode  the focus node (the Model of which is used as data graph)
+	 * @param results  the Collection to add to
+	 * @param closureCache  an optional PathClosureCache or null
+	 */
+	public void addValueNodes(RDFNode focusNode, Collection<RDFNode> results, PathClosureCache closureCache) {
+		Model model = focusNode.getModel();
+		for(Node node : eval(model.getGraph(), focusNode.asNode(), closureCache)) {
+			results.add(model.asRDFNode(node));
+		}
+	}
+	
+	
+	/**
+	 * Evaluates this path starting at a given node.
+	 * @param graph  the Graph to walk
+	 * @param start  the start node
+	 * @param closureCache  an optional PathClosureCache or null
+	 * @return the (distinct) nodes reachable via this path, in the order they were found
+	 */
+	public Set<Node> eval(Graph graph, Node start, PathClosureCache closureCache) {
+		Set<Node> results = new LinkedHashSet<>();
+		eval(graph, Collections.singleton(start), false, results, closureCache);
+		return results;
+	}
+	
+	
+	/**
+	 * Adds all nodes reachable from a set of input nodes to a set of results.
+	 * @param graph  the Graph to walk
+	 * @param inputs  the input nodes
+	 * @param inverse  true to walk the path backwards
+	 * @param results  the set to add to
+	 * @param closureCache  an optional PathClosureCache or null
+	 */
+	protected abstract void eval(Graph graph, Set<Node> inputs, boolean inverse, Set<Node> results, PathClosureCache closureCache);
+	
+	
+	private static class LinkPath extends CompiledPath {
+		
+		private Node predicate;
+		
+		
+		LinkPath(Node predicate) {
+			this.predicate = predicate;
+		}
+		
+
+		@Override
+		protected void eval(Graph graph, Set<Node> inputs, boolean inverse, Set<Node> results, PathClosureCache closureCache) {
+			for(Node input : inputs) {
+				if(inverse) {
+					ExtendedIterator<Triple> it = graph.find(Node.ANY, predicate, input);
+					while(it.hasNext()) {
+						results.add(it.next().getSubject());
+					}
+				}
+				else if(!input.isLiteral()) {
+					ExtendedIterator<Triple> it = graph.find(input, predicate, Node.ANY);
+					while(it.hasNext()) {
+						results.add(it.next().getObject());
+					}
+				}
+			}
+		}
+	}
+	
+	
+	private static class InversePath extends CompiledPath {
+		
+		private CompiledPath sub;
+		
+		
+		InversePath(CompiledPath sub) {
+			this.sub = sub;
+		}
+		
+
+		@Override
+		protected void eval(Graph graph, Set<Node> inputs, boolean inverse, Set<Node> results, PathClosureCache closureCache) {
+			sub.eval(graph, inputs, !inverse, results, closureCache);
+		}
+	}
+	
+	
+	private static class SequencePath extends CompiledPath {
+		
+		private CompiledPath left;
+		
+		private CompiledPath right;
+		
+		
+		SequencePath(CompiledPath left, CompiledPath right) {
+			this.left = left;
+			this.right = right;
+		}
+		
+
+		@Override
+		protected void eval(Graph graph, Set<Node> inputs, boolean inverse, Set<Node> results, PathClosureCache closureCache) {
+			Set<Node> intermediate = new LinkedHashSet<>();
+			if(inverse) {
+				right.eval(graph, inputs, true, intermediate, closureCache);
+				left.eval(graph, intermediate, true, results, closureCache);
+			}
+			else {
+				left.eval(graph, inputs, false, intermediate, closureCache);
+				right.eval(graph, intermediate, false, results, closureCache);
+			}
+		}
+	}
+	
+	
+	private static class AlternativePath extends CompiledPath {
+		
+		private CompiledPath left;
+		
+		private CompiledPath right;
+		
+		
+		AlternativePath(CompiledPath left, CompiledPath right) {
+			this.left = left;
+			this.right = right;
+		}
+		
+
+		@Override
+		protected void eval(Graph graph, Set<Node> inputs, boolean inverse, Set<Node> results, PathClosureCache closureCache) {
+			left.eval(graph, inputs, inverse, results, closureCache);
+			right.eval(graph, inputs, inverse, results, closureCache);
+		}
+	}
+	
+	
+	private static class ZeroOrOnePath extends CompiledPath {
+		
+		private CompiledPath sub;
+		
+		
+		ZeroOrOnePath(CompiledPath sub) {
+			this.sub = sub;
+		}
+		
+
+		@Override
+		protected void eval(Graph graph, Set<Node> inputs, boolean inverse, Set<Node> results, PathClosureCache closureCache) {
+			results.addAll(inputs);
+			sub.eval(graph, inputs, inverse, results, closureCache);
+		}
+	}
+	
+	
+	private static class ClosurePath extends CompiledPath {
+		
+		private CompiledPath sub;
+		
+		private boolean zero;
+		
+		
+		ClosurePath(CompiledPath sub, boolean zero) {
+			this.sub = sub;
+			this.zero = zero;
+		}
+		
+
+		@Override
+		protected void eval(Graph graph, Set<Node> inputs, boolean inverse, Set<Node> results, PathClosureCache closureCache) {
+			for(Node input : inputs) {
+				if(closureCache != null) {
+					results.addAll(closureCache.getClosure(this, graph, input, inverse, () -> closure(graph, input, inverse, closureCache)));
+				}
+				else {
+					results.addAll(closure(graph, input, inverse, null));
+				}
+			}
+		}
+		
+		
+		// Breadth-first walk that expands each reached node only once, also in cyclic graphs
+		private Set<Node> closure(Graph graph, Node start, boolean inverse, PathClosureCache closureCache) {
+			Set<Node> results = new LinkedHashSet<>();
+			if(zero) {
+				results.add(start);
+			}
+			Set<Node> expanded = new HashSet<>();
+			Set<Node> frontier = Collections.singleton(start);
+			while(!frontier.isEmpty()) {
+				expanded.addAll(frontier);
+				Set<Node> next = new LinkedHashSet<>();
+				sub.eval(graph, frontier, inverse, next, closureCache);
+				frontier = new LinkedHashSet<>();
+				for(Node node : next) {
+					results.add(node);
+					if(!expanded.contains(node)) {
+						frontier.add(node);
+					}
+				}
+			}
+			return results;
+		}
+	}
+	
+	
+	// Fallback for path elements that are not supported natively
+	private static class ARQPath extends CompiledPath {
+		
+		private Path path;
+		
+		
+		ARQPath(Path path) {
+			this.path = path;
+		}
+		
+
+		@Override
+		protected void eval(Graph graph, Set<Node> inputs, boolean inverse, Set<Node> results, PathClosureCache closureCache) {
+			for(Node input : inputs) {
+				Iterator<Node> it = inverse ?
+						PathEval.evalReverse(graph, input, path, Context.emptyContext) :
+						PathEval.eval(graph, input, path, Context.emptyContext);
+				while(it.hasNext()) {
+					results.add(it.next());
+				}
+			}
+		}
+	}
+}
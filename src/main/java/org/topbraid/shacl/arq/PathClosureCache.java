@@ -0,0 +1,57 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.arq;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.topbraid.shacl.validation.profiling.ValidationProfiler;
+
+/**
+ * Memoizes the transitive closures computed by {@link CompiledPath}s, for the duration of a
+ * single validation run (or any other period in which the data graph does not change).
+ * 
+ * Instances are thread-safe so that they can be shared by the worker threads of a parallel validation.
+ */
+public class PathClosureCache {
+	
+	private Map<List<Object>,Set<Node>> closures = new ConcurrentHashMap<>();
+	
+	
+	Set<Node> getClosure(CompiledPath path, Graph graph, Node start, boolean inverse, Supplier<Set<Node>> supplier) {
+		// Not using computeIfAbsent, because the supplier may recursively access this cache
+		List<Object> key = Arrays.asList(path, graph, start, inverse);
+		Set<Node> result = closures.get(key);
+		ValidationProfiler.get().recordCacheAccess("PathClosureCache", result != null);
+		if(result == null) {
+			result = supplier.get();
+			closures.put(key, result);
+		}
+		return result;
+	}
+	
+	
+	public int size() {
+		return closures.size();
+	}
+}
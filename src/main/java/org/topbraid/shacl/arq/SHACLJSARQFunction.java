@@ -55,7 +55,7 @@ public class SHACLJSARQFunction extends SHACLARQFunction {
 		}
 		
 		boolean nested = SHACLScriptEngineManager.begin();
-		JSScriptEngine engine = SHACLScriptEngineManager.getCurrentEngine();
+		JSScriptEngine engine = SHACLScriptEngineManager.getCurrentEngine(getSHACLFunction().getModel().getGraph());
 
 		SHJSExecutable as = getSHACLFunction().as(SHJSExecutable.class);
 		JSGraph dataJSGraph = new JSGraph(dataModel.getGraph(), engine);
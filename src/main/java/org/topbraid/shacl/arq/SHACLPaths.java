@@ -18,7 +18,6 @@ package org.topbraid.shacl.arq;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -39,18 +38,18 @@ import org.apache.jena.sparql.path.P_Inverse;
 import org.apache.jena.sparql.path.P_Link;
 import org.apache.jena.sparql.path.P_OneOrMore1;
 import org.apache.jena.sparql.path.P_OneOrMoreN;
+import org.apache.jena.sparql.path.P_Path0;
 import org.apache.jena.sparql.path.P_Path1;
+import org.apache.jena.sparql.path.P_Path2;
 import org.apache.jena.sparql.path.P_Seq;
 import org.apache.jena.sparql.path.P_ZeroOrMore1;
 import org.apache.jena.sparql.path.P_ZeroOrMoreN;
 import org.apache.jena.sparql.path.P_ZeroOrOne;
 import org.apache.jena.sparql.path.Path;
-import org.apache.jena.sparql.path.eval.PathEval;
 import org.apache.jena.sparql.syntax.Element;
 import org.apache.jena.sparql.syntax.ElementGroup;
 import org.apache.jena.sparql.syntax.ElementPathBlock;
 import org.apache.jena.sparql.syntax.ElementTriplesBlock;
-import org.apache.jena.sparql.util.Context;
 import org.apache.jena.sparql.util.FmtUtils;
 import org.apache.jena.vocabulary.RDF;
 import org.topbraid.shacl.vocabulary.SH;
@@ -70,15 +69,7 @@ public class SHACLPaths {
 	
 	
 	public static void addValueNodes(RDFNode focusNode, Path path, Collection<RDFNode> results) {
-		Set<Node> seen = new HashSet<>();
-		Iterator<Node> it = PathEval.eval(focusNode.getModel().getGraph(), focusNode.asNode(), path, Context.emptyContext);
-		while(it.hasNext()) {
-			Node node = it.next();
-			if(!seen.contains(node)) {
-				seen.add(node);
-				results.add(focusNode.getModel().asRDFNode(node));
-			}
-		}
+		CompiledPath.get(path).addValueNodes(focusNode, results, null);
 	}
 	
 	
@@ -92,6 +83,11 @@ public class SHACLPaths {
 			}
 		}
 		else {
+			CompiledPath compiledPath = CompiledPath.compile(path);
+			if(compiledPath != null) {
+				compiledPath.addValueNodes(focusNode, results, null);
+				return;
+			}
 			String pathString = SHACLPaths.getPathString(path);
 			String queryString = "SELECT DISTINCT ?value { $this " + pathString + " ?value }";
 			Query query = ARQFactory.get().createQuery(path.getModel(), queryString);
@@ -108,6 +104,29 @@ public class SHACLPaths {
 	}
 
 	
+	/**
+	 * Collects the predicates that are walked by a given SPARQL path.
+	 * @param path  the Path
+	 * @param results  the Set to add the predicates to
+	 * @return false if the path walks unknown predicates (negated property sets)
+	 */
+	public static boolean addPredicates(Path path, Set<Node> results) {
+		if(path instanceof P_Path0) {
+			results.add(((P_Path0)path).getNode());
+			return true;
+		}
+		else if(path instanceof P_Path1) {
+			return addPredicates(((P_Path1)path).getSubPath(), results);
+		}
+		else if(path instanceof P_Path2) {
+			return addPredicates(((P_Path2)path).getLeft(), results) && addPredicates(((P_Path2)path).getRight(), results);
+		}
+		else {
+			return false;
+		}
+	}
+
+	
 	/**
 	 * Renders a given path into a given StringBuffer, using the prefixes supplied by the
 	 * Path's Model.
@@ -32,7 +32,9 @@ import org.apache.jena.sparql.function.FunctionEnv;
 import org.apache.jena.vocabulary.RDF;
 import org.topbraid.shacl.engine.ShapesGraph;
 import org.topbraid.shacl.util.FailureLog;
+import org.topbraid.shacl.validation.ConformanceCache;
 import org.topbraid.shacl.validation.DefaultShapesGraphProvider;
+import org.topbraid.shacl.validation.ValidationEngine;
 import org.topbraid.shacl.validation.ValidationEngineFactory;
 import org.topbraid.shacl.validation.sparql.AbstractSPARQLExecutor;
 import org.topbraid.shacl.vocabulary.DASH;
@@ -47,12 +49,23 @@ import org.topbraid.spin.util.JenaDatatypes;
  */
 public class HasShapeFunction extends AbstractFunction3 {
 	
+	private static ThreadLocal<ConformanceCache> conformanceCacheTL = new ThreadLocal<>();
+	
+	// Counts how often the recursion guard has been hit, to prevent caching of results based on assumptions
+	private static ThreadLocal<int[]> recursionCounter = ThreadLocal.withInitial(() -> new int[1]);
+	
 	private static ThreadLocal<Boolean> recursionIsErrorFlag = new ThreadLocal<Boolean>();
 	
 	private static ThreadLocal<Model> resultsModelTL = new ThreadLocal<>();
 	
 	private static ThreadLocal<URI> shapesGraph = new ThreadLocal<URI>();
 	
+	private static ThreadLocal<ShapesGraph> shapesGraphObject = new ThreadLocal<ShapesGraph>();
+	
+	public static ConformanceCache getConformanceCache() {
+		return conformanceCacheTL.get();
+	}
+	
 	public static Model getResultsModel() {
 		return resultsModelTL.get();
 	}
@@ -61,71 +74,167 @@ public class HasShapeFunction extends AbstractFunction3 {
 		return shapesGraph.get();
 	}
 	
+	public static ShapesGraph getShapesGraphInstance() {
+		return shapesGraphObject.get();
+	}
+	
+	/**
+	 * Installs a ConformanceCache that shall be used to memoize the outcome of nested
+	 * shape validations in the current thread.
+	 * @param value  the ConformanceCache or null to deactivate memoization
+	 */
+	public static void setConformanceCache(ConformanceCache value) {
+		conformanceCacheTL.set(value);
+	}
+	
 	public static void setResultsModel(Model value) {
 		resultsModelTL.set(value);
 	}
 	
 	public static void setShapesGraph(URI uri) {
 		shapesGraph.set(uri);
+		shapesGraphObject.remove();
+	}
+	
+	
+	/**
+	 * Sets the shapes graph URI together with the ShapesGraph that shall be used by nested validations,
+	 * so that these do not need to re-create the Shapes and Constraints over and over again.
+	 * @param uri  the URI of the shapes graph
+	 * @param value  the ShapesGraph of the surrounding engine (any filters will be ignored)
+	 */
+	public static void setShapesGraph(URI uri, ShapesGraph value) {
+		shapesGraph.set(uri);
+		shapesGraphObject.set(value != null ? value.getUnfilteredShapesGraph() : null);
+	}
+	
+	
+	/**
+	 * Wraps a given Runnable so that it executes with the tosh:hasShape state of the calling
+	 * thread, i.e. the shapes graph, the recursionIsError flag and the recursion guard.
+	 * This must be used whenever validation is forked into other threads.
+	 * The ConformanceCache (if any) is shared with the worker threads.
+	 * The results Model is not shared, because Models are not thread-safe - the executors
+	 * install their own results Model anyway.
+	 * @param runnable  the Runnable to wrap
+	 * @return the wrapped Runnable
+	 */
+	public static Runnable propagate(Runnable runnable) {
+		Boolean flag = recursionIsErrorFlag.get();
+		URI uri = shapesGraph.get();
+		ShapesGraph sg = shapesGraphObject.get();
+		ConformanceCache cache = conformanceCacheTL.get();
+		Runnable guarded = SHACLRecursionGuard.propagate(runnable);
+		return () -> {
+			Boolean oldFlag = recursionIsErrorFlag.get();
+			Model oldResultsModel = resultsModelTL.get();
+			URI oldURI = shapesGraph.get();
+			ShapesGraph oldSG = shapesGraphObject.get();
+			ConformanceCache oldCache = conformanceCacheTL.get();
+			conformanceCacheTL.set(cache);
+			recursionIsErrorFlag.set(flag);
+			resultsModelTL.set(null);
+			shapesGraph.set(uri);
+			shapesGraphObject.set(sg);
+			try {
+				guarded.run();
+			}
+			finally {
+				recursionIsErrorFlag.set(oldFlag);
+				resultsModelTL.set(oldResultsModel);
+				shapesGraph.set(oldURI);
+				shapesGraphObject.set(oldSG);
+				conformanceCacheTL.set(oldCache);
+			}
+		};
 	}
 
 	
 	@Override
 	protected NodeValue exec(Node focusNode, Node shapeNode, Node recursionIsError, FunctionEnv env) {
+		Model model = ModelFactory.createModelForGraph(env.getActiveGraph());
+		RDFNode resource = model.asRDFNode(focusNode);
+		Dataset dataset = DatasetImpl.wrap(env.getDataset());
+		Boolean result = hasShape(resource, shapeNode, dataset, JenaDatatypes.TRUE.asNode().equals(recursionIsError));
+		if(result == null) {
+			throw new ExprEvalException("Propagating failure from nested shapes");
+		}
+		return NodeValue.makeBoolean(result);
+	}
+	
+	
+	/**
+	 * Validates a given focus node against a given shape, using the shapes graph and
+	 * results Model of the surrounding thread.
+	 * This implements tosh:hasShape and can also be called by native executors.
+	 * @param focusNode  the node to validate
+	 * @param shapeNode  the shape to validate against
+	 * @param dataset  the Dataset containing the data and the shapes graph
+	 * @param recursionIsError  true to report a failure if a recursion is encountered
+	 * @return true if the node conforms, false if not, or null if a failure occurred
+	 */
+	public static Boolean hasShape(RDFNode focusNode, Node shapeNode, Dataset dataset, boolean recursionIsError) {
 
 		Boolean oldFlag = recursionIsErrorFlag.get();
-		if(JenaDatatypes.TRUE.asNode().equals(recursionIsError)) {
+		if(recursionIsError) {
 			recursionIsErrorFlag.set(true);
 		}
 		try {
-			if(SHACLRecursionGuard.start(focusNode, shapeNode)) {
-				if(JenaDatatypes.TRUE.asNode().equals(recursionIsError) || (oldFlag != null && oldFlag)) {
+			if(SHACLRecursionGuard.start(focusNode.asNode(), shapeNode)) {
+				recursionCounter.get()[0]++;
+				if(recursionIsError || (oldFlag != null && oldFlag)) {
 					String message = "Unsupported recursion";
 					Model resultsModel = resultsModelTL.get();
 					Resource failure = resultsModel.createResource(DASH.FailureResult);
 					failure.addProperty(SH.resultMessage, message);
-					failure.addProperty(SH.focusNode, resultsModel.asRDFNode(focusNode));
+					failure.addProperty(SH.focusNode, resultsModel.asRDFNode(focusNode.asNode()));
 					failure.addProperty(SH.sourceShape, resultsModel.asRDFNode(shapeNode));
 					FailureLog.get().logFailure(message);
-					throw new ExprEvalException("Unsupported recursion");
+					return null;
 				}
 				else {
-					SHACLRecursionGuard.end(focusNode, shapeNode);
-					return NodeValue.TRUE;
+					SHACLRecursionGuard.end(focusNode.asNode(), shapeNode);
+					return true;
 				}
 			}
 			else {
 				
 				try {
-					Model model = ModelFactory.createModelForGraph(env.getActiveGraph());
-					RDFNode resource = model.asRDFNode(focusNode);
-					Dataset dataset = DatasetImpl.wrap(env.getDataset());
-					Resource shape = (Resource) dataset.getDefaultModel().asRDFNode(shapeNode);
-					Model results = doRun(resource, shape, dataset);
-					if(resultsModelTL.get() != null) {
-						resultsModelTL.get().add(results);
-					}
-					if(results.contains(null, RDF.type, DASH.FailureResult)) {
-						throw new ExprEvalException("Propagating failure from nested shapes");
+					ConformanceCache cache = conformanceCacheTL.get();
+					if(cache != null) {
+						ConformanceCache.Entry entry = cache.get(focusNode.asNode(), shapeNode);
+						if(entry != null) {
+							if(entry.getResults() != null && resultsModelTL.get() != null) {
+								resultsModelTL.get().add(entry.getResults());
+							}
+							return entry.getConforms();
+						}
 					}
-
+					
+					int oldRecursionCount = recursionCounter.get()[0];
+					Resource shape = (Resource) dataset.getDefaultModel().asRDFNode(shapeNode);
+					Boolean conforms;
+					Model results = null;
 					if(AbstractSPARQLExecutor.createDetails) {
-						boolean result = true;
-						for(Resource r : results.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList()) {
-							if(!results.contains(null, SH.detail, r)) {
-								result = false;
-								break;
-							}
+						results = doRun(focusNode, shape, dataset);
+						if(resultsModelTL.get() != null) {
+							resultsModelTL.get().add(results);
 						}
-						return NodeValue.makeBoolean(result);
+						conforms = getConforms(results);
 					}
 					else {
-						boolean result = !results.contains(null, RDF.type, SH.ValidationResult);
-						return NodeValue.makeBoolean(result);
+						// Without sh:details only a boolean is needed, so the validation can stop at the first result
+						conforms = doCheck(focusNode, shape, dataset);
+					}
+					
+					// Results that depend on the assumption that recursive calls conform cannot be reused
+					if(cache != null && oldRecursionCount == recursionCounter.get()[0]) {
+						cache.put(focusNode.asNode(), shapeNode, conforms, results);
 					}
+					return conforms;
 				}
 				finally {
-					SHACLRecursionGuard.end(focusNode, shapeNode);
+					SHACLRecursionGuard.end(focusNode.asNode(), shapeNode);
 				}
 			}
 		}
@@ -135,14 +244,53 @@ public class HasShapeFunction extends AbstractFunction3 {
 	}
 
 
-	private Model doRun(RDFNode focusNode, Resource shape, Dataset dataset) {
+	private static Boolean getConforms(Model results) {
+		if(results.contains(null, RDF.type, DASH.FailureResult)) {
+			return null;
+		}
+		if(AbstractSPARQLExecutor.createDetails) {
+			for(Resource r : results.listSubjectsWithProperty(RDF.type, SH.ValidationResult).toList()) {
+				if(!results.contains(null, SH.detail, r)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		else {
+			return !results.contains(null, RDF.type, SH.ValidationResult);
+		}
+	}
+
+
+	private static Boolean doCheck(RDFNode focusNode, Resource shape, Dataset dataset) {
+		Resource result = createEngine(dataset).validateConformance(Collections.singletonList(focusNode), shape.asNode(), null);
+		if(result == null) {
+			return true;
+		}
+		else if(result.hasProperty(RDF.type, DASH.FailureResult)) {
+			return null;
+		}
+		else {
+			return false;
+		}
+	}
+
+
+	private static Model doRun(RDFNode focusNode, Resource shape, Dataset dataset) {
+		return createEngine(dataset).validateNodesAgainstShape(Collections.singletonList(focusNode), shape.asNode()).getModel();
+	}
+
+
+	private static ValidationEngine createEngine(Dataset dataset) {
 		URI shapesGraphURI = shapesGraph.get();
 		if(shapesGraphURI == null) {
 			shapesGraphURI = DefaultShapesGraphProvider.get().getDefaultShapesGraphURI(dataset);
 		}
-		Model shapesModel = dataset.getNamedModel(shapesGraphURI.toString());
-		ShapesGraph shapes = new ShapesGraph(shapesModel);
-		return ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapes, null).validateNodesAgainstShape(
-				Collections.singletonList(focusNode), shape.asNode()).getModel();
+		ShapesGraph shapes = shapesGraphObject.get();
+		if(shapes == null) {
+			Model shapesModel = dataset.getNamedModel(shapesGraphURI.toString());
+			shapes = new ShapesGraph(shapesModel);
+		}
+		return ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapes, null);
 	}
 }
@@ -57,6 +57,28 @@ class SHACLRecursionGuard {
 	}
 	
 	
+	/**
+	 * Wraps a given Runnable so that it starts with a copy of the calls that are currently
+	 * active in the calling thread, e.g. if the Runnable is executed by a worker thread.
+	 * @param runnable  the Runnable to wrap
+	 * @return the wrapped Runnable
+	 */
+	static Runnable propagate(Runnable runnable) {
+		Set<Call> set = sets.get();
+		Set<Call> copy = set != null ? new HashSet<Call>(set) : null;
+		return () -> {
+			Set<Call> old = sets.get();
+			sets.set(copy != null ? new HashSet<Call>(copy) : null);
+			try {
+				runnable.run();
+			}
+			finally {
+				sets.set(old);
+			}
+		};
+	}
+	
+	
 	private static class Call {
 		
 		private Node resource;
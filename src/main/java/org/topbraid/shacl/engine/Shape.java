@@ -16,6 +16,7 @@
  */
 package org.topbraid.shacl.engine;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -24,6 +25,7 @@ import java.util.Set;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.sparql.path.Path;
+import org.topbraid.shacl.arq.CompiledPath;
 import org.topbraid.shacl.arq.SHACLPaths;
 import org.topbraid.shacl.model.SHConstraintComponent;
 import org.topbraid.shacl.model.SHParameter;
@@ -39,6 +41,8 @@ import org.topbraid.spin.system.SPINLabels;
  */
 public class Shape {
 	
+	private CompiledPath compiledPath;
+	
 	private List<Constraint> constraints;
 	
 	private Path jenaPath;
@@ -52,15 +56,27 @@ public class Shape {
 		this.shape = shape;
 		this.shapesGraph = shapesGraph;
 		Resource path = shape.getPath();
-		if(path != null && path.isAnon()) {
-			jenaPath = (Path) SHACLPaths.getJenaPath(SHACLPaths.getPathString(path), path.getModel());
+		if(path != null) {
+			if(path.isAnon()) {
+				jenaPath = (Path) SHACLPaths.getJenaPath(SHACLPaths.getPathString(path), path.getModel());
+			}
+			compiledPath = CompiledPath.compile(path);
 		}
 	}
 	
 	
-	public Iterable<Constraint> getConstraints() {
+	/**
+	 * Gets the sh:path of this shape compiled for native evaluation.
+	 * @return the CompiledPath or null if this is not a (well-formed) property shape
+	 */
+	public CompiledPath getCompiledPath() {
+		return compiledPath;
+	}
+	
+	
+	public synchronized Iterable<Constraint> getConstraints() {
 		if(constraints == null) {
-			constraints = new LinkedList<>();
+			List<Constraint> constraints = new LinkedList<>();
 			Set<SHConstraintComponent> handled = new HashSet<>();
 			for(Statement s : shape.listProperties().toList()) {
 				SHConstraintComponent component = shapesGraph.getComponentWithParameter(s.getPredicate());
@@ -81,6 +97,7 @@ public class Shape {
 					}
 				}
 			}
+			this.constraints = Collections.unmodifiableList(constraints);
 		}
 		return constraints;
 	}
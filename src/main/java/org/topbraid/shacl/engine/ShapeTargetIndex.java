@@ -0,0 +1,150 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * A reverse index from the targets of the shapes in a shapes graph to the shapes, so that
+ * the shapes that apply to a given focus node can be found with a few hash lookups.
+ * Instances are created (once) by {@link ShapesGraph#getShapeTargetIndex()}.
+ */
+public class ShapeTargetIndex {
+	
+	// Classes (via sh:targetClass or implicit class targets) to shapes
+	private Map<Node,Set<Resource>> classShapes = new HashMap<>();
+	
+	// Shapes with sh:target and the values of sh:target
+	private List<Statement> customTargets = new ArrayList<>();
+	
+	// Predicates of sh:targetObjectsOf to shapes
+	private Map<Node,Set<Resource>> objectsOfShapes = new HashMap<>();
+	
+	// Predicates of sh:targetSubjectsOf to shapes
+	private Map<Node,Set<Resource>> subjectsOfShapes = new HashMap<>();
+	
+	// Values of sh:targetNode to shapes
+	private Map<Node,Set<Resource>> targetNodeShapes = new HashMap<>();
+	
+	
+	ShapeTargetIndex(Model shapesModel) {
+		
+		for(Statement s : shapesModel.listStatements(null, SH.targetNode, (RDFNode)null).toList()) {
+			add(targetNodeShapes, s.getObject().asNode(), s.getSubject());
+		}
+		
+		for(Statement s : shapesModel.listStatements(null, SH.targetClass, (RDFNode)null).toList()) {
+			add(classShapes, s.getObject().asNode(), s.getSubject());
+		}
+		
+		// Any type of a focus node that is itself a shape
+		for(Resource shape : JenaUtil.getAllInstances(SH.Shape.inModel(shapesModel))) {
+			add(classShapes, shape.asNode(), shape);
+		}
+		
+		for(Statement s : shapesModel.listStatements(null, SH.targetSubjectsOf, (RDFNode)null).toList()) {
+			add(subjectsOfShapes, s.getObject().asNode(), s.getSubject());
+		}
+		
+		for(Statement s : shapesModel.listStatements(null, SH.targetObjectsOf, (RDFNode)null).toList()) {
+			add(objectsOfShapes, s.getObject().asNode(), s.getSubject());
+		}
+		
+		customTargets.addAll(shapesModel.listStatements(null, SH.target, (RDFNode)null).toList());
+	}
+	
+	
+	private static void add(Map<Node,Set<Resource>> map, Node key, Resource shape) {
+		map.computeIfAbsent(key, k -> new HashSet<>()).add(shape);
+	}
+	
+	
+	/**
+	 * Gets all shapes that have a given class as target, either via sh:targetClass or
+	 * because the class is itself a shape.
+	 * This does not consider the superclasses.
+	 * @param cls  the class to get the shapes of
+	 * @return the (possibly empty) Set of shapes
+	 */
+	public Set<Resource> getShapesWithTargetClass(Node cls) {
+		return classShapes.getOrDefault(cls, Collections.emptySet());
+	}
+	
+	
+	/**
+	 * Gets a Set of all shapes that have a target that includes a given focus node.
+	 * @param focusNode  the node to get the shapes for
+	 * @param dataset  the Dataset containing the node (for sh:target)
+	 * @return a new Set of shapes
+	 */
+	public Set<Resource> getShapesForNode(RDFNode focusNode, Dataset dataset) {
+		
+		Set<Resource> shapes = new HashSet<Resource>();
+		Node node = focusNode.asNode();
+		Graph graph = focusNode.getModel().getGraph();
+		
+		// sh:targetNode
+		shapes.addAll(targetNodeShapes.getOrDefault(node, Collections.emptySet()));
+		
+		// property targets
+		if(focusNode.isResource()) {
+			for(Map.Entry<Node,Set<Resource>> entry : subjectsOfShapes.entrySet()) {
+				if(graph.contains(node, entry.getKey(), Node.ANY)) {
+					shapes.addAll(entry.getValue());
+				}
+			}
+		}
+		for(Map.Entry<Node,Set<Resource>> entry : objectsOfShapes.entrySet()) {
+			if(graph.contains(Node.ANY, entry.getKey(), node)) {
+				shapes.addAll(entry.getValue());
+			}
+		}
+		
+		// rdf:type / sh:targetClass
+		if(focusNode.isResource() && !classShapes.isEmpty()) {
+			for(Resource type : JenaUtil.getAllTypes((Resource)focusNode)) {
+				shapes.addAll(getShapesWithTargetClass(type.asNode()));
+			}
+		}
+		
+		// sh:target
+		for(Statement s : customTargets) {
+			if(SHACLUtil.isInTarget(focusNode, dataset, s.getResource())) {
+				shapes.add(s.getSubject());
+			}
+		}
+		
+		return shapes;
+	}
+}
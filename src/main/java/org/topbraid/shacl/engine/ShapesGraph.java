@@ -16,23 +16,28 @@
  */
 package org.topbraid.shacl.engine;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.vocabulary.RDFS;
 import org.topbraid.shacl.model.SHConstraintComponent;
 import org.topbraid.shacl.model.SHFactory;
 import org.topbraid.shacl.model.SHParameter;
 import org.topbraid.shacl.model.SHShape;
+import org.topbraid.shacl.validation.ConstraintExecutorCache;
 import org.topbraid.shacl.vocabulary.SH;
 import org.topbraid.spin.util.JenaUtil;
 
@@ -40,21 +45,34 @@ import org.topbraid.spin.util.JenaUtil;
  * Represents a shapes graph as input to an engine (e.g. validation or rule).
  * Basically it's a collection of Shapes.
  * 
+ * The lazily computed structures are thread-safe so that a ShapesGraph can be used
+ * by the worker threads of a parallel validation.
+ * Use {@link #compile()} to compute all structures upfront, e.g. if the same ShapesGraph
+ * shall be reused for many validations.
+ * 
  * @author Holger Knublauch
  */
 public class ShapesGraph {
 	
+	private volatile boolean compiled;
+	
 	private Predicate<Constraint> constraintFilter;
 	
-	private Map<Property,SHConstraintComponent> parametersMap;
+	private final Object parametersLock = new Object();
+	
+	private volatile Map<Property,SHConstraintComponent> parametersMap;
 	
 	private List<Shape> rootShapes;
 	
 	private Predicate<SHShape> shapeFilter;
 	
-	private Map<Node,Shape> shapesMap = new HashMap<>();
+	private Map<Node,Shape> shapesMap = new ConcurrentHashMap<>();
 	
 	private Model shapesModel;
+	
+	private volatile ShapeTargetIndex shapeTargetIndex;
+	
+	private ShapesGraph unfilteredShapesGraph;
 
 	
 	/**
@@ -66,24 +84,84 @@ public class ShapesGraph {
 	}
 	
 	
-	private void computeParametersMap() {
-		if(parametersMap == null) {
-			parametersMap = new HashMap<>();
-			for(Resource cc : JenaUtil.getAllInstances(SH.ConstraintComponent.inModel(shapesModel))) {
-				SHConstraintComponent component = SHFactory.asConstraintComponent(cc);
-				for(SHParameter param : component.getParameters()) {
-					if(!param.isOptional()) {
-						parametersMap.put(param.getPredicate(), component);
+	/**
+	 * Computes all shapes, their constraints (including parsed paths) and the parameters map upfront,
+	 * prepares the ConstraintExecutors of all constraints that are not filtered out, and freezes this ShapesGraph so that no further filters can be installed.
+	 * Compiled ShapesGraphs can be built once and then be shared by any number of validations,
+	 * also from multiple threads, as long as the shapes Model does not change.
+	 * @return this
+	 */
+	public synchronized ShapesGraph compile() {
+		if(!compiled) {
+			computeParametersMap();
+			getShapeTargetIndex();
+			for(Shape shape : getRootShapes()) {
+				shape.getConstraints();
+			}
+			Set<Resource> shapes = new HashSet<Resource>();
+			shapes.addAll(JenaUtil.getAllInstances(shapesModel.getResource(SH.NodeShape.getURI())));
+			shapes.addAll(JenaUtil.getAllInstances(shapesModel.getResource(SH.PropertyShape.getURI())));
+			for(Property predicate : new Property[] { SH.property, SH.node, SH.not, SH.qualifiedValueShape }) {
+				for(RDFNode object : shapesModel.listObjectsOfProperty(predicate).toList()) {
+					if(object.isResource()) {
+						shapes.add((Resource)object);
+					}
+				}
+			}
+			for(Property predicate : new Property[] { SH.and, SH.or, SH.xone }) {
+				for(RDFNode object : shapesModel.listObjectsOfProperty(predicate).toList()) {
+					if(object.canAs(RDFList.class)) {
+						for(RDFNode member : object.as(RDFList.class).iterator().toList()) {
+							if(member.isResource()) {
+								shapes.add((Resource)member);
+							}
+						}
 					}
 				}
 			}
+			List<Constraint> constraints = new LinkedList<>();
+			for(Resource shape : shapes) {
+				if(!isIgnored(shape.asNode())) {
+					for(Constraint constraint : getShape(shape.asNode()).getConstraints()) {
+						if(!isIgnoredConstraint(constraint)) {
+							constraints.add(constraint);
+						}
+					}
+				}
+			}
+			ConstraintExecutorCache.get().prepareExecutors(this, constraints);
+			compiled = true;
+		}
+		return this;
+	}
+	
+	
+	private Map<Property,SHConstraintComponent> computeParametersMap() {
+		// Not synchronizing on this, because this is called while holding the lock of a Shape
+		synchronized(parametersLock) {
+			if(parametersMap == null) {
+				Map<Property,SHConstraintComponent> map = new HashMap<>();
+				for(Resource cc : JenaUtil.getAllInstances(SH.ConstraintComponent.inModel(shapesModel))) {
+					SHConstraintComponent component = SHFactory.asConstraintComponent(cc);
+					for(SHParameter param : component.getParameters()) {
+						if(!param.isOptional()) {
+							map.put(param.getPredicate(), component);
+						}
+					}
+				}
+				parametersMap = map;
+			}
+			return parametersMap;
 		}
 	}
 	
 	
 	public SHConstraintComponent getComponentWithParameter(Property parameter) {
-		computeParametersMap();
-		return parametersMap.get(parameter);
+		Map<Property,SHConstraintComponent> map = parametersMap;
+		if(map == null) {
+			map = computeParametersMap();
+		}
+		return map.get(parameter);
 	}
 	
 	
@@ -91,7 +169,7 @@ public class ShapesGraph {
 	 * Gets all shapes that declare a target and pass the provided filter.
 	 * @return the root shapes
 	 */
-	public List<Shape> getRootShapes() {
+	public synchronized List<Shape> getRootShapes() {
 		if(rootShapes == null) {
 			
 			// Collect all shapes, as identified by target and/or type
@@ -113,25 +191,74 @@ public class ShapesGraph {
 			}
 
 			// Turn the shape Resource objects into Shape instances
-			this.rootShapes = new LinkedList<Shape>();
+			List<Shape> rootShapes = new LinkedList<Shape>();
 			for(Resource candidate : candidates) {
 				SHShape shape = SHFactory.asShape(candidate);
 				if(shapeFilter == null || shapeFilter.test(shape)) {
-					this.rootShapes.add(getShape(shape.asNode()));
+					rootShapes.add(getShape(shape.asNode()));
 				}
 			}
+			this.rootShapes = Collections.unmodifiableList(rootShapes);
 		}
 		return rootShapes;
 	}
 	
 	
 	public Shape getShape(Node node) {
-		Shape shape = shapesMap.get(node);
-		if(shape == null) {
-			shape = new Shape(this, SHFactory.asShape(shapesModel.asRDFNode(node)));
-			shapesMap.put(node, shape);
+		return shapesMap.computeIfAbsent(node, n -> new Shape(this, SHFactory.asShape(shapesModel.asRDFNode(n))));
+	}
+	
+	
+	/**
+	 * Gets the reverse index from targets to shapes, building it on first access.
+	 * The index ignores any shape filters.
+	 * @return the ShapeTargetIndex
+	 */
+	public ShapeTargetIndex getShapeTargetIndex() {
+		ShapeTargetIndex index = shapeTargetIndex;
+		if(index == null) {
+			synchronized(this) {
+				if(shapeTargetIndex == null) {
+					shapeTargetIndex = new ShapeTargetIndex(shapesModel);
+				}
+				index = shapeTargetIndex;
+			}
+		}
+		return index;
+	}
+	
+	
+	/**
+	 * Gets the Model that the shapes are defined in.
+	 * @return the shapes Model
+	 */
+	public Model getShapesModel() {
+		return shapesModel;
+	}
+	
+	
+	/**
+	 * Gets a ShapesGraph for the same shapes Model but without any shape or constraint filters,
+	 * as needed for nested validation (e.g. tosh:hasShape) which must not ignore any shapes.
+	 * The result is created once so that its shapes and constraints can be reused.
+	 * @return this if there are no filters, otherwise a (compiled if this is compiled) copy
+	 */
+	public synchronized ShapesGraph getUnfilteredShapesGraph() {
+		if(constraintFilter == null && shapeFilter == null) {
+			return this;
 		}
-		return shape;
+		if(unfilteredShapesGraph == null) {
+			unfilteredShapesGraph = new ShapesGraph(shapesModel);
+			if(compiled) {
+				unfilteredShapesGraph.compile();
+			}
+		}
+		return unfilteredShapesGraph;
+	}
+	
+	
+	public boolean isCompiled() {
+		return compiled;
 	}
 	
 	
@@ -157,6 +284,7 @@ public class ShapesGraph {
 	 * @param value  the new constraint filter
 	 */
 	public void setConstraintFilter(Predicate<Constraint> value) {
+		checkNotCompiled();
 		this.constraintFilter = value;
 	}
 	
@@ -168,6 +296,14 @@ public class ShapesGraph {
 	 * @param value  the new shape filter
 	 */
 	public void setShapeFilter(Predicate<SHShape> value) {
+		checkNotCompiled();
 		this.shapeFilter = value;
 	}
+	
+	
+	private void checkNotCompiled() {
+		if(compiled) {
+			throw new IllegalStateException("Cannot modify a compiled ShapesGraph");
+		}
+	}
 }
@@ -0,0 +1,231 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * An index of the data graph that is used to compute the target nodes of many shapes
+ * without scanning the same triples over and over again.
+ * 
+ * The rdf:type and rdfs:subClassOf triples are each read in a single pass when the first
+ * class-based target is requested, and the subjects and objects of each predicate used
+ * by sh:targetSubjectsOf and sh:targetObjectsOf are collected on first request.
+ * An index can be shared by all shapes of a validation or rules run, and between such runs,
+ * as long as the data graph is not modified - otherwise {@link #clear()} must be called.
+ */
+public class TargetNodeIndex {
+	
+	private Map<Node,Set<RDFNode>> classInstances = new HashMap<>();
+	
+	private Model dataModel;
+	
+	private Dataset dataset;
+	
+	private Map<Node,List<Node>> directInstances;
+	
+	private Map<Node,List<Node>> directSubClasses;
+	
+	private Map<Node,Set<RDFNode>> objectsOf = new HashMap<>();
+	
+	private Map<Node,Set<RDFNode>> subjectsOf = new HashMap<>();
+	
+	
+	public TargetNodeIndex(Dataset dataset) {
+		this.dataset = dataset;
+		this.dataModel = dataset.getDefaultModel();
+	}
+	
+	
+	/**
+	 * Discards all indexed data, e.g. after the data graph has been modified.
+	 */
+	public synchronized void clear() {
+		classInstances.clear();
+		directInstances = null;
+		directSubClasses = null;
+		objectsOf.clear();
+		subjectsOf.clear();
+	}
+	
+	
+	public Dataset getDataset() {
+		return dataset;
+	}
+	
+	
+	/**
+	 * Gets all instances of a given class, including the instances of its (transitive) subclasses.
+	 * This is equivalent to JenaUtil.getAllInstances.
+	 * @param cls  the class node
+	 * @return the (unmodifiable) instances
+	 */
+	public synchronized Set<RDFNode> getInstances(Node cls) {
+		Set<RDFNode> results = classInstances.get(cls);
+		if(results == null) {
+			if(directInstances == null) {
+				directInstances = index(RDF.type.asNode());
+				directSubClasses = index(RDFS.subClassOf.asNode());
+			}
+			Set<Node> classes = new HashSet<>();
+			LinkedList<Node> queue = new LinkedList<>();
+			queue.add(cls);
+			classes.add(cls);
+			Set<RDFNode> instances = new LinkedHashSet<>();
+			while(!queue.isEmpty()) {
+				Node c = queue.removeFirst();
+				for(Node instance : directInstances.getOrDefault(c, Collections.emptyList())) {
+					instances.add(dataModel.asRDFNode(instance));
+				}
+				for(Node subClass : directSubClasses.getOrDefault(c, Collections.emptyList())) {
+					if(classes.add(subClass)) {
+						queue.add(subClass);
+					}
+				}
+			}
+			results = Collections.unmodifiableSet(instances);
+			classInstances.put(cls, results);
+		}
+		return results;
+	}
+	
+	
+	/**
+	 * Gets all objects of triples with a given predicate, as used by sh:targetObjectsOf.
+	 * @param predicate  the predicate node
+	 * @return the (unmodifiable) objects
+	 */
+	public synchronized Set<RDFNode> getObjectsOf(Node predicate) {
+		Set<RDFNode> results = objectsOf.get(predicate);
+		if(results == null) {
+			results = collect(predicate, false);
+			objectsOf.put(predicate, results);
+		}
+		return results;
+	}
+	
+	
+	/**
+	 * Gets all subjects of triples with a given predicate, as used by sh:targetSubjectsOf.
+	 * @param predicate  the predicate node
+	 * @return the (unmodifiable) subjects
+	 */
+	public synchronized Set<RDFNode> getSubjectsOf(Node predicate) {
+		Set<RDFNode> results = subjectsOf.get(predicate);
+		if(results == null) {
+			results = collect(predicate, true);
+			subjectsOf.put(predicate, results);
+		}
+		return results;
+	}
+	
+	
+	/**
+	 * Gets the target nodes of a given shape, using the same rules as SHACLUtil.getTargetNodes.
+	 * Custom targets (sh:target) are not indexed and get evaluated on each call.
+	 * @param shape  the shape to get the target nodes of
+	 * @return a new List of target nodes without duplicates
+	 */
+	public List<RDFNode> getTargetNodes(Resource shape) {
+		
+		Set<RDFNode> results = new HashSet<RDFNode>();
+		
+		if(JenaUtil.hasIndirectType(shape, RDFS.Class)) {
+			results.addAll(getInstances(shape.asNode()));
+		}
+		
+		for(Resource targetClass : JenaUtil.getResourceProperties(shape, SH.targetClass)) {
+			results.addAll(getInstances(targetClass.asNode()));
+		}
+		
+		for(RDFNode targetNode : shape.getModel().listObjectsOfProperty(shape, SH.targetNode).toList()) {
+			results.add(targetNode.inModel(dataModel));
+		}
+		
+		for(Resource sof : JenaUtil.getResourceProperties(shape, SH.targetSubjectsOf)) {
+			results.addAll(getSubjectsOf(sof.asNode()));
+		}
+		
+		for(Resource oof : JenaUtil.getResourceProperties(shape, SH.targetObjectsOf)) {
+			results.addAll(getObjectsOf(oof.asNode()));
+		}
+		
+		for(Resource target : JenaUtil.getResourceProperties(shape, SH.target)) {
+			for(RDFNode targetNode : SHACLUtil.getResourcesInTarget(target, dataset)) {
+				results.add(targetNode);
+			}
+		}
+
+		return new ArrayList<RDFNode>(results);
+	}
+	
+	
+	private Set<RDFNode> collect(Node predicate, boolean subjects) {
+		Set<RDFNode> results = new LinkedHashSet<>();
+		ExtendedIterator<Triple> it = dataModel.getGraph().find(Node.ANY, predicate, Node.ANY);
+		try {
+			while(it.hasNext()) {
+				Triple triple = it.next();
+				results.add(dataModel.asRDFNode(subjects ? triple.getSubject() : triple.getObject()));
+			}
+		}
+		finally {
+			it.close();
+		}
+		return Collections.unmodifiableSet(results);
+	}
+	
+	
+	// Maps the objects of all triples with a given predicate to their subjects
+	private Map<Node,List<Node>> index(Node predicate) {
+		Map<Node,List<Node>> map = new HashMap<>();
+		Graph graph = dataModel.getGraph();
+		ExtendedIterator<Triple> it = graph.find(Node.ANY, predicate, Node.ANY);
+		try {
+			while(it.hasNext()) {
+				Triple triple = it.next();
+				map.computeIfAbsent(triple.getObject(), k -> new ArrayList<>(2)).add(triple.getSubject());
+			}
+		}
+		finally {
+			it.close();
+		}
+		return map;
+	}
+}
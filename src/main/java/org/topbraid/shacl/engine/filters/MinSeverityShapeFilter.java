@@ -38,7 +38,12 @@ public class MinSeverityShapeFilter implements Predicate<SHShape> {
 	}
 	
 	
-	private Integer getScore(Resource severity) {
+	/**
+	 * Gets the rank of a given severity, with higher values for more severe results.
+	 * @param severity  the severity, e.g. sh:Violation
+	 * @return 2 for sh:Violation, 1 for sh:Warning and 0 for any other severity
+	 */
+	public static int getScore(Resource severity) {
 		if(SH.Violation.equals(severity)) {
 			return 2;
 		}
@@ -16,5 +16,14 @@
  */
 package org.topbraid.shacl.expr;
 
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+
 public abstract class AtomicNodeExpression extends NodeExpression {
+
+	@Override
+	public boolean addReadPredicates(Set<Node> results) {
+		return true;
+	}
 }
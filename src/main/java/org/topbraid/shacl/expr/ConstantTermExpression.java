@@ -38,6 +38,11 @@ public class ConstantTermExpression extends AtomicNodeExpression {
 	public List<RDFNode> eval(RDFNode focusNode, NodeExpressionContext context) {
 		return result;
 	}
+	
+	
+	public RDFNode getTerm() {
+		return term;
+	}
 
 	
 	@Override
@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.RDFNode;
 
 public class IntersectionExpression extends ComplexNodeExpression {
@@ -80,4 +81,15 @@ public class IntersectionExpression extends ComplexNodeExpression {
 		}
 		return new ArrayList<RDFNode>(results);
 	}
+	
+	
+	@Override
+	public boolean addReadPredicates(Set<Node> results) {
+		for(NodeExpression input : inputs) {
+			if(!input.addReadPredicates(results)) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
@@ -17,11 +17,24 @@
 package org.topbraid.shacl.expr;
 
 import java.util.List;
+import java.util.Set;
 
+import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.RDFNode;
 
 public abstract class NodeExpression {
 
 	// Note: the result List must not contain duplicates
 	public abstract List<RDFNode> eval(RDFNode focusNode, NodeExpressionContext context);
+	
+	
+	/**
+	 * Collects the predicates of the data graph that the evaluation of this expression may depend on.
+	 * The default implementation gives up, e.g. for function calls that may query anything.
+	 * @param results  the Set to add the predicates to
+	 * @return false if the predicates cannot be determined
+	 */
+	public boolean addReadPredicates(Set<Node> results) {
+		return false;
+	}
 }
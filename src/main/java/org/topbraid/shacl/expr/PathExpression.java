@@ -22,13 +22,17 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.sparql.path.Path;
+import org.topbraid.shacl.arq.CompiledPath;
 import org.topbraid.shacl.arq.SHACLPaths;
 
 public class PathExpression extends ComplexNodeExpression {
 	
+	private CompiledPath compiledPath;
+	
 	private NodeExpression input;
 	
 	private Path jenaPath;
@@ -41,6 +45,7 @@ public class PathExpression extends ComplexNodeExpression {
 		this.path = path;
 		if(path.isAnon()) {
 			jenaPath = (Path) SHACLPaths.getJenaPath(SHACLPaths.getPathString(path), path.getModel());
+			compiledPath = CompiledPath.get(jenaPath);
 		}
 	}
 
@@ -74,11 +79,34 @@ public class PathExpression extends ComplexNodeExpression {
 	}
 
 
+	@Override
+	public boolean addReadPredicates(Set<Node> results) {
+		if(input != null && !input.addReadPredicates(results)) {
+			return false;
+		}
+		else if(jenaPath != null) {
+			return SHACLPaths.addPredicates(jenaPath, results);
+		}
+		else if(path.isURIResource()) {
+			results.add(path.asNode());
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+
 	@Override
 	public List<RDFNode> eval(RDFNode focusNode, NodeExpressionContext context) {
 		if(input != null) {
 			Set<RDFNode> results = new HashSet<>();
-			if(jenaPath == null) {
+			if(compiledPath != null) {
+				for(RDFNode node : input.eval(focusNode, context)) {
+					compiledPath.addValueNodes(node.inModel(context.getDataset().getDefaultModel()), results, null);
+				}
+			}
+			else if(jenaPath == null) {
 				for(RDFNode node : input.eval(focusNode, context)) {
 					SHACLPaths.addValueNodes(node.inModel(context.getDataset().getDefaultModel()), path, results);
 				}
@@ -92,7 +120,10 @@ public class PathExpression extends ComplexNodeExpression {
 		}
 		else {
 			List<RDFNode> results = new LinkedList<>();
-			if(jenaPath == null) {
+			if(compiledPath != null) {
+				compiledPath.addValueNodes(focusNode.inModel(context.getDataset().getDefaultModel()), results, null);
+			}
+			else if(jenaPath == null) {
 				SHACLPaths.addValueNodes(focusNode.inModel(context.getDataset().getDefaultModel()), path, results);
 			}
 			else {
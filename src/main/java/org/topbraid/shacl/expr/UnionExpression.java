@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.RDFNode;
 
 public class UnionExpression extends ComplexNodeExpression {
@@ -70,4 +71,15 @@ public class UnionExpression extends ComplexNodeExpression {
 		}
 		return new ArrayList<RDFNode>(results);
 	}
+	
+	
+	@Override
+	public boolean addReadPredicates(Set<Node> results) {
+		for(NodeExpression input : inputs) {
+			if(!input.addReadPredicates(results)) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
@@ -17,6 +17,7 @@
 package org.topbraid.shacl.js;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.jena.graph.Graph;
@@ -30,6 +31,12 @@ import org.topbraid.spin.util.ExceptionUtil;
 
 public class JSGraph {
 	
+	/**
+	 * Can be set to false to make {@link #query()} use the JavaScript implementation
+	 * of rdfquery.js instead of {@link JSQuery}.
+	 */
+	public static boolean nativeQueries = true;
+	
 	protected JSScriptEngine engine;
 	
 	private Graph graph;
@@ -75,7 +82,38 @@ public class JSGraph {
 	}
 	
 	
+	/**
+	 * Gets all triples that match a given pattern at once, as an alternative to find()
+	 * for callers that want to avoid the overhead of an iterator object that must be closed.
+	 * @param subjectSOM  the subject or null
+	 * @param predicateSOM  the predicate or null
+	 * @param objectSOM  the object or null
+	 * @return an array of JSTriples
+	 */
+	public JSTriple[] findAll(Object subjectSOM, Object predicateSOM, Object objectSOM) {
+		Node subject = JSFactory.getNode(subjectSOM);
+		Node predicate = JSFactory.getNode(predicateSOM);
+		Node object = JSFactory.getNode(objectSOM);
+		List<Triple> triples = getGraph().find(subject, predicate, object).toList();
+		JSTriple[] results = new JSTriple[triples.size()];
+		int i = 0;
+		for(Triple triple : triples) {
+			results[i++] = JSFactory.asJSTriple(triple);
+		}
+		return results;
+	}
+	
+	
+	/**
+	 * Creates the start of an RDFQuery (as defined by rdfquery.js) for this graph.
+	 * Unless switched off using {@link #nativeQueries}, this is a {@link JSQuery}
+	 * that executes the triple matches and path walks in Java.
+	 * @return the query object
+	 */
 	public Object query() {
+		if(nativeQueries) {
+			return new JSQuery(this);
+		}
 		try {
 			return engine.invokeFunctionOrdered("RDFQuery", new Object[] { this });
 		}
@@ -0,0 +1,773 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.js;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.path.Path;
+import org.apache.jena.sparql.path.PathFactory;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.topbraid.shacl.arq.CompiledPath;
+import org.topbraid.shacl.js.graal.GraalJSScriptEngine;
+import org.topbraid.shacl.js.model.JSFactory;
+import org.topbraid.shacl.js.model.JSTerm;
+import org.topbraid.shacl.js.model.TermFactory;
+import org.topbraid.spin.util.ExceptionUtil;
+
+/**
+ * A native implementation of the query objects of rdfquery.js, as produced by <code>$data.query()</code>.
+ * The triple matches, path walks, limits and sorting are executed against the Jena Graph directly,
+ * so that only the final results need to be converted into JavaScript terms.
+ * 
+ * Functions that take JavaScript callbacks or produce JavaScript objects (such as filter, forEach
+ * and nextSolution) hand the remaining solutions over to the JavaScript implementation of RDFQuery,
+ * so that scripts see exactly the same API as before. The solutions are streamed into JavaScript
+ * one at a time.
+ */
+public class JSQuery {
+	
+	private final static String HAND_OVER_FUNCTION_NAME = "theNativeQueryHandOverFunction";
+	
+	// Creates a JavaScript RDFQuery that pulls its solutions from a SolutionCursor
+	private final static String HAND_OVER_FUNCTION =
+			"function " + HAND_OVER_FUNCTION_NAME + "(graph, cursor, functionName, arg1, arg2, arg3) {\n" +
+			"    var query = Object.create(AbstractQuery.prototype);\n" +
+			"    query.source = graph;\n" +
+			"    query.close = function() {\n" +
+			"        cursor.close();\n" +
+			"    };\n" +
+			"    query.nextSolution = function() {\n" +
+			"        if(!cursor.advance()) {\n" +
+			"            return null;\n" +
+			"        }\n" +
+			"        var vars = cursor.getVars();\n" +
+			"        var terms = cursor.getTerms();\n" +
+			"        var solution = {};\n" +
+			"        for(var i = 0; i < vars.length; i++) {\n" +
+			"            solution[vars[i]] = terms[i];\n" +
+			"        }\n" +
+			"        return solution;\n" +
+			"    };\n" +
+			"    return query[functionName](arg1, arg2, arg3);\n" +
+			"}";
+	
+	private JSGraph graph;
+	
+	private Operator operator;
+	
+	private TermFactory termFactory;
+	
+	
+	JSQuery(JSGraph graph) {
+		this(graph, new StartOperator(), null);
+	}
+	
+	
+	private JSQuery(JSGraph graph, Operator operator, TermFactory termFactory) {
+		this.graph = graph;
+		this.operator = operator;
+		this.termFactory = termFactory;
+	}
+	
+	
+	// Query constructor functions ----------------------------------------------------------
+	
+	public Object bind(String varName, Object bindFunction) {
+		return handOver("bind", varName, bindFunction, null);
+	}
+	
+	
+	public Object filter(Object filterFunction) {
+		return handOver("filter", filterFunction, null, null);
+	}
+	
+	
+	public JSQuery limit(int limit) {
+		return chain(new LimitOperator(operator, limit));
+	}
+	
+	
+	public JSQuery match(Object s, Object p, Object o) {
+		return chain(new MatchOperator(operator, graph, new Pattern(s), new Pattern(p), new Pattern(o)));
+	}
+	
+	
+	public JSQuery orderBy(String varName) {
+		return chain(new OrderByOperator(operator, var2Attr(varName)));
+	}
+	
+	
+	public JSQuery path(Object s, Object path, Object o) {
+		if(path == null) {
+			throw new IllegalArgumentException("Path cannot be unbound");
+		}
+		else if(path instanceof String || (path instanceof JSTerm && ((JSTerm)path).getNode().isURI())) {
+			return match(s, path, o);
+		}
+		else {
+			CompiledPath compiledPath = CompiledPath.get(toPath(path));
+			return chain(new PathOperator(operator, graph, new Pattern(s), compiledPath, new Pattern(o)));
+		}
+	}
+	
+	
+	// Terminal functions -------------------------------------------------------------------
+	
+	public void addAllNodes(String varName, Object set) {
+		handOver("addAllNodes", varName, set, null);
+	}
+	
+	
+	public void close() {
+		operator.close();
+	}
+	
+	
+	public Object construct(Object subject, Object predicate, Object object) {
+		return handOver("construct", subject, predicate, object);
+	}
+	
+	
+	public void forEach(Object callback) {
+		handOver("forEach", callback, null, null);
+	}
+	
+	
+	public void forEachNode(String varName, Object callback) {
+		handOver("forEachNode", varName, callback, null);
+	}
+	
+	
+	public Object getArray() {
+		return handOver("getArray", null, null, null);
+	}
+	
+	
+	public int getCount() {
+		int count = 0;
+		while(operator.next() != null) {
+			count++;
+		}
+		return count;
+	}
+	
+	
+	public JSTerm getNode(String varName) {
+		String attr = var2Attr(varName);
+		Map<String,Node> solution = operator.next();
+		if(solution != null) {
+			operator.close();
+			Node node = solution.get(attr);
+			return node != null ? JSFactory.asJSTerm(node) : null;
+		}
+		else {
+			return null;
+		}
+	}
+	
+	
+	public Object getNodeArray(String varName) {
+		String attr = var2Attr(varName);
+		List<JSTerm> results = new ArrayList<>();
+		for(Map<String,Node> solution = operator.next(); solution != null; solution = operator.next()) {
+			Node node = solution.get(attr);
+			results.add(node != null ? JSFactory.asJSTerm(node) : null);
+		}
+		try {
+			return graph.engine.createArray(results.toArray(new JSTerm[results.size()]));
+		}
+		catch(Exception ex) {
+			throw ExceptionUtil.throwUnchecked(ex);
+		}
+	}
+	
+	
+	public Object getNodeSet(String varName) {
+		return handOver("getNodeSet", varName, null, null);
+	}
+	
+	
+	public JSTerm getObject(Object subject, Object predicate) {
+		Map<String,Node> solution = operator.next();
+		if(solution != null) {
+			operator.close();
+			Node s = new Pattern(subject).get(solution);
+			if(s == null) {
+				throw new IllegalArgumentException("getObject() called with null subject");
+			}
+			Node p = new Pattern(predicate).get(solution);
+			if(p == null) {
+				throw new IllegalArgumentException("getObject() called with null predicate");
+			}
+			ExtendedIterator<Triple> it = graph.getGraph().find(s, p, Node.ANY);
+			try {
+				if(it.hasNext()) {
+					return JSFactory.asJSTerm(it.next().getObject());
+				}
+			}
+			finally {
+				it.close();
+			}
+		}
+		return null;
+	}
+	
+	
+	public boolean hasSolution() {
+		if(operator.next() != null) {
+			operator.close();
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+	
+	
+	public Object nextSolution() {
+		Map<String,Node> solution = operator.next();
+		if(solution != null) {
+			return handOver(new StartOperator(solution), "nextSolution", null, null, null);
+		}
+		else {
+			return null;
+		}
+	}
+	
+	
+	// Implementation -----------------------------------------------------------------------
+	
+	private JSQuery chain(Operator next) {
+		return new JSQuery(graph, next, termFactory);
+	}
+	
+	
+	private Object handOver(String functionName, Object arg1, Object arg2, Object arg3) {
+		return handOver(operator, functionName, arg1, arg2, arg3);
+	}
+	
+	
+	// Creates a JavaScript RDFQuery that streams the solutions of an Operator and calls a function on it
+	private Object handOver(Operator input, String functionName, Object arg1, Object arg2, Object arg3) {
+		Object[] args = new Object[] { graph, new SolutionCursor(input), functionName, arg1, arg2, arg3 };
+		JSScriptEngine engine = graph.engine;
+		try {
+			if(engine.get(HAND_OVER_FUNCTION_NAME) == null) {
+				engine.eval(HAND_OVER_FUNCTION);
+			}
+			if(engine instanceof GraalJSScriptEngine) {
+				// Return the JavaScript objects (such as arrays and NodeSets) without converting them to Java
+				return ((GraalJSScriptEngine) engine).invokeFunctionAsValue(HAND_OVER_FUNCTION_NAME, args);
+			}
+			else {
+				return engine.invokeFunctionOrdered(HAND_OVER_FUNCTION_NAME, args);
+			}
+		}
+		catch(Exception ex) {
+			throw ExceptionUtil.throwUnchecked(ex);
+		}
+	}
+	
+	
+	private Node parseTerm(String str) {
+		if(termFactory == null) {
+			// Use the engine's TermFactory so that the prefixes registered by the scripts are known
+			Object value = graph.engine.get("TermFactory");
+			termFactory = value instanceof TermFactory ? (TermFactory) value : new TermFactory();
+		}
+		return termFactory.term(str).getNode();
+	}
+	
+	
+	// Converts the path syntax of rdfquery.js into a SPARQL property path
+	@SuppressWarnings("rawtypes")
+	private Path toPath(Object path) {
+		try {
+			if(path instanceof String) {
+				return PathFactory.pathLink(parseTerm((String)path));
+			}
+			else if(path instanceof JSTerm) {
+				Node node = ((JSTerm)path).getNode();
+				if(!node.isURI()) {
+					throw new IllegalArgumentException("Unsupported path object: " + path);
+				}
+				return PathFactory.pathLink(node);
+			}
+			else if(NashornUtil.isArray(path)) {
+				Object[] members = NashornUtil.asArray(path);
+				if(members == null || members.length == 0) {
+					throw new IllegalArgumentException("Sequence paths must have at least one member");
+				}
+				Path result = toPath(members[0]);
+				for(int i = 1; i < members.length; i++) {
+					result = PathFactory.pathSeq(result, toPath(members[i]));
+				}
+				return result;
+			}
+			else if(path instanceof Map) {
+				Map map = (Map) path;
+				if(map.get("or") != null) {
+					Object[] members = NashornUtil.asArray(map.get("or"));
+					if(members == null || members.length == 0) {
+						throw new IllegalArgumentException("Alternative paths must have at least one member");
+					}
+					Path result = toPath(members[0]);
+					for(int i = 1; i < members.length; i++) {
+						result = PathFactory.pathAlt(result, toPath(members[i]));
+					}
+					return result;
+				}
+				else if(map.get("inverse") != null) {
+					return PathFactory.pathInverse(toPath(map.get("inverse")));
+				}
+				else if(map.get("zeroOrOne") != null) {
+					return PathFactory.pathZeroOrOne(toPath(map.get("zeroOrOne")));
+				}
+				else if(map.get("zeroOrMore") != null) {
+					return PathFactory.pathZeroOrMore1(toPath(map.get("zeroOrMore")));
+				}
+				else if(map.get("oneOrMore") != null) {
+					return PathFactory.pathOneOrMore1(toPath(map.get("oneOrMore")));
+				}
+			}
+		}
+		catch(IllegalArgumentException ex) {
+			throw ex;
+		}
+		catch(Exception ex) {
+			throw ExceptionUtil.throwUnchecked(ex);
+		}
+		throw new IllegalArgumentException("Unsupported path object: " + path);
+	}
+	
+	
+	private static String var2Attr(String varName) {
+		if(varName == null || !varName.startsWith("?")) {
+			throw new IllegalArgumentException("Variable name must start with ?");
+		}
+		if(varName.length() == 1) {
+			throw new IllegalArgumentException("Variable name too short");
+		}
+		return varName.substring(1);
+	}
+	
+	
+	private static Map<String,Node> createSolution(Map<String,Node> base) {
+		return new HashMap<>(base);
+	}
+	
+	
+	// The subject, predicate or object position of a match: either a variable or a (possibly null) node
+	private class Pattern {
+		
+		private Node node;
+		
+		private String var;
+		
+		
+		Pattern(Object value) {
+			if(value instanceof String) {
+				String str = (String) value;
+				if(str.startsWith("?")) {
+					var = var2Attr(str);
+				}
+				else {
+					node = parseTerm(str);
+				}
+			}
+			else {
+				node = JSFactory.getNode(value);
+			}
+		}
+		
+		
+		Node get(Map<String,Node> solution) {
+			return var != null ? solution.get(var) : node;
+		}
+	}
+	
+	
+	/**
+	 * Passes the solutions of a native query into the JavaScript query that it has been handed over to,
+	 * one solution at a time, so that the solutions do not need to be collected upfront.
+	 * This needs to be public so that the script engines can access it.
+	 */
+	public static class SolutionCursor {
+		
+		private Operator input;
+		
+		private JSTerm[] terms;
+		
+		private String[] vars;
+		
+		
+		private SolutionCursor(Operator input) {
+			this.input = input;
+		}
+		
+		
+		/**
+		 * Moves to the next solution.
+		 * @return true if there is another solution, false if the input is exhausted
+		 */
+		public boolean advance() {
+			Map<String,Node> solution = input.next();
+			if(solution == null) {
+				terms = null;
+				vars = null;
+				return false;
+			}
+			List<String> varList = new ArrayList<>(solution.size());
+			List<JSTerm> termList = new ArrayList<>(solution.size());
+			for(Map.Entry<String,Node> entry : solution.entrySet()) {
+				if(entry.getValue() != null) {
+					varList.add(entry.getKey());
+					termList.add(JSFactory.asJSTerm(entry.getValue()));
+				}
+			}
+			vars = varList.toArray(new String[varList.size()]);
+			terms = termList.toArray(new JSTerm[termList.size()]);
+			return true;
+		}
+		
+		
+		public void close() {
+			input.close();
+		}
+		
+		
+		/**
+		 * Gets the terms of the current solution, in the order of {@link #getVars()}.
+		 * @return the terms
+		 */
+		public JSTerm[] getTerms() {
+			return terms;
+		}
+		
+		
+		/**
+		 * Gets the names (without ?) of the variables that are bound in the current solution.
+		 * @return the variable names
+		 */
+		public String[] getVars() {
+			return vars;
+		}
+	}
+	
+	
+	// The Java counterpart of the query classes of rdfquery.js, producing solutions "volcano style"
+	private static abstract class Operator {
+		
+		abstract void close();
+		
+		abstract Map<String,Node> next();
+	}
+	
+	
+	private static class LimitOperator extends Operator {
+		
+		private Operator input;
+		
+		private int limit;
+		
+		
+		LimitOperator(Operator input, int limit) {
+			this.input = input;
+			this.limit = limit;
+		}
+		
+
+		@Override
+		void close() {
+			input.close();
+		}
+		
+
+		@Override
+		Map<String,Node> next() {
+			if(limit > 0) {
+				limit--;
+				return input.next();
+			}
+			else {
+				input.close();
+				return null;
+			}
+		}
+	}
+	
+	
+	private static class MatchOperator extends Operator {
+		
+		private JSGraph graph;
+		
+		private Operator input;
+		
+		private Map<String,Node> inputSolution;
+		
+		private ExtendedIterator<Triple> it;
+		
+		private Pattern s;
+		
+		private Pattern p;
+		
+		private Pattern o;
+		
+		
+		MatchOperator(Operator input, JSGraph graph, Pattern s, Pattern p, Pattern o) {
+			this.input = input;
+			this.graph = graph;
+			this.s = s;
+			this.p = p;
+			this.o = o;
+		}
+		
+
+		@Override
+		void close() {
+			input.close();
+			if(it != null) {
+				it.close();
+				it = null;
+			}
+		}
+		
+
+		@Override
+		Map<String,Node> next() {
+			for(;;) {
+				if(it != null) {
+					if(it.hasNext()) {
+						Triple triple = it.next();
+						Map<String,Node> result = createSolution(inputSolution);
+						if(s.var != null) {
+							result.put(s.var, triple.getSubject());
+						}
+						if(p.var != null) {
+							result.put(p.var, triple.getPredicate());
+						}
+						if(o.var != null) {
+							result.put(o.var, triple.getObject());
+						}
+						return result;
+					}
+					else {
+						it.close();
+						it = null;
+					}
+				}
+				inputSolution = input.next();
+				if(inputSolution == null) {
+					return null;
+				}
+				it = graph.getGraph().find(asMatch(s.get(inputSolution)), asMatch(p.get(inputSolution)), asMatch(o.get(inputSolution)));
+			}
+		}
+		
+		
+		private static Node asMatch(Node node) {
+			return node != null ? node : Node.ANY;
+		}
+	}
+	
+	
+	private static class OrderByOperator extends Operator {
+		
+		private String attr;
+		
+		private Operator input;
+		
+		private Iterator<Map<String,Node>> solutions;
+		
+		
+		OrderByOperator(Operator input, String attr) {
+			this.input = input;
+			this.attr = attr;
+		}
+		
+
+		@Override
+		void close() {
+			input.close();
+		}
+		
+
+		@Override
+		Map<String,Node> next() {
+			if(solutions == null) {
+				List<Map<String,Node>> list = new ArrayList<>();
+				for(Map<String,Node> solution = input.next(); solution != null; solution = input.next()) {
+					list.add(solution);
+				}
+				Collator collator = createCollator();
+				Comparator<Node> comparator = Comparator.nullsLast((n1, n2) -> compareTerms(collator, n1, n2));
+				list.sort((s1, s2) -> comparator.compare(s1.get(attr), s2.get(attr)));
+				solutions = list.iterator();
+			}
+			return solutions.hasNext() ? solutions.next() : null;
+		}
+		
+		
+		// The same Collator that Nashorn uses for String.prototype.localeCompare
+		private static Collator createCollator() {
+			Collator collator = Collator.getInstance();
+			collator.setStrength(Collator.IDENTICAL);
+			collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+			return collator;
+		}
+		
+		
+		// Same order as compareTerms in rdfquery.js: by term type, value, datatype and language,
+		// with the strings compared like localeCompare
+		private static int compareTerms(Collator collator, Node n1, Node n2) {
+			int bt = collator.compare(JSFactory.asJSTerm(n1).getTermType(), JSFactory.asJSTerm(n2).getTermType());
+			if(bt != 0) {
+				return bt;
+			}
+			int bv = collator.compare(JSFactory.asJSTerm(n1).getValue(), JSFactory.asJSTerm(n2).getValue());
+			if(bv != 0) {
+				return bv;
+			}
+			else if(n1.isLiteral()) {
+				int bd = collator.compare(n1.getLiteralDatatypeURI(), n2.getLiteralDatatypeURI());
+				if(bd != 0) {
+					return bd;
+				}
+				return collator.compare(n1.getLiteralLanguage(), n2.getLiteralLanguage());
+			}
+			else {
+				return 0;
+			}
+		}
+	}
+	
+	
+	private static class PathOperator extends Operator {
+		
+		private JSGraph graph;
+		
+		private Operator input;
+		
+		private Map<String,Node> inputSolution;
+		
+		private Iterator<Node> it;
+		
+		private Pattern subject;
+		
+		private CompiledPath path;
+		
+		private Pattern object;
+		
+		
+		PathOperator(Operator input, JSGraph graph, Pattern subject, CompiledPath path, Pattern object) {
+			this.input = input;
+			this.graph = graph;
+			this.subject = subject;
+			this.path = path;
+			this.object = object;
+		}
+		
+
+		@Override
+		void close() {
+			input.close();
+		}
+		
+
+		@Override
+		Map<String,Node> next() {
+			for(;;) {
+				if(it != null) {
+					if(it.hasNext()) {
+						Map<String,Node> result = createSolution(inputSolution);
+						Node node = it.next();
+						if(object.var != null) {
+							result.put(object.var, node);
+						}
+						return result;
+					}
+					else {
+						it = null;
+					}
+				}
+				inputSolution = input.next();
+				if(inputSolution == null) {
+					return null;
+				}
+				Node s = subject.get(inputSolution);
+				if(s == null) {
+					throw new IllegalArgumentException("Path cannot have unbound subject");
+				}
+				Set<Node> values = path.eval(graph.getGraph(), s, null);
+				Node o = object.get(inputSolution);
+				if(o != null) {
+					if(values.contains(o)) {
+						return inputSolution;
+					}
+				}
+				else {
+					it = values.iterator();
+				}
+			}
+		}
+	}
+	
+	
+	// Produces a single solution, by default an empty one
+	private static class StartOperator extends Operator {
+		
+		private boolean done;
+		
+		private Map<String,Node> solution;
+		
+		
+		StartOperator() {
+			this(new HashMap<>());
+		}
+		
+		
+		StartOperator(Map<String,Node> solution) {
+			this.solution = solution;
+		}
+		
+
+		@Override
+		void close() {
+		}
+		
+
+		@Override
+		Map<String,Node> next() {
+			if(done) {
+				return null;
+			}
+			else {
+				done = true;
+				return solution;
+			}
+		}
+	}
+}
@@ -16,6 +16,9 @@
  */
 package org.topbraid.shacl.js;
 
+import java.util.List;
+import java.util.Map;
+
 import javax.script.ScriptException;
 
 import org.apache.jena.query.QuerySolution;
@@ -29,6 +32,24 @@ import org.apache.jena.rdf.model.Resource;
  */
 public interface JSScriptEngine {
 	
+	/**
+	 * Releases the resources held by this engine, which must not be used afterwards.
+	 * This is called by SHACLScriptEngineManager for the engines that it does not keep for reuse.
+	 */
+	default void close() {
+	}
+	
+	/**
+	 * Converts a Java array into a JavaScript array that can be passed into the functions of this engine,
+	 * e.g. via {@link #invokeFunctionWithArgs(String, Map)}.
+	 * The default implementation returns the Java array, which scripts can only access by index.
+	 * @param items  the items of the array
+	 * @return the JavaScript array
+	 */
+	default Object createArray(Object[] items) throws ScriptException {
+		return items;
+	}
+	
 	Object eval(String expr) throws ScriptException;
 
 	void executeLibraries(Resource exec) throws Exception;
@@ -40,6 +61,54 @@ public interface JSScriptEngine {
 	Object invokeFunction(String functionName, QuerySolution bindings) throws javax.script.ScriptException, java.lang.NoSuchMethodException;
 	
 	Object invokeFunctionOrdered(String functionName, Object[] args) throws javax.script.ScriptException, java.lang.NoSuchMethodException;
+	
+	/**
+	 * Calls a function, matching the keys of a given Map with the names of its parameters
+	 * (with or without leading $).
+	 * Unlike {@link #invokeFunction(String, QuerySolution)}, the values are passed as they are,
+	 * so RDF nodes must have been converted to JavaScript terms already.
+	 * The default implementation finds the parameter names in the source code of the function
+	 * and then uses {@link #invokeFunctionOrdered(String, Object[])}.
+	 * @param functionName  the name of the function
+	 * @param args  the arguments, by parameter name
+	 * @return the result of the function
+	 */
+	default Object invokeFunctionWithArgs(String functionName, Map<String,Object> args) throws javax.script.ScriptException, java.lang.NoSuchMethodException {
+		Object function = get(functionName);
+		if(function == null) {
+			throw new ScriptException("Cannot find JavaScript function \"" + functionName + "\"");
+		}
+		List<String> functionParams = NashornUtil.getFunctionParameters(function.toString());
+		Object[] params = new Object[functionParams.size()];
+		for(int i = 0; i < params.length; i++) {
+			String param = functionParams.get(i);
+			params[i] = args.containsKey(param) || !param.startsWith("$") ? args.get(param) : args.get(param.substring(1));
+		}
+		return invokeFunctionOrdered(functionName, params);
+	}
 
 	void put(String varName, Object value);
+	
+	
+	/**
+	 * Restores the initial state of this engine so that it can be reused for any other shapes graph.
+	 * This removes the variables that have been set using put(), the libraries that have been
+	 * loaded so far and any other global state that scripts may have created.
+	 * @return true if this engine can be reused, false to discard it
+	 */
+	default boolean reset() {
+		return false;
+	}
+	
+	
+	/**
+	 * Prepares this engine so that it can be reused for another validation with the same
+	 * shapes graph, by removing the variables that have been set using put().
+	 * The libraries that have been loaded so far may remain installed.
+	 * The default implementation calls {@link #reset()}.
+	 * @return true if this engine can be reused, false to discard it
+	 */
+	default boolean resetVariables() {
+		return reset();
+	}
 }
@@ -16,15 +16,20 @@
  */
 package org.topbraid.shacl.js;
 
+import org.topbraid.shacl.js.graal.GraalJSScriptEngineFactory;
+
 /**
  * A singleton that should be used to produce new JSScriptEngines.
- * Returns a Nashorn-based engine by default.
+ * Returns a Nashorn-based engine by default, unless the system property {@link #ENGINE_PROPERTY}
+ * is set to "graal", in which case the GraalJSScriptEngineFactory is installed.
  * 
  * @author Holger Knublauch
  */
 public class JSScriptEngineFactory {
 
-	private static JSScriptEngineFactory singleton = new JSScriptEngineFactory();
+	public static final String ENGINE_PROPERTY = "org.topbraid.shacl.js.engine";
+
+	private static JSScriptEngineFactory singleton = createDefault();
 	
 	public static JSScriptEngineFactory get() {
 		return singleton;
@@ -35,6 +40,16 @@ public class JSScriptEngineFactory {
 	}
 	
 	
+	private static JSScriptEngineFactory createDefault() {
+		if("graal".equals(System.getProperty(ENGINE_PROPERTY))) {
+			return new GraalJSScriptEngineFactory();
+		}
+		else {
+			return new JSScriptEngineFactory();
+		}
+	}
+	
+	
 	public JSScriptEngine createScriptEngine() {
 		return new NashornScriptEngine();
 	}
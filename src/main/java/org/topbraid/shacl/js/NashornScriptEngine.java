@@ -16,6 +16,7 @@
  */
 package org.topbraid.shacl.js;
 
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URL;
@@ -26,11 +27,17 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
 
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.rdf.model.RDFNode;
@@ -45,6 +52,12 @@ import org.topbraid.spin.util.JenaUtil;
 /**
  * Default implementation of JSScriptEngine, based on Nashorn.
  * 
+ * All instances share a single Nashorn ScriptEngine, but each instance has a ScriptContext
+ * with a JavaScript global object of its own.
+ * This allows the libraries to be compiled only once: the CompiledScripts are cached by the
+ * class of the engine and their URL, and then only need to be evaluated in the context of each instance.
+ * The script is still read each time, and compiled again if its content has changed.
+ * 
  * @author Holger Knublauch
  */
 public class NashornScriptEngine implements JSScriptEngine {
@@ -62,10 +75,31 @@ public class NashornScriptEngine implements JSScriptEngine {
 			"    });\n" +
 			"}";
 	
+	private final static String ARRAY_FUNCTION_NAME = "theGoodOldArrayFunction";
+	
+	private final static String ARRAY_FUNCTION =
+			"function " + ARRAY_FUNCTION_NAME + "(items) {\n" +
+			"    var results = [];\n" +
+			"    for(var i = 0; i < items.length; i++) {\n" +
+			"        results.push(items[i]);\n" +
+			"    }\n" +
+			"    return results;\n" +
+			"}";
+	
 	public static final String DASH_JS = "http://datashapes.org/js/dash.js";
 
 	public static final String RDFQUERY_JS = "http://datashapes.org/js/rdfquery.js";
 
+	private static ScriptEngine sharedEngine;
+	
+	// Keyed by the class name of the engine and the URL, because subclasses may read scripts differently
+	private static Map<String,CachedScript> compiledScripts = new ConcurrentHashMap<>();
+	
+	// The ENGINE_SCOPE of the context, holding the JavaScript global object of this instance
+	private Bindings bindings;
+	
+	private ScriptContext context;
+	
 	private ScriptEngine engine;
 	
 	private Map<String,List<String>> functionParametersMap = new HashMap<>();
@@ -76,19 +110,51 @@ public class NashornScriptEngine implements JSScriptEngine {
 	
 	private Set<String> loadedURLs = new HashSet<>();
 	
+	// The variables that have been set using put(), to be removed by reset()
+	private Set<String> varNames = new HashSet<>();
+	
 	
 	public NashornScriptEngine() {
-		engine = findNashorn();
-		engine.put("TermFactory", new TermFactory());
+		engine = getSharedEngine();
+		initContext();
+	}
+	
+	
+	// Creates a new JavaScript global object, with a TermFactory of its own
+	private void initContext() {
+		bindings = engine.createBindings();
+		context = new SimpleScriptContext();
+		context.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+		bindings.put("TermFactory", new TermFactory());
 		try {
-			engine.eval(ARGS_FUNCTION);
+			engine.eval(ARGS_FUNCTION, context);
+			engine.eval(ARRAY_FUNCTION, context);
 		}
 		catch(ScriptException ex) {
 			ExceptionUtil.throwUnchecked(ex);
 		}
 	}
+	
+	
+	/**
+	 * Discards the compiled libraries, e.g. to free memory.
+	 * Instances that have already loaded those libraries are not affected, see
+	 * {@link SHACLScriptEngineManager#clearPool()}.
+	 */
+	public static void clearCompiledScripts() {
+		compiledScripts.clear();
+	}
+	
+	
+	private static synchronized ScriptEngine getSharedEngine() {
+		if(sharedEngine == null) {
+			sharedEngine = findNashorn();
+		}
+		return sharedEngine;
+	}
+	
 
-	private ScriptEngine findNashorn() {
+	private static ScriptEngine findNashorn() {
 		ScriptEngine nashorn = new ScriptEngineManager().getEngineByName("nashorn");
 		if (nashorn == null) {
 			nashorn = new ScriptEngineManager(null).getEngineByName("nashorn");
@@ -100,9 +166,20 @@ public class NashornScriptEngine implements JSScriptEngine {
 	}
 	
 	
+	@Override
+	public Object createArray(Object[] items) throws ScriptException {
+		try {
+			return ((Invocable) engine).invokeMethod(bindings, ARRAY_FUNCTION_NAME, (Object) items);
+		}
+		catch(NoSuchMethodException ex) {
+			throw new ScriptException(ex);
+		}
+	}
+	
+	
 	@Override
 	public Object eval(String expr) throws ScriptException {
-		return engine.eval(expr);
+		return engine.eval(expr, context);
 	}
 
 
@@ -127,14 +204,38 @@ public class NashornScriptEngine implements JSScriptEngine {
     public final void executeScriptFromURL(String url) throws Exception {
 		if(!loadedURLs.contains(url)) {
 			loadedURLs.add(url);
-			try ( Reader reader = createScriptReader(url) ) {
-			    engine.eval(reader);
-			}
+			getCompiledScript(url).eval(context);
 		}
 	}
+	
+	
+	private CompiledScript getCompiledScript(String url) throws Exception {
+		String script;
+		try ( Reader reader = createScriptReader(url) ) {
+			script = readScript(reader);
+		}
+		String key = getClass().getName() + " " + url;
+		CachedScript cached = compiledScripts.get(key);
+		if(cached == null || !cached.script.equals(script)) {
+			cached = new CachedScript(script, ((Compilable) engine).compile(script));
+			compiledScripts.put(key, cached);
+		}
+		return cached.compiled;
+	}
 
 
 	protected Reader createScriptReader(String url) throws Exception {
+		return createDefaultScriptReader(url);
+	}
+	
+	
+	/**
+	 * Opens a Reader on the script at a given URL, resolving the URLs of dash.js and
+	 * rdfquery.js against the copies that are bundled with this library.
+	 * @param url  the URL of the script
+	 * @return the Reader
+	 */
+	public static Reader createDefaultScriptReader(String url) throws Exception {
 		if(DASH_JS.equals(url)) {
 			return new InputStreamReader(NashornScriptEngine.class.getResourceAsStream("/etc/dash.js"));
 		}
@@ -147,12 +248,42 @@ public class NashornScriptEngine implements JSScriptEngine {
 	}
 	
 	
+	/**
+	 * Reads the complete content of a script.
+	 * @param reader  the Reader, e.g. from {@link #createDefaultScriptReader(String)}
+	 * @return the script
+	 */
+	public static String readScript(Reader reader) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[8192];
+		for(int count = reader.read(buffer); count >= 0; count = reader.read(buffer)) {
+			sb.append(buffer, 0, count);
+		}
+		return sb.toString();
+	}
+	
+	
 	@Override
 	public Object get(String varName) {
-		return engine.get(varName);
+		return bindings.get(varName);
+	}
+	
+	
+	/**
+	 * Gets the ScriptContext of this instance, which needs to be passed into the
+	 * methods of the (shared) ScriptEngine.
+	 * @return the ScriptContext
+	 */
+	public final ScriptContext getContext() {
+		return context;
 	}
 
 
+	/**
+	 * Gets the underlying Nashorn engine, which is shared by all instances.
+	 * Use {@link #getContext()} to evaluate scripts in the context of this instance.
+	 * @return the ScriptEngine
+	 */
 	public final ScriptEngine getEngine() {
 		return engine;
 	}
@@ -163,13 +294,13 @@ public class NashornScriptEngine implements JSScriptEngine {
 		if(cached != null) {
 			return cached;
 		}
-		Object what = engine.get(functionName);
+		Object what = bindings.get(functionName);
 		if(what == null) {
 			throw new ScriptException("Cannot find JavaScript function \"" + functionName + "\"");
 		}
 		try {
 			String funcString = what.toString();
-			Object result = ((Invocable) engine).invokeFunction(ARGS_FUNCTION_NAME, funcString);
+			Object result = ((Invocable) engine).invokeMethod(bindings, ARGS_FUNCTION_NAME, funcString);
 			Object[] params = NashornUtil.asArray(result);
 			List<String> results = new ArrayList<String>(params.length);
 			for(Object param : params) {
@@ -191,10 +322,7 @@ public class NashornScriptEngine implements JSScriptEngine {
 		Iterator<String> varNames = bindings.varNames();
 		while(varNames.hasNext()) {
 			String varName = varNames.next();
-			int index = functionParams.indexOf(varName);
-			if(index < 0) {
-				index = functionParams.indexOf("$" + varName);
-			}
+			int index = getParameterIndex(functionParams, varName);
 			if(index >= 0) {
 				RDFNode value = bindings.get(varName);
 				if(value != null) {
@@ -206,15 +334,87 @@ public class NashornScriptEngine implements JSScriptEngine {
 	}
 
 
+	@Override
+	public Object invokeFunctionWithArgs(String functionName, Map<String,Object> args) throws javax.script.ScriptException, java.lang.NoSuchMethodException {
+		List<String> functionParams = getFunctionParameters(functionName);
+		Object[] params = new Object[functionParams.size()];
+		for(Map.Entry<String,Object> entry : args.entrySet()) {
+			int index = getParameterIndex(functionParams, entry.getKey());
+			if(index >= 0) {
+				params[index] = entry.getValue();
+			}
+		}
+		return invokeFunctionOrdered(functionName, params);
+	}
+	
+	
+	private static int getParameterIndex(List<String> functionParams, String varName) {
+		int index = functionParams.indexOf(varName);
+		if(index < 0) {
+			index = functionParams.indexOf("$" + varName);
+		}
+		return index;
+	}
+
+
 	@Override
 	public Object invokeFunctionOrdered(String functionName, Object[] params)
 			throws ScriptException, NoSuchMethodException {
-		return ((Invocable) engine).invokeFunction(functionName, params);
+		// Calls the function as a method of this instance's global object
+		return ((Invocable) engine).invokeMethod(bindings, functionName, params);
 	}
 
 
 	@Override
     public void put(String varName, Object value) {
-		engine.put(varName, value);
+		bindings.put(varName, value);
+		varNames.add(varName);
+	}
+
+
+	/**
+	 * Replaces the JavaScript global object (and the TermFactory) of this instance with a new one,
+	 * so that the libraries are loaded again when needed.
+	 * The compiled libraries are still shared.
+	 */
+	@Override
+	public boolean reset() {
+		initContext();
+		varNames.clear();
+		visitedLibraries.clear();
+		loadedURLs.clear();
+		functionParametersMap.clear();
+		return true;
+	}
+
+
+	/**
+	 * Removes the variables that have been set using put(), while keeping the libraries
+	 * that have been loaded so far.
+	 * The cached function parameters are cleared too, as scripts may redefine functions.
+	 */
+	@Override
+	public boolean resetVariables() {
+		for(String varName : varNames) {
+			bindings.remove(varName);
+		}
+		varNames.clear();
+		visitedLibraries.clear();
+		functionParametersMap.clear();
+		return true;
+	}
+	
+	
+	private static class CachedScript {
+		
+		CompiledScript compiled;
+		
+		String script;
+		
+		
+		CachedScript(String script, CompiledScript compiled) {
+			this.compiled = compiled;
+			this.script = script;
+		}
 	}
 }
@@ -17,7 +17,11 @@
 package org.topbraid.shacl.js;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Utility methods to work with Nashorn objects using reflection - in cases where
@@ -27,8 +31,14 @@ import java.util.Collection;
  */
 public class NashornUtil {
 	
+	private final static Pattern PARAMS_PATTERN = Pattern.compile("function\\s.*?\\(([^)]*)\\)", Pattern.DOTALL);
+	
 	
 	public static Object[] asArray(Object obj) throws Exception {
+		if(obj instanceof List) {
+			// Produced by engines other than Nashorn, e.g. GraalJSScriptEngine
+			return ((List<?>)obj).toArray();
+		}
 	   final Method values = obj.getClass().getMethod("values");
        final Object vals = values.invoke(obj);
        if (vals instanceof Collection<?>) {
@@ -40,9 +50,32 @@ public class NashornUtil {
        }
 	}
 	
+	
+	/**
+	 * Gets the names of the parameters of a JavaScript function, ignoring comments.
+	 * @param funcString  the source code of the function
+	 * @return the parameter names
+	 */
+	public static List<String> getFunctionParameters(String funcString) {
+		List<String> results = new ArrayList<>();
+		Matcher matcher = PARAMS_PATTERN.matcher(funcString);
+		if(matcher.find()) {
+			for(String param : matcher.group(1).split(",")) {
+				param = param.replaceAll("/\\*.*\\*/", "").trim();
+				if(!param.isEmpty()) {
+					results.add(param);
+				}
+			}
+		}
+		return results;
+	}
+	
 
 	public static boolean isArray(Object obj) throws Exception {
-		if(obj != null && obj.getClass().getName().equals("jdk.nashorn.api.scripting.ScriptObjectMirror")) {
+		if(obj instanceof List) {
+			return true;
+		}
+		else if(obj != null && obj.getClass().getName().equals("jdk.nashorn.api.scripting.ScriptObjectMirror")) {
 			final Method isArray = obj.getClass().getMethod("isArray");
 			final Object result = isArray.invoke(obj);
             return result != null && result.equals(true);
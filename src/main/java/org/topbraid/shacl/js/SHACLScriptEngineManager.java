@@ -16,6 +16,15 @@
  */
 package org.topbraid.shacl.js;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.jena.graph.Graph;
+import org.topbraid.shacl.js.model.JSFactory;
+import org.topbraid.shacl.util.SHACLSystemModel;
+
 /**
  * A singleton that uses a ThreadLocal to manage the life cycle of a JSScriptEngine
  * that can be shared for all JavaScript evaluated as part of a SHACL validation.
@@ -25,6 +34,15 @@ package org.topbraid.shacl.js;
  * It is the responsibility of the caller to make sure that, once the validation has
  * completed, the engine is uninstalled.
  * 
+ * Uninstalled engines are returned into a pool (if they support {@link JSScriptEngine#reset()}),
+ * so that the next begin/end block of any thread can reuse them.
+ * The pool is keyed by the shapes graph that the engine has been requested for
+ * (see {@link #getCurrentEngine(Graph)}): engines that are reused for the same shapes graph
+ * keep the libraries that they have already loaded, while engines of other shapes graphs
+ * are completely reset first, so that no JavaScript state leaks between shapes graphs.
+ * Engines that are dropped from (or not admitted into) the pool are closed.
+ * The JSTerms that JSFactory has cached for the thread are discarded at the end of the block.
+ * 
  * @author Holger Knublauch
  */
 public class SHACLScriptEngineManager {
@@ -33,6 +51,17 @@ public class SHACLScriptEngineManager {
 
 	private static ThreadLocal<JSScriptEngine> engines = new ThreadLocal<>();
 	
+	// The pool key of each thread's engine, null if the engine has been used without or for different shapes graphs
+	private static ThreadLocal<Graph> keys = new ThreadLocal<>();
+	
+	private static int maxPoolSize = Runtime.getRuntime().availableProcessors();
+	
+	// The idle engines by shapes graph, all created by poolFactory.
+	// The engines under the null key have been completely reset
+	private static Map<Graph,Deque<JSScriptEngine>> pools = new WeakHashMap<>();
+	
+	private static JSScriptEngineFactory poolFactory;
+	
 	
 	public static boolean begin() {
 		if(actives.get() != null) {
@@ -45,11 +74,32 @@ public class SHACLScriptEngineManager {
 	}
 	
 	
+	/**
+	 * Gets the engine of the current begin/end block, without reusing any libraries
+	 * that pooled engines may have loaded for a specific shapes graph.
+	 * @return the JSScriptEngine
+	 */
 	public static JSScriptEngine getCurrentEngine() {
+		return getCurrentEngine(null);
+	}
+	
+	
+	/**
+	 * Gets the engine of the current begin/end block, leasing one from the pool if needed.
+	 * @param shapesGraph  the shapes graph that the engine is used for (e.g. the Graph of
+	 *                     an executable's Model), or null if unknown
+	 * @return the JSScriptEngine
+	 */
+	public static JSScriptEngine getCurrentEngine(Graph shapesGraph) {
+		Graph key = shapesGraph != null ? SHACLSystemModel.getShapesBaseGraph(shapesGraph) : null;
 		JSScriptEngine engine = engines.get();
 		if(engine == null) {
-			engine = JSScriptEngineFactory.get().createScriptEngine();
+			engine = lease(key);
 			engines.set(engine);
+			keys.set(key);
+		}
+		else if(key != keys.get()) {
+			keys.remove();
 		}
 		return engine;
 	}
@@ -57,8 +107,128 @@ public class SHACLScriptEngineManager {
 	
 	public static void end(boolean nested) {
 		if(!nested) {
+			JSScriptEngine engine = engines.get();
+			Graph key = keys.get();
 			engines.remove();
+			keys.remove();
 			actives.remove();
+			JSFactory.clearTermCache();
+			if(engine != null) {
+				release(engine, key);
+			}
 		}
 	}
+	
+	
+	/**
+	 * Discards all idle engines, e.g. after the JavaScript libraries have changed.
+	 */
+	public static synchronized void clearPool() {
+		closeAll();
+	}
+	
+	
+	private static void closeAll() {
+		for(Deque<JSScriptEngine> pool : pools.values()) {
+			while(!pool.isEmpty()) {
+				pool.pollFirst().close();
+			}
+		}
+		pools.clear();
+	}
+	
+	
+	private static int getPoolSize() {
+		int size = 0;
+		for(Deque<JSScriptEngine> pool : pools.values()) {
+			size += pool.size();
+		}
+		return size;
+	}
+	
+	
+	private static JSScriptEngine lease(Graph key) {
+		JSScriptEngineFactory factory = JSScriptEngineFactory.get();
+		JSScriptEngine other = null;
+		synchronized(SHACLScriptEngineManager.class) {
+			if(poolFactory != factory) {
+				closeAll();
+				poolFactory = factory;
+			}
+			JSScriptEngine engine = poll(key);
+			if(engine == null && key != null) {
+				engine = poll(null);
+			}
+			if(engine != null) {
+				return engine;
+			}
+			for(Graph otherKey : pools.keySet()) {
+				other = poll(otherKey);
+				if(other != null) {
+					break;
+				}
+			}
+		}
+		if(other != null) {
+			if(other.reset()) {
+				return other;
+			}
+			other.close();
+		}
+		return factory.createScriptEngine();
+	}
+	
+	
+	private static JSScriptEngine poll(Graph key) {
+		Deque<JSScriptEngine> pool = pools.get(key);
+		return pool != null ? pool.pollFirst() : null;
+	}
+	
+	
+	private static void release(JSScriptEngine engine, Graph key) {
+		if(key != null ? engine.resetVariables() : engine.reset()) {
+			synchronized(SHACLScriptEngineManager.class) {
+				if(poolFactory == JSScriptEngineFactory.get() && getPoolSize() < maxPoolSize) {
+					pools.computeIfAbsent(key, k -> new ArrayDeque<>()).addFirst(engine);
+					return;
+				}
+			}
+		}
+		engine.close();
+	}
+	
+	
+	/**
+	 * Sets the maximum number of idle engines that are kept for reuse.
+	 * The default is the number of available processors.
+	 * @param value  the new maximum, 0 to deactivate pooling
+	 */
+	public static synchronized void setMaxPoolSize(int value) {
+		maxPoolSize = value;
+		for(Deque<JSScriptEngine> pool : pools.values()) {
+			while(!pool.isEmpty() && getPoolSize() > value) {
+				pool.pollLast().close();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Wraps a given Runnable so that it runs inside of its own begin/end block.
+	 * This should be used for Runnables that are executed by worker threads: since
+	 * JSScriptEngines are not thread-safe, the engine of the calling thread is never shared.
+	 * @param runnable  the Runnable to wrap
+	 * @return the wrapped Runnable
+	 */
+	public static Runnable propagate(Runnable runnable) {
+		return () -> {
+			boolean nested = begin();
+			try {
+				runnable.run();
+			}
+			finally {
+				end(nested);
+			}
+		};
+	}
 }
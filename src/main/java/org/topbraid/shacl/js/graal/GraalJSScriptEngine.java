@@ -0,0 +1,415 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.js.graal;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.script.ScriptException;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.topbraid.shacl.js.JSScriptEngine;
+import org.topbraid.shacl.js.NashornScriptEngine;
+import org.topbraid.shacl.js.NashornUtil;
+import org.topbraid.shacl.js.model.JSFactory;
+import org.topbraid.shacl.js.model.TermFactory;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * A JSScriptEngine based on GraalJS, as an alternative to the Nashorn-based default.
+ * 
+ * All instances share a single polyglot Engine, so that the parsed library Sources and the
+ * code that has been compiled for them are reused across the Contexts of all instances.
+ * The Sources are cached by the class of the engine and their URL, and are replaced if the
+ * content of the script has changed.
+ * The Contexts run in Nashorn compatibility mode, so that scripts can access the JavaBean
+ * properties of Java objects (such as <code>term.value</code>) just like with Nashorn.
+ * 
+ * JavaScript arrays that are returned to Java are converted into Lists, and other JavaScript
+ * objects into Maps, which is what the callers of JSScriptEngine expect.
+ * 
+ * The Context of an engine is closed by {@link #close()}, which SHACLScriptEngineManager
+ * calls when it drops an engine from its pool.
+ */
+public class GraalJSScriptEngine implements JSScriptEngine {
+	
+	private final static String LANGUAGE = "js";
+	
+	private final static String ARRAY_FUNCTION =
+			"(function(items) {\n" +
+			"    var results = [];\n" +
+			"    for(var i = 0; i < items.length; i++) {\n" +
+			"        results.push(items[i]);\n" +
+			"    }\n" +
+			"    return results;\n" +
+			"})";
+	
+	// Like Nashorn, convert JavaScript numbers into Strings when they are passed into
+	// String parameters of Java methods, e.g. for TermFactory.literal(2, ...).
+	// JavaScript arrays that are passed into Object parameters become Lists (instead of Maps),
+	// which is what NashornUtil.isArray expects, e.g. for the sequence paths of JSQuery
+	private final static HostAccess HOST_ACCESS = HostAccess.newBuilder(HostAccess.ALL).
+			targetTypeMapping(Number.class, String.class, null, number -> number.toString()).
+			targetTypeMapping(Value.class, Object.class, value -> value.hasArrayElements(), value -> value.as(List.class)).
+			build();
+	
+	private Value arrayFunction;
+	
+	private static Engine sharedEngine;
+	
+	// Keyed by the class name of the engine and the URL, because subclasses may read scripts differently
+	private static Map<String,Source> sources = new ConcurrentHashMap<>();
+	
+	private Value bindings;
+	
+	private Context context;
+	
+	private Map<String,List<String>> functionParametersMap = new HashMap<>();
+	
+	// Remembers which sh:libraries executables were already handled so that they are
+	// not installed twice
+	private Set<Resource> visitedLibraries = new HashSet<>();
+	
+	private Set<String> loadedURLs = new HashSet<>();
+	
+	// The variables that have been set using put(), to be removed by reset()
+	private Set<String> varNames = new HashSet<>();
+	
+	
+	public GraalJSScriptEngine() {
+		initContext();
+	}
+	
+	
+	// Creates a new Context, with a TermFactory of its own
+	private void initContext() {
+		context = Context.newBuilder(LANGUAGE).
+				engine(getSharedEngine()).
+				allowHostAccess(HOST_ACCESS).
+				allowExperimentalOptions(true).
+				option("js.nashorn-compat", "true").
+				build();
+		bindings = context.getBindings(LANGUAGE);
+		bindings.putMember("TermFactory", new TermFactory());
+	}
+	
+	
+	/**
+	 * Closes the polyglot Context of this engine.
+	 */
+	@Override
+	public void close() {
+		context.close();
+	}
+	
+	
+	/**
+	 * Discards the parsed libraries, e.g. to free memory.
+	 */
+	public static void clearSources() {
+		sources.clear();
+	}
+	
+	
+	private static synchronized Engine getSharedEngine() {
+		if(sharedEngine == null) {
+			sharedEngine = Engine.create();
+		}
+		return sharedEngine;
+	}
+	
+	
+	/**
+	 * Creates a JavaScript array, which is returned as a polyglot Value so that it
+	 * does not get converted into a List.
+	 */
+	@Override
+	public Object createArray(Object[] items) throws ScriptException {
+		try {
+			if(arrayFunction == null) {
+				arrayFunction = context.eval(LANGUAGE, ARRAY_FUNCTION);
+			}
+			return arrayFunction.execute((Object) items);
+		}
+		catch(PolyglotException ex) {
+			throw asScriptException(ex);
+		}
+	}
+	
+	
+	@Override
+	public Object eval(String expr) throws ScriptException {
+		try {
+			return toJava(context.eval(LANGUAGE, expr));
+		}
+		catch(PolyglotException ex) {
+			throw asScriptException(ex);
+		}
+	}
+
+
+	@Override
+	public void executeLibraries(Resource e) throws Exception {
+		for(Resource library : JenaUtil.getResourceProperties(e, SH.jsLibrary)) {
+			if(!visitedLibraries.contains(library)) {
+				visitedLibraries.add(library);
+				executeLibraries(library);
+			}
+		}
+		for(Statement s : e.listProperties(SH.jsLibraryURL).toList()) {
+			if(s.getObject().isLiteral()) {
+				String url = s.getString();
+				executeScriptFromURL(url);
+			}
+		}
+	}
+
+
+	@Override
+	public void executeScriptFromURL(String url) throws Exception {
+		if(!loadedURLs.contains(url)) {
+			loadedURLs.add(url);
+			try {
+				context.eval(getSource(url));
+			}
+			catch(PolyglotException ex) {
+				throw asScriptException(ex);
+			}
+		}
+	}
+	
+	
+	private Source getSource(String url) throws Exception {
+		String script;
+		try(Reader reader = createScriptReader(url)) {
+			script = NashornScriptEngine.readScript(reader);
+		}
+		String key = getClass().getName() + " " + url;
+		Source source = sources.get(key);
+		if(source == null || !source.getCharacters().toString().equals(script)) {
+			source = Source.newBuilder(LANGUAGE, script, url).build();
+			sources.put(key, source);
+		}
+		return source;
+	}
+
+
+	protected Reader createScriptReader(String url) throws Exception {
+		return NashornScriptEngine.createDefaultScriptReader(url);
+	}
+
+
+	@Override
+	public Object get(String varName) {
+		return toJava(bindings.getMember(varName));
+	}
+	
+	
+	/**
+	 * Gets the polyglot Context of this engine.
+	 * @return the Context
+	 */
+	public Context getContext() {
+		return context;
+	}
+	
+	
+	private Value getFunction(String functionName) throws ScriptException {
+		Value function = bindings.getMember(functionName);
+		if(function == null || !function.canExecute()) {
+			throw new ScriptException("Cannot find JavaScript function \"" + functionName + "\"");
+		}
+		return function;
+	}
+	
+	
+	private List<String> getFunctionParameters(String functionName) throws ScriptException {
+		List<String> cached = functionParametersMap.get(functionName);
+		if(cached != null) {
+			return cached;
+		}
+		List<String> results = NashornUtil.getFunctionParameters(getFunction(functionName).toString());
+		functionParametersMap.put(functionName, results);
+		return results;
+	}
+
+
+	@Override
+	public Object invokeFunction(String functionName, QuerySolution bindings) throws ScriptException, NoSuchMethodException {
+		List<String> functionParams = getFunctionParameters(functionName);
+		Object[] params = new Object[functionParams.size()];
+		Iterator<String> varNames = bindings.varNames();
+		while(varNames.hasNext()) {
+			String varName = varNames.next();
+			int index = getParameterIndex(functionParams, varName);
+			if(index >= 0) {
+				RDFNode value = bindings.get(varName);
+				if(value != null) {
+					params[index] = JSFactory.asJSTerm(value.asNode());
+				}
+			}
+		}
+		return invokeFunctionOrdered(functionName, params);
+	}
+
+
+	@Override
+	public Object invokeFunctionOrdered(String functionName, Object[] args) throws ScriptException, NoSuchMethodException {
+		return toJava(invokeFunctionAsValue(functionName, args));
+	}
+	
+	
+	/**
+	 * Calls a function like {@link #invokeFunctionOrdered(String, Object[])}, but returns the
+	 * polyglot Value so that JavaScript objects can be handed back to JavaScript unchanged.
+	 * @param functionName  the name of the function
+	 * @param args  the arguments
+	 * @return the result of the function
+	 */
+	public Value invokeFunctionAsValue(String functionName, Object[] args) throws ScriptException {
+		Value function = getFunction(functionName);
+		try {
+			return function.execute(args);
+		}
+		catch(PolyglotException ex) {
+			throw asScriptException(ex);
+		}
+	}
+
+
+	@Override
+	public Object invokeFunctionWithArgs(String functionName, Map<String,Object> args) throws ScriptException, NoSuchMethodException {
+		List<String> functionParams = getFunctionParameters(functionName);
+		Object[] params = new Object[functionParams.size()];
+		for(Map.Entry<String,Object> entry : args.entrySet()) {
+			int index = getParameterIndex(functionParams, entry.getKey());
+			if(index >= 0) {
+				params[index] = entry.getValue();
+			}
+		}
+		return invokeFunctionOrdered(functionName, params);
+	}
+	
+	
+	private static int getParameterIndex(List<String> functionParams, String varName) {
+		int index = functionParams.indexOf(varName);
+		if(index < 0) {
+			index = functionParams.indexOf("$" + varName);
+		}
+		return index;
+	}
+
+
+	@Override
+	public void put(String varName, Object value) {
+		bindings.putMember(varName, value);
+		varNames.add(varName);
+	}
+
+
+	/**
+	 * Replaces the Context (and the TermFactory) of this engine with a new one,
+	 * so that the libraries are loaded again when needed.
+	 * The parsed libraries are still shared through the polyglot Engine.
+	 */
+	@Override
+	public boolean reset() {
+		context.close();
+		initContext();
+		arrayFunction = null;
+		varNames.clear();
+		visitedLibraries.clear();
+		loadedURLs.clear();
+		functionParametersMap.clear();
+		return true;
+	}
+
+
+	/**
+	 * Removes the variables that have been set using put(), while keeping the libraries
+	 * that have been loaded so far.
+	 * The cached function parameters are cleared too, as scripts may redefine functions.
+	 */
+	@Override
+	public boolean resetVariables() {
+		for(String varName : varNames) {
+			bindings.removeMember(varName);
+		}
+		varNames.clear();
+		visitedLibraries.clear();
+		functionParametersMap.clear();
+		return true;
+	}
+	
+	
+	private static ScriptException asScriptException(PolyglotException ex) {
+		ScriptException result = new ScriptException(ex.getMessage());
+		result.initCause(ex);
+		return result;
+	}
+
+
+	// Converts a polyglot Value into the Java objects that Nashorn would have produced
+	private static Object toJava(Value value) {
+		if(value == null || value.isNull()) {
+			return null;
+		}
+		else if(value.isHostObject()) {
+			return value.asHostObject();
+		}
+		else if(value.isString()) {
+			return value.asString();
+		}
+		else if(value.isBoolean()) {
+			return value.asBoolean();
+		}
+		else if(value.isNumber()) {
+			return value.fitsInInt() ? (Object) value.asInt() : (Object) value.asDouble();
+		}
+		else if(value.hasArrayElements()) {
+			List<Object> results = new ArrayList<>((int) value.getArraySize());
+			for(long i = 0; i < value.getArraySize(); i++) {
+				results.add(toJava(value.getArrayElement(i)));
+			}
+			return results;
+		}
+		else if(value.canExecute()) {
+			// Functions are passed around as they are, so that they can be handed back to JavaScript
+			return value;
+		}
+		else {
+			return value.as(Map.class);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.js.graal;
+
+import org.topbraid.shacl.js.JSScriptEngine;
+import org.topbraid.shacl.js.JSScriptEngineFactory;
+
+/**
+ * A JSScriptEngineFactory producing GraalJSScriptEngines.
+ * Install using <code>JSScriptEngineFactory.set(new GraalJSScriptEngineFactory())</code>
+ * or by setting the system property {@link JSScriptEngineFactory#ENGINE_PROPERTY} to "graal".
+ * This requires the (optional) GraalJS libraries on the classpath.
+ */
+public class GraalJSScriptEngineFactory extends JSScriptEngineFactory {
+
+	@Override
+	public JSScriptEngine createScriptEngine() {
+		return new GraalJSScriptEngine();
+	}
+}
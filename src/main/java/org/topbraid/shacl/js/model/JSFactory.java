@@ -16,6 +16,7 @@
  */
 package org.topbraid.shacl.js.model;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.jena.datatypes.RDFDatatype;
@@ -39,6 +40,27 @@ public class JSFactory {
 	public static final String TERM_TYPE = "termType";
 	
 	public static final String VALUE = "value";
+	
+	
+	private static final int capacity = 10000;
+	
+	@SuppressWarnings("serial")
+	private static class TermCache extends LinkedHashMap<Node,JSTerm> {
+		
+		TermCache() {
+			super(capacity + 1, 1.1f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Node,JSTerm> eldest) {
+			return size() > capacity;
+		}
+	}
+	
+	// JSTerms are immutable and can therefore be shared as flyweights.
+	// Each thread has its own cache, just like it has its own JSScriptEngine,
+	// and the cache is removed by SHACLScriptEngineManager.end() together with the engine.
+	private static ThreadLocal<TermCache> termCaches = ThreadLocal.withInitial(TermCache::new);
 
 	
 	@SuppressWarnings("rawtypes")
@@ -89,7 +111,31 @@ public class JSFactory {
 	}
 	
 	
+	/**
+	 * Gets a JSTerm for a given Node, reusing a previously created instance if possible.
+	 * @param node  the Node to convert
+	 * @return the JSTerm
+	 */
 	public static JSTerm asJSTerm(Node node) {
+		TermCache cache = termCaches.get();
+		JSTerm term = cache.get(node);
+		if(term == null) {
+			term = createJSTerm(node);
+			cache.put(node, term);
+		}
+		return term;
+	}
+	
+	
+	/**
+	 * Removes all cached JSTerms of the current thread.
+	 */
+	public static void clearTermCache() {
+		termCaches.remove();
+	}
+	
+	
+	private static JSTerm createJSTerm(Node node) {
 		if(node.isURI()) {
 			return new JSNamedNode(node);
 		}
@@ -42,7 +42,7 @@ public abstract class JSTerm {
 	
 	public JSNamedNode getDatatype() {
 		String uri = node.getLiteralDatatypeURI();
-		return new JSNamedNode(NodeFactory.createURI(uri));
+		return (JSNamedNode) JSFactory.asJSTerm(NodeFactory.createURI(uri));
 	}
 	
 	
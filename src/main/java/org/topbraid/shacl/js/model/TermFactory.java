@@ -16,6 +16,9 @@
  */
 package org.topbraid.shacl.js.model;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.jena.datatypes.TypeMapper;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
@@ -34,6 +37,15 @@ public class TermFactory {
 	
 	private PrefixMap pm = new PrefixMapStd();
 	
+	// The results of term(), which depend on the registered namespaces
+	@SuppressWarnings("serial")
+	private Map<String,JSTerm> parsedTerms = new LinkedHashMap<String,JSTerm>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String,JSTerm> eldest) {
+			return size() > 1000;
+		}
+	};
+	
 	
 	public JSBlankNode blankNode() {
 		return blankNode(null);
@@ -50,10 +62,10 @@ public class TermFactory {
 	
 	public JSLiteral literal(String value, Object langOrDatatype) {
 		if(langOrDatatype instanceof JSNamedNode) {
-			return new JSLiteral(NodeFactory.createLiteral(value, TypeMapper.getInstance().getTypeByName(((JSNamedNode)langOrDatatype).getValue())));
+			return (JSLiteral) JSFactory.asJSTerm(NodeFactory.createLiteral(value, TypeMapper.getInstance().getTypeByName(((JSNamedNode)langOrDatatype).getValue())));
 		}
 		else if(langOrDatatype instanceof String) {
-			return new JSLiteral(NodeFactory.createLiteral(value, (String)langOrDatatype));
+			return (JSLiteral) JSFactory.asJSTerm(NodeFactory.createLiteral(value, (String)langOrDatatype));
 		}
 		else {
 			throw new IllegalArgumentException("Invalid type of langOrDatatype argument");
@@ -63,28 +75,28 @@ public class TermFactory {
 	
 	public JSNamedNode namedNode(String value) {
 		Node node = NodeFactory.createURI(value);
-		return new JSNamedNode(node);
+		return (JSNamedNode) JSFactory.asJSTerm(node);
 	}
 	
 	
 	public void registerNamespace(String prefix, String namespace) {
 		pm.add(prefix, namespace);
+		parsedTerms.clear();
 	}
 	
 	
 	public JSTerm term(String str) {
-        Node n = NodeFactoryExtra.parseNode(str, pm);
-        if(n.isURI()) {
-        	return new JSNamedNode(n);
-        }
-        else if(n.isLiteral()) {
-        	return new JSLiteral(n);
-        }
-        else if(n.isBlank()) {
-        	return new JSBlankNode(n);
-        }
-        else {
-        	throw new IllegalArgumentException("Unexpected node type for " + n);
-        }
+		JSTerm term = parsedTerms.get(str);
+		if(term == null) {
+			Node n = NodeFactoryExtra.parseNode(str, pm);
+			if(n.isURI() || n.isLiteral() || n.isBlank()) {
+				term = JSFactory.asJSTerm(n);
+			}
+			else {
+				throw new IllegalArgumentException("Unexpected node type for " + n);
+			}
+			parsedTerms.put(str, term);
+		}
+		return term;
 	}
 }
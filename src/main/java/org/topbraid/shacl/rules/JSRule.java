@@ -59,24 +59,26 @@ class JSRule extends Rule {
 		}
 		
 		ProgressMonitor monitor = ruleEngine.getProgressMonitor();
-		for(RDFNode focusNode : focusNodes) {
-			
-			if(monitor != null && monitor.isCanceled()) {
-				return;
-			}
+		
+		// The engine and its libraries are set up once, for all focus nodes
+		boolean nested = SHACLScriptEngineManager.begin();
+		JSScriptEngine engine = SHACLScriptEngineManager.getCurrentEngine(ruleEngine.getShapesModel().getGraph());
+
+		SHJSExecutable as = rule.as(SHJSExecutable.class);
+		JSGraph dataJSGraph = new JSGraph(ruleEngine.getDataset().getDefaultModel().getGraph(), engine);
+		JSGraph shapesJSGraph = new JSGraph(ruleEngine.getDataset().getDefaultModel().getGraph(), engine);
+		try {
+			engine.executeLibraries(as);
+			engine.put(SH.JS_DATA_VAR, dataJSGraph);
+			engine.put(SH.JS_SHAPES_VAR, shapesJSGraph);
 			
-			boolean nested = SHACLScriptEngineManager.begin();
-			JSScriptEngine engine = SHACLScriptEngineManager.getCurrentEngine();
-	
-			SHJSExecutable as = rule.as(SHJSExecutable.class);
-			JSGraph dataJSGraph = new JSGraph(ruleEngine.getDataset().getDefaultModel().getGraph(), engine);
-			JSGraph shapesJSGraph = new JSGraph(ruleEngine.getDataset().getDefaultModel().getGraph(), engine);
-			try {
-				engine.executeLibraries(as);
-				engine.put(SH.JS_DATA_VAR, dataJSGraph);
-				engine.put(SH.JS_SHAPES_VAR, shapesJSGraph);
+			QuerySolutionMap bindings = new QuerySolutionMap();
+			for(RDFNode focusNode : focusNodes) {
+				
+				if(monitor != null && monitor.isCanceled()) {
+					return;
+				}
 				
-				QuerySolutionMap bindings = new QuerySolutionMap();
 				bindings.add(SH.thisVar.getVarName(), focusNode);
 				Object result = engine.invokeFunction(functionName, bindings);
 				if(NashornUtil.isArray(result)) {
@@ -102,17 +104,18 @@ class JSRule extends Rule {
 					}
 				}
 			}
-			catch(ScriptException ex) {
-				ExceptionUtil.throwUnchecked(ex);
-			}
-			catch(Exception ex) {
-				ex.printStackTrace();
-				throw new ExprEvalException(ex);
-			}
-			finally {
-				dataJSGraph.close();
-				SHACLScriptEngineManager.end(nested);
-			}
+		}
+		catch(ScriptException ex) {
+			ExceptionUtil.throwUnchecked(ex);
+		}
+		catch(Exception ex) {
+			ex.printStackTrace();
+			throw new ExprEvalException(ex);
+		}
+		finally {
+			dataJSGraph.close();
+			shapesJSGraph.close();
+			SHACLScriptEngineManager.end(nested);
 		}
 	}
 	
@@ -0,0 +1,190 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.rules;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Query;
+import org.apache.jena.sparql.core.TriplePath;
+import org.apache.jena.sparql.expr.E_Function;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprAggregator;
+import org.apache.jena.sparql.expr.ExprFunction;
+import org.apache.jena.sparql.expr.ExprFunctionOp;
+import org.apache.jena.sparql.expr.ExprNone;
+import org.apache.jena.sparql.expr.ExprVar;
+import org.apache.jena.sparql.expr.ExprVisitorFunction;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.syntax.ElementAssign;
+import org.apache.jena.sparql.syntax.ElementBind;
+import org.apache.jena.sparql.syntax.ElementFilter;
+import org.apache.jena.sparql.syntax.ElementNamedGraph;
+import org.apache.jena.sparql.syntax.ElementPathBlock;
+import org.apache.jena.sparql.syntax.ElementService;
+import org.apache.jena.sparql.syntax.ElementSubQuery;
+import org.apache.jena.sparql.syntax.ElementTriplesBlock;
+import org.apache.jena.sparql.syntax.ElementVisitor;
+import org.apache.jena.sparql.syntax.ElementVisitorBase;
+import org.apache.jena.sparql.syntax.RecursiveElementVisitor;
+import org.topbraid.shacl.arq.SHACLPaths;
+
+/**
+ * Static analysis of the SPARQL queries of rules, used to find out which changes
+ * to the data graph may affect the results of a rule, and which triples a rule may produce.
+ */
+class QueryAnalysis {
+
+	/**
+	 * Gets the predicates of the default graph that the WHERE clause of a given query may read.
+	 * Gives up on variable predicates, named graphs, SERVICE calls and calls of non-built-in
+	 * functions, which may query anything.
+	 * @param query  the Query to analyze
+	 * @return the predicates or null if they cannot be determined
+	 */
+	static Set<Node> getReadPredicates(Query query) {
+		Set<Node> results = new HashSet<>();
+		return addReadPredicates(query, results) ? results : null;
+	}
+	
+	
+	/**
+	 * Gets the predicates of the triples that a given CONSTRUCT query may produce.
+	 * @param query  the Query to analyze
+	 * @return the predicates or null if the template has variable predicates
+	 */
+	static Set<Node> getWrittenPredicates(Query query) {
+		Set<Node> results = new HashSet<>();
+		for(Triple triple : query.getConstructTemplate().getTriples()) {
+			if(triple.getPredicate().isURI()) {
+				results.add(triple.getPredicate());
+			}
+			else {
+				return null;
+			}
+		}
+		return results;
+	}
+	
+	
+	private static boolean addReadPredicates(Query query, Set<Node> results) {
+		boolean[] unknown = new boolean[1];
+		ElementVisitor elementVisitor = new RecursiveElementVisitor(new ElementVisitorBase()) {
+
+			@Override
+			public void startElement(ElementAssign el) {
+				checkExpression(el.getExpr());
+			}
+
+			@Override
+			public void startElement(ElementBind el) {
+				checkExpression(el.getExpr());
+			}
+
+			@Override
+			public void startElement(ElementFilter el) {
+				checkExpression(el.getExpr());
+			}
+
+			@Override
+			public void startElement(ElementNamedGraph el) {
+				unknown[0] = true;
+			}
+
+			@Override
+			public void startElement(ElementPathBlock el) {
+				for(TriplePath triple : el.getPattern().getList()) {
+					if(triple.isTriple()) {
+						addPredicate(triple.getPredicate());
+					}
+					else if(!SHACLPaths.addPredicates(triple.getPath(), results)) {
+						unknown[0] = true;
+					}
+				}
+			}
+
+			@Override
+			public void startElement(ElementService el) {
+				unknown[0] = true;
+			}
+
+			@Override
+			public void startElement(ElementSubQuery el) {
+				if(!addReadPredicates(el.getQuery(), results)) {
+					unknown[0] = true;
+				}
+				for(Expr expr : el.getQuery().getProject().getExprs().values()) {
+					checkExpression(expr);
+				}
+				for(Expr expr : el.getQuery().getHavingExprs()) {
+					checkExpression(expr);
+				}
+			}
+
+			@Override
+			public void startElement(ElementTriplesBlock el) {
+				el.getPattern().forEach(triple -> addPredicate(triple.getPredicate()));
+			}
+			
+			private void addPredicate(Node predicate) {
+				if(predicate.isURI()) {
+					results.add(predicate);
+				}
+				else {
+					unknown[0] = true;
+				}
+			}
+			
+			private void checkExpression(Expr expr) {
+				final ElementVisitor parent = this;
+				expr.visit(new ExprVisitorFunction() {
+					@Override
+					public void visit(ExprFunctionOp funcOp) {
+						if(funcOp.isGraphPattern()) {
+							funcOp.getElement().visit(parent);
+						}
+					}
+					@Override
+					public void visit(NodeValue nv) {
+					}
+					@Override
+					public void visit(ExprVar nv) {
+					}
+					@Override
+					public void visit(ExprAggregator eAgg) {
+					}
+					@Override
+					public void visit(ExprNone exprNone) {
+					}
+					@Override
+					protected void visitExprFunction(ExprFunction func) {
+						if(func instanceof E_Function) {
+							unknown[0] = true;
+						}
+						for(Expr expr : func.getArgs()) {
+							expr.visit(this);
+						}
+					}
+				});
+			}
+		};
+		query.getQueryPattern().visit(elementVisitor);
+		return !unknown[0];
+	}
+}
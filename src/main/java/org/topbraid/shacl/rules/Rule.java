@@ -17,7 +17,9 @@
 package org.topbraid.shacl.rules;
 
 import java.util.List;
+import java.util.Set;
 
+import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
@@ -71,6 +73,31 @@ public abstract class Rule {
 	}
 	
 	
+	/**
+	 * Gets the predicates of the data graph that this rule may read for a given focus node,
+	 * in addition to the triples that make the node a target of the rule's shape.
+	 * This is used by the fixpoint mode of the RuleEngine to skip rules that cannot
+	 * produce new triples from the changes of the previous iteration.
+	 * The default implementation returns null.
+	 * @return the predicates or null if they cannot be determined
+	 */
+	public Set<Node> getReadPredicates() {
+		return null;
+	}
+	
+	
+	/**
+	 * Gets the predicates of the triples that this rule may infer.
+	 * This is used by the RuleEngine to find out which rules depend on each other,
+	 * so that independent rules can be executed in parallel.
+	 * The default implementation returns null.
+	 * @return the predicates or null if they cannot be determined
+	 */
+	public Set<Node> getWrittenPredicates() {
+		return null;
+	}
+	
+	
 	public Number getOrder() {
 		return order;
 	}
@@ -0,0 +1,177 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.rules;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * The dependencies between the rules of a group of shapes that have the same sh:order,
+ * used by the RuleEngine to execute independent rules in parallel in stratified mode.
+ * 
+ * The rules are added in their sequential execution order.
+ * A rule depends on an earlier rule if it may read a predicate that the earlier rule
+ * may infer, or if both rules belong to the same shape but have different sh:order values.
+ * The predicates that the targets of a rule's shape are based on count as read by the rule,
+ * e.g. rdf:type for sh:targetClass, so that inferred target nodes are picked up by later strata.
+ * The rules are then grouped into strata so that each rule comes after all rules that
+ * it depends on, and the rules of a stratum can be executed in any order.
+ * Rules that cannot be analyzed (e.g. JavaScript rules) are assumed to read and write anything.
+ */
+class RuleDependencyGraph {
+	
+	private List<Entry> entries = new ArrayList<>();
+	
+	
+	/**
+	 * Adds a rule to the graph.
+	 * @param shape  the shape that the rule belongs to
+	 * @param rule  the Rule
+	 * @param hasConditions  true if the rule has sh:condition shapes, which may read anything
+	 */
+	void add(Shape shape, Rule rule, boolean hasConditions) {
+		Set<Node> reads = null;
+		if(!hasConditions) {
+			Set<Node> ruleReads = rule.getReadPredicates();
+			Set<Node> targetReads = getTargetPredicates(shape.getShapeResource());
+			if(ruleReads != null && targetReads != null) {
+				reads = new HashSet<>(ruleReads);
+				reads.addAll(targetReads);
+			}
+		}
+		entries.add(new Entry(shape, rule, reads, rule.getWrittenPredicates()));
+	}
+	
+	
+	// Gets the predicates that the target nodes of a shape depend on, or null if unknown (sh:target)
+	private static Set<Node> getTargetPredicates(Resource shape) {
+		if(shape.hasProperty(SH.target)) {
+			return null;
+		}
+		Set<Node> results = new HashSet<>();
+		if(shape.hasProperty(SH.targetClass) || JenaUtil.hasIndirectType(shape, RDFS.Class)) {
+			results.add(RDF.type.asNode());
+			results.add(RDFS.subClassOf.asNode());
+		}
+		for(Resource predicate : JenaUtil.getResourceProperties(shape, SH.targetSubjectsOf)) {
+			results.add(predicate.asNode());
+		}
+		for(Resource predicate : JenaUtil.getResourceProperties(shape, SH.targetObjectsOf)) {
+			results.add(predicate.asNode());
+		}
+		return results;
+	}
+	
+	
+	/**
+	 * Gets all rules of the graph.
+	 * @return the rules in sequential order
+	 */
+	List<Entry> getEntries() {
+		return entries;
+	}
+	
+	
+	/**
+	 * Computes the strata, with each rule being placed in the stratum after the
+	 * latest stratum of the rules that it depends on.
+	 * @return the strata, each containing its rules in sequential order
+	 */
+	List<List<Entry>> getStrata() {
+		List<List<Entry>> strata = new ArrayList<>();
+		int[] levels = new int[entries.size()];
+		for(int i = 0; i < entries.size(); i++) {
+			Entry entry = entries.get(i);
+			int level = 0;
+			for(int j = 0; j < i; j++) {
+				if(levels[j] >= level && dependsOn(entry, entries.get(j))) {
+					level = levels[j] + 1;
+				}
+			}
+			levels[i] = level;
+			if(level == strata.size()) {
+				strata.add(new ArrayList<>());
+			}
+			strata.get(level).add(entry);
+		}
+		return strata;
+	}
+	
+	
+	private static boolean dependsOn(Entry entry, Entry other) {
+		if(entry.shape == other.shape && !entry.rule.getOrder().equals(other.rule.getOrder())) {
+			return true;
+		}
+		else if(other.writes != null && other.writes.isEmpty()) {
+			return false;
+		}
+		else if(entry.reads == null) {
+			return true;
+		}
+		else if(other.writes == null) {
+			return !entry.reads.isEmpty();
+		}
+		else {
+			for(Node predicate : entry.reads) {
+				if(other.writes.contains(predicate)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	
+	static class Entry {
+		
+		private Set<Node> reads;
+		
+		private Rule rule;
+		
+		private Shape shape;
+		
+		private Set<Node> writes;
+		
+		
+		Entry(Shape shape, Rule rule, Set<Node> reads, Set<Node> writes) {
+			this.reads = reads;
+			this.rule = rule;
+			this.shape = shape;
+			this.writes = writes;
+		}
+		
+		
+		Rule getRule() {
+			return rule;
+		}
+		
+		
+		Shape getShape() {
+			return shape;
+		}
+	}
+}
@@ -26,18 +26,27 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
+import org.topbraid.shacl.arq.functions.HasShapeFunction;
 import org.topbraid.shacl.engine.Shape;
 import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.engine.TargetNodeIndex;
 import org.topbraid.shacl.expr.NodeExpressionContext;
+import org.topbraid.shacl.js.SHACLScriptEngineManager;
+import org.topbraid.shacl.util.FailureLog;
 import org.topbraid.shacl.util.OrderComparator;
-import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.validation.ConformanceCache;
+import org.topbraid.shacl.validation.NodeConformanceValidationReportSink;
 import org.topbraid.shacl.validation.ValidationEngine;
 import org.topbraid.shacl.validation.ValidationEngineFactory;
 import org.topbraid.shacl.vocabulary.SH;
@@ -56,10 +65,22 @@ import org.topbraid.spin.util.JenaUtil;
  */
 public class RuleEngine implements NodeExpressionContext {
 	
+	// The outcomes of the sh:condition checks, shared by all rules until new triples are inferred
+	private ConformanceCache conditionCache = new ConformanceCache();
+	
 	private Dataset dataset;
 	
+	// The triples that have been newly inferred in the current iteration (fixpoint mode only)
+	private Set<Triple> delta;
+	
+	private Executor executor;
+	
+	private boolean fixpoint;
+	
 	private Model inferences;
 	
+	private int maxIterations = 100;
+	
 	private ProgressMonitor monitor;
 	
 	private Set<Triple> pending = new HashSet<>();
@@ -71,6 +92,13 @@ public class RuleEngine implements NodeExpressionContext {
 	private URI shapesGraphURI;
 	
 	private Map<Shape,List<Rule>> shape2Rules = new HashMap<>(); 
+	
+	private boolean stratified;
+	
+	// The target nodes of each shape in the previous iteration (fixpoint mode only)
+	private Map<Shape,Set<RDFNode>> shape2Targets = new HashMap<>();
+	
+	private TargetNodeIndex targetNodeIndex;
 
 	
 	public RuleEngine(Dataset dataset, URI shapesGraphURI, ShapesGraph shapesGraph, Model inferences) {
@@ -109,19 +137,194 @@ public class RuleEngine implements NodeExpressionContext {
 			monitor.beginTask(baseMessage, rules);
 		}
 		
+		if(fixpoint) {
+			executeUntilFixpoint(ruleShapes, baseMessage);
+		}
+		else {
+			executeShapes(ruleShapes, baseMessage, null);
+		}
+	}
+	
+	
+	/**
+	 * Executes the rules repeatedly until no new triples are inferred, using semi-naive evaluation:
+	 * after the first iteration a rule is only executed for all target nodes of its shape
+	 * if it reads a predicate that has been inferred in the previous iteration.
+	 * Otherwise it is only executed for the target nodes that are new since the previous iteration.
+	 * Rules with sh:condition and rules that cannot be analyzed are always executed for all target nodes.
+	 */
+	private void executeUntilFixpoint(List<Shape> ruleShapes, String baseMessage) throws InterruptedException {
+		shape2Targets.clear();
+		Set<Node> deltaPredicates = null;
+		try {
+			for(int iteration = 1; ; iteration++) {
+				delta = new HashSet<>();
+				executeShapes(ruleShapes, baseMessage, deltaPredicates);
+				if(delta.isEmpty()) {
+					break;
+				}
+				if(iteration == maxIterations) {
+					FailureLog.get().logFailure("SHACL rules have not reached a fixpoint after " + maxIterations + " iterations");
+					break;
+				}
+				deltaPredicates = new HashSet<>();
+				for(Triple triple : delta) {
+					deltaPredicates.add(triple.getPredicate());
+				}
+			}
+		}
+		finally {
+			delta = null;
+			shape2Targets.clear();
+		}
+	}
+	
+	
+	private void executeShapes(List<Shape> ruleShapes, String baseMessage, Set<Node> deltaPredicates) throws InterruptedException {
+		if(executor != null) {
+			List<Shape> group = new ArrayList<>();
+			for(Shape shape : ruleShapes) {
+				if(!group.isEmpty() && !group.get(0).getOrder().equals(shape.getOrder())) {
+					executeGroup(group, baseMessage, deltaPredicates);
+					group.clear();
+				}
+				group.add(shape);
+			}
+			executeGroup(group, baseMessage, deltaPredicates);
+			return;
+		}
 		Double oldOrder = ruleShapes.get(0).getOrder();
 		for(Shape shape : ruleShapes) {
 			if(!oldOrder.equals(shape.getOrder())) {
 				oldOrder = shape.getOrder();
 				flushPending();
 			}
-			executeShape(shape, baseMessage);
+			executeShape(shape, baseMessage, deltaPredicates);
 		}
 		flushPending();
 	}
 	
 	
+	// Executes a group of shapes with the same sh:order in parallel, unless the sequential mode would
+	// add inferences in between because a shape has rules with different sh:order values
+	private void executeGroup(List<Shape> shapes, String baseMessage, Set<Node> deltaPredicates) throws InterruptedException {
+		if(stratified || !hasRuleOrders(shapes)) {
+			executeShapesParallel(shapes, baseMessage, deltaPredicates);
+		}
+		else {
+			for(Shape shape : shapes) {
+				executeShape(shape, baseMessage, deltaPredicates);
+			}
+			flushPending();
+		}
+	}
+	
+	
+	private boolean hasRuleOrders(List<Shape> shapes) {
+		for(Shape shape : shapes) {
+			List<Rule> rules = getShapeRules(shape);
+			for(Rule rule : rules) {
+				if(!rules.get(0).getOrder().equals(rule.getOrder())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Executes the rules of a group of shapes that have the same sh:order, using the Executor.
+	 * All rules are executed in parallel against the unmodified Dataset, and their inferences
+	 * are added at the end, just like in the sequential mode.
+	 * In stratified mode, the rules are grouped into strata based on a RuleDependencyGraph
+	 * instead, and the inferences are added after each stratum.
+	 * Each task collects its inferences in a worker RuleEngine of its own, and these get added
+	 * in a deterministic order after the stratum has been completed.
+	 */
+	private void executeShapesParallel(List<Shape> shapes, String baseMessage, Set<Node> deltaPredicates) throws InterruptedException {
+		
+		RuleDependencyGraph graph = new RuleDependencyGraph();
+		for(Shape shape : shapes) {
+			if(!shape.getShapeResource().isDeactivated()) {
+				for(Rule rule : getShapeRules(shape)) {
+					graph.add(shape, rule, !rule2Conditions.get(rule).isEmpty());
+				}
+			}
+		}
+		
+		Map<Shape,Targets> shapeTargets = new HashMap<>();
+		List<List<RuleDependencyGraph.Entry>> strata = stratified ? graph.getStrata() : Collections.singletonList(graph.getEntries());
+		for(List<RuleDependencyGraph.Entry> stratum : strata) {
+			
+			// The target nodes are collected in the calling thread, before each stratum
+			// because the previous strata may have inferred new target nodes
+			Map<Shape,Targets> oldShapeTargets = shapeTargets;
+			shapeTargets = new HashMap<>();
+			for(RuleDependencyGraph.Entry entry : stratum) {
+				Shape shape = entry.getShape();
+				if(!shapeTargets.containsKey(shape)) {
+					Targets oldTargets = oldShapeTargets.get(shape);
+					shapeTargets.put(shape, oldTargets == null ? getTargets(shape, deltaPredicates) : updateTargets(shape, oldTargets));
+				}
+			}
+			for(Map.Entry<Shape,Targets> entry : oldShapeTargets.entrySet()) {
+				shapeTargets.putIfAbsent(entry.getKey(), entry.getValue());
+			}
+			
+			List<CompletableFuture<RuleEngine>> tasks = new ArrayList<>(stratum.size());
+			for(RuleDependencyGraph.Entry entry : stratum) {
+				Rule rule = entry.getRule();
+				Shape shape = entry.getShape();
+				Targets targets = shapeTargets.get(shape);
+				RuleEngine worker = createWorker();
+				Runnable runnable = () -> {
+					if(!targets.all.isEmpty() && (monitor == null || !monitor.isCanceled())) {
+						List<RDFNode> focusNodes = getFocusNodes(rule, targets, deltaPredicates);
+						if(!focusNodes.isEmpty()) {
+							worker.executeRule(rule, focusNodes, shape);
+						}
+					}
+				};
+				runnable = HasShapeFunction.propagate(SHACLScriptEngineManager.propagate(runnable));
+				tasks.add(CompletableFuture.runAsync(runnable, executor).thenApply(v -> worker));
+			}
+			
+			// Merge the inferences in a deterministic order
+			for(int i = 0; i < tasks.size(); i++) {
+				if(monitor != null) {
+					Shape shape = stratum.get(i).getShape();
+					monitor.setTaskName(baseMessage + " (at " + SPINLabels.get().getLabel(shape.getShapeResource()) + " with " + shapeTargets.get(shape).all.size() + " target nodes)");
+					monitor.subTask(stratum.get(i).getRule().toString().replace("\n", " "));
+				}
+				try {
+					pending.addAll(tasks.get(i).join().pending);
+				}
+				catch(CompletionException ex) {
+					if(ex.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) ex.getCause();
+					}
+					throw ex;
+				}
+				if(monitor != null) {
+					monitor.worked(1);
+					if(monitor.isCanceled()) {
+						throw new InterruptedException();
+					}
+				}
+			}
+			flushPending();
+		}
+	}
+	
+	
 	public void executeShape(Shape shape, String baseMessage) throws InterruptedException {
+		executeShape(shape, baseMessage, null);
+	}
+	
+	
+	// deltaPredicates is only set for the second and later iterations in fixpoint mode
+	private void executeShape(Shape shape, String baseMessage, Set<Node> deltaPredicates) throws InterruptedException {
 		
 		if(shape.getShapeResource().isDeactivated()) {
 			return;
@@ -132,33 +335,24 @@ public class RuleEngine implements NodeExpressionContext {
 			return;
 		}
 		
-		List<RDFNode> targetNodes = SHACLUtil.getTargetNodes(shape.getShapeResource(), dataset);
-		if(!targetNodes.isEmpty()) {
+		Targets targets = getTargets(shape, deltaPredicates);
+		if(!targets.all.isEmpty()) {
 			Number oldOrder = rules.get(0).getOrder();
 			for(Rule rule : rules) {
 				if(monitor != null) {
 					if(monitor.isCanceled()) {
 						throw new InterruptedException();
 					}
-					monitor.setTaskName(baseMessage + " (at " + SPINLabels.get().getLabel(shape.getShapeResource()) + " with " + targetNodes.size() + " target nodes)");
+					monitor.setTaskName(baseMessage + " (at " + SPINLabels.get().getLabel(shape.getShapeResource()) + " with " + targets.all.size() + " target nodes)");
 					monitor.subTask(rule.toString().replace("\n", " "));
 				}
 				if(!oldOrder.equals(rule.getOrder())) {
 					oldOrder = rule.getOrder();
 					flushPending();
 				}
-				List<Resource> conditions = rule2Conditions.get(rule);
-				if(!conditions.isEmpty()) {
-					List<RDFNode> filtered = new LinkedList<RDFNode>();
-					for(RDFNode targetNode : targetNodes) {
-						if(nodeConformsToAllShapes(targetNode, conditions)) {
-							filtered.add(targetNode);
-						}
-					}
-					executeRule(rule, filtered, shape);
-				}
-				else {
-					executeRule(rule, targetNodes, shape);
+				List<RDFNode> focusNodes = getFocusNodes(rule, targets, deltaPredicates);
+				if(!focusNodes.isEmpty()) {
+					executeRule(rule, focusNodes, shape);
 				}
 				if(monitor != null) {
 					monitor.worked(1);
@@ -168,6 +362,65 @@ public class RuleEngine implements NodeExpressionContext {
 	}
 	
 	
+	// Gets the target nodes of a shape, and in fixpoint mode also those that are new since the previous iteration
+	private Targets getTargets(Shape shape, Set<Node> deltaPredicates) {
+		Targets targets = new Targets();
+		targets.all = getTargetNodeIndex().getTargetNodes(shape.getShapeResource());
+		targets.added = targets.all;
+		if(delta != null) {
+			Set<RDFNode> oldTargetNodes = shape2Targets.put(shape, new HashSet<>(targets.all));
+			if(deltaPredicates != null && oldTargetNodes != null) {
+				targets.added = new ArrayList<>();
+				for(RDFNode targetNode : targets.all) {
+					if(!oldTargetNodes.contains(targetNode)) {
+						targets.added.add(targetNode);
+					}
+				}
+			}
+		}
+		return targets;
+	}
+	
+	
+	// Recomputes the target nodes of a shape after a stratum, keeping the nodes that were already
+	// new since the previous fixpoint iteration and adding those inferred by the stratum
+	private Targets updateTargets(Shape shape, Targets oldTargets) {
+		Targets targets = new Targets();
+		targets.all = getTargetNodeIndex().getTargetNodes(shape.getShapeResource());
+		if(oldTargets.added == oldTargets.all) {
+			targets.added = targets.all;
+		}
+		else {
+			Set<RDFNode> oldTargetNodes = new HashSet<>(oldTargets.all);
+			targets.added = new ArrayList<>(oldTargets.added);
+			for(RDFNode targetNode : targets.all) {
+				if(!oldTargetNodes.contains(targetNode)) {
+					targets.added.add(targetNode);
+				}
+			}
+		}
+		if(delta != null) {
+			shape2Targets.put(shape, new HashSet<>(targets.all));
+		}
+		return targets;
+	}
+	
+	
+	// Gets the focus nodes that a rule needs to be executed for, applying the sh:conditions of the rule
+	private List<RDFNode> getFocusNodes(Rule rule, Targets targets, Set<Node> deltaPredicates) {
+		List<Resource> conditions = rule2Conditions.get(rule);
+		if(!conditions.isEmpty()) {
+			return filterByConditions(targets.all, conditions);
+		}
+		else if(deltaPredicates != null && !readsAny(rule, deltaPredicates)) {
+			return targets.added;
+		}
+		else {
+			return targets.all;
+		}
+	}
+	
+	
 	private void executeRule(Rule rule, List<RDFNode> focusNodes, Shape shape) {
 		JenaUtil.setGraphReadOptimization(true);
 		try {
@@ -190,11 +443,28 @@ public class RuleEngine implements NodeExpressionContext {
 	}
 	
 	
+	private RuleEngine createWorker() {
+		RuleEngine worker = new RuleEngine(dataset, shapesGraphURI, shapesGraph, inferences);
+		worker.setProgressMonitor(monitor);
+		return worker;
+	}
+	
+	
 	private void flushPending() {
-		for(Triple triple : pending) {
-			inferences.add(inferences.asStatement(triple));
+		if(!pending.isEmpty()) {
+			for(Triple triple : pending) {
+				if(delta != null && !inferences.getGraph().contains(triple) && !dataset.getDefaultModel().getGraph().contains(triple)) {
+					delta.add(triple);
+				}
+				inferences.add(inferences.asStatement(triple));
+			}
+			pending.clear();
+			// The inferences are usually visible in the data graph
+			if(targetNodeIndex != null) {
+				targetNodeIndex.clear();
+			}
+			conditionCache = new ConformanceCache();
 		}
-		pending.clear();
 	}
 
 
@@ -231,11 +501,43 @@ public class RuleEngine implements NodeExpressionContext {
 	}
 	
 	
+	/**
+	 * Gets the Executor that is used to execute independent rules in parallel, if any.
+	 * @return the Executor or null
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+	
+	
+	/**
+	 * Checks whether the fixpoint mode is activated, see {@link #setFixpoint(boolean)}.
+	 * @return true if the rules are executed until no new triples are inferred
+	 */
+	public boolean isFixpoint() {
+		return fixpoint;
+	}
+	
+	
 	public Model getInferencesModel() {
 		return inferences;
 	}
 	
 	
+	/**
+	 * Gets the TargetNodeIndex that is used to compute the target nodes of the shapes,
+	 * creating one if needed.
+	 * The index is cleared whenever inferred triples have been added.
+	 * @return the TargetNodeIndex
+	 */
+	public TargetNodeIndex getTargetNodeIndex() {
+		if(targetNodeIndex == null) {
+			targetNodeIndex = new TargetNodeIndex(dataset);
+		}
+		return targetNodeIndex;
+	}
+	
+	
 	public ProgressMonitor getProgressMonitor() {
 		return monitor;
 	}
@@ -258,24 +560,148 @@ public class RuleEngine implements NodeExpressionContext {
 	}
 	
 	
+	/**
+	 * Checks whether the stratified mode is activated, see {@link #setStratified(boolean)}.
+	 * @return true if the parallel execution adds the inferences after each stratum
+	 */
+	public boolean isStratified() {
+		return stratified;
+	}
+	
+	
 	public void infer(Triple triple, Rule rule, Shape shape) {
 		pending.add(triple);
 	}
 	
 	
-	private boolean nodeConformsToAllShapes(RDFNode focusNode, Iterable<Resource> shapes) {
-		for(Resource shape : shapes) {
-			ValidationEngine engine = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
-			Resource report = engine.validateNodesAgainstShape(Collections.singletonList(focusNode), shape.asNode());
-			if(report.hasProperty(SH.result)) {
-				return false;
+	private static boolean readsAny(Rule rule, Set<Node> predicates) {
+		Set<Node> readPredicates = rule.getReadPredicates();
+		if(readPredicates == null) {
+			return true;
+		}
+		for(Node predicate : predicates) {
+			if(readPredicates.contains(predicate)) {
+				return true;
 			}
 		}
-		return true;
+		return false;
+	}
+	
+	
+	// Gets the nodes that conform to all condition shapes, validating all nodes against each shape at once
+	private List<RDFNode> filterByConditions(List<RDFNode> focusNodes, List<Resource> conditions) {
+		ConformanceCache cache = conditionCache;
+		List<RDFNode> results = focusNodes;
+		for(Resource condition : conditions) {
+			Node shape = condition.asNode();
+			Map<RDFNode,Boolean> outcomes = new HashMap<>();
+			List<RDFNode> unknown = new ArrayList<>();
+			for(RDFNode focusNode : results) {
+				ConformanceCache.Entry entry = cache.get(focusNode.asNode(), shape);
+				if(entry == null) {
+					unknown.add(focusNode);
+				}
+				else {
+					outcomes.put(focusNode, entry.getConforms());
+				}
+			}
+			if(!unknown.isEmpty()) {
+				ValidationEngine engine = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
+				engine.setConformanceCache(cache);
+				NodeConformanceValidationReportSink check = engine.validateConformanceOfNodes(unknown, shape, null);
+				for(RDFNode focusNode : unknown) {
+					Boolean conforms = check.getConforms(focusNode.asNode());
+					cache.put(focusNode.asNode(), shape, conforms, null);
+					outcomes.put(focusNode, conforms);
+				}
+			}
+			List<RDFNode> conforming = new ArrayList<>();
+			for(RDFNode focusNode : results) {
+				if(Boolean.TRUE.equals(outcomes.get(focusNode))) {
+					conforming.add(focusNode);
+				}
+			}
+			results = conforming;
+			if(results.isEmpty()) {
+				break;
+			}
+		}
+		return results;
+	}
+	
+	
+	/**
+	 * Installs an Executor (e.g. a ForkJoinPool with the desired parallelism) that shall
+	 * be used to execute the rules of each group of shapes with the same sh:order in parallel.
+	 * The rules run against the Dataset, which is only modified when the inferences of the
+	 * group are added at the end, so that the results are the same as in the sequential mode.
+	 * Groups that contain a shape with rules that have different sh:order values are executed
+	 * sequentially, unless the stratified mode is active.
+	 * @param value  the new Executor or null to execute the rules sequentially (default)
+	 */
+	public void setExecutor(Executor value) {
+		this.executor = value;
+	}
+	
+	
+	/**
+	 * Activates the fixpoint mode, in which executeAll() repeats the execution of the rules
+	 * until no new triples are inferred, similar to SPINInferences.
+	 * After the first iteration, the rules are only re-executed where the triples inferred
+	 * by the previous iteration may make a difference (semi-naive evaluation).
+	 * This requires that the inferences Model is visible in the data graph of the Dataset.
+	 * @param value  true to activate fixpoint mode
+	 */
+	public void setFixpoint(boolean value) {
+		this.fixpoint = value;
+	}
+	
+	
+	/**
+	 * Sets the maximum number of iterations in fixpoint mode, as a safeguard against rules
+	 * that keep producing new nodes.  The default is 100.
+	 * @param value  the maximum number of iterations
+	 */
+	public void setMaxIterations(int value) {
+		this.maxIterations = value;
 	}
 	
 	
 	public void setProgressMonitor(ProgressMonitor value) {
 		this.monitor = value;
 	}
+	
+	
+	/**
+	 * Activates the stratified mode for the parallel execution, see {@link #setExecutor(Executor)}.
+	 * Within each group of shapes with the same sh:order, the rules are then grouped into strata
+	 * based on the predicates that they read and infer, see {@link Rule#getReadPredicates()}
+	 * and {@link Rule#getWrittenPredicates()}.
+	 * The rules of a stratum run in parallel and their inferences are added at the end of the stratum.
+	 * Unlike the sequential mode, the inferences of a stratum are therefore visible to all later
+	 * strata, which may produce more triples than the sequential mode.
+	 * @param value  true to activate the stratified mode
+	 */
+	public void setStratified(boolean value) {
+		this.stratified = value;
+	}
+	
+	
+	/**
+	 * Installs a TargetNodeIndex for the Dataset of this engine, e.g. to reuse an index
+	 * of a previous validation.
+	 * @param value  the TargetNodeIndex or null to create a new one on demand
+	 */
+	public void setTargetNodeIndex(TargetNodeIndex value) {
+		this.targetNodeIndex = value;
+	}
+	
+	
+	private static class Targets {
+		
+		List<RDFNode> all;
+		
+		// In fixpoint mode, the target nodes that are new since the previous iteration
+		List<RDFNode> added;
+	}
 }
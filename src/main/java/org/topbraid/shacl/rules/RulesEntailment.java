@@ -17,6 +17,7 @@
 package org.topbraid.shacl.rules;
 
 import java.net.URI;
+import java.util.concurrent.Executor;
 
 import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.compose.MultiUnion;
@@ -29,6 +30,11 @@ import org.topbraid.spin.progress.ProgressMonitor;
 import org.topbraid.spin.util.JenaUtil;
 
 public class RulesEntailment implements SHACLEntailment.Engine {
+	
+	private Executor executor;
+	
+	private boolean stratified;
+	
 
 	@Override
 	public Model createModelWithEntailment(Dataset dataset, URI shapesGraphURI, ShapesGraph shapesGraph, ProgressMonitor monitor) throws InterruptedException {
@@ -40,6 +46,8 @@ public class RulesEntailment implements SHACLEntailment.Engine {
 		});
 		Model unionDataModel = ModelFactory.createModelForGraph(unionGraph);
 		RuleEngine engine = new RuleEngine(dataset, shapesGraphURI, shapesGraph, inferencesModel);
+		engine.setExecutor(executor);
+		engine.setStratified(stratified);
 		engine.setProgressMonitor(monitor);
 		engine.executeAll();
 		if(inferencesModel.isEmpty()) {
@@ -49,4 +57,33 @@ public class RulesEntailment implements SHACLEntailment.Engine {
 			return unionDataModel;
 		}
 	}
+	
+	
+	public Executor getExecutor() {
+		return executor;
+	}
+	
+	
+	/**
+	 * Installs an Executor that the RuleEngine shall use to execute rules in parallel,
+	 * see {@link RuleEngine#setExecutor(Executor)}.
+	 * @param value  the new Executor or null to execute the rules sequentially (default)
+	 */
+	public void setExecutor(Executor value) {
+		this.executor = value;
+	}
+	
+	
+	public boolean isStratified() {
+		return stratified;
+	}
+	
+	
+	/**
+	 * Activates the stratified mode of the parallel execution, see {@link RuleEngine#setStratified(boolean)}.
+	 * @param value  true to activate the stratified mode
+	 */
+	public void setStratified(boolean value) {
+		this.stratified = value;
+	}
 }
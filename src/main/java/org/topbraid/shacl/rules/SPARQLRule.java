@@ -16,12 +16,16 @@
  */
 package org.topbraid.shacl.rules;
 
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QuerySolutionMap;
-import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
@@ -34,8 +38,18 @@ import org.topbraid.spin.util.JenaUtil;
 
 public class SPARQLRule extends Rule {
 	
+	// The maximum number of focus nodes that are processed by a single query execution,
+	// passed into the query using a VALUES block. Use 1 to execute one query per focus node.
+	public static int batchSize = 200;
+	
+	private Query batchQuery;
+	
 	private Query query;
 	
+	private Set<Node> readPredicates;
+	
+	private Set<Node> writtenPredicates;
+	
 	
 	public SPARQLRule(Resource rule) {
 		super(rule);
@@ -45,30 +59,70 @@ public class SPARQLRule extends Rule {
 		if(!query.isConstructType()) {
 			throw new IllegalArgumentException("Values of sh:construct must be CONSTRUCT queries");
 		}
+		batchQuery = SPARQLSubstitutions.createBatchQuery(query);
+		readPredicates = QueryAnalysis.getReadPredicates(query);
+		writtenPredicates = QueryAnalysis.getWrittenPredicates(query);
 	}
 	
 	
 	@Override
 	public void execute(RuleEngine ruleEngine, List<RDFNode> focusNodes, Shape shape) {
 		ProgressMonitor monitor = ruleEngine.getProgressMonitor();
-		for(RDFNode focusNode : focusNodes) {
-			
-			if(monitor != null && monitor.isCanceled()) {
-				return;
+		if(batchQuery != null && batchSize > 1 && focusNodes.size() > 1) {
+			Set<RDFNode> batch = new LinkedHashSet<>();
+			for(Iterator<RDFNode> it = focusNodes.iterator(); it.hasNext(); ) {
+				batch.add(it.next());
+				if(batch.size() == batchSize || !it.hasNext()) {
+					
+					if(monitor != null && monitor.isCanceled()) {
+						return;
+					}
+					
+					try(QueryExecution qexec = ARQFactory.get().createQueryExecution(SPARQLSubstitutions.withFocusNodes(batchQuery, batch), ruleEngine.getDataset())) {
+						inferTriples(qexec, ruleEngine, shape);
+					}
+					batch.clear();
+				}
 			}
-
-			QuerySolutionMap bindings = new QuerySolutionMap();
-			bindings.add(SH.thisVar.getVarName(), focusNode);
-			try(QueryExecution qexec = ARQFactory.get().createQueryExecution(query, ruleEngine.getDataset(), bindings)) {
-				Model constructed = qexec.execConstruct();
-				for(Statement s : constructed.listStatements().toList()) {
-					ruleEngine.infer(s.asTriple(), this, shape);
+		}
+		else {
+			for(RDFNode focusNode : focusNodes) {
+				
+				if(monitor != null && monitor.isCanceled()) {
+					return;
+				}
+	
+				QuerySolutionMap bindings = new QuerySolutionMap();
+				bindings.add(SH.thisVar.getVarName(), focusNode);
+				try(QueryExecution qexec = ARQFactory.get().createQueryExecution(query, ruleEngine.getDataset(), bindings)) {
+					inferTriples(qexec, ruleEngine, shape);
 				}
 			}
 		}
 	}
 	
 	
+	// Streams the constructed triples into the engine, without materializing them in a Model first
+	private void inferTriples(QueryExecution qexec, RuleEngine ruleEngine, Shape shape) {
+		Iterator<Triple> it = qexec.execConstructTriples();
+		while(it.hasNext()) {
+			ruleEngine.infer(it.next(), this, shape);
+		}
+	}
+	
+	
+	@Override
+	public Set<Node> getReadPredicates() {
+		return readPredicates;
+	}
+	
+	
+	@Override
+	public Set<Node> getWrittenPredicates() {
+		return writtenPredicates;
+	}
+	
+	
 	public Query getQuery() {
 		return query;
 	}
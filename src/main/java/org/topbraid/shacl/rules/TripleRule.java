@@ -16,7 +16,10 @@
  */
 package org.topbraid.shacl.rules;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
@@ -31,6 +34,7 @@ import org.apache.jena.rdf.model.Statement;
 import org.topbraid.shacl.engine.Shape;
 import org.topbraid.shacl.expr.AppendContext;
 import org.topbraid.shacl.expr.ComplexNodeExpression;
+import org.topbraid.shacl.expr.ConstantTermExpression;
 import org.topbraid.shacl.expr.NodeExpression;
 import org.topbraid.shacl.expr.NodeExpressionFactory;
 import org.topbraid.shacl.vocabulary.SH;
@@ -66,6 +70,29 @@ class TripleRule extends Rule {
 	}
 
 
+	@Override
+	public Set<Node> getReadPredicates() {
+		Set<Node> results = new HashSet<>();
+		if(subject.addReadPredicates(results) && predicate.addReadPredicates(results) && object.addReadPredicates(results)) {
+			return results;
+		}
+		else {
+			return null;
+		}
+	}
+
+
+	@Override
+	public Set<Node> getWrittenPredicates() {
+		if(predicate instanceof ConstantTermExpression && ((ConstantTermExpression)predicate).getTerm().isURIResource()) {
+			return Collections.singleton(((ConstantTermExpression)predicate).getTerm().asNode());
+		}
+		else {
+			return null;
+		}
+	}
+
+
 	@Override
 	public void execute(RuleEngine ruleEngine, List<RDFNode> focusNodes, Shape shape) {
 		if(SPARQL_MODE) {
@@ -17,7 +17,10 @@
 package org.topbraid.shacl.util;
 
 import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.apache.jena.graph.Graph;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.util.FileUtils;
 import org.topbraid.shacl.arq.SHACLFunctions;
@@ -57,4 +60,25 @@ public class SHACLSystemModel {
 		}
 		return shaclModel;
 	}
+	
+	
+	/**
+	 * Gets the graph that identifies a shapes graph across the union graphs with the
+	 * SHACL system graph that ValidationUtil creates for each call, e.g. to key caches.
+	 * @param shapesGraph  the shapes graph, possibly a union with the system graph
+	 * @return the only non-system base graph of shapesGraph, or shapesGraph itself
+	 */
+	public static Graph getShapesBaseGraph(Graph shapesGraph) {
+		Set<Graph> baseGraphs = new HashSet<>();
+		JenaUtil.collectBaseGraphs(shapesGraph, baseGraphs);
+		if(baseGraphs.size() > 1) {
+			Set<Graph> systemGraphs = new HashSet<>();
+			JenaUtil.collectBaseGraphs(getSHACLModel().getGraph(), systemGraphs);
+			baseGraphs.removeAll(systemGraphs);
+			if(baseGraphs.size() == 1) {
+				return baseGraphs.iterator().next();
+			}
+		}
+		return shapesGraph;
+	}
 }
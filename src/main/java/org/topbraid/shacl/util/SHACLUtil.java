@@ -59,6 +59,7 @@ import org.topbraid.shacl.validation.TargetPlugins;
 import org.topbraid.shacl.vocabulary.DASH;
 import org.topbraid.shacl.vocabulary.SH;
 import org.topbraid.spin.arq.ARQFactory;
+import org.topbraid.spin.util.ClassHierarchy;
 import org.topbraid.spin.util.JenaUtil;
 import org.topbraid.spin.util.OntologyOptimizations;
 import org.topbraid.spin.util.OptimizedMultiUnion;
@@ -286,7 +287,13 @@ public class SHACLUtil {
 	private static void getAllSuperClassesAndShapesStarHelper(Resource node, Set<Resource> results) {
 		if(!results.contains(node)) {
 			results.add(node);
-			{
+			ClassHierarchy hierarchy = JenaUtil.getClassHierarchy(node);
+			if(hierarchy != null) {
+				for(Resource superClass : hierarchy.getSuperClasses(node)) {
+					getAllSuperClassesAndShapesStarHelper(superClass, results);
+				}
+			}
+			else {
 				StmtIterator it = node.listProperties(RDFS.subClassOf);
 				while(it.hasNext()) {
 					Statement s = it.next();
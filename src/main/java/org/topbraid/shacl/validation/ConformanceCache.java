@@ -0,0 +1,102 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.topbraid.shacl.validation.profiling.ValidationProfiler;
+
+/**
+ * Remembers whether a given node conforms to a given shape, for the duration of a single
+ * validation run.
+ * This is used by tosh:hasShape and the native executors of sh:node, sh:and, sh:or, sh:xone,
+ * sh:not and sh:qualifiedValueShape, so that nodes that are reachable from many places
+ * only get validated once against the same shape.
+ *
+ * Instances are thread-safe so that they can be shared by the worker threads of a parallel validation.
+ */
+public class ConformanceCache {
+
+	private Map<List<Node>,Entry> entries = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Gets the cached outcome of a given (node, shape) combination.
+	 * @param focusNode  the node that was validated
+	 * @param shape  the shape that the node was validated against
+	 * @return the Entry or null if not cached yet
+	 */
+	public Entry get(Node focusNode, Node shape) {
+		Entry entry = entries.get(Arrays.asList(focusNode, shape));
+		ValidationProfiler.get().recordCacheAccess("ConformanceCache", entry != null);
+		return entry;
+	}
+
+
+	/**
+	 * Stores the outcome of a validation.
+	 * @param focusNode  the node that was validated
+	 * @param shape  the shape that the node was validated against
+	 * @param conforms  true if the node conforms, false if not, null for failures
+	 * @param results  the nested results (only needed for sh:details) or null
+	 */
+	public void put(Node focusNode, Node shape, Boolean conforms, Model results) {
+		entries.put(Arrays.asList(focusNode, shape), new Entry(conforms, results));
+	}
+
+
+	public int size() {
+		return entries.size();
+	}
+
+
+	public static class Entry {
+
+		private Boolean conforms;
+
+		private Model results;
+
+
+		Entry(Boolean conforms, Model results) {
+			this.conforms = conforms;
+			this.results = results;
+		}
+
+
+		/**
+		 * Checks whether the node conforms to the shape.
+		 * @return true if it conforms, false if not, null for failures
+		 */
+		public Boolean getConforms() {
+			return conforms;
+		}
+
+
+		/**
+		 * Gets the nested results, if they were recorded.
+		 * @return the results Model or null
+		 */
+		public Model getResults() {
+			return results;
+		}
+	}
+}
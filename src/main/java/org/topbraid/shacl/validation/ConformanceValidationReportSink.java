@@ -0,0 +1,108 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.shacl.engine.filters.MinSeverityShapeFilter;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * A ValidationReportSink that is used to check whether the data conforms, and that stops the
+ * validation at the first sh:ValidationResult with at least a given severity, or at the first
+ * dash:FailureResult.
+ */
+public class ConformanceValidationReportSink implements ValidationReportSink {
+
+	private Integer minSeverityScore;
+
+	private Resource result;
+
+
+	/**
+	 * Constructs a new sink.
+	 * @param minSeverity  the minimum severity (in the order of MinSeverityShapeFilter) or null to stop at any result
+	 */
+	public ConformanceValidationReportSink(Resource minSeverity) {
+		this.minSeverityScore = minSeverity != null ? MinSeverityShapeFilter.getScore(minSeverity) : null;
+	}
+
+
+	@Override
+	public void addResult(Resource candidate) {
+		if(result == null && isRelevant(candidate, minSeverityScore)) {
+			Model model = JenaUtil.createMemoryModel();
+			List<Statement> statements = new ArrayList<>();
+			ModelValidationReportSink.addResultStatements(candidate, statements);
+			model.add(statements);
+			result = candidate.inModel(model);
+		}
+	}
+
+
+	static boolean isRelevant(Resource candidate, Integer minSeverityScore) {
+		if(candidate.hasProperty(RDF.type, DASH.FailureResult)) {
+			return true;
+		}
+		else if(candidate.hasProperty(RDF.type, SH.ValidationResult)) {
+			if(minSeverityScore == null) {
+				return true;
+			}
+			Resource severity = JenaUtil.getResourceProperty(candidate, SH.resultSeverity);
+			return MinSeverityShapeFilter.getScore(severity) >= minSeverityScore;
+		}
+		else {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Checks whether no relevant result has been found.
+	 * @return true if the data conforms
+	 */
+	public boolean conforms() {
+		return result == null;
+	}
+
+
+	@Override
+	public void finish(Resource report) {
+	}
+
+
+	/**
+	 * Gets the first relevant result, in a Model of its own.
+	 * @return the result or null if the data conforms
+	 */
+	public Resource getResult() {
+		return result;
+	}
+
+
+	@Override
+	public boolean isDone() {
+		return result != null;
+	}
+}
@@ -0,0 +1,277 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.util.SHACLSystemModel;
+import org.topbraid.shacl.validation.profiling.ValidationProfiler;
+import org.topbraid.spin.arq.ARQFactory;
+import org.topbraid.spin.util.AbstractGraphListener;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * A cache of ConstraintExecutors that is shared by all ValidationEngines, so that nested
+ * or repeated validations do not need to re-create the executors (and for example re-parse
+ * their SPARQL queries) each time.
+ *
+ * The executors are cached per shapes Graph, by identity. If the shapes graph is a union of
+ * the SHACL system graph and a single other graph (as produced by the methods of ValidationUtil
+ * for each call), then that other graph is used, so that the executors are also shared by
+ * consecutive calls such as {@link ValidationUtil#validateModel(org.apache.jena.rdf.model.Model, org.apache.jena.rdf.model.Model, boolean)}.
+ * Within a graph, executors are identified by the ValidationEngine class, the shape,
+ * the constraint component and the parameter value of a Constraint.
+ * 
+ * The executors of a graph are held by a listener on that graph, so that they are dropped
+ * together with the graph, and are discarded whenever the graph is modified.
+ * Changes that bypass the graph's listeners (e.g. to sub-graphs of other union graphs) require
+ * an explicit call to {@link #invalidate(Graph)}.
+ */
+public class ConstraintExecutorCache {
+
+	private static ConstraintExecutorCache singleton = new ConstraintExecutorCache();
+
+	public static ConstraintExecutorCache get() {
+		return singleton;
+	}
+
+	public static void set(ConstraintExecutorCache value) {
+		ConstraintExecutorCache.singleton = value;
+	}
+
+
+	private static final int capacity = 10000;
+
+	@SuppressWarnings("serial")
+	private static class MyCache extends LinkedHashMap<Key,ConstraintExecutor> {
+
+		MyCache() {
+			super(capacity + 1, 1.1f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Entry<Key, ConstraintExecutor> eldest) {
+			if(size() > capacity) {
+				return true;
+			}
+			else {
+				return false;
+			}
+		}
+	}
+	
+	// The values are only weakly referenced, as they are owned by the graphs that they are registered with
+	private Map<Graph,WeakReference<GraphCache>> caches = Collections.synchronizedMap(new WeakHashMap<Graph,WeakReference<GraphCache>>());
+
+	private boolean enabled = true;
+
+
+	public synchronized void clear() {
+		for(WeakReference<GraphCache> ref : caches.values()) {
+			GraphCache cache = ref.get();
+			if(cache != null) {
+				cache.clear();
+			}
+		}
+	}
+
+
+	/**
+	 * Gets a (possibly shared) ConstraintExecutor for a given Constraint.
+	 * @param constraint  the Constraint to get the executor for
+	 * @param engine  the ValidationEngine asking for the executor
+	 * @return the ConstraintExecutor or null if none is available
+	 */
+	public ConstraintExecutor getExecutor(Constraint constraint, ValidationEngine engine) {
+		if(!enabled) {
+			return ConstraintExecutors.get().getExecutor(constraint, engine);
+		}
+		GraphCache cache = getGraphCache(constraint.getShapeResource().getModel().getGraph());
+		Key key = new Key(engine.getClass(), constraint);
+		ConstraintExecutor executor = cache.executors.get(key);
+		ValidationProfiler.get().recordCacheAccess("ConstraintExecutorCache", executor != null);
+		if(executor == null) {
+			int version = cache.version;
+			executor = ConstraintExecutors.get().getExecutor(constraint, engine);
+			if(executor != null) {
+				synchronized(cache) {
+					// Do not cache executors that may have been created from outdated shapes
+					if(version == cache.version) {
+						cache.executors.put(key, executor);
+					}
+				}
+			}
+		}
+		return executor;
+	}
+
+
+	/**
+	 * Creates the executors of some constraints upfront, as done by {@link ShapesGraph#compile()}.
+	 * The executors are created for the type of ValidationEngines produced by the current
+	 * ValidationEngineFactory, using a ValidationEngine with an empty data graph.
+	 * @param shapesGraph  the ShapesGraph that the constraints belong to
+	 * @param constraints  the constraints to prepare
+	 */
+	public void prepareExecutors(ShapesGraph shapesGraph, Collection<Constraint> constraints) {
+		if(enabled && !constraints.isEmpty()) {
+			URI shapesGraphURI = URI.create("urn:x-shacl-shapes-graph:" + UUID.randomUUID().toString());
+			Dataset dataset = ARQFactory.get().getDataset(JenaUtil.createMemoryModel());
+			dataset.addNamedModel(shapesGraphURI.toString(), shapesGraph.getShapesModel());
+			ValidationEngine engine = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
+			for(Constraint constraint : constraints) {
+				getExecutor(constraint, engine);
+			}
+		}
+	}
+	
+	
+	private synchronized GraphCache getGraphCache(Graph shapesGraph) {
+		Graph graph = SHACLSystemModel.getShapesBaseGraph(shapesGraph);
+		WeakReference<GraphCache> ref = caches.get(graph);
+		GraphCache cache = ref != null ? ref.get() : null;
+		if(cache == null) {
+			cache = new GraphCache();
+			graph.getEventManager().register(cache);
+			caches.put(graph, new WeakReference<>(cache));
+		}
+		return cache;
+	}
+	
+	
+	/**
+	 * Makes sure that the executors previously created for a given shapes graph are no longer used.
+	 * @param shapesGraph  the Graph containing the shape definitions
+	 */
+	public synchronized void invalidate(Graph shapesGraph) {
+		for(Graph graph : new Graph[] { shapesGraph, SHACLSystemModel.getShapesBaseGraph(shapesGraph) }) {
+			WeakReference<GraphCache> ref = caches.get(graph);
+			GraphCache cache = ref != null ? ref.get() : null;
+			if(cache != null) {
+				cache.clear();
+			}
+		}
+	}
+
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+
+	/**
+	 * Can be used to switch off the cache, so that each ValidationEngine creates its own executors.
+	 * @param value  false to disable
+	 */
+	public void setEnabled(boolean value) {
+		this.enabled = value;
+		if(!value) {
+			clear();
+		}
+	}
+	
+	
+	// The executors of one graph, discarded whenever the graph changes.
+	// The listener must not reference the graph, so that it can be garbage collected
+	private static class GraphCache extends AbstractGraphListener {
+		
+		Map<Key,ConstraintExecutor> executors = Collections.synchronizedMap(new MyCache());
+		
+		volatile int version;
+		
+		
+		synchronized void clear() {
+			version++;
+			executors.clear();
+		}
+		
+		
+		@Override
+		public void notifyAddTriple(Graph source, Triple t) {
+			clear();
+		}
+		
+		
+		@Override
+		public void notifyDeleteTriple(Graph source, Triple t) {
+			clear();
+		}
+		
+		
+		@Override
+		protected void notifyRemoveAll(Graph source, Triple pattern) {
+			clear();
+		}
+	}
+
+
+	private static class Key {
+
+		private Node component;
+
+		private Class<?> engineType;
+
+		private int hashCode;
+
+		private Node parameterValue;
+
+		private Node shape;
+
+
+		Key(Class<?> engineType, Constraint constraint) {
+			this.component = constraint.getComponent().asNode();
+			this.engineType = engineType;
+			this.parameterValue = constraint.getParameterValue() != null ? constraint.getParameterValue().asNode() : null;
+			this.shape = constraint.getShapeResource().asNode();
+			this.hashCode = engineType.hashCode() + component.hashCode() + shape.hashCode() + Objects.hashCode(parameterValue);
+		}
+
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return engineType == other.engineType &&
+					component.equals(other.component) &&
+					shape.equals(other.shape) &&
+					Objects.equals(parameterValue, other.parameterValue);
+		}
+
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -23,6 +23,7 @@ import java.util.Map;
 
 import org.apache.jena.rdf.model.Resource;
 import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.java.NativeConstraintExecutorFactory;
 import org.topbraid.shacl.validation.js.JSConstraintExecutor;
 import org.topbraid.shacl.validation.js.JSValidationLanguage;
 import org.topbraid.shacl.validation.sparql.SPARQLConstraintExecutor;
@@ -45,6 +46,8 @@ public class ConstraintExecutors {
 	
 	private List<ValidationLanguage> languages = new ArrayList<>();
 	
+	private NativeConstraintExecutorFactory nativeExecutors = new NativeConstraintExecutorFactory();
+	
 	private Map<Resource,SpecialConstraintExecutorFactory> specialExecutors = new HashMap<>();
 
 	
@@ -79,6 +82,9 @@ public class ConstraintExecutors {
 				return new ExpressionConstraintExecutor();
 			}
 		});
+		for(Resource component : NativeConstraintExecutorFactory.COMPONENTS) {
+			addSpecialExecutor(component, nativeExecutors);
+		}
 		
 		addLanguage(SPARQLValidationLanguage.get());
 		addLanguage(JSValidationLanguage.get());
@@ -87,11 +93,13 @@ public class ConstraintExecutors {
 	
 	protected void addLanguage(ValidationLanguage language) {
 		languages.add(language);
+		ConstraintExecutorCache.get().clear();
 	}
 	
 	
 	public void addSpecialExecutor(Resource constraintComponent, SpecialConstraintExecutorFactory executor) {
 		specialExecutors.put(constraintComponent, executor);
+		ConstraintExecutorCache.get().clear();
 	}
 	
 	
@@ -112,6 +120,17 @@ public class ConstraintExecutors {
 	}
 	
 	
+	/**
+	 * Can be used to switch between the native Java executors of the SHACL Core constraint
+	 * components (default) and the SPARQL or JavaScript validators from the shapes graph.
+	 * @param value  false to use the SPARQL or JavaScript validators
+	 */
+	public void setNativePreferred(boolean value) {
+		nativeExecutors.setEnabled(value);
+		ConstraintExecutorCache.get().clear();
+	}
+	
+	
 	/**
 	 * Can be used to make the JavaScript engine the preferred implementation over SPARQL.
 	 * By default, SPARQL is preferred.
@@ -130,5 +149,6 @@ public class ConstraintExecutors {
 			languages.add(0, SPARQLValidationLanguage.get());
 			languages.add(1, JSValidationLanguage.get());
 		}
+		ConstraintExecutorCache.get().clear();
 	}
 }
@@ -0,0 +1,88 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * A ValidationReportSink that only counts the results by their type and severity,
+ * without keeping any of them.
+ */
+public class CountingValidationReportSink implements ValidationReportSink {
+
+	private Map<Resource,Integer> severityCounts = new HashMap<>();
+
+	private int totalCount;
+
+	private Map<Resource,Integer> typeCounts = new HashMap<>();
+
+
+	@Override
+	public void addResult(Resource result) {
+		totalCount++;
+		Resource type = JenaUtil.getResourceProperty(result, RDF.type);
+		if(type != null) {
+			typeCounts.merge(type, 1, Integer::sum);
+		}
+		Resource severity = JenaUtil.getResourceProperty(result, SH.resultSeverity);
+		if(severity != null) {
+			severityCounts.merge(severity, 1, Integer::sum);
+		}
+	}
+
+
+	@Override
+	public void finish(Resource report) {
+	}
+
+
+	public int getCount() {
+		return totalCount;
+	}
+
+
+	/**
+	 * Gets the number of results with a given sh:resultSeverity, e.g. sh:Violation.
+	 * @param severity  the severity
+	 * @return the number of results
+	 */
+	public int getCountBySeverity(Resource severity) {
+		return severityCounts.getOrDefault(severity, 0);
+	}
+
+
+	/**
+	 * Gets the number of results with a given type, e.g. sh:ValidationResult or dash:FailureResult.
+	 * @param type  the result type
+	 * @return the number of results
+	 */
+	public int getCountByType(Resource type) {
+		return typeCounts.getOrDefault(type, 0);
+	}
+
+
+	@Override
+	public boolean isDone() {
+		return false;
+	}
+}
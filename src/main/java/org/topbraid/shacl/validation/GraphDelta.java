@@ -0,0 +1,80 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.rdf.listeners.StatementListener;
+import org.apache.jena.rdf.model.Statement;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * A listener that records the triples that have been added to or removed from a data Model,
+ * so that they can be passed into {@link ValidationEngine#validateIncrementally(Graph, Graph)}.
+ *
+ * Usage: register an instance with <code>dataModel.register(delta)</code> after a full validation,
+ * modify the data, then revalidate the affected nodes and call {@link #clear()}.
+ * Triples are recorded without cancelling each other out, because Jena also notifies about
+ * redundant additions and removals: a triple that is added and then removed again (or vice versa)
+ * appears in both graphs. This is safe because the validation treats both sides the same way.
+ */
+public class GraphDelta extends StatementListener {
+
+	private Graph added = JenaUtil.createMemoryGraph();
+
+	private Graph removed = JenaUtil.createMemoryGraph();
+
+
+	@Override
+	public synchronized void addedStatement(Statement s) {
+		added.add(s.asTriple());
+	}
+
+
+	@Override
+	public synchronized void removedStatement(Statement s) {
+		removed.add(s.asTriple());
+	}
+
+
+	public synchronized void clear() {
+		added.clear();
+		removed.clear();
+	}
+
+
+	/**
+	 * Gets the triples that have been added since the last call to {@link #clear()}.
+	 * @return the added triples
+	 */
+	public Graph getAdded() {
+		return added;
+	}
+
+
+	/**
+	 * Gets the triples that have been removed since the last call to {@link #clear()}.
+	 * @return the removed triples
+	 */
+	public Graph getRemoved() {
+		return removed;
+	}
+
+
+	public synchronized boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty();
+	}
+}
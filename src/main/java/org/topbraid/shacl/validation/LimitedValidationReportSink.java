@@ -0,0 +1,66 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.rdf.model.Resource;
+
+/**
+ * A ValidationReportSink that passes the first N results on to another sink and then
+ * asks the ValidationEngine to stop, e.g. to produce a preview of the results
+ * of a large data graph.
+ */
+public class LimitedValidationReportSink implements ValidationReportSink {
+
+	private AtomicInteger count = new AtomicInteger();
+
+	private ValidationReportSink delegate;
+
+	private int limit;
+
+
+	/**
+	 * Constructs a new sink.
+	 * @param delegate  the sink to pass the results to
+	 * @param limit  the maximum number of results
+	 */
+	public LimitedValidationReportSink(ValidationReportSink delegate, int limit) {
+		this.delegate = delegate;
+		this.limit = limit;
+	}
+
+
+	@Override
+	public void addResult(Resource result) {
+		if(count.getAndUpdate(c -> c < limit ? c + 1 : c) < limit) {
+			delegate.addResult(result);
+		}
+	}
+
+
+	@Override
+	public void finish(Resource report) {
+		delegate.finish(report);
+	}
+
+
+	@Override
+	public boolean isDone() {
+		return count.get() >= limit || delegate.isDone();
+	}
+}
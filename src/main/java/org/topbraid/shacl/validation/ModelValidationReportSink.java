@@ -0,0 +1,91 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * A ValidationReportSink that copies the results into the (in-memory) Model of a given
+ * sh:ValidationReport, e.g. to collect the results of several validations in one report.
+ */
+public class ModelValidationReportSink implements ValidationReportSink {
+
+	private Resource report;
+
+
+	public ModelValidationReportSink(Resource report) {
+		this.report = report;
+	}
+
+
+	/**
+	 * Adds the triples of a given result to a List, including the triples of the blank nodes
+	 * that it references, such as nested sh:detail results.
+	 * @param result  the result to get the triples of
+	 * @param statements  the List to add to
+	 */
+	public static void addResultStatements(Resource result, List<Statement> statements) {
+		for(Statement s : result.listProperties().toList()) {
+			statements.add(s);
+			RDFNode object = s.getObject();
+			if(object.isAnon() && !object.equals(result)) {
+				addResultStatements((Resource)object, statements);
+			}
+		}
+	}
+
+
+	@Override
+	public void addResult(Resource result) {
+		List<Statement> statements = new ArrayList<>();
+		addResultStatements(result, statements);
+		Model model = report.getModel();
+		model.add(statements);
+		report.addProperty(SH.result, result.inModel(model));
+	}
+
+
+	@Override
+	public void finish(Resource engineReport) {
+		if(!report.equals(engineReport)) {
+			Statement s = engineReport.getProperty(SH.conforms);
+			// A report that collects several validations only conforms if all of them conform
+			if(s != null && (!report.hasProperty(SH.conforms) || !s.getBoolean())) {
+				report.removeAll(SH.conforms);
+				report.addProperty(SH.conforms, s.getObject());
+			}
+		}
+	}
+
+
+	public Resource getReport() {
+		return report;
+	}
+
+
+	@Override
+	public boolean isDone() {
+		return false;
+	}
+}
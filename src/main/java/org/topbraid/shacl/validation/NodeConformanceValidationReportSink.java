@@ -0,0 +1,105 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.shacl.engine.filters.MinSeverityShapeFilter;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * A ValidationReportSink that records which focus nodes do not conform, so that many nodes
+ * can be checked against the same shape by a single validation.
+ * The validation stops once all focus nodes have been found to not conform.
+ * Used by {@link ValidationEngine#validateConformanceOfNodes(java.util.List, Node, Resource)}.
+ */
+public class NodeConformanceValidationReportSink implements ValidationReportSink {
+
+	// Failure results without a focus node apply to all nodes
+	private boolean allFailed;
+
+	private int focusNodeCount;
+
+	private Integer minSeverityScore;
+
+	// false for nodes with a relevant sh:ValidationResult, null for nodes with a dash:FailureResult
+	private Map<Node,Boolean> outcomes = new HashMap<>();
+
+
+	/**
+	 * Constructs a new sink.
+	 * @param minSeverity  the minimum severity (in the order of MinSeverityShapeFilter) or null to consider any result
+	 * @param focusNodeCount  the number of focus nodes that are validated
+	 */
+	public NodeConformanceValidationReportSink(Resource minSeverity, int focusNodeCount) {
+		this.focusNodeCount = focusNodeCount;
+		this.minSeverityScore = minSeverity != null ? MinSeverityShapeFilter.getScore(minSeverity) : null;
+	}
+
+
+	@Override
+	public void addResult(Resource result) {
+		if(ConformanceValidationReportSink.isRelevant(result, minSeverityScore)) {
+			boolean failure = result.hasProperty(RDF.type, DASH.FailureResult);
+			Statement s = result.getProperty(SH.focusNode);
+			if(s == null) {
+				allFailed |= failure;
+			}
+			else if(failure) {
+				outcomes.put(s.getObject().asNode(), null);
+			}
+			else if(!outcomes.containsKey(s.getObject().asNode())) {
+				outcomes.put(s.getObject().asNode(), false);
+			}
+		}
+	}
+
+
+	@Override
+	public void finish(Resource report) {
+	}
+
+
+	/**
+	 * Gets the outcome for a given focus node.
+	 * @param focusNode  the focus node
+	 * @return true if it conforms, false if not, null for failures
+	 */
+	public Boolean getConforms(Node focusNode) {
+		if(allFailed) {
+			return null;
+		}
+		else if(outcomes.containsKey(focusNode)) {
+			return outcomes.get(focusNode);
+		}
+		else {
+			return true;
+		}
+	}
+
+
+	@Override
+	public boolean isDone() {
+		return allFailed || outcomes.size() >= focusNodeCount;
+	}
+}
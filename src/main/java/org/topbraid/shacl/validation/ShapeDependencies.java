@@ -0,0 +1,212 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.Shape;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.model.SHShape;
+import org.topbraid.shacl.validation.java.NativeConstraintExecutorFactory;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * A static analysis of the triples that the validation of a root shape depends on,
+ * used by incremental validation to find the focus nodes that are affected by changes.
+ *
+ * The analysis only understands the SHACL Core constraint components.
+ * For any other constraint (e.g. SPARQL-based), and for shapes with sh:target, it reports
+ * itself as unknown, and all focus nodes of the shape need to be revalidated.
+ */
+class ShapeDependencies {
+
+	// Predicates that are walked from the focus nodes towards the value nodes
+	private Set<Node> forwardPredicates = new HashSet<>();
+
+	// Predicates that are walked from the value nodes towards the focus nodes (inverse paths)
+	private Set<Node> inversePredicates = new HashSet<>();
+
+	// Predicates of the focus or value nodes themselves, e.g. rdf:type for sh:class
+	private Set<Node> nodePredicates = new HashSet<>();
+
+	// True if any predicate of the focus or value nodes is relevant (sh:closed)
+	private boolean anyNodePredicate;
+
+	// The shapes that may appear as sh:sourceShape of the results of the root shape
+	private Set<Node> resultShapes = new HashSet<>();
+
+	private boolean unknown;
+
+
+	ShapeDependencies(ShapesGraph shapesGraph, Shape root) {
+		// Custom targets (e.g. sh:SPARQLTarget) may select different focus nodes after any change
+		unknown = root.getShapeResource().hasProperty(SH.target);
+		addResultShapes(shapesGraph, root);
+		addShape(shapesGraph, root, new HashSet<>());
+	}
+
+
+	private void addResultShapes(ShapesGraph shapesGraph, Shape shape) {
+		if(resultShapes.add(shape.getShapeResource().asNode())) {
+			for(Constraint constraint : shape.getConstraints()) {
+				if(isPropertyConstraint(constraint)) {
+					if(shape.getShapeResource().isPropertyShape()) {
+						// Nested results would have the value nodes as focus nodes
+						unknown = true;
+					}
+					addResultShapes(shapesGraph, shapesGraph.getShape(constraint.getParameterValue().asNode()));
+				}
+			}
+		}
+	}
+
+
+	private void addShape(ShapesGraph shapesGraph, Shape shape, Set<Node> reached) {
+
+		SHShape shapeResource = shape.getShapeResource();
+		if(!reached.add(shapeResource.asNode()) || shapeResource.isDeactivated()) {
+			return;
+		}
+
+		Resource path = shapeResource.getPath();
+		if(path != null) {
+			addPath(path, true);
+		}
+
+		for(Constraint constraint : shape.getConstraints()) {
+			Resource component = constraint.getComponent();
+			if(isPropertyConstraint(constraint) || SH.NodeConstraintComponent.equals(component) || SH.NotConstraintComponent.equals(component)) {
+				addShape(shapesGraph, shapesGraph.getShape(constraint.getParameterValue().asNode()), reached);
+			}
+			else if(SH.AndConstraintComponent.equals(component) || SH.OrConstraintComponent.equals(component) || SH.XoneConstraintComponent.equals(component)) {
+				if(constraint.getParameterValue().canAs(RDFList.class)) {
+					for(RDFNode member : constraint.getParameterValue().as(RDFList.class).iterator().toList()) {
+						addShape(shapesGraph, shapesGraph.getShape(member.asNode()), reached);
+					}
+				}
+			}
+			else if(SH.QualifiedMinCountConstraintComponent.equals(component) || SH.QualifiedMaxCountConstraintComponent.equals(component)) {
+				Resource valueShape = JenaUtil.getResourceProperty(shapeResource, SH.qualifiedValueShape);
+				if(valueShape != null) {
+					addShape(shapesGraph, shapesGraph.getShape(valueShape.asNode()), reached);
+				}
+				// Qualified counts also depend on the sibling shapes
+				unknown |= shapeResource.hasProperty(SH.qualifiedValueShapesDisjoint);
+			}
+			else if(SH.ClassConstraintComponent.equals(component)) {
+				nodePredicates.add(RDF.type.asNode());
+			}
+			else if(SH.ClosedConstraintComponent.equals(component)) {
+				anyNodePredicate = true;
+			}
+			else if(SH.EqualsConstraintComponent.equals(component) || SH.DisjointConstraintComponent.equals(component) ||
+					SH.LessThanConstraintComponent.equals(component) || SH.LessThanOrEqualsConstraintComponent.equals(component)) {
+				forwardPredicates.add(constraint.getParameterValue().asNode());
+			}
+			else if(!NativeConstraintExecutorFactory.COMPONENTS.contains(component)) {
+				// SPARQL-based, JavaScript-based and other custom components
+				unknown = true;
+			}
+		}
+	}
+
+
+	private void addPath(Resource path, boolean forward) {
+		if(path.isURIResource()) {
+			(forward ? forwardPredicates : inversePredicates).add(path.asNode());
+		}
+		else if(path.hasProperty(RDF.first)) {
+			for(RDFNode member : path.as(RDFList.class).iterator().toList()) {
+				if(member.isResource()) {
+					addPath((Resource)member, forward);
+				}
+			}
+		}
+		else if(path.hasProperty(SH.inversePath)) {
+			addPath(JenaUtil.getResourceProperty(path, SH.inversePath), !forward);
+		}
+		else if(path.hasProperty(SH.alternativePath)) {
+			addPath(JenaUtil.getResourceProperty(path, SH.alternativePath), forward);
+		}
+		else if(path.hasProperty(SH.zeroOrMorePath)) {
+			addPath(JenaUtil.getResourceProperty(path, SH.zeroOrMorePath), forward);
+		}
+		else if(path.hasProperty(SH.oneOrMorePath)) {
+			addPath(JenaUtil.getResourceProperty(path, SH.oneOrMorePath), forward);
+		}
+		else if(path.hasProperty(SH.zeroOrOnePath)) {
+			addPath(JenaUtil.getResourceProperty(path, SH.zeroOrOnePath), forward);
+		}
+		else {
+			unknown = true;
+		}
+	}
+
+
+	Set<Node> getForwardPredicates() {
+		return forwardPredicates;
+	}
+
+
+	Set<Node> getInversePredicates() {
+		return inversePredicates;
+	}
+
+
+	Set<Node> getResultShapes() {
+		return resultShapes;
+	}
+
+
+	/**
+	 * Checks whether a change of a triple with a given predicate may affect its subject
+	 * (or, for inverse paths, its object) as a focus or value node.
+	 * @param predicate  the predicate of the changed triple
+	 * @return true if the subject is affected
+	 */
+	boolean isSubjectAffected(Node predicate) {
+		return anyNodePredicate || forwardPredicates.contains(predicate) || nodePredicates.contains(predicate);
+	}
+
+
+	boolean isObjectAffected(Node predicate) {
+		return inversePredicates.contains(predicate);
+	}
+
+
+	/**
+	 * Checks whether the analysis has found constraints that it does not understand.
+	 * @return true if all focus nodes need to be revalidated
+	 */
+	boolean isUnknown() {
+		return unknown;
+	}
+
+
+	private static boolean isPropertyConstraint(Constraint constraint) {
+		return SH.PropertyConstraintComponent.equals(constraint.getComponent()) || DASH.ParameterConstraintComponent.equals(constraint.getComponent());
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * A ValidationReportSink that writes the results to an OutputStream as they are produced,
+ * so that the validation of large data graphs does not need to hold all results in memory.
+ * Supports the streaming formats of Jena, e.g. RDFFormat.NTRIPLES and RDFFormat.TURTLE_BLOCKS.
+ *
+ * The report node itself is written with its sh:conforms flag when the validation finishes.
+ */
+public class StreamingValidationReportSink implements ValidationReportSink {
+
+	private boolean finished;
+
+	private Node report = NodeFactory.createBlankNode();
+
+	private int resultCount;
+
+	private StreamRDF stream;
+
+
+	public StreamingValidationReportSink(OutputStream out, RDFFormat format) {
+		this(out, format, null);
+	}
+
+
+	/**
+	 * Constructs a new sink and starts writing.
+	 * @param out  the OutputStream to write to
+	 * @param format  the streaming RDFFormat
+	 * @param prefixes  the prefixes to declare (for formats that support them), may be null
+	 */
+	public StreamingValidationReportSink(OutputStream out, RDFFormat format, PrefixMapping prefixes) {
+		this.stream = StreamRDFWriter.getWriterStream(out, format);
+		stream.start();
+		stream.prefix("sh", SH.NS);
+		if(prefixes != null) {
+			for(Map.Entry<String,String> entry : prefixes.getNsPrefixMap().entrySet()) {
+				stream.prefix(entry.getKey(), entry.getValue());
+			}
+		}
+		stream.triple(Triple.create(report, RDF.type.asNode(), SH.ValidationReport.asNode()));
+	}
+
+
+	@Override
+	public void addResult(Resource result) {
+		List<Statement> statements = new ArrayList<>();
+		ModelValidationReportSink.addResultStatements(result, statements);
+		stream.triple(Triple.create(report, SH.result.asNode(), result.asNode()));
+		for(Statement s : statements) {
+			stream.triple(s.asTriple());
+		}
+		resultCount++;
+	}
+
+
+	@Override
+	public void finish(Resource engineReport) {
+		if(!finished) {
+			finished = true;
+			Statement s = engineReport.getProperty(SH.conforms);
+			if(s != null) {
+				stream.triple(Triple.create(report, SH.conforms.asNode(), s.getObject().asNode()));
+			}
+			stream.finish();
+		}
+	}
+
+
+	/**
+	 * Gets the number of results that have been written so far.
+	 * @return the number of results
+	 */
+	public int getResultCount() {
+		return resultCount;
+	}
+
+
+	@Override
+	public boolean isDone() {
+		return false;
+	}
+}
@@ -17,17 +17,26 @@
 package org.topbraid.shacl.validation;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
+import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.compose.MultiUnion;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.rdf.model.Literal;
@@ -38,16 +47,25 @@ import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
 import org.apache.jena.sparql.path.Path;
 import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.shacl.arq.CompiledPath;
+import org.topbraid.shacl.arq.PathClosureCache;
 import org.topbraid.shacl.arq.SHACLPaths;
+import org.topbraid.shacl.arq.functions.HasShapeFunction;
 import org.topbraid.shacl.engine.Constraint;
 import org.topbraid.shacl.engine.Shape;
 import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.engine.TargetNodeIndex;
+import org.topbraid.shacl.engine.filters.MinSeverityShapeFilter;
 import org.topbraid.shacl.entailment.SHACLEntailment;
 import org.topbraid.shacl.expr.NodeExpressionContext;
 import org.topbraid.shacl.js.SHACLScriptEngineManager;
+import org.topbraid.shacl.model.SHShape;
 import org.topbraid.shacl.util.FailureLog;
 import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.validation.profiling.ValidationProfiler;
 import org.topbraid.shacl.validation.sparql.SPARQLSubstitutions;
+import org.topbraid.shacl.vocabulary.DASH;
 import org.topbraid.shacl.vocabulary.SH;
 import org.topbraid.spin.progress.ProgressMonitor;
 import org.topbraid.spin.util.JenaDatatypes;
@@ -63,8 +81,12 @@ import org.topbraid.spin.util.JenaUtil;
  */
 public class ValidationEngine implements NodeExpressionContext {
 	
+	private ConformanceCache conformanceCache;
+	
 	private Dataset dataset;
 	
+	private Executor parallelExecutor;
+	
 	private Map<Constraint,ConstraintExecutor> executors = new HashMap<>();
 	
 	private Predicate<RDFNode> focusNodeFilter;
@@ -73,8 +95,32 @@ public class ValidationEngine implements NodeExpressionContext {
 	
 	private ProgressMonitor monitor;
 	
+	private int partitionSize = 1000;
+	
+	// The number of validations that are in progress, so that only the outermost one finishes the sink
+	private int running;
+	
+	private PathClosureCache pathClosureCache;
+	
+	private boolean pathClosureMemoization;
+	
+	// Holds the results of the current constraint until they are passed into the sink
+	private Model pendingModel;
+	
+	private List<Resource> pendingResults = new ArrayList<>();
+	
 	private Resource report;
 	
+	// True if a sh:ValidationResult has been passed into the sink
+	private boolean reportedViolation;
+	
+	// Used by conformance checks to skip constraints that cannot produce relevant results
+	private Predicate<SHShape> severityFilter;
+	
+	private ValidationReportSink sink;
+	
+	private TargetNodeIndex targetNodeIndex;
+	
 	private ShapesGraph shapesGraph;
 	
 	private URI shapesGraphURI;
@@ -130,6 +176,26 @@ public class ValidationEngine implements NodeExpressionContext {
 	}
 	
 	
+	/**
+	 * Gets the ConformanceCache that memoizes nested shape validations in the current run.
+	 * @return the ConformanceCache or null
+	 */
+	public ConformanceCache getConformanceCache() {
+		return conformanceCache;
+	}
+	
+	
+	/**
+	 * Sets the ConformanceCache for nested shape validations.
+	 * The cache is reset by validateAll and validateNode, so this is mostly useful for direct
+	 * calls to validateNodesAgainstShape that shall share their cache with other engines.
+	 * @param value  the ConformanceCache or null to inherit the cache of the calling engine
+	 */
+	public void setConformanceCache(ConformanceCache value) {
+		this.conformanceCache = value;
+	}
+	
+	
 	@Override
     public Dataset getDataset() {
 		return dataset;
@@ -139,13 +205,36 @@ public class ValidationEngine implements NodeExpressionContext {
 	private ConstraintExecutor getExecutor(Constraint constraint) {
 		ConstraintExecutor executor = executors.get(constraint);
 		if(executor == null) {
-			executor = ConstraintExecutors.get().getExecutor(constraint, this);
+			executor = ConstraintExecutorCache.get().getExecutor(constraint, this);
 			executors.put(constraint, executor);
 		}
 		return executor;
 	}
 
 	
+	/**
+	 * Gets the Executor that is used by validateAll to run in parallel, if any.
+	 * @return the Executor or null
+	 */
+	public Executor getParallelExecutor() {
+		return parallelExecutor;
+	}
+	
+	
+	/**
+	 * Installs an Executor (e.g. a ForkJoinPool with the desired parallelism) that shall
+	 * be used by validateAll to validate the root shapes and partitions of their focus nodes
+	 * in parallel.
+	 * Each task writes its results into a report Model of its own, and these get merged into
+	 * the report of this engine at the end.
+	 * The Dataset and the shapes graph must not be modified during a parallel validation.
+	 * @param value  the new Executor or null to validate sequentially (default)
+	 */
+	public void setParallelExecutor(Executor value) {
+		this.parallelExecutor = value;
+	}
+	
+	
 	public Function<RDFNode,String> getLabelFunction() {
 		return labelFunction;
 	}
@@ -156,6 +245,38 @@ public class ValidationEngine implements NodeExpressionContext {
 	}
 	
 	
+	public boolean isPathClosureMemoization() {
+		return pathClosureMemoization;
+	}
+	
+	
+	/**
+	 * Activates the memoization of the transitive closures of sh:zeroOrMorePath and
+	 * sh:oneOrMorePath per validation run, e.g. for deep rdfs:subClassOf* paths over large
+	 * taxonomies that are walked from many focus nodes.
+	 * The data graph must not change during a run.
+	 * @param value  true to memoize the closures
+	 */
+	public void setPathClosureMemoization(boolean value) {
+		this.pathClosureMemoization = value;
+	}
+	
+	
+	public int getPartitionSize() {
+		return partitionSize;
+	}
+	
+	
+	/**
+	 * Sets the maximum number of focus nodes per shape that are validated by a single task
+	 * in a parallel validation.
+	 * @param value  the new partition size (default: 1000)
+	 */
+	public void setPartitionSize(int value) {
+		this.partitionSize = Math.max(1, value);
+	}
+	
+	
 	public ProgressMonitor getProgressMonitor() {
 		return monitor;
 	}
@@ -172,14 +293,25 @@ public class ValidationEngine implements NodeExpressionContext {
 	
 	
 	public Resource createResult(Resource type, Constraint constraint, RDFNode focusNode) {
-		Resource result = report.getModel().createResource(type);
-		report.addProperty(SH.result, result);
+		Resource result;
+		if(sink != null) {
+			if(pendingModel == null) {
+				pendingModel = JenaUtil.createMemoryModel();
+			}
+			result = pendingModel.createResource(type);
+			pendingResults.add(result);
+		}
+		else {
+			result = report.getModel().createResource(type);
+			report.addProperty(SH.result, result);
+		}
 		result.addProperty(SH.resultSeverity, constraint.getShapeResource().getSeverity());
 		result.addProperty(SH.sourceConstraintComponent, constraint.getComponent());
 		result.addProperty(SH.sourceShape, constraint.getShapeResource());
 		if(focusNode != null) {
 			result.addProperty(SH.focusNode, focusNode);
 		}
+		ValidationProfiler.get().addResult();
 		return result;
 	}
 	
@@ -198,77 +330,99 @@ public class ValidationEngine implements NodeExpressionContext {
 	
 	/**
 	 * Gets the validation report as a Resource in the report Model.
+	 * If a ValidationReportSink is installed then the report Model does not contain the results.
 	 * @return the report Resource
 	 */
 	public Resource getReport() {
 		return report;
 	}
-
-
+	
+	
 	/**
-	 * Gets a Set of all Shapes that should be evaluated for a given resource.
-	 * @param focusNode  the resource to get the shapes for
-	 * @param dataset  the Dataset containing the resource
-	 * @param shapesModel  the shapes Model
-	 * @return a Set of shape resources
+	 * Gets the TargetNodeIndex that has been installed with {@link #setTargetNodeIndex(TargetNodeIndex)}.
+	 * @return the TargetNodeIndex or null
 	 */
-	private Set<Resource> getShapesForNode(RDFNode focusNode, Dataset dataset, Model shapesModel) {
-		Set<Resource> shapes = new HashSet<Resource>();
-
-		// sh:targetNode
-		shapes.addAll(shapesModel.listSubjectsWithProperty(SH.targetNode, focusNode).toList());
-		
-		// property targets
-		if(focusNode instanceof Resource) {
-			for(Statement s : shapesModel.listStatements(null, SH.targetSubjectsOf, (RDFNode)null).toList()) {
-				if(((Resource)focusNode).hasProperty(JenaUtil.asProperty(s.getResource()))) {
-					shapes.add(s.getSubject());
-				}
-			}
-		}
-		for(Statement s : shapesModel.listStatements(null, SH.targetObjectsOf, (RDFNode)null).toList()) {
-			if(focusNode.getModel().contains(null, JenaUtil.asProperty(s.getResource()), focusNode)) {
-				shapes.add(s.getSubject());
-			}
-		}
-		
-		// rdf:type / sh:targetClass
-		if(focusNode instanceof Resource) {
-			for(Resource type : JenaUtil.getAllTypes((Resource)focusNode)) {
-				if(JenaUtil.hasIndirectType(type.inModel(shapesModel), SH.Shape)) {
-					shapes.add(type);
-				}
-				for(Statement s : shapesModel.listStatements(null, SH.targetClass, type).toList()) {
-					shapes.add(s.getSubject());
-				}
+	public TargetNodeIndex getTargetNodeIndex() {
+		return targetNodeIndex;
+	}
+	
+	
+	/**
+	 * Installs a TargetNodeIndex that shall be used to compute the focus nodes of the shapes,
+	 * e.g. to share the index with a RuleEngine or with other validations of the same data.
+	 * If no index is installed then validateAll creates a new index for each run.
+	 * The index is ignored if it has been created for a different Dataset.
+	 * @param value  the TargetNodeIndex or null
+	 */
+	public void setTargetNodeIndex(TargetNodeIndex value) {
+		this.targetNodeIndex = value;
+	}
+	
+	
+	public ValidationReportSink getReportSink() {
+		return sink;
+	}
+	
+	
+	/**
+	 * Installs a ValidationReportSink that shall receive the results instead of the report Model,
+	 * e.g. to stream them to a file or to only count them.
+	 * The sink is notified via {@link ValidationReportSink#finish(Resource)} when
+	 * {@link #updateConforms()} is called, which happens at the end of {@link #validateAll()},
+	 * {@link #validateNode(Node)} and {@link #validateNodesAgainstShape(List, Node)}.
+	 * Incremental validation is not supported with a sink, because it needs the previous results.
+	 * @param value  the sink or null to collect the results in the report Model (default)
+	 */
+	public void setReportSink(ValidationReportSink value) {
+		this.sink = value;
+	}
+	
+	
+	// Passes the results of the last executed constraint into the sink
+	private void flushResults() {
+		if(!pendingResults.isEmpty()) {
+			for(Resource result : pendingResults) {
+				addToSink(result);
 			}
+			pendingResults.clear();
+			pendingModel.removeAll();
 		}
-		
-		// sh:target
-		for(Statement s : shapesModel.listStatements(null, SH.target, (RDFNode)null).toList()) {
-			if(SHACLUtil.isInTarget(focusNode, dataset, s.getResource())) {
-				shapes.add(s.getSubject());
-			}
+	}
+	
+	
+	private void addToSink(Resource result) {
+		if(result.hasProperty(RDF.type, SH.ValidationResult)) {
+			reportedViolation = true;
 		}
-		
-		return shapes;
+		sink.addResult(result);
 	}
-
 	
+	
+	private boolean isSinkDone() {
+		return sink != null && sink.isDone();
+	}
+
+
 	public List<RDFNode> getValueNodes(Constraint constraint, RDFNode focusNode) {
 		Resource path = JenaUtil.getResourceProperty(constraint.getShapeResource(), SH.path);
 		if(path == null) {
+			ValidationProfiler.get().addValueNodes(1);
 			return Collections.singletonList(focusNode);
 		}
 		else {
 			List<RDFNode> results = new LinkedList<RDFNode>();
+			CompiledPath compiledPath = constraint.getShape().getCompiledPath();
 			Path jenaPath = constraint.getShape().getJenaPath();
-			if(jenaPath != null) {
+			if(compiledPath != null) {
+				compiledPath.addValueNodes(focusNode, results, pathClosureCache);
+			}
+			else if(jenaPath != null) {
 				SHACLPaths.addValueNodes(focusNode, jenaPath, results);
 			}
 			else {
 				SHACLPaths.addValueNodes(focusNode, path, results);
 			}
+			ValidationProfiler.get().addValueNodes(results.size());
 			return results;
 		}
 	}
@@ -286,27 +440,62 @@ public class ValidationEngine implements NodeExpressionContext {
 	
 	
 	public void updateConforms() {
-		boolean conforms = true;
+		boolean conforms = !reportedViolation;
 		StmtIterator it = report.listProperties(SH.result);
-		while(it.hasNext()) {
+		while(conforms && it.hasNext()) {
 			Statement s = it.next();
 			if(s.getResource().hasProperty(RDF.type, SH.ValidationResult)) {
 				conforms = false;
 				it.close();
-				break;
 			}
 		}
 		report.removeAll(SH.conforms);
 		report.addProperty(SH.conforms, conforms ? JenaDatatypes.TRUE : JenaDatatypes.FALSE);
+		if(sink != null) {
+			sink.finish(report);
+		}
 	}
 
 	
 	/**
 	 * Validates all target nodes against all of their shapes.
 	 * To further narrow down which nodes to validate, use {{@link #setFocusNodeFilter(Predicate)}.
+	 * If an Executor has been installed using {@link #setParallelExecutor(Executor)} then the validation
+	 * is performed in parallel.
 	 * @return an instance of sh:ValidationReport in the results Model
 	 */
 	public Resource validateAll() throws InterruptedException {
+		startRun();
+		TargetNodeIndex oldTargetNodeIndex = targetNodeIndex;
+		if(targetNodeIndex == null) {
+			targetNodeIndex = new TargetNodeIndex(dataset);
+		}
+		running++;
+		try {
+			if(parallelExecutor != null) {
+				validateAllParallel();
+			}
+			else {
+				validateAllSequential();
+			}
+		}
+		finally {
+			targetNodeIndex = oldTargetNodeIndex;
+			running--;
+		}
+		updateConforms();
+		return report;
+	}
+	
+	
+	// Resets the caches that are only valid for the duration of a single validation run
+	private void startRun() {
+		conformanceCache = new ConformanceCache();
+		pathClosureCache = pathClosureMemoization ? new PathClosureCache() : null;
+	}
+	
+	
+	private void validateAllSequential() throws InterruptedException {
 		boolean nested = SHACLScriptEngineManager.begin();
 		try {
 			List<Shape> rootShapes = shapesGraph.getRootShapes();
@@ -315,25 +504,17 @@ public class ValidationEngine implements NodeExpressionContext {
 			}
 			int i = 0;
 			for(Shape shape : rootShapes) {
+				if(isSinkDone()) {
+					break;
+				}
 				if(monitor != null) {
 					monitor.subTask("Shape " + (++i) + ": " + getLabelFunction().apply(shape.getShapeResource()));
 				}
 				
-				List<RDFNode> focusNodes = SHACLUtil.getTargetNodes(shape.getShapeResource(), dataset);
-				if(focusNodeFilter != null) {
-					List<RDFNode> filteredFocusNodes = new LinkedList<RDFNode>();
-					for(RDFNode focusNode : focusNodes) {
-						if(focusNodeFilter.test(focusNode)) {
-							filteredFocusNodes.add(focusNode);
-						}
-					}
-					focusNodes = filteredFocusNodes;
-				}
+				List<RDFNode> focusNodes = getFocusNodes(shape);
 				if(!focusNodes.isEmpty()) {
-					if(!shapesGraph.isIgnored(shape.getShapeResource().asNode()) && !shape.getShapeResource().isDeactivated()) {
-						for(Constraint constraint : shape.getConstraints()) {
-							validateNodesAgainstConstraint(focusNodes, constraint);
-						}
+					for(Constraint constraint : shape.getConstraints()) {
+						validateNodesAgainstConstraint(focusNodes, constraint);
 					}
 				}
 				if(monitor != null) {
@@ -347,11 +528,487 @@ public class ValidationEngine implements NodeExpressionContext {
 		finally {
 			SHACLScriptEngineManager.end(nested);
 		}
-		updateConforms();
-		return report;
 	}
 	
 	
+	/**
+	 * Checks whether all target nodes conform to their shapes, stopping at the first result that
+	 * has at least a given severity (in the order of {@link MinSeverityShapeFilter}).
+	 * Constraints of shapes with a lower severity are not executed at all.
+	 * This always runs sequentially and does not modify the validation report.
+	 * @param minSeverity  the minimum severity, e.g. sh:Violation, or null to stop at any result
+	 * @return the first offending result (in a Model of its own) or null if the data conforms
+	 */
+	public Resource validateConformance(Resource minSeverity) throws InterruptedException {
+		ConformanceValidationReportSink check = new ConformanceValidationReportSink(minSeverity);
+		runConformanceCheck(check, minSeverity, () -> {
+			startRun();
+			TargetNodeIndex oldTargetNodeIndex = targetNodeIndex;
+			if(targetNodeIndex == null) {
+				targetNodeIndex = new TargetNodeIndex(dataset);
+			}
+			try {
+				validateAllSequential();
+			}
+			finally {
+				targetNodeIndex = oldTargetNodeIndex;
+			}
+		});
+		return check.getResult();
+	}
+	
+	
+	/**
+	 * Checks whether a given list of focus nodes conforms to a given shape, stopping at
+	 * the first result that has at least a given severity.
+	 * This is used by tosh:hasShape and sh:condition, which only need a boolean.
+	 * @param focusNodes  the nodes to validate
+	 * @param shape  the sh:Shape to validate against
+	 * @param minSeverity  the minimum severity, e.g. sh:Violation, or null to stop at any result
+	 * @return the first offending result (in a Model of its own) or null if the nodes conform
+	 * @see #validateConformance(Resource)
+	 */
+	public Resource validateConformance(List<RDFNode> focusNodes, Node shape, Resource minSeverity) {
+		ConformanceValidationReportSink check = new ConformanceValidationReportSink(minSeverity);
+		try {
+			runConformanceCheck(check, minSeverity, () -> validateNodesAgainstShape(focusNodes, shape));
+		}
+		catch(InterruptedException ex) {
+			// Not thrown by validateNodesAgainstShape
+		}
+		return check.getResult();
+	}
+	
+	
+	/**
+	 * Checks which of a given list of focus nodes conform to a given shape, using a single
+	 * validation for all of them.
+	 * The constraints are only executed for the nodes that have not produced a result with
+	 * at least the given severity yet, and the validation stops once no such node is left.
+	 * This is used by the RuleEngine to evaluate sh:condition for all target nodes of a rule.
+	 * @param focusNodes  the nodes to validate
+	 * @param shape  the sh:Shape to validate against
+	 * @param minSeverity  the minimum severity, e.g. sh:Violation, or null to consider any result
+	 * @return the sink holding the outcome for each focus node
+	 * @see #validateConformance(List, Node, Resource)
+	 */
+	public NodeConformanceValidationReportSink validateConformanceOfNodes(List<RDFNode> focusNodes, Node shape, Resource minSeverity) {
+		NodeConformanceValidationReportSink check = new NodeConformanceValidationReportSink(minSeverity, focusNodes.size());
+		if(shapesGraph.isIgnored(shape)) {
+			return check;
+		}
+		Shape vs = shapesGraph.getShape(shape);
+		if(vs.getShapeResource().isDeactivated()) {
+			return check;
+		}
+		try {
+			runConformanceCheck(check, minSeverity, () -> {
+				boolean nested = SHACLScriptEngineManager.begin();
+				try {
+					List<RDFNode> remaining = focusNodes;
+					for(Constraint constraint : vs.getConstraints()) {
+						if(check.isDone()) {
+							break;
+						}
+						List<RDFNode> next = new ArrayList<>(remaining.size());
+						for(RDFNode focusNode : remaining) {
+							if(Boolean.TRUE.equals(check.getConforms(focusNode.asNode()))) {
+								next.add(focusNode);
+							}
+						}
+						remaining = next;
+						validateNodesAgainstConstraint(remaining, constraint);
+					}
+				}
+				finally {
+					SHACLScriptEngineManager.end(nested);
+				}
+			});
+		}
+		catch(InterruptedException ex) {
+			// Not thrown by the constraint executions
+		}
+		return check;
+	}
+	
+	
+	private interface ConformanceCheck {
+		
+		void run() throws InterruptedException;
+	}
+	
+	
+	private void runConformanceCheck(ValidationReportSink check, Resource minSeverity, ConformanceCheck runnable) throws InterruptedException {
+		ValidationReportSink oldSink = sink;
+		Predicate<SHShape> oldSeverityFilter = severityFilter;
+		boolean oldReportedViolation = reportedViolation;
+		sink = check;
+		severityFilter = minSeverity != null ? new MinSeverityShapeFilter(minSeverity) : null;
+		running++;
+		try {
+			runnable.run();
+		}
+		finally {
+			running--;
+			sink = oldSink;
+			severityFilter = oldSeverityFilter;
+			reportedViolation = oldReportedViolation;
+			pendingResults.clear();
+			if(pendingModel != null) {
+				pendingModel.removeAll();
+			}
+		}
+	}
+	
+	
+	private void validateAllParallel() throws InterruptedException {
+		List<Shape> rootShapes = shapesGraph.getRootShapes();
+		if(monitor != null) {
+			monitor.beginTask("Validating " + rootShapes.size() + " shapes", rootShapes.size());
+		}
+		
+		// The target nodes are collected upfront, in the calling thread
+		List<List<CompletableFuture<ValidationEngine>>> tasks = new ArrayList<>(rootShapes.size());
+		for(Shape shape : rootShapes) {
+			List<CompletableFuture<ValidationEngine>> shapeTasks = new LinkedList<>();
+			List<RDFNode> focusNodes = getFocusNodes(shape);
+			for(int start = 0; start < focusNodes.size(); start += partitionSize) {
+				List<RDFNode> partition = new ArrayList<>(focusNodes.subList(start, Math.min(focusNodes.size(), start + partitionSize)));
+				ValidationEngine worker = createWorker();
+				Runnable runnable = () -> {
+					if((monitor == null || !monitor.isCanceled()) && !isSinkDone()) {
+						for(Constraint constraint : shape.getConstraints()) {
+							worker.validateNodesAgainstConstraint(partition, constraint);
+						}
+					}
+				};
+				runnable = HasShapeFunction.propagate(SHACLScriptEngineManager.propagate(runnable));
+				shapeTasks.add(CompletableFuture.runAsync(runnable, parallelExecutor).thenApply(v -> worker));
+			}
+			tasks.add(shapeTasks);
+		}
+		
+		// Merge the results in a deterministic order
+		int i = 0;
+		for(List<CompletableFuture<ValidationEngine>> shapeTasks : tasks) {
+			if(monitor != null) {
+				monitor.subTask("Shape " + (++i) + ": " + getLabelFunction().apply(rootShapes.get(i - 1).getShapeResource()));
+			}
+			// Drop each task once merged, so that the worker and its results can be garbage collected
+			for(Iterator<CompletableFuture<ValidationEngine>> it = shapeTasks.iterator(); it.hasNext(); ) {
+				CompletableFuture<ValidationEngine> task = it.next();
+				it.remove();
+				try {
+					mergeResults(task.join());
+				}
+				catch(CompletionException ex) {
+					if(ex.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) ex.getCause();
+					}
+					throw ex;
+				}
+			}
+			if(monitor != null) {
+				monitor.worked(1);
+				if(monitor.isCanceled()) {
+					throw new InterruptedException();
+				}
+			}
+		}
+	}
+	
+	
+	private ValidationEngine createWorker() {
+		ValidationEngine worker = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
+		worker.setConformanceCache(conformanceCache);
+		worker.pathClosureCache = pathClosureCache;
+		worker.setLabelFunction(labelFunction);
+		return worker;
+	}
+	
+	
+	/**
+	 * Gets the focus nodes that need to be validated against a given root shape, taking the
+	 * focus node filter into account.
+	 * @param shape  the root shape
+	 * @return the focus nodes, empty for ignored or deactivated shapes
+	 */
+	private List<RDFNode> getFocusNodes(Shape shape) {
+		if(shapesGraph.isIgnored(shape.getShapeResource().asNode()) || shape.getShapeResource().isDeactivated()) {
+			return Collections.emptyList();
+		}
+		List<RDFNode> focusNodes;
+		if(targetNodeIndex != null && targetNodeIndex.getDataset() == dataset) {
+			focusNodes = targetNodeIndex.getTargetNodes(shape.getShapeResource());
+		}
+		else {
+			focusNodes = SHACLUtil.getTargetNodes(shape.getShapeResource(), dataset);
+		}
+		if(focusNodeFilter != null) {
+			List<RDFNode> filteredFocusNodes = new LinkedList<RDFNode>();
+			for(RDFNode focusNode : focusNodes) {
+				if(focusNodeFilter.test(focusNode)) {
+					filteredFocusNodes.add(focusNode);
+				}
+			}
+			focusNodes = filteredFocusNodes;
+		}
+		return focusNodes;
+	}
+	
+	
+	private void mergeResults(ValidationEngine worker) {
+		Resource workerReport = worker.getReport();
+		if(sink != null) {
+			for(Statement s : workerReport.listProperties(SH.result).toList()) {
+				if(!isSinkDone()) {
+					addToSink(s.getResource());
+				}
+			}
+			return;
+		}
+		Model reportModel = report.getModel();
+		StmtIterator it = workerReport.getModel().listStatements();
+		while(it.hasNext()) {
+			Statement s = it.next();
+			if(!s.getSubject().equals(workerReport)) {
+				reportModel.add(s);
+			}
+			else if(SH.result.equals(s.getPredicate())) {
+				report.addProperty(SH.result, s.getObject());
+			}
+		}
+	}
+	
+	
+	/**
+	 * Updates the validation report after changes to the data graph, only revalidating the
+	 * focus nodes that may have been affected by the changes.
+	 * The report must contain the results of a previous {@link #validateAll()} of this engine,
+	 * and the data graph must already contain the changes.
+	 * The affected focus nodes are derived from the paths and constraints of the shapes.
+	 * Shapes with constraints that cannot be analyzed (e.g. SPARQL-based constraints) get all
+	 * of their focus nodes revalidated, and changes to the class hierarchy or to the shapes
+	 * themselves lead to a full revalidation.
+	 * @param added  the triples that have been added to the data graph
+	 * @param removed  the triples that have been removed from the data graph
+	 * @return an instance of sh:ValidationReport in the results Model
+	 * @see GraphDelta
+	 */
+	public Resource validateIncrementally(Graph added, Graph removed) throws InterruptedException {
+
+		if(sink != null) {
+			throw new UnsupportedOperationException("Incremental validation requires the results in the report Model");
+		}
+
+		List<Triple> changes = new ArrayList<>();
+		changes.addAll(added.find(Node.ANY, Node.ANY, Node.ANY).toList());
+		changes.addAll(removed.find(Node.ANY, Node.ANY, Node.ANY).toList());
+		if(changes.isEmpty()) {
+			return report;
+		}
+
+		boolean full = false;
+		for(Triple triple : changes) {
+			if(RDFS.subClassOf.asNode().equals(triple.getPredicate()) || (triple.getPredicate().isURI() && triple.getPredicate().getURI().startsWith(SH.NS))) {
+				full = true;
+				break;
+			}
+		}
+		if(full) {
+			for(Resource result : JenaUtil.getResourceProperties(report, SH.result)) {
+				removeResult(result);
+			}
+			return validateAll();
+		}
+
+		startRun();
+		Model dataModel = dataset.getDefaultModel();
+		Graph oldAndNewGraph = new MultiUnion(new Graph[] { dataModel.getGraph(), removed });
+		Map<Shape,ShapeDependencies> dependencies = new LinkedHashMap<>();
+		Map<Shape,Set<RDFNode>> candidates = new LinkedHashMap<>();
+		for(Shape shape : shapesGraph.getRootShapes()) {
+			if(!shapesGraph.isIgnored(shape.getShapeResource().asNode()) && !shape.getShapeResource().isDeactivated()) {
+				ShapeDependencies deps = new ShapeDependencies(shapesGraph, shape);
+				dependencies.put(shape, deps);
+				candidates.put(shape, getAffectedFocusNodes(shape, deps, changes, oldAndNewGraph));
+			}
+		}
+
+		// Shapes that share result shapes (e.g. via sh:property) need to revalidate the same nodes
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for(Shape shape : candidates.keySet()) {
+				for(Shape other : candidates.keySet()) {
+					if(shape != other && !Collections.disjoint(dependencies.get(shape).getResultShapes(), dependencies.get(other).getResultShapes())) {
+						changed |= candidates.get(other).addAll(candidates.get(shape));
+					}
+				}
+			}
+		}
+
+		// Remove the outdated results
+		for(Shape shape : candidates.keySet()) {
+			Set<Node> resultShapes = dependencies.get(shape).getResultShapes();
+			for(RDFNode focusNode : candidates.get(shape)) {
+				for(Resource result : report.getModel().listSubjectsWithProperty(SH.focusNode, focusNode).toList()) {
+					Resource sourceShape = JenaUtil.getResourceProperty(result, SH.sourceShape);
+					if(sourceShape != null && resultShapes.contains(sourceShape.asNode()) && report.hasProperty(SH.result, result)) {
+						removeResult(result);
+					}
+				}
+			}
+		}
+
+		// Revalidate the candidates that are still in the target of their shapes
+		boolean nested = SHACLScriptEngineManager.begin();
+		try {
+			for(Shape shape : candidates.keySet()) {
+				List<RDFNode> focusNodes = new ArrayList<>();
+				for(RDFNode candidate : candidates.get(shape)) {
+					RDFNode focusNode = dataModel.asRDFNode(candidate.asNode());
+					if(isInTarget(shape.getShapeResource(), focusNode) && (focusNodeFilter == null || focusNodeFilter.test(focusNode))) {
+						focusNodes.add(focusNode);
+					}
+				}
+				if(!focusNodes.isEmpty()) {
+					for(Constraint constraint : shape.getConstraints()) {
+						validateNodesAgainstConstraint(focusNodes, constraint);
+					}
+				}
+				if(monitor != null && monitor.isCanceled()) {
+					throw new InterruptedException();
+				}
+			}
+		}
+		finally {
+			SHACLScriptEngineManager.end(nested);
+		}
+
+		updateConforms();
+		return report;
+	}
+
+
+	private Set<RDFNode> getAffectedFocusNodes(Shape shape, ShapeDependencies deps, List<Triple> changes, Graph oldAndNewGraph) {
+
+		Model dataModel = dataset.getDefaultModel();
+		Set<RDFNode> results = new HashSet<>();
+		if(deps.isUnknown()) {
+			results.addAll(SHACLUtil.getTargetNodes(shape.getShapeResource(), dataset));
+			for(Resource result : JenaUtil.getResourceProperties(report, SH.result)) {
+				Resource sourceShape = JenaUtil.getResourceProperty(result, SH.sourceShape);
+				RDFNode focusNode = JenaUtil.getProperty(result, SH.focusNode);
+				if(sourceShape != null && focusNode != null && deps.getResultShapes().contains(sourceShape.asNode())) {
+					results.add(focusNode);
+				}
+			}
+			return results;
+		}
+
+		Set<Node> targetSubjectsOf = new HashSet<>();
+		for(Resource p : JenaUtil.getResourceProperties(shape.getShapeResource(), SH.targetSubjectsOf)) {
+			targetSubjectsOf.add(p.asNode());
+		}
+		Set<Node> targetObjectsOf = new HashSet<>();
+		for(Resource p : JenaUtil.getResourceProperties(shape.getShapeResource(), SH.targetObjectsOf)) {
+			targetObjectsOf.add(p.asNode());
+		}
+
+		Set<Node> seeds = new HashSet<>();
+		for(Triple triple : changes) {
+			Node predicate = triple.getPredicate();
+			if(RDF.type.asNode().equals(predicate) || targetSubjectsOf.contains(predicate) || deps.isSubjectAffected(predicate)) {
+				seeds.add(triple.getSubject());
+			}
+			if(targetObjectsOf.contains(predicate) || deps.isObjectAffected(predicate)) {
+				seeds.add(triple.getObject());
+			}
+		}
+
+		// Walk from the changed nodes back to the focus nodes that may reach them, using the
+		// old and new triples so that nodes that are no longer connected are found too
+		LinkedList<Node> queue = new LinkedList<>(seeds);
+		while(!queue.isEmpty()) {
+			Node node = queue.removeFirst();
+			for(Node predicate : deps.getForwardPredicates()) {
+				for(Triple triple : oldAndNewGraph.find(Node.ANY, predicate, node).toList()) {
+					if(seeds.add(triple.getSubject())) {
+						queue.add(triple.getSubject());
+					}
+				}
+			}
+			for(Node predicate : deps.getInversePredicates()) {
+				for(Triple triple : oldAndNewGraph.find(node, predicate, Node.ANY).toList()) {
+					if(seeds.add(triple.getObject())) {
+						queue.add(triple.getObject());
+					}
+				}
+			}
+		}
+		for(Node seed : seeds) {
+			results.add(dataModel.asRDFNode(seed));
+		}
+		return results;
+	}
+
+
+	private boolean isInTarget(Resource shape, RDFNode focusNode) {
+
+		Model dataModel = dataset.getDefaultModel();
+		if(shape.hasProperty(SH.targetNode, focusNode)) {
+			return true;
+		}
+
+		if(focusNode.isResource()) {
+			Resource resource = (Resource) focusNode;
+			if(JenaUtil.hasIndirectType(shape, RDFS.Class) && JenaUtil.hasIndirectType(resource, shape.inModel(dataModel))) {
+				return true;
+			}
+			for(Resource targetClass : JenaUtil.getResourceProperties(shape, SH.targetClass)) {
+				if(JenaUtil.hasIndirectType(resource, targetClass.inModel(dataModel))) {
+					return true;
+				}
+			}
+			for(Resource p : JenaUtil.getResourceProperties(shape, SH.targetSubjectsOf)) {
+				if(resource.hasProperty(JenaUtil.asProperty(p))) {
+					return true;
+				}
+			}
+		}
+
+		for(Resource p : JenaUtil.getResourceProperties(shape, SH.targetObjectsOf)) {
+			if(dataModel.contains(null, JenaUtil.asProperty(p), focusNode)) {
+				return true;
+			}
+		}
+
+		for(Resource target : JenaUtil.getResourceProperties(shape, SH.target)) {
+			if(SHACLUtil.isInTarget(focusNode, dataset, target)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	// Deletes a result and the blank nodes that only it references (e.g. nested sh:detail results)
+	private void removeResult(Resource result) {
+		Model reportModel = report.getModel();
+		reportModel.removeAll(null, null, result);
+		List<Statement> statements = result.listProperties().toList();
+		reportModel.remove(statements);
+		for(Statement s : statements) {
+			RDFNode object = s.getObject();
+			if(object.isAnon() && !reportModel.contains(null, null, object)) {
+				removeResult((Resource)object);
+			}
+		}
+	}
+
+
 	/**
 	 * Validates a given focus node against all of the shapes that have matching targets.
 	 * @param focusNode  the node to validate
@@ -359,11 +1016,12 @@ public class ValidationEngine implements NodeExpressionContext {
 	 */
 	public Resource validateNode(Node focusNode) throws InterruptedException {
 		
-		Model shapesModel = dataset.getNamedModel(shapesGraphURI.toString());
+		startRun();
 		
 		RDFNode focusRDFNode = dataset.getDefaultModel().asRDFNode(focusNode);
-		Set<Resource> shapes = getShapesForNode(focusRDFNode, dataset, shapesModel);
+		Set<Resource> shapes = shapesGraph.getShapeTargetIndex().getShapesForNode(focusRDFNode, dataset);
 		boolean nested = SHACLScriptEngineManager.begin();
+		running++;
 		try {
 			for(Resource shape : shapes) {
 				if(monitor != null && monitor.isCanceled()) {
@@ -373,9 +1031,11 @@ public class ValidationEngine implements NodeExpressionContext {
 			}
 		}
 		finally {
+			running--;
 			SHACLScriptEngineManager.end(nested);
 		}
 		
+		finishSink();
 		return report;
 	}
 
@@ -391,27 +1051,72 @@ public class ValidationEngine implements NodeExpressionContext {
 			Shape vs = shapesGraph.getShape(shape);
 			if(!vs.getShapeResource().isDeactivated()) {
 				boolean nested = SHACLScriptEngineManager.begin();
+				running++;
 				try {
 					for(Constraint constraint : vs.getConstraints()) {
 						validateNodesAgainstConstraint(focusNodes, constraint);
 					}
 				}
 				finally {
+					running--;
 					SHACLScriptEngineManager.end(nested);
 				}
 			}
 		}
+		finishSink();
 		return report;
 	}
 	
 	
+	// Finishes the sink unless this is called from within another validation (e.g. by sh:property)
+	private void finishSink() {
+		if(sink != null && running == 0) {
+			updateConforms();
+		}
+	}
+	
+	
 	private void validateNodesAgainstConstraint(List<RDFNode> focusNodes, Constraint constraint) {
+		if(isSinkDone()) {
+			return;
+		}
+		if(severityFilter != null && !isPropertyConstraint(constraint) && !severityFilter.test(constraint.getShapeResource())) {
+			return;
+		}
+		if(sink != null && focusNodes.size() > partitionSize) {
+			// Smaller chunks, so that the results can be flushed and the sink can stop early
+			for(int start = 0; start < focusNodes.size() && !isSinkDone(); start += partitionSize) {
+				validateNodesAgainstConstraint(focusNodes.subList(start, Math.min(focusNodes.size(), start + partitionSize)), constraint);
+			}
+			return;
+		}
 		ConstraintExecutor executor = getExecutor(constraint);
 		if(executor != null) {
-			executor.executeConstraint(constraint, this, focusNodes);
+			ConformanceCache oldConformanceCache = HasShapeFunction.getConformanceCache();
+			if(conformanceCache != null) {
+				HasShapeFunction.setConformanceCache(conformanceCache);
+			}
+			ValidationProfiler profiler = ValidationProfiler.get();
+			ValidationProfiler.Frame frame = profiler.isEnabled() ? profiler.begin() : null;
+			try {
+				executor.executeConstraint(constraint, this, focusNodes);
+			}
+			finally {
+				if(frame != null) {
+					profiler.end(frame, constraint, executor, focusNodes.size());
+				}
+				HasShapeFunction.setConformanceCache(oldConformanceCache);
+				flushResults();
+			}
 		}
 		else {
 			FailureLog.get().logFailure("No suitable validator found for constraint " + constraint);
 		}
 	}
+	
+	
+	// sh:property constraints do not produce results of their own
+	private static boolean isPropertyConstraint(Constraint constraint) {
+		return SH.PropertyConstraintComponent.equals(constraint.getComponent()) || DASH.ParameterConstraintComponent.equals(constraint.getComponent());
+	}
 }
@@ -0,0 +1,56 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import org.apache.jena.rdf.model.Resource;
+
+/**
+ * A destination for the results produced by a ValidationEngine, as an alternative to
+ * collecting all results in the in-memory Model of the validation report.
+ * Install a sink using {@link ValidationEngine#setReportSink(ValidationReportSink)}.
+ *
+ * The engine passes the results into the sink once the constraint that has produced them
+ * has been executed, and then discards its own copy of them.
+ * Sinks are only called by the thread that has started the validation, but {@link #isDone()}
+ * may also be checked by the worker threads of a parallel validation.
+ */
+public interface ValidationReportSink {
+
+	/**
+	 * Adds a result to this sink.
+	 * The result is only valid for the duration of the call: implementations that want
+	 * to keep it must copy its triples, including those of nested blank nodes.
+	 * @param result  the result (e.g. an instance of sh:ValidationResult)
+	 */
+	void addResult(Resource result);
+
+
+	/**
+	 * Called when the validation has finished, after the sh:conforms flag of the report
+	 * has been updated.
+	 * @param report  the sh:ValidationReport of the ValidationEngine
+	 */
+	void finish(Resource report);
+
+
+	/**
+	 * Checks whether this sink does not want to receive any further results, in which
+	 * case the ValidationEngine stops executing the remaining constraints.
+	 * @return true to stop the validation early
+	 */
+	boolean isDone();
+}
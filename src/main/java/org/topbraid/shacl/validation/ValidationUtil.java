@@ -41,6 +41,25 @@ import org.topbraid.spin.arq.ARQFactory;
  */
 public class ValidationUtil {
 
+	/**
+	 * Creates a compiled ShapesGraph for a given shapes Model, which can then be reused for any number
+	 * of calls to {@link #validateModel(Model, ShapesGraph)}, also from multiple threads.
+	 * If the shapesModel does not include the system graph triples then these will be added.
+	 * @param shapesModel  the shapes Model
+	 * @param validateShapes  true to also validate any shapes in the data Model (false is faster)
+	 * @return a compiled ShapesGraph
+	 */
+	public static ShapesGraph createShapesGraph(Model shapesModel, boolean validateShapes) {
+		shapesModel = withSystemModel(shapesModel);
+		SHACLFunctions.registerFunctions(shapesModel);
+		ShapesGraph shapesGraph = new ShapesGraph(shapesModel);
+		if(!validateShapes) {
+			shapesGraph.setShapeFilter(new ExcludeMetaShapesFilter());
+		}
+		return shapesGraph.compile();
+	}
+	
+	
 	/**
 	 * Validates a given data Model against all shapes from a given shapes Model.
 	 * If the shapesModel does not include the system graph triples then these will be added.
@@ -53,28 +72,35 @@ public class ValidationUtil {
 	public static Resource validateModel(Model dataModel, Model shapesModel, boolean validateShapes) {
 		
 		// Ensure that the SHACL, DASH and TOSH graphs are present in the shapes Model
-		if(!shapesModel.contains(TOSH.hasShape, RDF.type, (RDFNode)null)) { // Heuristic
-			Model unionModel = SHACLSystemModel.getSHACLModel();
-			MultiUnion unionGraph = new MultiUnion(new Graph[] {
-				unionModel.getGraph(),
-				shapesModel.getGraph()
-			});
-			shapesModel = ModelFactory.createModelForGraph(unionGraph);
-		}
+		shapesModel = withSystemModel(shapesModel);
 
 		// Make sure all sh:Functions are registered
 		SHACLFunctions.registerFunctions(shapesModel);
 		
+		ShapesGraph shapesGraph = new ShapesGraph(shapesModel);
+		if(!validateShapes) {
+			shapesGraph.setShapeFilter(new ExcludeMetaShapesFilter());
+		}
+		return validateModel(dataModel, shapesGraph);
+	}
+	
+	
+	/**
+	 * Validates a given data Model against all shapes from a given ShapesGraph,
+	 * typically produced by {@link #createShapesGraph(Model, boolean)}.
+	 * Entailment regimes are applied prior to validation.
+	 * @param dataModel  the data Model
+	 * @param shapesGraph  the ShapesGraph
+	 * @return an instance of sh:ValidationReport in a results Model
+	 */
+	public static Resource validateModel(Model dataModel, ShapesGraph shapesGraph) {
+		
 		// Create Dataset that contains both the data model and the shapes model
 		// (here, using a temporary URI for the shapes graph)
 		URI shapesGraphURI = URI.create("urn:x-shacl-shapes-graph:" + UUID.randomUUID().toString());
 		Dataset dataset = ARQFactory.get().getDataset(dataModel);
-		dataset.addNamedModel(shapesGraphURI.toString(), shapesModel);
+		dataset.addNamedModel(shapesGraphURI.toString(), shapesGraph.getShapesModel());
 
-		ShapesGraph shapesGraph = new ShapesGraph(shapesModel);
-		if(!validateShapes) {
-			shapesGraph.setShapeFilter(new ExcludeMetaShapesFilter());
-		}
 		ValidationEngine engine = ValidationEngineFactory.get().create(dataset, shapesGraphURI, shapesGraph, null);
 		try {
 			engine.applyEntailments();
@@ -84,4 +110,19 @@ public class ValidationUtil {
 			return null;
 		}
 	}
+	
+	
+	private static Model withSystemModel(Model shapesModel) {
+		if(!shapesModel.contains(TOSH.hasShape, RDF.type, (RDFNode)null)) { // Heuristic
+			Model unionModel = SHACLSystemModel.getSHACLModel();
+			MultiUnion unionGraph = new MultiUnion(new Graph[] {
+				unionModel.getGraph(),
+				shapesModel.getGraph()
+			});
+			return ModelFactory.createModelForGraph(unionGraph);
+		}
+		else {
+			return shapesModel;
+		}
+	}
 }
@@ -0,0 +1,271 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.topbraid.shacl.arq.SHACLPaths;
+import org.topbraid.shacl.arq.functions.HasShapeFunction;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.util.FailureLog;
+import org.topbraid.shacl.validation.ConstraintExecutor;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.sparql.AbstractSPARQLExecutor;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.statistics.SPINStatistics;
+import org.topbraid.spin.statistics.SPINStatisticsManager;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Base class of the ConstraintExecutors that implement the SHACL Core constraint components
+ * natively in Java, operating directly on the Graph instead of going through SPARQL.
+ * 
+ * Instances are created for a given Constraint so that they can pre-compute anything that
+ * only depends on the parameter values.
+ * They may be shared by all Constraints with the same shape, component and parameter value,
+ * so the Constraint that is passed into the execute methods must be used for everything else.
+ * 
+ * If AbstractSPARQLExecutor.createSuccessResults is true, a dash:SuccessResult is produced for
+ * each focus node that did not get a result, just like the SPARQL-based executors do.
+ */
+public abstract class AbstractNativeConstraintExecutor implements ConstraintExecutor {
+	
+	// The focus nodes that have results in the current executeConstraint call, if success results are needed
+	private static ThreadLocal<Set<RDFNode>> reportedFocusNodes = new ThreadLocal<>();
+	
+	
+	@Override
+	public void executeConstraint(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		
+		URI oldShapesGraphURI = HasShapeFunction.getShapesGraph();
+		ShapesGraph oldShapesGraph = HasShapeFunction.getShapesGraphInstance();
+		HasShapeFunction.setShapesGraph(engine.getShapesGraphURI(), engine.getShapesGraph());
+		
+		Model oldNestedResults = HasShapeFunction.getResultsModel();
+		HasShapeFunction.setResultsModel(JenaUtil.createMemoryModel());
+		
+		// Nested shapes may run other native executors on this thread
+		Set<RDFNode> oldReportedFocusNodes = reportedFocusNodes.get();
+		Set<RDFNode> reported = AbstractSPARQLExecutor.createSuccessResults ? new HashSet<>() : null;
+		reportedFocusNodes.set(reported);
+		
+		try {
+			long startTime = System.currentTimeMillis();
+			executeNative(constraint, engine, focusNodes);
+			if(reported != null) {
+				for(RDFNode focusNode : focusNodes) {
+					if(!reported.contains(focusNode)) {
+						Resource success = engine.createResult(DASH.SuccessResult, constraint, focusNode);
+						addDetails(success);
+					}
+				}
+			}
+			if(SPINStatisticsManager.get().isRecording()) {
+				long endTime = System.currentTimeMillis();
+				long duration = endTime - startTime;
+				String label = constraint.getComponent().getLocalName() + " (native constraint executor)";
+				SPINStatistics stats = new SPINStatistics(label, null, duration, startTime, constraint.getComponent().asNode());
+				SPINStatisticsManager.get().add(Collections.singletonList(stats));
+			}
+		}
+		finally {
+			reportedFocusNodes.set(oldReportedFocusNodes);
+			HasShapeFunction.setShapesGraph(oldShapesGraphURI, oldShapesGraph);
+			HasShapeFunction.setResultsModel(oldNestedResults);
+		}
+	}
+	
+	
+	/**
+	 * Performs the actual validation of the given focus nodes.
+	 * @param constraint  the Constraint to validate
+	 * @param engine  the ValidationEngine to report results to
+	 * @param focusNodes  the focus nodes
+	 */
+	protected abstract void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes);
+
+	
+	/**
+	 * Adds the variable bindings that are used to substitute the {$var} placeholders in sh:messages.
+	 * By default this binds the parameters, $this, $currentShape and (if present) $value.
+	 * @param constraint  the Constraint
+	 * @param bindings  the QuerySolutionMap to add to
+	 * @param focusNode  the focus node
+	 * @param valueNode  the value node or null
+	 */
+	protected void addMessageBindings(Constraint constraint, QuerySolutionMap bindings, RDFNode focusNode, RDFNode valueNode) {
+		constraint.addBindings(bindings);
+		bindings.add(SH.thisVar.getVarName(), focusNode);
+		bindings.add(SH.currentShapeVar.getVarName(), constraint.getShapeResource());
+		if(valueNode != null) {
+			bindings.add(SH.valueVar.getVarName(), valueNode);
+		}
+	}
+	
+	
+	/**
+	 * Creates a FailureResult, e.g. to propagate failures from nested shapes.
+	 * @param constraint  the Constraint
+	 * @param engine  the ValidationEngine
+	 * @param focusNode  the focus node
+	 * @param valueNode  the value node that could not be validated
+	 * @return the new result
+	 */
+	protected Resource createFailure(Constraint constraint, ValidationEngine engine, RDFNode focusNode, RDFNode valueNode) {
+		FailureLog.get().logFailure(constraint.getComponent().getLocalName() + " has produced a failure for focus node " + focusNode);
+		Resource result = createResult(DASH.FailureResult, constraint, engine, focusNode);
+		result.addProperty(SH.resultMessage, "Validation Failure: Could not validate shape");
+		addPathAndValue(constraint, result, valueNode);
+		addDetails(result);
+		return result;
+	}
+	
+	
+	/**
+	 * Creates a sh:ValidationResult, including sh:resultPath, sh:value and sh:resultMessages.
+	 * @param constraint  the Constraint
+	 * @param engine  the ValidationEngine
+	 * @param focusNode  the focus node
+	 * @param valueNode  the value node or null to not produce a sh:value
+	 * @return the new result
+	 */
+	protected Resource createResult(Constraint constraint, ValidationEngine engine, RDFNode focusNode, RDFNode valueNode) {
+		QuerySolutionMap bindings = new QuerySolutionMap();
+		addMessageBindings(constraint, bindings, focusNode, valueNode);
+		return createResult(constraint, engine, focusNode, valueNode, bindings);
+	}
+	
+	
+	/**
+	 * Creates a sh:ValidationResult using a given set of bindings for the sh:resultMessages.
+	 * @param constraint  the Constraint
+	 * @param engine  the ValidationEngine
+	 * @param focusNode  the focus node
+	 * @param valueNode  the value node or null to not produce a sh:value
+	 * @param bindings  the message bindings
+	 * @return the new result
+	 */
+	protected Resource createResult(Constraint constraint, ValidationEngine engine, RDFNode focusNode, RDFNode valueNode, QuerySolutionMap bindings) {
+		Resource result = createResult(SH.ValidationResult, constraint, engine, focusNode);
+		addPathAndValue(constraint, result, valueNode);
+		addMessages(constraint, engine, result, bindings);
+		return result;
+	}
+	
+	
+	/**
+	 * Creates a result of a given type without any further properties.
+	 * All results of the native executors must be created by this method, so that
+	 * no dash:SuccessResult is produced for their focus nodes.
+	 * @param type  the type of the result, e.g. sh:ValidationResult
+	 * @param constraint  the Constraint
+	 * @param engine  the ValidationEngine
+	 * @param focusNode  the focus node
+	 * @return the new result
+	 */
+	protected Resource createResult(Resource type, Constraint constraint, ValidationEngine engine, RDFNode focusNode) {
+		Set<RDFNode> reported = reportedFocusNodes.get();
+		if(reported != null) {
+			reported.add(focusNode);
+		}
+		return engine.createResult(type, constraint, focusNode);
+	}
+	
+	
+	/**
+	 * Adds sh:details from the nested results collected by tosh:hasShape, if
+	 * AbstractSPARQLExecutor.createDetails is true.
+	 * @param result  the parent result
+	 */
+	protected void addDetails(Resource result) {
+		if(AbstractSPARQLExecutor.createDetails && HasShapeFunction.getResultsModel() != null) {
+			AbstractSPARQLExecutor.addDetails(result, HasShapeFunction.getResultsModel());
+		}
+	}
+	
+	
+	/**
+	 * Adds the sh:resultMessages, using the same templates as the SPARQL-based executors:
+	 * the shape's sh:message, or else the sh:message of the validator that SPARQL
+	 * (or, if there is none, JavaScript) would use, or else the constraint component's sh:message.
+	 * @param constraint  the Constraint
+	 * @param engine  the ValidationEngine
+	 * @param result  the result to add the messages to
+	 * @param bindings  the bindings to substitute placeholders in the message templates
+	 */
+	protected void addMessages(Constraint constraint, ValidationEngine engine, Resource result, QuerySolutionMap bindings) {
+		if(constraint.getShapeResource().hasProperty(SH.message)) {
+			for(Statement s : constraint.getShapeResource().listProperties(SH.message).toList()) {
+				result.addProperty(SH.resultMessage, s.getObject());
+			}
+		}
+		else {
+			Resource validator = constraint.getComponent().getValidator(SH.SPARQLExecutable, constraint.getContext());
+			if(validator == null) {
+				validator = constraint.getComponent().getValidator(SH.JSValidator, constraint.getContext());
+			}
+			if(validator == null || !addMessages(engine, validator, result, bindings)) {
+				addMessages(engine, constraint.getComponent(), result, bindings);
+			}
+		}
+	}
+	
+	
+	private boolean addMessages(ValidationEngine engine, Resource messageHolder, Resource result, QuerySolutionMap bindings) {
+		boolean found = false;
+		for(Statement s : messageHolder.listProperties(SH.message).toList()) {
+			if(s.getObject().isLiteral()) {
+				engine.addResultMessage(result, s.getLiteral(), bindings);
+				found = true;
+			}
+		}
+		return found;
+	}
+	
+	
+	private void addPathAndValue(Constraint constraint, Resource result, RDFNode valueNode) {
+		Resource path = constraint.getShapeResource().getPath();
+		if(path != null) {
+			result.addProperty(SH.resultPath, SHACLPaths.clonePath(path, result.getModel()));
+		}
+		if(valueNode != null) {
+			result.addProperty(SH.value, valueNode);
+		}
+	}
+	
+	
+	/**
+	 * Gets the data graph of a given engine.
+	 * @param engine  the ValidationEngine
+	 * @return the default graph of the engine's Dataset
+	 */
+	protected Graph getDataGraph(ValidationEngine engine) {
+		return engine.getDataset().getDefaultModel().getGraph();
+	}
+}
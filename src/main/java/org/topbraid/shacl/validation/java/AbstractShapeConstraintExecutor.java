@@ -0,0 +1,70 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.List;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.topbraid.shacl.arq.functions.HasShapeFunction;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Base class for the native implementations of the shape-based constraint components
+ * such as sh:node and sh:or, which validate each value node against other shapes.
+ */
+abstract class AbstractShapeConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		for(RDFNode focusNode : focusNodes) {
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				Boolean valid = isValid(constraint, engine, valueNode);
+				if(valid == null) {
+					createFailure(constraint, engine, focusNode, valueNode);
+				}
+				else if(!valid) {
+					Resource result = createResult(constraint, engine, focusNode, valueNode);
+					addDetails(result);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Checks whether a given node conforms to a given shape, using the same mechanism as tosh:hasShape.
+	 * @param engine  the ValidationEngine
+	 * @param node  the node to validate
+	 * @param shape  the shape to validate against
+	 * @param recursionIsError  true to report recursion as failure
+	 * @return true if the node conforms, false if not, null for failures
+	 */
+	protected Boolean hasShape(ValidationEngine engine, RDFNode node, RDFNode shape, boolean recursionIsError) {
+		return HasShapeFunction.hasShape(node, shape.asNode(), engine.getDataset(), recursionIsError);
+	}
+	
+	
+	/**
+	 * Checks whether a given value node passes this constraint.
+	 * @param engine  the ValidationEngine
+	 * @param valueNode  the value node
+	 * @return true if valid, false if not, null for failures
+	 */
+	protected abstract Boolean isValid(Constraint constraint, ValidationEngine engine, RDFNode valueNode);
+}
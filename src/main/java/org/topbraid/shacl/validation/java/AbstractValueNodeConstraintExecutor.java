@@ -0,0 +1,51 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.List;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Base class for native executors that test each value node individually and
+ * produce one result (with sh:value) for each value node that does not pass.
+ */
+public abstract class AbstractValueNodeConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		for(RDFNode focusNode : focusNodes) {
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				if(!isValid(engine, focusNode, valueNode)) {
+					createResult(constraint, engine, focusNode, valueNode);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Checks whether a given value node passes this constraint.
+	 * @param engine  the ValidationEngine
+	 * @param focusNode  the current focus node
+	 * @param valueNode  the value node to test
+	 * @return true if valid
+	 */
+	protected abstract boolean isValid(ValidationEngine engine, RDFNode focusNode, RDFNode valueNode);
+}
@@ -0,0 +1,75 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Native implementation of sh:class, equivalent to rdf:type/rdfs:subClassOf*.
+ */
+class ClassConstraintExecutor extends AbstractValueNodeConstraintExecutor {
+	
+	private Node classNode;
+	
+	
+	ClassConstraintExecutor(Constraint constraint) {
+		this.classNode = constraint.getParameterValue().asNode();
+	}
+
+	
+	@Override
+	protected boolean isValid(ValidationEngine engine, RDFNode focusNode, RDFNode valueNode) {
+		if(valueNode.isLiteral()) {
+			return false;
+		}
+		Graph graph = getDataGraph(engine);
+		Set<Node> reached = new HashSet<>();
+		List<Node> queue = new LinkedList<>();
+		addObjects(graph, valueNode.asNode(), RDF.type.asNode(), queue);
+		while(!queue.isEmpty()) {
+			Node type = queue.remove(0);
+			if(classNode.equals(type)) {
+				return true;
+			}
+			else if(reached.add(type)) {
+				addObjects(graph, type, RDFS.subClassOf.asNode(), queue);
+			}
+		}
+		return false;
+	}
+	
+	
+	private static void addObjects(Graph graph, Node subject, Node predicate, List<Node> results) {
+		ExtendedIterator<Triple> it = graph.find(subject, predicate, Node.ANY);
+		while(it.hasNext()) {
+			results.add(it.next().getObject());
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaDatatypes;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Native implementation of sh:closed (with optional sh:ignoredProperties) for node shapes.
+ * Produces one result for each triple of the focus node with a predicate that is not allowed.
+ */
+class ClosedConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	private Set<RDFNode> allowed = new HashSet<>();
+	
+	private boolean closed;
+	
+	
+	ClosedConstraintExecutor(Constraint constraint) {
+		Resource shape = constraint.getShapeResource();
+		this.closed = JenaDatatypes.TRUE.equals(JenaUtil.getProperty(shape, SH.closed));
+		for(Resource propertyShape : JenaUtil.getResourceProperties(shape, SH.property)) {
+			for(Statement s : propertyShape.listProperties(SH.path).toList()) {
+				if(s.getObject().isURIResource()) {
+					allowed.add(s.getObject());
+				}
+			}
+		}
+		Resource ignored = JenaUtil.getResourceProperty(shape, SH.ignoredProperties);
+		if(ignored != null) {
+			allowed.addAll(ignored.as(RDFList.class).iterator().toList());
+		}
+	}
+
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		if(!closed) {
+			return;
+		}
+		for(RDFNode focusNode : focusNodes) {
+			if(focusNode.isResource()) {
+				Resource subject = engine.getDataset().getDefaultModel().wrapAsResource(focusNode.asNode());
+				for(Statement s : subject.listProperties().toList()) {
+					if(!allowed.contains(s.getPredicate())) {
+						Resource result = createResult(SH.ValidationResult, constraint, engine, focusNode);
+						result.addProperty(SH.resultPath, s.getPredicate());
+						result.addProperty(SH.value, s.getObject());
+						QuerySolutionMap bindings = new QuerySolutionMap();
+						addMessageBindings(constraint, bindings, focusNode, s.getObject());
+						bindings.add(SH.pathVar.getVarName(), s.getPredicate());
+						addMessages(constraint, engine, result, bindings);
+					}
+				}
+			}
+		}
+	}
+}
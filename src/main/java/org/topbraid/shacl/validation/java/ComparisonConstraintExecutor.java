@@ -0,0 +1,76 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.List;
+
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Native implementation of sh:lessThan and sh:lessThanOrEquals, producing one result
+ * for each pair of value node and value of the other property that does not pass.
+ */
+class ComparisonConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	private boolean orEquals;
+	
+	private Property predicate;
+	
+	
+	ComparisonConstraintExecutor(Constraint constraint, boolean orEquals) {
+		this.orEquals = orEquals;
+		this.predicate = JenaUtil.asProperty((Resource)constraint.getParameterValue());
+	}
+
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		for(RDFNode focusNode : focusNodes) {
+			if(focusNode.isResource()) {
+				List<RDFNode> others = engine.getDataset().getDefaultModel().listObjectsOfProperty((Resource)focusNode, predicate).toList();
+				if(!others.isEmpty()) {
+					for(RDFNode value : engine.getValueNodes(constraint, focusNode)) {
+						for(RDFNode other : others) {
+							if(!isValid(value, other)) {
+								createResult(constraint, engine, focusNode, value);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	
+	private boolean isValid(RDFNode value, RDFNode other) {
+		try {
+			int c = NodeValue.compare(NodeValue.makeNode(value.asNode()), NodeValue.makeNode(other.asNode()));
+			return c == Expr.CMP_LESS || (orEquals && c == Expr.CMP_EQUAL);
+		}
+		catch(ExprEvalException ex) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.List;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Native implementation of sh:minCount and sh:maxCount.
+ */
+class CountConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	private Integer count;
+	
+	private boolean max;
+	
+	
+	CountConstraintExecutor(Constraint constraint, boolean max) {
+		this.max = max;
+		RDFNode param = constraint.getParameterValue();
+		if(param.isLiteral() && param.asLiteral().getValue() instanceof Number) {
+			this.count = ((Number)param.asLiteral().getValue()).intValue();
+		}
+	}
+
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		if(count == null) {
+			return;
+		}
+		for(RDFNode focusNode : focusNodes) {
+			int actual = engine.getValueNodes(constraint, focusNode).size();
+			if(max ? actual > count : actual < count) {
+				createResult(constraint, engine, focusNode, null);
+			}
+		}
+	}
+}
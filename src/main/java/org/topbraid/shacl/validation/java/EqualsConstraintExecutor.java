@@ -0,0 +1,64 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Native implementation of sh:equals, producing one result for each value that is only
+ * present at one side.
+ */
+class EqualsConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	private Property predicate;
+	
+	
+	EqualsConstraintExecutor(Constraint constraint) {
+		this.predicate = JenaUtil.asProperty((Resource)constraint.getParameterValue());
+	}
+
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		for(RDFNode focusNode : focusNodes) {
+			Set<RDFNode> values = new LinkedHashSet<>(engine.getValueNodes(constraint, focusNode));
+			Set<RDFNode> others = new LinkedHashSet<>();
+			if(focusNode.isResource()) {
+				others.addAll(engine.getDataset().getDefaultModel().listObjectsOfProperty((Resource)focusNode, predicate).toList());
+			}
+			for(RDFNode value : values) {
+				if(!others.contains(value)) {
+					createResult(constraint, engine, focusNode, value);
+				}
+			}
+			for(RDFNode other : others) {
+				if(!values.contains(other)) {
+					createResult(constraint, engine, focusNode, other);
+				}
+			}
+		}
+	}
+}
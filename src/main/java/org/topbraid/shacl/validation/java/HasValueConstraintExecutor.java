@@ -0,0 +1,66 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.List;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Native implementation of sh:hasValue.
+ * For property shapes, produces a result if none of the value nodes is the given value.
+ * For node shapes, produces a result if the focus node is not equal to the given value.
+ */
+class HasValueConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	private RDFNode hasValue;
+	
+	
+	HasValueConstraintExecutor(Constraint constraint) {
+		this.hasValue = constraint.getParameterValue();
+	}
+
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		boolean propertyShape = constraint.getShapeResource().isPropertyShape();
+		for(RDFNode focusNode : focusNodes) {
+			if(propertyShape) {
+				if(!engine.getValueNodes(constraint, focusNode).contains(hasValue)) {
+					createResult(constraint, engine, focusNode, null);
+				}
+			}
+			else if(!isEqual(focusNode)) {
+				createResult(constraint, engine, focusNode, focusNode);
+			}
+		}
+	}
+	
+	
+	private boolean isEqual(RDFNode node) {
+		try {
+			return NodeValue.sameAs(NodeValue.makeNode(node.asNode()), NodeValue.makeNode(hasValue.asNode()));
+		}
+		catch(ExprEvalException ex) {
+			return false;
+		}
+	}
+}
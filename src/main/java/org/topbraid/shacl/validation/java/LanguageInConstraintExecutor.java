@@ -0,0 +1,62 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.expr.nodevalue.NodeFunctions;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Native implementation of sh:languageIn, based on SPARQL's langMatches.
+ */
+class LanguageInConstraintExecutor extends AbstractValueNodeConstraintExecutor {
+	
+	private List<String> ranges = new LinkedList<>();
+	
+	
+	LanguageInConstraintExecutor(Constraint constraint) {
+		RDFNode list = constraint.getParameterValue();
+		if(list.isResource()) {
+			for(RDFNode member : list.as(RDFList.class).iterator().toList()) {
+				if(member.isLiteral()) {
+					ranges.add(member.asNode().getLiteralLexicalForm());
+				}
+			}
+		}
+	}
+
+	
+	@Override
+	protected boolean isValid(ValidationEngine engine, RDFNode focusNode, RDFNode valueNode) {
+		if(!valueNode.isLiteral()) {
+			return false;
+		}
+		NodeValue lang = NodeValue.makeString(valueNode.asNode().getLiteralLanguage());
+		for(String range : ranges) {
+			if(NodeFunctions.langMatches(lang, range).getBoolean()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Native implementation of sh:minLength and sh:maxLength, based on STRLEN(str(?value)).
+ * Blank nodes never pass.
+ */
+class LengthConstraintExecutor extends AbstractValueNodeConstraintExecutor {
+	
+	private boolean max;
+	
+	private Integer length;
+	
+	
+	LengthConstraintExecutor(Constraint constraint, boolean max) {
+		this.max = max;
+		RDFNode param = constraint.getParameterValue();
+		if(param.isLiteral() && param.asLiteral().getValue() instanceof Number) {
+			this.length = ((Number)param.asLiteral().getValue()).intValue();
+		}
+	}
+
+	
+	@Override
+	protected boolean isValid(ValidationEngine engine, RDFNode focusNode, RDFNode valueNode) {
+		if(length == null || valueNode.isAnon()) {
+			return false;
+		}
+		String str = valueNode.isLiteral() ? valueNode.asNode().getLiteralLexicalForm() : valueNode.asNode().getURI();
+		int actual = str.codePointCount(0, str.length());
+		return max ? actual <= length : actual >= length;
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.rdf.model.Resource;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ConstraintExecutor;
+import org.topbraid.shacl.validation.SpecialConstraintExecutorFactory;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * A SpecialConstraintExecutorFactory that produces the native Java executors for the
+ * SHACL Core constraint components.
+ * If disabled, or for contexts that the core components do not support (e.g. sh:minCount
+ * at node shapes), the ConstraintExecutors fall back to the SPARQL or JavaScript validators.
+ */
+public class NativeConstraintExecutorFactory implements SpecialConstraintExecutorFactory {
+	
+	/**
+	 * The constraint components that are supported by this factory.
+	 */
+	public final static List<Resource> COMPONENTS = Collections.unmodifiableList(Arrays.asList(
+			SH.AndConstraintComponent,
+			SH.ClassConstraintComponent,
+			SH.ClosedConstraintComponent,
+			SH.DatatypeConstraintComponent,
+			SH.DisjointConstraintComponent,
+			SH.EqualsConstraintComponent,
+			SH.HasValueConstraintComponent,
+			SH.InConstraintComponent,
+			SH.LanguageInConstraintComponent,
+			SH.LessThanConstraintComponent,
+			SH.LessThanOrEqualsConstraintComponent,
+			SH.MaxCountConstraintComponent,
+			SH.MaxExclusiveConstraintComponent,
+			SH.MaxInclusiveConstraintComponent,
+			SH.MaxLengthConstraintComponent,
+			SH.MinCountConstraintComponent,
+			SH.MinExclusiveConstraintComponent,
+			SH.MinInclusiveConstraintComponent,
+			SH.MinLengthConstraintComponent,
+			SH.NodeConstraintComponent,
+			SH.NodeKindConstraintComponent,
+			SH.NotConstraintComponent,
+			SH.OrConstraintComponent,
+			SH.PatternConstraintComponent,
+			SH.QualifiedMaxCountConstraintComponent,
+			SH.QualifiedMinCountConstraintComponent,
+			SH.UniqueLangConstraintComponent,
+			SH.XoneConstraintComponent));
+	
+	// Components that only have validators for property shapes
+	private final static Set<Resource> PROPERTY_ONLY = new HashSet<>(Arrays.asList(
+			SH.LessThanConstraintComponent,
+			SH.LessThanOrEqualsConstraintComponent,
+			SH.MaxCountConstraintComponent,
+			SH.MinCountConstraintComponent,
+			SH.QualifiedMaxCountConstraintComponent,
+			SH.QualifiedMinCountConstraintComponent,
+			SH.UniqueLangConstraintComponent));
+	
+	private boolean enabled = true;
+
+	
+	@Override
+	public boolean canExecute(Constraint constraint, ValidationEngine engine) {
+		if(!enabled) {
+			return false;
+		}
+		Resource component = constraint.getComponent();
+		if(PROPERTY_ONLY.contains(component)) {
+			return SH.PropertyShape.equals(constraint.getContext());
+		}
+		else if(SH.ClosedConstraintComponent.equals(component)) {
+			return SH.NodeShape.equals(constraint.getContext());
+		}
+		else {
+			return true;
+		}
+	}
+
+	
+	@Override
+	public ConstraintExecutor create(Constraint constraint) {
+		Resource component = constraint.getComponent();
+		if(SH.ClassConstraintComponent.equals(component)) {
+			return new ClassConstraintExecutor(constraint);
+		}
+		else if(SH.DatatypeConstraintComponent.equals(component)) {
+			return new DatatypeConstraintExecutor(constraint);
+		}
+		else if(SH.NodeKindConstraintComponent.equals(component)) {
+			return new NodeKindConstraintExecutor(constraint);
+		}
+		else if(SH.MinCountConstraintComponent.equals(component)) {
+			return new CountConstraintExecutor(constraint, false);
+		}
+		else if(SH.MaxCountConstraintComponent.equals(component)) {
+			return new CountConstraintExecutor(constraint, true);
+		}
+		else if(SH.MinLengthConstraintComponent.equals(component)) {
+			return new LengthConstraintExecutor(constraint, false);
+		}
+		else if(SH.MaxLengthConstraintComponent.equals(component)) {
+			return new LengthConstraintExecutor(constraint, true);
+		}
+		else if(SH.MinExclusiveConstraintComponent.equals(component)) {
+			return new RangeConstraintExecutor(constraint, false, false);
+		}
+		else if(SH.MinInclusiveConstraintComponent.equals(component)) {
+			return new RangeConstraintExecutor(constraint, false, true);
+		}
+		else if(SH.MaxExclusiveConstraintComponent.equals(component)) {
+			return new RangeConstraintExecutor(constraint, true, false);
+		}
+		else if(SH.MaxInclusiveConstraintComponent.equals(component)) {
+			return new RangeConstraintExecutor(constraint, true, true);
+		}
+		else if(SH.PatternConstraintComponent.equals(component)) {
+			return new PatternConstraintExecutor(constraint);
+		}
+		else if(SH.InConstraintComponent.equals(component)) {
+			return new InConstraintExecutor(constraint);
+		}
+		else if(SH.LanguageInConstraintComponent.equals(component)) {
+			return new LanguageInConstraintExecutor(constraint);
+		}
+		else if(SH.HasValueConstraintComponent.equals(component)) {
+			return new HasValueConstraintExecutor(constraint);
+		}
+		else if(SH.UniqueLangConstraintComponent.equals(component)) {
+			return new UniqueLangConstraintExecutor();
+		}
+		else if(SH.EqualsConstraintComponent.equals(component)) {
+			return new EqualsConstraintExecutor(constraint);
+		}
+		else if(SH.DisjointConstraintComponent.equals(component)) {
+			return new DisjointConstraintExecutor(constraint);
+		}
+		else if(SH.LessThanConstraintComponent.equals(component)) {
+			return new ComparisonConstraintExecutor(constraint, false);
+		}
+		else if(SH.LessThanOrEqualsConstraintComponent.equals(component)) {
+			return new ComparisonConstraintExecutor(constraint, true);
+		}
+		else if(SH.ClosedConstraintComponent.equals(component)) {
+			return new ClosedConstraintExecutor(constraint);
+		}
+		else if(SH.NodeConstraintComponent.equals(component)) {
+			return new NodeConstraintExecutor(constraint, false);
+		}
+		else if(SH.NotConstraintComponent.equals(component)) {
+			return new NodeConstraintExecutor(constraint, true);
+		}
+		else if(SH.QualifiedMinCountConstraintComponent.equals(component)) {
+			return new QualifiedValueShapeConstraintExecutor(constraint, false);
+		}
+		else if(SH.QualifiedMaxCountConstraintComponent.equals(component)) {
+			return new QualifiedValueShapeConstraintExecutor(constraint, true);
+		}
+		else {
+			return new ShapeListConstraintExecutor(constraint);
+		}
+	}
+	
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	
+	/**
+	 * Can be used to switch off the native executors, e.g. for debugging purposes.
+	 * In that case the SPARQL or JavaScript validators declared in the shapes graph are used.
+	 * @param value  false to disable
+	 */
+	public void setEnabled(boolean value) {
+		this.enabled = value;
+	}
+}
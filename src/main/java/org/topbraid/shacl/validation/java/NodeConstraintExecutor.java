@@ -0,0 +1,44 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Native implementation of sh:node and sh:not.
+ */
+class NodeConstraintExecutor extends AbstractShapeConstraintExecutor {
+	
+	private boolean negated;
+	
+	
+	NodeConstraintExecutor(Constraint constraint, boolean negated) {
+		this.negated = negated;
+	}
+
+	
+	@Override
+	protected Boolean isValid(Constraint constraint, ValidationEngine engine, RDFNode valueNode) {
+		Boolean result = hasShape(engine, valueNode, constraint.getParameterValue(), false);
+		if(result == null) {
+			return null;
+		}
+		return negated ? !result : result;
+	}
+}
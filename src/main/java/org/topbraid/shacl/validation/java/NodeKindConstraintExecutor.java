@@ -0,0 +1,56 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Native implementation of sh:nodeKind.
+ */
+class NodeKindConstraintExecutor extends AbstractValueNodeConstraintExecutor {
+	
+	private boolean blankNodes;
+	
+	private boolean iris;
+	
+	private boolean literals;
+	
+	
+	NodeKindConstraintExecutor(Constraint constraint) {
+		RDFNode nodeKind = constraint.getParameterValue();
+		blankNodes = SH.BlankNode.equals(nodeKind) || SH.BlankNodeOrIRI.equals(nodeKind) || SH.BlankNodeOrLiteral.equals(nodeKind);
+		iris = SH.IRI.equals(nodeKind) || SH.BlankNodeOrIRI.equals(nodeKind) || SH.IRIOrLiteral.equals(nodeKind);
+		literals = SH.Literal.equals(nodeKind) || SH.BlankNodeOrLiteral.equals(nodeKind) || SH.IRIOrLiteral.equals(nodeKind);
+	}
+
+	
+	@Override
+	protected boolean isValid(ValidationEngine engine, RDFNode focusNode, RDFNode valueNode) {
+		if(valueNode.isURIResource()) {
+			return iris;
+		}
+		else if(valueNode.isLiteral()) {
+			return literals;
+		}
+		else {
+			return blankNodes;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.expr.RegexJava;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Native implementation of sh:pattern (with optional sh:flags).
+ * The regular expression is only compiled once.
+ */
+class PatternConstraintExecutor extends AbstractValueNodeConstraintExecutor {
+	
+	private RegexJava regex;
+	
+	
+	PatternConstraintExecutor(Constraint constraint) {
+		String pattern = JenaUtil.getStringProperty(constraint.getShapeResource(), SH.pattern);
+		String flags = JenaUtil.getStringProperty(constraint.getShapeResource(), SH.flags);
+		if(pattern != null) {
+			try {
+				regex = new RegexJava(pattern, flags);
+			}
+			catch(Exception ex) {
+				// Malformed patterns cause all values to fail, same as in SPARQL
+			}
+		}
+	}
+
+	
+	@Override
+	protected boolean isValid(ValidationEngine engine, RDFNode focusNode, RDFNode valueNode) {
+		if(regex == null || valueNode.isAnon()) {
+			return false;
+		}
+		String str = valueNode.isLiteral() ? valueNode.asNode().getLiteralLexicalForm() : valueNode.asNode().getURI();
+		return regex.match(str);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.spin.util.JenaDatatypes;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Native implementation of sh:qualifiedMinCount and sh:qualifiedMaxCount, including
+ * sh:qualifiedValueShapesDisjoint.
+ */
+class QualifiedValueShapeConstraintExecutor extends AbstractShapeConstraintExecutor {
+	
+	private Integer count;
+	
+	private boolean max;
+	
+	private Resource shape;
+	
+	private Set<Resource> siblingShapes = new HashSet<>();
+	
+	
+	QualifiedValueShapeConstraintExecutor(Constraint constraint, boolean max) {
+		this.max = max;
+		Resource currentShape = constraint.getShapeResource();
+		this.shape = JenaUtil.getResourceProperty(currentShape, SH.qualifiedValueShape);
+		RDFNode countNode = JenaUtil.getProperty(currentShape, max ? SH.qualifiedMaxCount : SH.qualifiedMinCount);
+		if(countNode != null && countNode.isLiteral() && countNode.asLiteral().getValue() instanceof Number) {
+			this.count = ((Number)countNode.asLiteral().getValue()).intValue();
+		}
+		if(JenaDatatypes.TRUE.equals(JenaUtil.getProperty(currentShape, SH.qualifiedValueShapesDisjoint))) {
+			for(Resource parentShape : currentShape.getModel().listSubjectsWithProperty(SH.property, currentShape).toList()) {
+				for(Resource sibling : JenaUtil.getResourceProperties(parentShape, SH.property)) {
+					for(Statement s : sibling.listProperties(SH.qualifiedValueShape).toList()) {
+						if(!s.getObject().equals(shape) && s.getObject().isResource()) {
+							siblingShapes.add(s.getResource());
+						}
+					}
+				}
+			}
+		}
+	}
+
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		if(count == null || shape == null) {
+			return;
+		}
+		for(RDFNode focusNode : focusNodes) {
+			int actual = 0;
+			boolean failure = false;
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				Boolean valid = isValid(constraint, engine, valueNode);
+				if(valid == null) {
+					failure = true;
+					break;
+				}
+				else if(valid) {
+					actual++;
+				}
+			}
+			if(failure) {
+				createFailure(constraint, engine, focusNode, null);
+			}
+			else if(max ? actual > count : actual < count) {
+				createResult(constraint, engine, focusNode, null);
+			}
+		}
+	}
+	
+	
+	@Override
+	protected Boolean isValid(Constraint constraint, ValidationEngine engine, RDFNode valueNode) {
+		Boolean conforms = hasShape(engine, valueNode, shape, false);
+		if(conforms == null || !conforms) {
+			return conforms;
+		}
+		for(Resource siblingShape : siblingShapes) {
+			Boolean conformsToSibling = hasShape(engine, valueNode, siblingShape, false);
+			if(conformsToSibling == null) {
+				return null;
+			}
+			else if(conformsToSibling) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+
+/**
+ * Native implementation of sh:minExclusive, sh:minInclusive, sh:maxExclusive and sh:maxInclusive.
+ * Uses the SPARQL comparison operators so that values that cannot be compared do not pass.
+ */
+class RangeConstraintExecutor extends AbstractValueNodeConstraintExecutor {
+	
+	private boolean inclusive;
+	
+	private NodeValue limit;
+	
+	private boolean max;
+	
+	
+	RangeConstraintExecutor(Constraint constraint, boolean max, boolean inclusive) {
+		this.inclusive = inclusive;
+		this.limit = NodeValue.makeNode(constraint.getParameterValue().asNode());
+		this.max = max;
+	}
+
+	
+	@Override
+	protected boolean isValid(ValidationEngine engine, RDFNode focusNode, RDFNode valueNode) {
+		if(!valueNode.isLiteral()) {
+			return false;
+		}
+		try {
+			int c = NodeValue.compare(NodeValue.makeNode(valueNode.asNode()), limit);
+			if(inclusive && c == Expr.CMP_EQUAL) {
+				return true;
+			}
+			return c == (max ? Expr.CMP_LESS : Expr.CMP_GREATER);
+		}
+		catch(ExprEvalException ex) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Native implementation of sh:and, sh:or and sh:xone, based on the number of shapes
+ * from the given list that a value node conforms to.
+ */
+class ShapeListConstraintExecutor extends AbstractShapeConstraintExecutor {
+	
+	private List<RDFNode> shapes = new LinkedList<>();
+	
+	
+	ShapeListConstraintExecutor(Constraint constraint) {
+		RDFNode list = constraint.getParameterValue();
+		if(list.isResource()) {
+			shapes.addAll(list.as(RDFList.class).iterator().toList());
+		}
+	}
+
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		boolean xone = SH.XoneConstraintComponent.equals(constraint.getComponent());
+		for(RDFNode focusNode : focusNodes) {
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				if(xone) {
+					// The messages of sh:xone report the number of conforming shapes as ?count
+					Integer count = countConformingShapes(engine, valueNode);
+					if(count == null) {
+						createFailure(constraint, engine, focusNode, valueNode);
+					}
+					else if(count != 1) {
+						QuerySolutionMap bindings = new QuerySolutionMap();
+						addMessageBindings(constraint, bindings, focusNode, valueNode);
+						bindings.add("count", ResourceFactory.createTypedLiteral(count));
+						addDetails(createResult(constraint, engine, focusNode, valueNode, bindings));
+					}
+				}
+				else {
+					Boolean valid = isValid(constraint, engine, valueNode);
+					if(valid == null) {
+						createFailure(constraint, engine, focusNode, valueNode);
+					}
+					else if(!valid) {
+						addDetails(createResult(constraint, engine, focusNode, valueNode));
+					}
+				}
+			}
+		}
+	}
+	
+	
+	private Integer countConformingShapes(ValidationEngine engine, RDFNode valueNode) {
+		int count = 0;
+		for(RDFNode shape : shapes) {
+			Boolean hasShape = hasShape(engine, valueNode, shape, true);
+			if(hasShape == null) {
+				return null;
+			}
+			else if(hasShape) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	
+	@Override
+	protected Boolean isValid(Constraint constraint, ValidationEngine engine, RDFNode valueNode) {
+		boolean and = SH.AndConstraintComponent.equals(constraint.getComponent());
+		for(RDFNode shape : shapes) {
+			Boolean hasShape = hasShape(engine, valueNode, shape, true);
+			if(hasShape == null) {
+				return null;
+			}
+			else if(hasShape != and) {
+				// First non-conforming shape for sh:and, first conforming shape for sh:or
+				return !and;
+			}
+		}
+		return and;
+	}
+}
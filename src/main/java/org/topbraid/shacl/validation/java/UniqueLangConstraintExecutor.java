@@ -0,0 +1,60 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.RDFNode;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.spin.util.JenaDatatypes;
+
+/**
+ * Native implementation of sh:uniqueLang, producing one result for each language
+ * that is used by more than one value node.
+ */
+class UniqueLangConstraintExecutor extends AbstractNativeConstraintExecutor {
+	
+	@Override
+	protected void executeNative(Constraint constraint, ValidationEngine engine, List<RDFNode> focusNodes) {
+		if(!JenaDatatypes.TRUE.equals(constraint.getParameterValue())) {
+			return;
+		}
+		for(RDFNode focusNode : focusNodes) {
+			Set<String> langs = new HashSet<>();
+			Set<String> duplicates = new LinkedHashSet<>();
+			for(RDFNode valueNode : engine.getValueNodes(constraint, focusNode)) {
+				if(valueNode.isLiteral()) {
+					String lang = valueNode.asNode().getLiteralLanguage();
+					if(!lang.isEmpty() && !langs.add(lang)) {
+						duplicates.add(lang);
+					}
+				}
+			}
+			for(String lang : duplicates) {
+				QuerySolutionMap bindings = new QuerySolutionMap();
+				addMessageBindings(constraint, bindings, focusNode, null);
+				bindings.add("lang", focusNode.getModel().createLiteral(lang));
+				createResult(constraint, engine, focusNode, null, bindings);
+			}
+		}
+	}
+}
@@ -17,10 +17,15 @@
 package org.topbraid.shacl.validation.js;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import javax.script.ScriptException;
+
 import org.apache.jena.graph.Node;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.QuerySolution;
@@ -45,17 +50,38 @@ import org.topbraid.shacl.vocabulary.DASH;
 import org.topbraid.shacl.vocabulary.SH;
 import org.topbraid.spin.statistics.SPINStatistics;
 import org.topbraid.spin.statistics.SPINStatisticsManager;
+import org.topbraid.spin.util.JenaDatatypes;
 import org.topbraid.spin.util.JenaUtil;
 
 public abstract class AbstractJSExecutor implements ConstraintExecutor {
 	
 	protected final static String SHACL = "SHACL";
+	
+	// The maximum number of value nodes that are passed into a single call of a dash:jsBatch function
+	private static volatile int batchSize = 1000;
+	
+	
+	public static int getBatchSize() {
+		return batchSize;
+	}
+	
+	
+	/**
+	 * Sets the maximum number of value nodes that are passed into a single call of a dash:jsBatch function.
+	 * @param value  the new batch size (at least 1), default is 1000
+	 */
+	public static void setBatchSize(int value) {
+		if(value < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+		batchSize = value;
+	}
 
 	
 	@Override
 	public void executeConstraint(Constraint constraint, ValidationEngine validationEngine, List<RDFNode> focusNodes) {
 		
-		JSScriptEngine jsEngine = SHACLScriptEngineManager.getCurrentEngine();
+		JSScriptEngine jsEngine = SHACLScriptEngineManager.getCurrentEngine(validationEngine.getShapesGraph().getShapesModel().getGraph());
 		
 		Dataset dataset = validationEngine.getDataset();
 		URI shapesGraphURI = validationEngine.getShapesGraphURI();
@@ -79,16 +105,21 @@ public abstract class AbstractJSExecutor implements ConstraintExecutor {
 			jsEngine.executeLibraries(executable);
 			
 			long startTime = System.currentTimeMillis();
-			for(RDFNode theFocusNode : focusNodes) {
-				Object resultObj;
-				bindings.add(SH.thisVar.getVarName(), theFocusNode);
-				
-				List<RDFNode> valueNodes = getValueNodes(validationEngine, constraint, bindings, theFocusNode);
-				
-				for(RDFNode valueNode : valueNodes) {
-					bindings.add("value", valueNode);
-					resultObj = jsEngine.invokeFunction(functionName, bindings);
-					handleJSResultObject(resultObj, validationEngine, constraint, theFocusNode, valueNode, executable, bindings);
+			if(executable.hasProperty(DASH.jsBatch, JenaDatatypes.TRUE)) {
+				executeBatches(jsEngine, functionName, validationEngine, constraint, focusNodes, bindings, executable);
+			}
+			else {
+				for(RDFNode theFocusNode : focusNodes) {
+					Object resultObj;
+					bindings.add(SH.thisVar.getVarName(), theFocusNode);
+					
+					List<RDFNode> valueNodes = getValueNodes(validationEngine, constraint, bindings, theFocusNode);
+					
+					for(RDFNode valueNode : valueNodes) {
+						bindings.add("value", valueNode);
+						resultObj = jsEngine.invokeFunction(functionName, bindings);
+						handleJSResultObject(resultObj, validationEngine, constraint, theFocusNode, valueNode, executable, bindings);
+					}
 				}
 			}
 			if(SPINStatisticsManager.get().isRecording()) {
@@ -119,6 +150,72 @@ public abstract class AbstractJSExecutor implements ConstraintExecutor {
 	protected abstract void addBindings(Constraint constraint, QuerySolutionMap bindings);
 	
 	
+	// Collects the combinations of focus and value nodes into batches, see dash:jsBatch
+	private void executeBatches(JSScriptEngine jsEngine, String functionName, ValidationEngine validationEngine, Constraint constraint,
+			List<RDFNode> focusNodes, QuerySolutionMap bindings, SHJSExecutable executable) throws Exception {
+		int maxSize = batchSize;
+		List<RDFNode> batchFocusNodes = new ArrayList<>();
+		List<RDFNode> batchValueNodes = new ArrayList<>();
+		for(RDFNode theFocusNode : focusNodes) {
+			bindings.add(SH.thisVar.getVarName(), theFocusNode);
+			for(RDFNode valueNode : getValueNodes(validationEngine, constraint, bindings, theFocusNode)) {
+				batchFocusNodes.add(theFocusNode);
+				batchValueNodes.add(valueNode);
+				if(batchFocusNodes.size() >= maxSize) {
+					executeBatch(jsEngine, functionName, validationEngine, constraint, batchFocusNodes, batchValueNodes, bindings, executable);
+					batchFocusNodes.clear();
+					batchValueNodes.clear();
+				}
+			}
+		}
+		if(!batchFocusNodes.isEmpty()) {
+			executeBatch(jsEngine, functionName, validationEngine, constraint, batchFocusNodes, batchValueNodes, bindings, executable);
+		}
+	}
+	
+	
+	private void executeBatch(JSScriptEngine jsEngine, String functionName, ValidationEngine validationEngine, Constraint constraint,
+			List<RDFNode> batchFocusNodes, List<RDFNode> batchValueNodes, QuerySolutionMap bindings, SHJSExecutable executable) throws Exception {
+		Map<String,Object> args = new HashMap<>();
+		Iterator<String> varNames = bindings.varNames();
+		while(varNames.hasNext()) {
+			String varName = varNames.next();
+			RDFNode value = bindings.get(varName);
+			if(value != null) {
+				args.put(varName, JSFactory.asJSTerm(value.asNode()));
+			}
+		}
+		args.put(SH.thisVar.getVarName(), jsEngine.createArray(asJSTerms(batchFocusNodes)));
+		args.put("value", jsEngine.createArray(asJSTerms(batchValueNodes)));
+		Object resultsObj = jsEngine.invokeFunctionWithArgs(functionName, args);
+		Object[] results = NashornUtil.isArray(resultsObj) ? NashornUtil.asArray(resultsObj) : null;
+		if(results == null || results.length != batchFocusNodes.size()) {
+			throw new ScriptException("Batch function " + functionName + " must return an array with one entry per value node");
+		}
+		for(int i = 0; i < results.length; i++) {
+			RDFNode theFocusNode = batchFocusNodes.get(i);
+			RDFNode valueNode = batchValueNodes.get(i);
+			bindings.add(SH.thisVar.getVarName(), theFocusNode);
+			if(valueNode != null) {
+				bindings.add("value", valueNode);
+			}
+			handleJSResultObject(results[i], validationEngine, constraint, theFocusNode, valueNode, executable, bindings);
+		}
+	}
+	
+	
+	private static JSTerm[] asJSTerms(List<RDFNode> nodes) {
+		JSTerm[] results = new JSTerm[nodes.size()];
+		for(int i = 0; i < results.length; i++) {
+			RDFNode node = nodes.get(i);
+			if(node != null) {
+				results[i] = JSFactory.asJSTerm(node.asNode());
+			}
+		}
+		return results;
+	}
+	
+	
 	protected abstract SHJSExecutable getExecutable(Constraint constraint);
 
 	
@@ -50,7 +50,7 @@ public class JSTargetPlugin implements TargetPlugin {
 			SHParameterizableTarget parameterizableTarget) {
 		
 		boolean nested = SHACLScriptEngineManager.begin();
-		JSScriptEngine engine = SHACLScriptEngineManager.getCurrentEngine();
+		JSScriptEngine engine = SHACLScriptEngineManager.getCurrentEngine(target.getModel().getGraph());
 
 		SHJSExecutable as;
 		if(parameterizableTarget != null) {
@@ -0,0 +1,227 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * The accumulated measurements of the {@link ValidationProfiler} for a single constraint,
+ * or for a group of constraints (e.g. all constraints of a shape).
+ *
+ * The times are measured in nanoseconds.
+ * The total time of a constraint includes the time spent validating nested shapes
+ * (e.g. for sh:property or sh:node) while the self time excludes it, so that the self times
+ * of all constraints add up to the total validation time.
+ * The value node and result counts are always the constraint's own counts.
+ *
+ * Instances are thread-safe.
+ */
+public class ConstraintProfile {
+
+	// Bucket i counts the executions that took between 2^i and 2^(i+1) nanoseconds
+	private static final int BUCKETS = 64;
+
+	private Node component;
+
+	private LongAdder executions = new LongAdder();
+
+	private String executorType;
+
+	private LongAdder focusNodes = new LongAdder();
+
+	private AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+	private AtomicLong maxNanos = new AtomicLong();
+
+	private Node parameterValue;
+
+	private LongAdder results = new LongAdder();
+
+	private LongAdder selfNanos = new LongAdder();
+
+	private Node shape;
+
+	private LongAdder totalNanos = new LongAdder();
+
+	private LongAdder valueNodes = new LongAdder();
+
+
+	/**
+	 * Creates a new profile.
+	 * Any of the arguments may be null for aggregated profiles, e.g. all but the shape
+	 * for the profile of a shape.
+	 * @param shape  the shape
+	 * @param component  the constraint component
+	 * @param parameterValue  the value of the constraint parameter
+	 * @param executorType  the type (class name) of the ConstraintExecutor
+	 */
+	public ConstraintProfile(Node shape, Node component, Node parameterValue, String executorType) {
+		this.component = component;
+		this.executorType = executorType;
+		this.parameterValue = parameterValue;
+		this.shape = shape;
+	}
+
+
+	/**
+	 * Adds all measurements from another profile to this, e.g. to aggregate the profiles
+	 * of all constraints of a shape.
+	 * @param other  the profile to add
+	 */
+	public void add(ConstraintProfile other) {
+		executions.add(other.getExecutionCount());
+		focusNodes.add(other.getFocusNodeCount());
+		valueNodes.add(other.getValueNodeCount());
+		results.add(other.getResultCount());
+		totalNanos.add(other.getTotalNanos());
+		selfNanos.add(other.getSelfNanos());
+		updateMax(other.getMaxNanos());
+		for(int i = 0; i < BUCKETS; i++) {
+			histogram.addAndGet(i, other.histogram.get(i));
+		}
+	}
+
+
+	void record(int focusNodeCount, long valueNodeCount, long resultCount, long nanos, long selfNanos) {
+		executions.increment();
+		focusNodes.add(focusNodeCount);
+		valueNodes.add(valueNodeCount);
+		results.add(resultCount);
+		totalNanos.add(nanos);
+		this.selfNanos.add(selfNanos);
+		updateMax(nanos);
+		histogram.incrementAndGet(getBucket(nanos));
+	}
+
+
+	private static int getBucket(long nanos) {
+		return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+	}
+
+
+	private void updateMax(long nanos) {
+		long max = maxNanos.get();
+		while(nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+
+	public Node getComponent() {
+		return component;
+	}
+
+
+	public long getExecutionCount() {
+		return executions.sum();
+	}
+
+
+	public String getExecutorType() {
+		return executorType;
+	}
+
+
+	public long getFocusNodeCount() {
+		return focusNodes.sum();
+	}
+
+
+	/**
+	 * Gets the histogram of the (total) execution times, where the entry at index i is the number
+	 * of executions that took at least 2^i and less than 2^(i+1) nanoseconds.
+	 * @return a new array with 64 entries
+	 */
+	public long[] getHistogram() {
+		long[] result = new long[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++) {
+			result[i] = histogram.get(i);
+		}
+		return result;
+	}
+
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+
+	public Node getParameterValue() {
+		return parameterValue;
+	}
+
+
+	/**
+	 * Estimates a percentile of the execution times, based on the histogram.
+	 * The result is the upper bound of the bucket that contains the percentile.
+	 * @param percentile  the percentile, between 0 and 1 (e.g. 0.99)
+	 * @return the estimated execution time in nanoseconds
+	 */
+	public long getPercentileNanos(double percentile) {
+		long count = getExecutionCount();
+		if(count == 0) {
+			return 0;
+		}
+		long threshold = (long) Math.ceil(count * percentile);
+		long sum = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			sum += histogram.get(i);
+			if(sum >= threshold) {
+				return i == BUCKETS - 1 ? Long.MAX_VALUE : Math.min((1L << (i + 1)) - 1, getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+
+	public long getResultCount() {
+		return results.sum();
+	}
+
+
+	public long getSelfNanos() {
+		return selfNanos.sum();
+	}
+
+
+	public Node getShape() {
+		return shape;
+	}
+
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+
+	public long getValueNodeCount() {
+		return valueNodes.sum();
+	}
+
+
+	@Override
+	public String toString() {
+		return "ConstraintProfile[shape=" + shape + ", component=" + component + ", executor=" + executorType +
+				", executions=" + getExecutionCount() + ", focusNodes=" + getFocusNodeCount() +
+				", valueNodes=" + getValueNodeCount() + ", results=" + getResultCount() +
+				", selfMillis=" + getSelfNanos() / 1000000 + ", totalMillis=" + getTotalNanos() / 1000000 + "]";
+	}
+}
@@ -0,0 +1,446 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDFS;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.validation.ConstraintExecutor;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.shacl.vocabulary.SHPROF;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * A singleton that collects performance measurements for each constraint that is validated
+ * by a ValidationEngine: the number of executions, focus nodes, value nodes and results,
+ * nanosecond timings with a histogram, as well as hit rates of the caches used during validation.
+ *
+ * The profiler is off by default, and needs to be activated with <code>setEnabled(true)</code>.
+ * The measurements can be inspected programmatically (e.g. {@link #getTopProfiles(double)}),
+ * exported as an RDF report via {@link #toModel()}, observed by a {@link ValidationProfilerListener}
+ * or monitored through JMX after calling {@link #registerMBean()}.
+ */
+public class ValidationProfiler implements ValidationProfilerMXBean {
+
+	public final static String OBJECT_NAME = "org.topbraid.shacl:type=ValidationProfiler";
+
+
+	private static ValidationProfiler singleton = new ValidationProfiler();
+
+	public static ValidationProfiler get() {
+		return singleton;
+	}
+
+	public static void set(ValidationProfiler value) {
+		ValidationProfiler.singleton = value;
+	}
+
+
+	private Map<String,CacheStatistics> caches = new ConcurrentHashMap<>();
+
+	private boolean enabled;
+
+	// The constraint executions that are currently running on each thread
+	private ThreadLocal<Frame> frames = new ThreadLocal<>();
+
+	private List<ValidationProfilerListener> listeners = new CopyOnWriteArrayList<>();
+
+	private Map<List<Node>,ConstraintProfile> profiles = new ConcurrentHashMap<>();
+
+
+	public void addListener(ValidationProfilerListener listener) {
+		listeners.add(listener);
+	}
+
+
+	public void removeListener(ValidationProfilerListener listener) {
+		listeners.remove(listener);
+	}
+
+
+	/**
+	 * Registers the singleton with the platform MBeanServer, using {@link #OBJECT_NAME}.
+	 * @throws JMException  if the registration fails, e.g. because it has already been registered
+	 */
+	public static void registerMBean() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(get(), new ObjectName(OBJECT_NAME));
+	}
+
+
+	/**
+	 * Marks the start of the execution of a constraint on the current thread.
+	 * Must be followed by a call to {@link #end(Frame, Constraint, ConstraintExecutor, int)},
+	 * typically in a finally block.
+	 * @return the Frame to pass into end
+	 */
+	public Frame begin() {
+		Frame frame = new Frame(frames.get());
+		frames.set(frame);
+		return frame;
+	}
+
+
+	/**
+	 * Marks the end of the execution of a constraint and records the measurements.
+	 * @param frame  the Frame returned by begin()
+	 * @param constraint  the Constraint that was executed
+	 * @param executor  the ConstraintExecutor that was used
+	 * @param focusNodeCount  the number of focus nodes
+	 */
+	public void end(Frame frame, Constraint constraint, ConstraintExecutor executor, int focusNodeCount) {
+		long nanos = System.nanoTime() - frame.startNanos;
+		if(frame.parent != null) {
+			frames.set(frame.parent);
+			frame.parent.childNanos += nanos;
+		}
+		else {
+			frames.remove();
+		}
+		long self = Math.max(0, nanos - frame.childNanos);
+		String type = getExecutorType(executor);
+		Node shape = constraint.getShapeResource().asNode();
+		Node component = constraint.getComponent().asNode();
+		Node param = constraint.getParameterValue() != null ? constraint.getParameterValue().asNode() : null;
+		ConstraintProfile profile = profiles.computeIfAbsent(Arrays.asList(shape, component, param), key -> new ConstraintProfile(shape, component, param, type));
+		profile.record(focusNodeCount, frame.valueNodes, frame.results, nanos, self);
+		for(ValidationProfilerListener listener : listeners) {
+			listener.constraintExecuted(constraint, type, focusNodeCount, frame.valueNodes, frame.results, nanos, self);
+		}
+	}
+
+
+	/**
+	 * Adds to the number of value nodes of the constraint that is currently executing on this thread.
+	 * @param count  the number of value nodes to add
+	 */
+	public void addValueNodes(int count) {
+		if(enabled) {
+			Frame frame = frames.get();
+			if(frame != null) {
+				frame.valueNodes += count;
+			}
+		}
+	}
+
+
+	/**
+	 * Increments the number of results of the constraint that is currently executing on this thread.
+	 */
+	public void addResult() {
+		if(enabled) {
+			Frame frame = frames.get();
+			if(frame != null) {
+				frame.results++;
+			}
+		}
+	}
+
+
+	/**
+	 * Records a lookup in one of the caches used during validation.
+	 * @param cacheName  the name of the cache, e.g. "ConformanceCache"
+	 * @param hit  true if the value was found in the cache
+	 */
+	public void recordCacheAccess(String cacheName, boolean hit) {
+		if(enabled) {
+			CacheStatistics stats = caches.computeIfAbsent(cacheName, name -> new CacheStatistics());
+			(hit ? stats.hits : stats.misses).increment();
+		}
+	}
+
+
+	/**
+	 * Gets the cache statistics by the name of the cache.
+	 * @return an unmodifiable Map
+	 */
+	public Map<String,CacheStatistics> getCaches() {
+		return Collections.unmodifiableMap(caches);
+	}
+
+
+	@Override
+	public String[] getCacheStatistics() {
+		List<String> lines = new ArrayList<>();
+		for(Map.Entry<String,CacheStatistics> entry : caches.entrySet()) {
+			CacheStatistics stats = entry.getValue();
+			lines.add(String.format("%s: %d hits, %d misses, hit rate %.1f%%", entry.getKey(), stats.getHitCount(), stats.getMissCount(), stats.getHitRate() * 100));
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+
+	@Override
+	public int getConstraintCount() {
+		return profiles.size();
+	}
+
+
+	@Override
+	public long getExecutionCount() {
+		long sum = 0;
+		for(ConstraintProfile profile : profiles.values()) {
+			sum += profile.getExecutionCount();
+		}
+		return sum;
+	}
+
+
+	/**
+	 * Gets the profiles of all individual constraints that have been executed.
+	 * @return the profiles
+	 */
+	public Collection<ConstraintProfile> getProfiles() {
+		return profiles.values();
+	}
+
+
+	public Map<Node,ConstraintProfile> getProfilesByComponent() {
+		return aggregate(profile -> profile.getComponent(), component -> new ConstraintProfile(null, component, null, null));
+	}
+
+
+	public Map<String,ConstraintProfile> getProfilesByExecutorType() {
+		return aggregate(profile -> profile.getExecutorType(), type -> new ConstraintProfile(null, null, null, type));
+	}
+
+
+	public Map<Node,ConstraintProfile> getProfilesByShape() {
+		return aggregate(profile -> profile.getShape(), shape -> new ConstraintProfile(shape, null, null, null));
+	}
+
+
+	private <K> Map<K,ConstraintProfile> aggregate(Function<ConstraintProfile,K> keyFunction, Function<K,ConstraintProfile> factory) {
+		Map<K,ConstraintProfile> results = new LinkedHashMap<>();
+		for(ConstraintProfile profile : getProfilesBySelfTime()) {
+			results.computeIfAbsent(keyFunction.apply(profile), factory).add(profile);
+		}
+		return results;
+	}
+
+
+	private List<ConstraintProfile> getProfilesBySelfTime() {
+		List<ConstraintProfile> list = new ArrayList<>(profiles.values());
+		list.sort(Comparator.comparingLong(ConstraintProfile::getSelfNanos).reversed());
+		return list;
+	}
+
+
+	/**
+	 * Gets the smallest list of constraints that together account for a given fraction
+	 * of the total (self) validation time, with the most expensive constraints first.
+	 * @param fraction  the fraction of the total time, e.g. 0.9
+	 * @return the profiles
+	 */
+	public List<ConstraintProfile> getTopProfiles(double fraction) {
+		List<ConstraintProfile> all = getProfilesBySelfTime();
+		long total = 0;
+		for(ConstraintProfile profile : all) {
+			total += profile.getSelfNanos();
+		}
+		List<ConstraintProfile> results = new ArrayList<>();
+		long sum = 0;
+		for(ConstraintProfile profile : all) {
+			if(sum >= total * fraction) {
+				break;
+			}
+			results.add(profile);
+			sum += profile.getSelfNanos();
+		}
+		return results;
+	}
+
+
+	@Override
+	public String[] getTopConstraints() {
+		List<String> lines = new ArrayList<>();
+		for(ConstraintProfile profile : getTopProfiles(0.9)) {
+			lines.add(String.format("%s %s (%s): %d ms self, %d ms total, %d executions, %d focus nodes, %d results",
+					getLabel(profile.getShape()),
+					getLabel(profile.getComponent()),
+					profile.getExecutorType(),
+					profile.getSelfNanos() / 1000000,
+					profile.getTotalNanos() / 1000000,
+					profile.getExecutionCount(),
+					profile.getFocusNodeCount(),
+					profile.getResultCount()));
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+
+	@Override
+	public long getTotalTimeMillis() {
+		long sum = 0;
+		for(ConstraintProfile profile : profiles.values()) {
+			sum += profile.getSelfNanos();
+		}
+		return sum / 1000000;
+	}
+
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+
+	@Override
+	public void reset() {
+		profiles.clear();
+		caches.clear();
+	}
+
+
+	@Override
+	public void setEnabled(boolean value) {
+		this.enabled = value;
+	}
+
+
+	/**
+	 * Creates an RDF representation of the current measurements, with one shprof:ConstraintProfile
+	 * per constraint (most expensive first) and one shprof:CacheStatistics per cache.
+	 * The shape and constraint component of each profile are linked via sh:sourceShape and
+	 * sh:sourceConstraintComponent, similar to validation results.
+	 * @return the instance of shprof:ProfileReport in a new Model
+	 */
+	public Resource toModel() {
+		Model model = JenaUtil.createMemoryModel();
+		model.setNsPrefix(SHPROF.PREFIX, SHPROF.NS);
+		model.setNsPrefix(SH.PREFIX, SH.NS);
+		Resource report = model.createResource(SHPROF.ProfileReport);
+		for(ConstraintProfile profile : getProfilesBySelfTime()) {
+			Resource r = model.createResource(SHPROF.ConstraintProfile);
+			report.addProperty(SHPROF.constraintProfile, r);
+			r.addProperty(SH.sourceShape, model.asRDFNode(profile.getShape()));
+			r.addProperty(SH.sourceConstraintComponent, model.asRDFNode(profile.getComponent()));
+			if(profile.getParameterValue() != null) {
+				r.addProperty(SHPROF.parameterValue, model.asRDFNode(profile.getParameterValue()));
+			}
+			r.addProperty(SHPROF.executorType, profile.getExecutorType());
+			r.addLiteral(SHPROF.executions, profile.getExecutionCount());
+			r.addLiteral(SHPROF.focusNodes, profile.getFocusNodeCount());
+			r.addLiteral(SHPROF.valueNodes, profile.getValueNodeCount());
+			r.addLiteral(SHPROF.results, profile.getResultCount());
+			r.addLiteral(SHPROF.totalNanos, profile.getTotalNanos());
+			r.addLiteral(SHPROF.selfNanos, profile.getSelfNanos());
+			r.addLiteral(SHPROF.maxNanos, profile.getMaxNanos());
+			r.addLiteral(SHPROF.p50Nanos, profile.getPercentileNanos(0.5));
+			r.addLiteral(SHPROF.p99Nanos, profile.getPercentileNanos(0.99));
+		}
+		for(Map.Entry<String,CacheStatistics> entry : caches.entrySet()) {
+			Resource r = model.createResource(SHPROF.CacheStatistics);
+			report.addProperty(SHPROF.cache, r);
+			r.addProperty(RDFS.label, entry.getKey());
+			r.addLiteral(SHPROF.hits, entry.getValue().getHitCount());
+			r.addLiteral(SHPROF.misses, entry.getValue().getMissCount());
+		}
+		return report;
+	}
+
+
+	private static String getExecutorType(ConstraintExecutor executor) {
+		String name = executor.getClass().getSimpleName();
+		return name.isEmpty() ? executor.getClass().getName() : name;
+	}
+
+
+	private static String getLabel(Node node) {
+		if(node == null) {
+			return "-";
+		}
+		else if(node.isURI()) {
+			return node.getLocalName().isEmpty() ? node.getURI() : node.getLocalName();
+		}
+		else {
+			return node.toString();
+		}
+	}
+
+
+	/**
+	 * The hits and misses of a cache.
+	 */
+	public static class CacheStatistics {
+
+		private LongAdder hits = new LongAdder();
+
+		private LongAdder misses = new LongAdder();
+
+
+		public long getHitCount() {
+			return hits.sum();
+		}
+
+
+		/**
+		 * Gets the fraction of lookups that were hits.
+		 * @return the hit rate between 0 and 1 (0 if there were no lookups)
+		 */
+		public double getHitRate() {
+			long h = getHitCount();
+			long total = h + getMissCount();
+			return total == 0 ? 0 : (double) h / total;
+		}
+
+
+		public long getMissCount() {
+			return misses.sum();
+		}
+	}
+
+
+	/**
+	 * The state of a constraint execution on the current thread, created by {@link ValidationProfiler#begin()}.
+	 */
+	public static class Frame {
+
+		private long childNanos;
+
+		private Frame parent;
+
+		private long results;
+
+		private long startNanos = System.nanoTime();
+
+		private long valueNodes;
+
+
+		Frame(Frame parent) {
+			this.parent = parent;
+		}
+	}
+}
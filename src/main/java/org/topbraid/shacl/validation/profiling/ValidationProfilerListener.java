@@ -0,0 +1,39 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.profiling;
+
+import org.topbraid.shacl.engine.Constraint;
+
+/**
+ * A listener that gets notified by the {@link ValidationProfiler} after each execution
+ * of a constraint, while profiling is enabled.
+ * Listeners are called on the validating thread and should return quickly.
+ */
+public interface ValidationProfilerListener {
+
+	/**
+	 * Called after a constraint has been validated for a batch of focus nodes.
+	 * @param constraint  the Constraint
+	 * @param executorType  the type (class name) of the ConstraintExecutor
+	 * @param focusNodeCount  the number of focus nodes
+	 * @param valueNodeCount  the number of value nodes produced by the constraint
+	 * @param resultCount  the number of validation results produced by the constraint
+	 * @param nanos  the total duration, including nested validations
+	 * @param selfNanos  the duration excluding nested validations
+	 */
+	void constraintExecuted(Constraint constraint, String executorType, int focusNodeCount, long valueNodeCount, long resultCount, long nanos, long selfNanos);
+}
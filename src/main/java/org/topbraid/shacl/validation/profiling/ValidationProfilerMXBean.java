@@ -0,0 +1,48 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.profiling;
+
+/**
+ * The JMX interface of the {@link ValidationProfiler}, see {@link ValidationProfiler#registerMBean()}.
+ */
+public interface ValidationProfilerMXBean {
+
+	/**
+	 * Gets a summary of each cache that has been accessed, with its hits, misses and hit rate.
+	 * @return one line per cache
+	 */
+	String[] getCacheStatistics();
+
+	int getConstraintCount();
+
+	long getExecutionCount();
+
+	/**
+	 * Gets a summary of the constraints that together account for 90% of the validation time,
+	 * with the most expensive constraints first.
+	 * @return one line per constraint
+	 */
+	String[] getTopConstraints();
+
+	long getTotalTimeMillis();
+
+	boolean isEnabled();
+
+	void reset();
+
+	void setEnabled(boolean value);
+}
@@ -17,9 +17,15 @@
 package org.topbraid.shacl.validation.sparql;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
@@ -32,10 +38,12 @@ import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.sparql.path.Path;
 import org.apache.jena.vocabulary.RDF;
 import org.topbraid.shacl.arq.SHACLPaths;
 import org.topbraid.shacl.arq.functions.HasShapeFunction;
 import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.ShapesGraph;
 import org.topbraid.shacl.util.FailureLog;
 import org.topbraid.shacl.util.SHACLUtil;
 import org.topbraid.shacl.validation.ConstraintExecutor;
@@ -58,11 +66,33 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 	// Flag to generate dash:SuccessResults for all violations.
 	public static boolean createSuccessResults = false;
 	
+	// The maximum number of focus nodes that are validated by a single query execution,
+	// passed into the query using a VALUES block. Use 1 to execute one query per focus node.
+	public static int batchSize = 200;
+	
+	private static final int pathQueriesCapacity = 1000;
+	
+	@SuppressWarnings("serial")
+	private static Map<List<Object>,Query> pathQueries = Collections.synchronizedMap(new LinkedHashMap<List<Object>,Query>(pathQueriesCapacity + 1, 1.1f, true) {
+		@Override
+		protected boolean removeEldestEntry(Entry<List<Object>,Query> eldest) {
+			return size() > pathQueriesCapacity;
+		}
+	});
+	
+	private Query batchQuery;
+	
 	private Query query;
 	
 	private String queryString;
 	
 	
+	/**
+	 * Creates the executor for a given Constraint.
+	 * Since instances may be shared between ValidationEngines and threads (see ConstraintExecutorCache),
+	 * all state is computed here, including the substitution of complex paths.
+	 * @param constraint  the Constraint
+	 */
 	protected AbstractSPARQLExecutor(Constraint constraint) {
 		this.queryString = getSPARQL(constraint);
 		try {
@@ -75,6 +105,13 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 		if(!query.isSelectType()) {
 			throw new IllegalArgumentException("SHACL constraints must be SELECT queries");
 		}
+		
+		Path jenaPath = constraint.getShape().getJenaPath();
+		if(jenaPath != null) {
+			query = getQueryWithPath(queryString, query, jenaPath);
+		}
+		
+		batchQuery = SPARQLSubstitutions.createBatchQuery(query);
 	}
 
 	
@@ -87,18 +124,13 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 		bindings.add(SH.shapesGraphVar.getVarName(), ResourceFactory.createResource(engine.getShapesGraphURI().toString()));
 		
 		Resource path = constraint.getShapeResource().getPath();
-		if(path != null) {
-			if(path.isAnon()) {
-				String pathString = SHACLPaths.getPathString(JenaUtil.getResourceProperty(constraint.getShapeResource(), SH.path));
-				query = SPARQLSubstitutions.substitutePaths(query, pathString, constraint.getShapeResource().getModel());
-			}
-			else {
-				bindings.add(SH.PATHVar.getName(), path);
-			}
+		if(path != null && path.isURIResource()) {
+			bindings.add(SH.PATHVar.getName(), path);
 		}
 		
 		URI oldShapesGraphURI = HasShapeFunction.getShapesGraph();
-		HasShapeFunction.setShapesGraph(engine.getShapesGraphURI());
+		ShapesGraph oldShapesGraph = HasShapeFunction.getShapesGraphInstance();
+		HasShapeFunction.setShapesGraph(engine.getShapesGraphURI(), engine.getShapesGraph());
 		
 		Model oldNestedResults = HasShapeFunction.getResultsModel();
 		Model nestedResults = JenaUtil.createMemoryModel();
@@ -106,29 +138,46 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 		
 		try {
 			long startTime = System.currentTimeMillis();
-			for(RDFNode focusNode : focusNodes) {
-				bindings.add(SH.thisVar.getVarName(), focusNode); // Overwrite any previous binding
-				QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(query, engine.getDataset(), bindings);
-				executeSelectQuery(engine, constraint, nestedResults, focusNode, qexec, bindings);
-			}			
+			if(batchQuery != null && batchSize > 1 && focusNodes.size() > 1) {
+				// Focus nodes may contain duplicates, which would be validated repeatedly in non-batch mode
+				Map<RDFNode,Integer> batch = new LinkedHashMap<>();
+				for(Iterator<RDFNode> it = focusNodes.iterator(); it.hasNext(); ) {
+					RDFNode focusNode = it.next();
+					Integer count = batch.get(focusNode);
+					batch.put(focusNode, count == null ? 1 : count + 1);
+					if(batch.size() == batchSize || !it.hasNext()) {
+						QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(SPARQLSubstitutions.withFocusNodes(batchQuery, batch.keySet()), engine.getDataset(), bindings);
+						executeSelectQuery(engine, constraint, nestedResults, batch, qexec, bindings);
+						batch.clear();
+					}
+				}
+			}
+			else {
+				for(RDFNode focusNode : focusNodes) {
+					bindings.add(SH.thisVar.getVarName(), focusNode); // Overwrite any previous binding
+					QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(query, engine.getDataset(), bindings);
+					executeSelectQuery(engine, constraint, nestedResults, Collections.singletonMap(focusNode, 1), qexec, bindings);
+				}
+			}
 			if(SPINStatisticsManager.get().isRecording()) {
 				long endTime = System.currentTimeMillis();
 				long duration = endTime - startTime;
 				String label = getLabel(constraint);
+				StringBuilder statsQueryString = new StringBuilder(queryString);
 				Iterator<String> varNames = bindings.varNames();
 				if(varNames.hasNext()) {
-					queryString += "\nBindings:";
+					statsQueryString.append("\nBindings:");
 					while(varNames.hasNext()) {
 						String varName = varNames.next();
-						queryString += "\n- ?" + varName + ": " + bindings.get(varName);
+						statsQueryString.append("\n- ?").append(varName).append(": ").append(bindings.get(varName));
 					}
 				}
-				SPINStatistics stats = new SPINStatistics(label, queryString, duration, startTime, constraint.getComponent().asNode());
+				SPINStatistics stats = new SPINStatistics(label, statsQueryString.toString(), duration, startTime, constraint.getComponent().asNode());
 				SPINStatisticsManager.get().add(Collections.singletonList(stats));
 			}
 		}
 		finally {
-			HasShapeFunction.setShapesGraph(oldShapesGraphURI);
+			HasShapeFunction.setShapesGraph(oldShapesGraphURI, oldShapesGraph);
 			HasShapeFunction.setResultsModel(oldNestedResults);
 		}
 	}
@@ -137,6 +186,18 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 	protected abstract void addBindings(Constraint constraint, QuerySolutionMap bindings);
 	
 	
+	// Many property shapes use the same validators with the same complex paths
+	private static Query getQueryWithPath(String queryString, Query query, Path path) {
+		List<Object> key = Arrays.asList(queryString, path);
+		Query result = pathQueries.get(key);
+		if(result == null) {
+			result = SPARQLSubstitutions.substitutePaths(query, path);
+			pathQueries.put(key, result);
+		}
+		return result;
+	}
+	
+	
 	protected abstract Resource getSPARQLExecutable(Constraint constraint);
 	
 	
@@ -152,7 +213,7 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 	
 
 	private void executeSelectQuery(ValidationEngine engine, Constraint constraint, Model nestedResults,
-			RDFNode focusNode, QueryExecution qexec, QuerySolution bindings) {
+			Map<RDFNode,Integer> focusNodes, QueryExecution qexec, QuerySolution bindings) {
 		
 		ResultSet rs = qexec.execSelect();
 		
@@ -162,36 +223,37 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 		}
 		
 		Resource messageHolder = getSPARQLExecutable(constraint);
+		Set<RDFNode> violatedFocusNodes = new HashSet<>();
 		try {
-			if(rs.hasNext()) {
-				while(rs.hasNext()) {
-					QuerySolution sol = rs.next();
-					RDFNode thisValue = sol.get(SH.thisVar.getVarName());
-					if(thisValue != null) {
+			while(rs.hasNext()) {
+				QuerySolution sol = rs.next();
+				RDFNode thisValue = sol.get(SH.thisVar.getVarName());
+				if(thisValue != null) {
+					violatedFocusNodes.add(thisValue);
+					Integer count = focusNodes.get(thisValue);
+					for(int i = 0; i < (count == null ? 1 : count); i++) {
 						Resource resultType = SH.ValidationResult;
 						RDFNode selectMessage = sol.get(SH.message.getLocalName());
 						if(JenaDatatypes.TRUE.equals(sol.get(SH.failureVar.getName()))) {
 							resultType = DASH.FailureResult;
 							String message = getLabel(constraint);
 							message += " has produced ?" + SH.failureVar.getName();
-							if(focusNode != null) {
-								message += " for focus node ";
-								if(focusNode.isLiteral()) {
-									message += focusNode;
-								}
-								else {
-									message += SPINLabels.get().getLabel((Resource)focusNode);
-								}
+							message += " for focus node ";
+							if(thisValue.isLiteral()) {
+								message += thisValue;
+							}
+							else {
+								message += SPINLabels.get().getLabel((Resource)thisValue);
 							}
 							FailureLog.get().logFailure(message);
 							selectMessage = ResourceFactory.createTypedLiteral("Validation Failure: Could not validate shape");
 						}
-						
+					
 						Resource result = engine.createResult(resultType, constraint, thisValue);
 						if(SH.SPARQLConstraintComponent.equals(constraint.getComponent())) {
 							result.addProperty(SH.sourceConstraint, constraint.getParameterValue());
 						}
-						
+					
 						if(selectMessage != null) {
 							result.addProperty(SH.resultMessage, selectMessage);
 						}
@@ -203,7 +265,7 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 						else {
 							addDefaultMessages(engine, messageHolder, constraint.getComponent(), result, bindings, sol);
 						}
-						
+					
 						RDFNode pathValue = sol.get(SH.pathVar.getVarName());
 						if(pathValue != null && pathValue.isURIResource()) {
 							result.addProperty(SH.resultPath, pathValue);
@@ -212,28 +274,32 @@ public abstract class AbstractSPARQLExecutor implements ConstraintExecutor {
 							Resource basePath = JenaUtil.getResourceProperty(constraint.getShapeResource(), SH.path);
 							result.addProperty(SH.resultPath, SHACLPaths.clonePath(basePath, result.getModel()));
 						}
-						
+					
 						RDFNode selectValue = sol.get(SH.valueVar.getVarName());
 						if(selectValue != null) {
 							result.addProperty(SH.value, selectValue);
 						}
 						else if(SH.NodeShape.equals(constraint.getContext())) {
-							result.addProperty(SH.value, focusNode);
+							result.addProperty(SH.value, thisValue);
 						}
-						
+					
 						if(createDetails) {
 							addDetails(result, nestedResults);
 						}
 					}
 				}
 			}
-			else if(createSuccessResults) {
-				Resource success = engine.createResult(DASH.SuccessResult, constraint, focusNode);
-				if(SH.SPARQLConstraintComponent.equals(constraint.getComponent())) {
-					success.addProperty(SH.sourceConstraint, constraint.getParameterValue());
-				}
-				if(createDetails) {
-					addDetails(success, nestedResults);
+			if(createSuccessResults) {
+				for(RDFNode focusNode : focusNodes.keySet()) {
+					if(!violatedFocusNodes.contains(focusNode)) {
+						Resource success = engine.createResult(DASH.SuccessResult, constraint, focusNode);
+						if(SH.SPARQLConstraintComponent.equals(constraint.getComponent())) {
+							success.addProperty(SH.sourceConstraint, constraint.getParameterValue());
+						}
+						if(createDetails) {
+							addDetails(success, nestedResults);
+						}
+					}
 				}
 			}
 		}
@@ -16,6 +16,8 @@
  */
 package org.topbraid.shacl.validation.sparql;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -37,7 +39,31 @@ import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.shared.PrefixMapping;
 import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.OpTable;
+import org.apache.jena.sparql.algebra.table.TableData;
+import org.apache.jena.sparql.core.TriplePath;
 import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.main.JoinClassifier;
+import org.apache.jena.sparql.graph.NodeTransform;
+import org.apache.jena.sparql.path.Path;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementBind;
+import org.apache.jena.sparql.syntax.ElementData;
+import org.apache.jena.sparql.syntax.ElementFilter;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.ElementPathBlock;
+import org.apache.jena.sparql.syntax.ElementSubQuery;
+import org.apache.jena.sparql.syntax.ElementVisitorBase;
+import org.apache.jena.sparql.syntax.ElementWalker;
+import org.apache.jena.sparql.syntax.PatternVars;
+import org.apache.jena.sparql.syntax.syntaxtransform.ElementTransform;
+import org.apache.jena.sparql.syntax.syntaxtransform.ElementTransformCopyBase;
+import org.apache.jena.sparql.syntax.syntaxtransform.ExprTransformNodeElement;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDFS;
 import org.topbraid.shacl.validation.SHACLException;
@@ -81,6 +107,68 @@ public class SPARQLSubstitutions {
 	}
 	
 	
+	/**
+	 * Creates a version of a given query that can be used to process multiple focus nodes
+	 * at once, by joining the WHERE clause with a VALUES block for $this.
+	 * This is only possible if this produces the same results as pre-binding $this, i.e. if
+	 * the query has no LIMIT or OFFSET, only groups by $this, has no sub-queries that use $this
+	 * without projecting it, and if the WHERE clause can be evaluated linearly after the VALUES block.
+	 * @param query  the query to convert
+	 * @return the batch query or null if not supported
+	 */
+	public static Query createBatchQuery(Query query) {
+		if(!query.hasLimit() && !query.hasOffset() && !query.hasValues() &&
+				(!query.hasAggregators() || (query.hasGroupBy() && query.getGroupBy().getVars().contains(SH.thisVar))) &&
+				!hasCorrelatedSubQuery(query.getQueryPattern())) {
+			Op table = OpTable.create(new TableData(Collections.singletonList(SH.thisVar), Collections.<Binding>emptyList()));
+			if(JoinClassifier.isLinear(table, Algebra.compile(query.getQueryPattern()))) {
+				return query;
+			}
+		}
+		return null;
+	}
+	
+	
+	// Checks whether a given pattern contains a sub-query that mentions $this but does not project it.
+	// Such sub-queries would be evaluated for all focus nodes at once if $this is bound by a VALUES block.
+	private static boolean hasCorrelatedSubQuery(Element pattern) {
+		boolean[] result = new boolean[1];
+		ElementWalker.walk(pattern, new ElementVisitorBase() {
+			@Override
+			public void visit(ElementSubQuery el) {
+				Query subQuery = el.getQuery();
+				boolean projected = subQuery.isQueryResultStar() || subQuery.getProjectVars().contains(SH.thisVar);
+				if((!projected && getMentionedVars(subQuery.getQueryPattern()).contains(SH.thisVar)) ||
+						hasCorrelatedSubQuery(subQuery.getQueryPattern())) {
+					result[0] = true;
+				}
+			}
+		});
+		return result[0];
+	}
+	
+	
+	// Collects the variables of the triple patterns, FILTERs and BINDs of a given pattern
+	private static Set<Var> getMentionedVars(Element pattern) {
+		Set<Var> vars = new HashSet<>(PatternVars.vars(pattern));
+		ElementWalker.walk(pattern, new ElementVisitorBase() {
+			@Override
+			public void visit(ElementBind el) {
+				vars.addAll(el.getExpr().getVarsMentioned());
+			}
+			@Override
+			public void visit(ElementFilter el) {
+				vars.addAll(el.getExpr().getVarsMentioned());
+			}
+			@Override
+			public void visit(ElementSubQuery el) {
+				vars.addAll(el.getQuery().getProjectVars());
+			}
+		});
+		return vars;
+	}
+	
+	
 	public static QueryExecution createQueryExecution(Query query, Dataset dataset, QuerySolution bindings) {
 		if(USE_TRANSFORM && bindings != null) {
 			Map<Var,Node> substitutions = new HashMap<Var,Node>();
@@ -98,11 +186,52 @@ public class SPARQLSubstitutions {
 	}
 	
 	
+	/**
+	 * Replaces the ?PATH variable of a query with a given path expression, by serializing
+	 * and re-parsing the query.
+	 * @deprecated use {@link #substitutePaths(Query, Path)}, which operates on the syntax tree
+	 */
+	@Deprecated
 	public static Query substitutePaths(Query query, String pathString, Model model) {
-		// TODO: This is a bad algorithm - should be operating on syntax tree, not string
 		String str = query.toString().replaceAll(" \\?" + SH.PATHVar.getVarName() + " ", pathString);
 		return ARQFactory.get().createQuery(model, str);
 	}
+	
+	
+	/**
+	 * Creates a copy of a given query in which all triple patterns that have ?PATH as their
+	 * predicate use a given property path instead.
+	 * This operates on the syntax tree, including nested sub-queries and (NOT) EXISTS clauses.
+	 * @param query  the Query to transform
+	 * @param path  the Path to insert
+	 * @return a new Query
+	 */
+	public static Query substitutePaths(Query query, Path path) {
+		ElementTransform eltrans = new ElementTransformCopyBase() {
+			@Override
+			public Element transform(ElementPathBlock el) {
+				ElementPathBlock result = new ElementPathBlock();
+				boolean changed = false;
+				for(TriplePath tp : el.getPattern()) {
+					if(tp.isTriple() && SH.PATHVar.equals(tp.getPredicate())) {
+						result.addTriplePath(new TriplePath(tp.getSubject(), path, tp.getObject()));
+						changed = true;
+					}
+					else {
+						result.addTriplePath(tp);
+					}
+				}
+				return changed ? result : el;
+			}
+		};
+		NodeTransform nodeTransform = new NodeTransform() {
+			@Override
+			public Node apply(Node node) {
+				return node;
+			}
+		};
+		return QueryTransformOps.transform(query, eltrans, new ExprTransformNodeElement(nodeTransform, eltrans));
+	}
 
 	
 	public static Literal withSubstitutions(Literal template, QuerySolution bindings, Function<RDFNode,String> labelFunction) {
@@ -203,6 +332,28 @@ public class SPARQLSubstitutions {
 	}
 	
 	
+	/**
+	 * Creates a copy of a given query (typically produced by {@link #createBatchQuery(Query)})
+	 * in which the WHERE clause starts with a VALUES block for $this.
+	 * @param query  the query
+	 * @param focusNodes  the values of $this
+	 * @return a new Query
+	 */
+	public static Query withFocusNodes(Query query, Collection<RDFNode> focusNodes) {
+		ElementData data = new ElementData();
+		data.add(SH.thisVar);
+		for(RDFNode focusNode : focusNodes) {
+			data.add(BindingFactory.binding(SH.thisVar, focusNode.asNode()));
+		}
+		ElementGroup group = new ElementGroup();
+		group.addElement(data);
+		group.addElement(query.getQueryPattern());
+		Query result = query.cloneQuery();
+		result.setQueryPattern(group);
+		return result;
+	}
+	
+	
 	/**
 	 * Gets a parsable SPARQL string based on a fragment and prefix declarations.
 	 * Depending on the setting of the flag useGraphPrefixes, this either uses the
@@ -97,6 +97,8 @@ public class DASH {
 
     public final static Property includeSuggestions = ResourceFactory.createProperty(NS + "includeSuggestions");
     
+    public final static Property jsBatch = ResourceFactory.createProperty(NS + "jsBatch");
+
     public final static Property node = ResourceFactory.createProperty(NS + "node");
     
     public final static Property private_ = ResourceFactory.createProperty(NS + "private");
@@ -39,6 +39,8 @@ public class SH {
 
     public final static Resource AbstractResult = ResourceFactory.createResource(NS + "AbstractResult");
 
+    public final static Resource AndConstraintComponent = ResourceFactory.createResource(NS + "AndConstraintComponent");
+
     public final static Resource BlankNode = ResourceFactory.createResource(NS + "BlankNode");
 
     public final static Resource BlankNodeOrIRI = ResourceFactory.createResource(NS + "BlankNodeOrIRI");
@@ -47,38 +49,78 @@ public class SH {
 
     public final static Resource ClassConstraintComponent = ResourceFactory.createResource(NS + "ClassConstraintComponent");
     
+    public final static Resource ClosedConstraintComponent = ResourceFactory.createResource(NS + "ClosedConstraintComponent");
+
     public final static Resource Constraint = ResourceFactory.createResource(NS + "Constraint");
 
     public final static Resource ConstraintComponent = ResourceFactory.createResource(NS + "ConstraintComponent");
 
     public final static Resource DatatypeConstraintComponent = ResourceFactory.createResource(NS + "DatatypeConstraintComponent");
 
+    public final static Resource DisjointConstraintComponent = ResourceFactory.createResource(NS + "DisjointConstraintComponent");
+
+    public final static Resource EqualsConstraintComponent = ResourceFactory.createResource(NS + "EqualsConstraintComponent");
+
+    public final static Resource HasValueConstraintComponent = ResourceFactory.createResource(NS + "HasValueConstraintComponent");
+
+    public final static Resource InConstraintComponent = ResourceFactory.createResource(NS + "InConstraintComponent");
+
     public final static Resource Info = ResourceFactory.createResource(NS + "Info");
 
     public final static Resource IRI = ResourceFactory.createResource(NS + "IRI");
 
     public final static Resource IRIOrLiteral = ResourceFactory.createResource(NS + "IRIOrLiteral");
 
+    public final static Resource LanguageInConstraintComponent = ResourceFactory.createResource(NS + "LanguageInConstraintComponent");
+
+    public final static Resource LessThanConstraintComponent = ResourceFactory.createResource(NS + "LessThanConstraintComponent");
+
+    public final static Resource LessThanOrEqualsConstraintComponent = ResourceFactory.createResource(NS + "LessThanOrEqualsConstraintComponent");
+
     public final static Resource Literal = ResourceFactory.createResource(NS + "Literal");
 
     public final static Resource MaxCountConstraintComponent = ResourceFactory.createResource(NS + "MaxCountConstraintComponent");
 
+    public final static Resource MaxExclusiveConstraintComponent = ResourceFactory.createResource(NS + "MaxExclusiveConstraintComponent");
+
+    public final static Resource MaxInclusiveConstraintComponent = ResourceFactory.createResource(NS + "MaxInclusiveConstraintComponent");
+
+    public final static Resource MaxLengthConstraintComponent = ResourceFactory.createResource(NS + "MaxLengthConstraintComponent");
+
     public final static Resource MinCountConstraintComponent = ResourceFactory.createResource(NS + "MinCountConstraintComponent");
 
+    public final static Resource MinExclusiveConstraintComponent = ResourceFactory.createResource(NS + "MinExclusiveConstraintComponent");
+
+    public final static Resource MinInclusiveConstraintComponent = ResourceFactory.createResource(NS + "MinInclusiveConstraintComponent");
+
+    public final static Resource MinLengthConstraintComponent = ResourceFactory.createResource(NS + "MinLengthConstraintComponent");
+
+    public final static Resource NodeConstraintComponent = ResourceFactory.createResource(NS + "NodeConstraintComponent");
+
+    public final static Resource NodeKindConstraintComponent = ResourceFactory.createResource(NS + "NodeKindConstraintComponent");
+
     public final static Resource NodeShape = ResourceFactory.createResource(NS + "NodeShape");
 
+    public final static Resource NotConstraintComponent = ResourceFactory.createResource(NS + "NotConstraintComponent");
+
     public final static Resource OrConstraintComponent = ResourceFactory.createResource(NS + "OrConstraintComponent");
     
     public final static Resource Parameter = ResourceFactory.createResource(NS + "Parameter");
 
     public final static Resource Parameterizable = ResourceFactory.createResource(NS + "Parameterizable");
     
+    public final static Resource PatternConstraintComponent = ResourceFactory.createResource(NS + "PatternConstraintComponent");
+
     public final static Resource PrefixDeclaration = ResourceFactory.createResource(NS + "PrefixDeclaration");
 
     public final static Resource PropertyShape = ResourceFactory.createResource(NS + "PropertyShape");
 
     public final static Resource PropertyConstraintComponent = ResourceFactory.createResource(NS + "PropertyConstraintComponent");
 
+    public final static Resource QualifiedMaxCountConstraintComponent = ResourceFactory.createResource(NS + "QualifiedMaxCountConstraintComponent");
+
+    public final static Resource QualifiedMinCountConstraintComponent = ResourceFactory.createResource(NS + "QualifiedMinCountConstraintComponent");
+
     public final static Resource ResultAnnotation = ResourceFactory.createResource(NS + "ResultAnnotation");
 
     public final static Resource Shape = ResourceFactory.createResource(NS + "Shape");
@@ -101,6 +143,8 @@ public class SH {
     
     public final static Resource SPARQLValuesDeriver = ResourceFactory.createResource(NS + "SPARQLValuesDeriver");
     
+    public final static Resource UniqueLangConstraintComponent = ResourceFactory.createResource(NS + "UniqueLangConstraintComponent");
+
     public final static Resource ValidationReport = ResourceFactory.createResource(NS + "ValidationReport");
     
     public final static Resource ValidationResult = ResourceFactory.createResource(NS + "ValidationResult");
@@ -111,6 +155,8 @@ public class SH {
 
     public final static Resource Warning = ResourceFactory.createResource(NS + "Warning");
 
+    public final static Resource XoneConstraintComponent = ResourceFactory.createResource(NS + "XoneConstraintComponent");
+
 
     public final static Property alternativePath = ResourceFactory.createProperty(NS + "alternativePath");
     
@@ -120,6 +166,8 @@ public class SH {
 
     public final static Property class_ = ResourceFactory.createProperty(NS + "class");
 
+    public final static Property closed = ResourceFactory.createProperty(NS + "closed");
+
     public final static Property condition = ResourceFactory.createProperty(NS + "condition");
 
     public final static Property conforms = ResourceFactory.createProperty(NS + "conforms");
@@ -144,18 +192,24 @@ public class SH {
 
     public final static Property equals = ResourceFactory.createProperty(NS + "equals");
 
+    public final static Property flags = ResourceFactory.createProperty(NS + "flags");
+
     public final static Property focusNode = ResourceFactory.createProperty(NS + "focusNode");
     
     public final static Property group = ResourceFactory.createProperty(NS + "group");
 
     public final static Property hasValue = ResourceFactory.createProperty(NS + "hasValue");
     
+    public final static Property ignoredProperties = ResourceFactory.createProperty(NS + "ignoredProperties");
+
     public final static Property in = ResourceFactory.createProperty(NS + "in");
 
     public final static Property inversePath = ResourceFactory.createProperty(NS + "inversePath");
 
     public final static Property labelTemplate = ResourceFactory.createProperty(NS + "labelTemplate");
 
+    public final static Property languageIn = ResourceFactory.createProperty(NS + "languageIn");
+
     public final static Property lessThan = ResourceFactory.createProperty(NS + "lessThan");
 
     public final static Property lessThanOrEquals = ResourceFactory.createProperty(NS + "lessThanOrEquals");
@@ -212,6 +266,14 @@ public class SH {
 
     public final static Property propertyValidator = ResourceFactory.createProperty(NS + "propertyValidator");
 
+    public final static Property qualifiedMaxCount = ResourceFactory.createProperty(NS + "qualifiedMaxCount");
+
+    public final static Property qualifiedMinCount = ResourceFactory.createProperty(NS + "qualifiedMinCount");
+
+    public final static Property qualifiedValueShape = ResourceFactory.createProperty(NS + "qualifiedValueShape");
+
+    public final static Property qualifiedValueShapesDisjoint = ResourceFactory.createProperty(NS + "qualifiedValueShapesDisjoint");
+
     public final static Property result = ResourceFactory.createProperty(NS + "result");
 
     public final static Property resultMessage = ResourceFactory.createProperty(NS + "resultMessage");
@@ -250,6 +312,8 @@ public class SH {
 
     public final static Property value = ResourceFactory.createProperty(NS + "value");
 
+    public final static Property xone = ResourceFactory.createProperty(NS + "xone");
+
     public final static Property zeroOrMorePath = ResourceFactory.createProperty(NS + "zeroOrMorePath");
 
     public final static Property zeroOrOnePath = ResourceFactory.createProperty(NS + "zeroOrOnePath");
@@ -0,0 +1,77 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.vocabulary;
+
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+
+/**
+ * Vocabulary for the reports of the ValidationProfiler, http://topbraid.org/shacl/profiling
+ */
+public class SHPROF {
+
+    public final static String BASE_URI = "http://topbraid.org/shacl/profiling";
+    
+    public final static String NAME = "SHACL Validation Profiling Vocabulary";
+
+    public final static String NS = BASE_URI + "#";
+
+    public final static String PREFIX = "shprof";
+
+
+    public final static Resource CacheStatistics = ResourceFactory.createResource(NS + "CacheStatistics");
+
+    public final static Resource ConstraintProfile = ResourceFactory.createResource(NS + "ConstraintProfile");
+
+    public final static Resource ProfileReport = ResourceFactory.createResource(NS + "ProfileReport");
+
+    public final static Property cache = ResourceFactory.createProperty(NS + "cache");
+
+    public final static Property constraintProfile = ResourceFactory.createProperty(NS + "constraintProfile");
+
+    public final static Property executions = ResourceFactory.createProperty(NS + "executions");
+
+    public final static Property executorType = ResourceFactory.createProperty(NS + "executorType");
+
+    public final static Property focusNodes = ResourceFactory.createProperty(NS + "focusNodes");
+
+    public final static Property hits = ResourceFactory.createProperty(NS + "hits");
+
+    public final static Property maxNanos = ResourceFactory.createProperty(NS + "maxNanos");
+
+    public final static Property misses = ResourceFactory.createProperty(NS + "misses");
+
+    public final static Property p50Nanos = ResourceFactory.createProperty(NS + "p50Nanos");
+
+    public final static Property p99Nanos = ResourceFactory.createProperty(NS + "p99Nanos");
+
+    public final static Property parameterValue = ResourceFactory.createProperty(NS + "parameterValue");
+
+    public final static Property results = ResourceFactory.createProperty(NS + "results");
+
+    public final static Property selfNanos = ResourceFactory.createProperty(NS + "selfNanos");
+
+    public final static Property totalNanos = ResourceFactory.createProperty(NS + "totalNanos");
+
+    public final static Property valueNodes = ResourceFactory.createProperty(NS + "valueNodes");
+
+
+    public static String getURI() {
+        return NS;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.spin.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDFS;
+
+/**
+ * A snapshot of the rdfs:subClassOf hierarchy of a Graph, built from a single pass over
+ * its rdfs:subClassOf triples.
+ * The transitive closures are computed on demand and memoized per class, so that repeated
+ * subclass and type checks become hash lookups.
+ * 
+ * Instances are managed by the {@link ClassHierarchyCache}.
+ */
+public class ClassHierarchy {
+	
+	private Map<Node,List<Node>> directSubClasses = new HashMap<>();
+	
+	private Map<Node,List<Node>> directSuperClasses = new HashMap<>();
+	
+	private Map<Node,Set<Node>> subClasses = new ConcurrentHashMap<>();
+	
+	private Map<Node,Set<Node>> superClasses = new ConcurrentHashMap<>();
+	
+	
+	public ClassHierarchy(Graph graph) {
+		ExtendedIterator<Triple> it = graph.find(Node.ANY, RDFS.subClassOf.asNode(), Node.ANY);
+		try {
+			while(it.hasNext()) {
+				Triple triple = it.next();
+				if(!triple.getObject().isLiteral()) {
+					directSuperClasses.computeIfAbsent(triple.getSubject(), k -> new ArrayList<>(2)).add(triple.getObject());
+					directSubClasses.computeIfAbsent(triple.getObject(), k -> new ArrayList<>(2)).add(triple.getSubject());
+				}
+			}
+		}
+		finally {
+			it.close();
+		}
+	}
+	
+	
+	private static Set<Node> closure(Node start, Map<Node,List<Node>> edges) {
+		Set<Node> results = new HashSet<>();
+		LinkedList<Node> queue = new LinkedList<>();
+		queue.add(start);
+		while(!queue.isEmpty()) {
+			for(Node next : edges.getOrDefault(queue.removeFirst(), Collections.emptyList())) {
+				if(results.add(next)) {
+					queue.add(next);
+				}
+			}
+		}
+		return Collections.unmodifiableSet(results);
+	}
+	
+	
+	/**
+	 * Gets the transitive subclasses of a given class.
+	 * The result only contains the class itself if it is part of a cycle.
+	 * @param cls  the class node
+	 * @return the (unmodifiable) Set of subclass nodes
+	 */
+	public Set<Node> getSubClassNodes(Node cls) {
+		return subClasses.computeIfAbsent(cls, c -> closure(c, directSubClasses));
+	}
+	
+	
+	/**
+	 * Gets the transitive superclasses of a given class.
+	 * The result only contains the class itself if it is part of a cycle.
+	 * @param cls  the class node
+	 * @return the (unmodifiable) Set of superclass nodes
+	 */
+	public Set<Node> getSuperClassNodes(Node cls) {
+		return superClasses.computeIfAbsent(cls, c -> closure(c, directSuperClasses));
+	}
+	
+	
+	/**
+	 * Gets the transitive subclasses of a given class as Resources in the Model of that class,
+	 * equivalent to JenaUtil.getAllSubClasses.
+	 * @param cls  the class
+	 * @return a new Set of subclasses, not including cls
+	 */
+	public Set<Resource> getSubClasses(Resource cls) {
+		return toResources(getSubClassNodes(cls.asNode()), cls);
+	}
+	
+	
+	/**
+	 * Gets the transitive superclasses of a given class as Resources in the Model of that class,
+	 * equivalent to JenaUtil.getAllSuperClasses.
+	 * @param cls  the class
+	 * @return a new Set of superclasses, not including cls
+	 */
+	public Set<Resource> getSuperClasses(Resource cls) {
+		return toResources(getSuperClassNodes(cls.asNode()), cls);
+	}
+	
+	
+	public boolean hasSuperClass(Node subClass, Node superClass) {
+		return getSuperClassNodes(subClass).contains(superClass);
+	}
+	
+	
+	private static Set<Resource> toResources(Set<Node> nodes, Resource cls) {
+		Model model = cls.getModel();
+		Set<Resource> results = new HashSet<>();
+		for(Node node : nodes) {
+			if(!node.equals(cls.asNode())) {
+				results.add((Resource)model.asRDFNode(node));
+			}
+		}
+		return results;
+	}
+}
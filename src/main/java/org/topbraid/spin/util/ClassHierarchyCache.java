@@ -0,0 +1,196 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.spin.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.vocabulary.RDFS;
+
+/**
+ * A singleton that caches the {@link ClassHierarchy} of Graphs, used by the subclass and type
+ * reasoning methods of JenaUtil.
+ * 
+ * The cache registers a listener with each base graph (walking into MultiUnions) and discards
+ * a hierarchy whenever rdfs:subClassOf triples of any of its base graphs have been modified,
+ * or the members of a union have changed.
+ * Changes that bypass the listeners of the base graphs (e.g. to the named graphs underneath a
+ * Dataset's union graph) require an explicit call to {@link #invalidate(Graph)}.
+ * 
+ * The cache is disabled by default, because it is shared by all callers of JenaUtil.
+ * Applications that know that their class hierarchies are only modified through the
+ * listened-to graphs can switch it on using {@link #setEnabled(boolean)}.
+ */
+public class ClassHierarchyCache {
+
+	private static ClassHierarchyCache singleton = new ClassHierarchyCache();
+	
+	public static ClassHierarchyCache get() {
+		return singleton;
+	}
+	
+	public static void set(ClassHierarchyCache value) {
+		ClassHierarchyCache.singleton = value;
+	}
+	
+	
+	private boolean enabled;
+	
+	private Map<Graph,Entry> entries = Collections.synchronizedMap(new WeakHashMap<Graph,Entry>());
+	
+	// The version of each base graph, incremented whenever its rdfs:subClassOf triples change
+	private Map<Graph,AtomicInteger> versions = Collections.synchronizedMap(new WeakHashMap<Graph,AtomicInteger>());
+	
+	
+	public void clear() {
+		entries.clear();
+	}
+	
+	
+	/**
+	 * Gets the (possibly cached) ClassHierarchy of a given Graph.
+	 * @param graph  the Graph to get the hierarchy of
+	 * @return the ClassHierarchy or null if this cache is disabled
+	 */
+	public ClassHierarchy getClassHierarchy(Graph graph) {
+		if(!enabled) {
+			return null;
+		}
+		List<AtomicInteger> counters = getCounters(graph);
+		Entry entry = entries.get(graph);
+		if(entry == null || !entry.isValid(counters)) {
+			entry = new Entry(counters);
+			entry.hierarchy = new ClassHierarchy(graph);
+			entries.put(graph, entry);
+		}
+		return entry.hierarchy;
+	}
+	
+	
+	private List<AtomicInteger> getCounters(Graph graph) {
+		Set<Graph> baseGraphs = new HashSet<>();
+		JenaUtil.collectBaseGraphs(graph, baseGraphs);
+		List<AtomicInteger> counters = new ArrayList<>(baseGraphs.size());
+		for(Graph baseGraph : baseGraphs) {
+			AtomicInteger counter = versions.get(baseGraph);
+			if(counter == null) {
+				counter = versions.computeIfAbsent(baseGraph, g -> {
+					AtomicInteger c = new AtomicInteger();
+					// The listener must not reference the graph, so that it can be garbage collected
+					g.getEventManager().register(new AbstractGraphListener() {
+						
+						@Override
+						public void notifyAddTriple(Graph source, Triple t) {
+							if(RDFS.subClassOf.asNode().equals(t.getPredicate())) {
+								c.incrementAndGet();
+							}
+						}
+						
+						@Override
+						public void notifyDeleteTriple(Graph source, Triple t) {
+							if(RDFS.subClassOf.asNode().equals(t.getPredicate())) {
+								c.incrementAndGet();
+							}
+						}
+						
+						@Override
+						protected void notifyRemoveAll(Graph source, Triple pattern) {
+							c.incrementAndGet();
+						}
+					});
+					return c;
+				});
+			}
+			counters.add(counter);
+		}
+		return counters;
+	}
+	
+	
+	/**
+	 * Discards the cached hierarchies of a given Graph and of all unions that include it.
+	 * @param graph  the Graph that has been modified
+	 */
+	public void invalidate(Graph graph) {
+		Set<Graph> baseGraphs = new HashSet<>();
+		JenaUtil.collectBaseGraphs(graph, baseGraphs);
+		for(Graph baseGraph : baseGraphs) {
+			AtomicInteger counter = versions.get(baseGraph);
+			if(counter != null) {
+				counter.incrementAndGet();
+			}
+		}
+		entries.remove(graph);
+	}
+	
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	
+	/**
+	 * Can be used to switch on the cache. If disabled (default), JenaUtil walks the graphs on each call.
+	 * @param value  true to enable
+	 */
+	public void setEnabled(boolean value) {
+		this.enabled = value;
+		if(!value) {
+			clear();
+		}
+	}
+	
+	
+	private static class Entry {
+		
+		ClassHierarchy hierarchy;
+		
+		// The versions of the base graphs at the time when the hierarchy was built
+		Map<AtomicInteger,Integer> snapshot = new IdentityHashMap<>();
+		
+		
+		// Taking the snapshot before the hierarchy is built, so that concurrent changes invalidate it
+		Entry(List<AtomicInteger> counters) {
+			for(AtomicInteger counter : counters) {
+				snapshot.put(counter, counter.get());
+			}
+		}
+		
+		
+		boolean isValid(List<AtomicInteger> counters) {
+			if(counters.size() != snapshot.size()) {
+				return false;
+			}
+			for(AtomicInteger counter : counters) {
+				Integer version = snapshot.get(counter);
+				if(version == null || version != counter.get()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -387,6 +387,10 @@ public class JenaUtil {
 
 	
 	public static Set<Resource> getAllSubClasses(Resource cls) {
+		ClassHierarchy hierarchy = getClassHierarchy(cls);
+		if(hierarchy != null) {
+			return hierarchy.getSubClasses(cls);
+		}
 		return getAllTransitiveSubjects(cls, RDFS.subClassOf);
 	}
 
@@ -398,7 +402,7 @@ public class JenaUtil {
 	 * @return the Set of class resources
 	 */
 	public static Set<Resource> getAllSubClassesStar(Resource cls) {
-		Set<Resource> results = getAllTransitiveSubjects(cls, RDFS.subClassOf);
+		Set<Resource> results = getAllSubClasses(cls);
 		results.add(cls);
 		return results;
 	}
@@ -410,6 +414,10 @@ public class JenaUtil {
 
 	
 	public static Set<Resource> getAllSuperClasses(Resource cls) {
+		ClassHierarchy hierarchy = getClassHierarchy(cls);
+		if(hierarchy != null) {
+			return hierarchy.getSuperClasses(cls);
+		}
 		return getAllTransitiveObjects(cls, RDFS.subClassOf);
 	}
 
@@ -421,7 +429,7 @@ public class JenaUtil {
 	 * @return the Set of class resources
 	 */
 	public static Set<Resource> getAllSuperClassesStar(Resource cls) {
-		Set<Resource> results = getAllTransitiveObjects(cls, RDFS.subClassOf);
+		Set<Resource> results = getAllSuperClasses(cls);
 		results.add(cls);
 		return results;
 	}
@@ -449,6 +457,23 @@ public class JenaUtil {
 	}
 
 	
+	/**
+	 * Gets the cached ClassHierarchy of the Model of a given class, if enabled.
+	 * @param cls  the class
+	 * @return the ClassHierarchy or null
+	 * @see ClassHierarchyCache
+	 */
+	public static ClassHierarchy getClassHierarchy(Resource cls) {
+		Model model = cls.getModel();
+		if(model != null) {
+			return ClassHierarchyCache.get().getClassHierarchy(model.getGraph());
+		}
+		else {
+			return null;
+		}
+	}
+	
+	
 	public static Set<Resource> getAllTypes(Resource instance) {
 		Set<Resource> types = new HashSet<Resource>();
 		StmtIterator it = instance.listProperties(RDF.type);
@@ -805,6 +830,10 @@ public class JenaUtil {
 	 * @return true if subClass has superClass (somewhere up the tree)
 	 */
 	public static boolean hasSuperClass(Resource subClass, Resource superClass) {
+		ClassHierarchy hierarchy = getClassHierarchy(subClass);
+		if(hierarchy != null) {
+			return hierarchy.hasSuperClass(subClass.asNode(), superClass.asNode());
+		}
 		return hasSuperClass(subClass, superClass, new HashSet<Resource>());
 	}
 	
@@ -60,23 +60,28 @@ public class TestDASHTestCases {
 				return new NashornScriptEngine() {
 					@Override
                     protected Reader createScriptReader(String url) throws Exception {
-						if(DASH_JS.equals(url)) {
-							return new InputStreamReader(NashornScriptEngine.class.getResourceAsStream("/etc/dash.js"));
-						}
-						else if(RDFQUERY_JS.equals(url)) {
-							return new InputStreamReader(NashornScriptEngine.class.getResourceAsStream("/etc/rdfquery.js"));
-						}
-						else if(url.startsWith("http://datashapes.org/js/")) {
-							return new InputStreamReader(NashornScriptEngine.class.getResourceAsStream(url.substring(21)));
-						}
-						else {
-							return new InputStreamReader(new URL(url).openStream());
-						}
+						return createTestScriptReader(url);
 					}
 				};
 			}
 		});
 	}
+	
+	
+	static Reader createTestScriptReader(String url) throws Exception {
+		if(NashornScriptEngine.DASH_JS.equals(url)) {
+			return new InputStreamReader(NashornScriptEngine.class.getResourceAsStream("/etc/dash.js"));
+		}
+		else if(NashornScriptEngine.RDFQUERY_JS.equals(url)) {
+			return new InputStreamReader(NashornScriptEngine.class.getResourceAsStream("/etc/rdfquery.js"));
+		}
+		else if(url.startsWith("http://datashapes.org/js/")) {
+			return new InputStreamReader(NashornScriptEngine.class.getResourceAsStream(url.substring(21)));
+		}
+		else {
+			return new InputStreamReader(new URL(url).openStream());
+		}
+	}
 
 	@Parameters(name="{0}")
 	public static Collection<Object[]> data() throws Exception {
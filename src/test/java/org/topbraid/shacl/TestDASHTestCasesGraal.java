@@ -0,0 +1,65 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl;
+
+import java.io.Reader;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.topbraid.shacl.js.JSScriptEngine;
+import org.topbraid.shacl.js.JSScriptEngineFactory;
+import org.topbraid.shacl.js.graal.GraalJSScriptEngine;
+import org.topbraid.shacl.testcases.TestCase;
+
+/**
+ * Runs the same test cases as TestDASHTestCases, but with GraalJS instead of Nashorn.
+ */
+@RunWith(Parameterized.class)
+public class TestDASHTestCasesGraal extends TestDASHTestCases {
+	
+	private static JSScriptEngineFactory oldFactory;
+	
+	
+	@BeforeClass
+	public static void installGraal() {
+		oldFactory = JSScriptEngineFactory.get();
+		JSScriptEngineFactory.set(new JSScriptEngineFactory() {
+			@Override
+			public JSScriptEngine createScriptEngine() {
+				return new GraalJSScriptEngine() {
+					@Override
+					protected Reader createScriptReader(String url) throws Exception {
+						return createTestScriptReader(url);
+					}
+				};
+			}
+		});
+	}
+	
+	
+	@AfterClass
+	public static void uninstallGraal() {
+		JSScriptEngineFactory.set(oldFactory);
+	}
+
+	
+	public TestDASHTestCasesGraal(TestCase testCase) {
+		super(testCase);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl;
+
+import java.net.URI;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.testcases.TestCase;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationEngineFactory;
+
+/**
+ * Runs the same test cases as TestDASHTestCases, but with ValidationEngines that validate
+ * each focus node in its own partition of a parallel Executor.
+ */
+@RunWith(Parameterized.class)
+public class TestDASHTestCasesParallel extends TestDASHTestCases {
+	
+	private static ValidationEngineFactory oldFactory;
+	
+	private static ForkJoinPool pool;
+	
+	
+	@BeforeClass
+	public static void installParallelEngines() {
+		pool = new ForkJoinPool(4);
+		oldFactory = ValidationEngineFactory.get();
+		ValidationEngineFactory.set(new ValidationEngineFactory() {
+			@Override
+			public ValidationEngine create(Dataset dataset, URI shapesGraphURI, ShapesGraph shapesGraph, Resource report) {
+				ValidationEngine engine = oldFactory.create(dataset, shapesGraphURI, shapesGraph, report);
+				engine.setParallelExecutor(pool);
+				engine.setPartitionSize(1);
+				return engine;
+			}
+		});
+	}
+	
+	
+	@AfterClass
+	public static void uninstallParallelEngines() {
+		ValidationEngineFactory.set(oldFactory);
+		pool.shutdown();
+	}
+
+	
+	public TestDASHTestCasesParallel(TestCase testCase) {
+		super(testCase);
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.topbraid.shacl.testcases.TestCase;
+import org.topbraid.shacl.validation.ConstraintExecutors;
+import org.topbraid.shacl.validation.sparql.AbstractSPARQLExecutor;
+
+/**
+ * Runs the same test cases as TestDASHTestCases, but with the SPARQL-based validators
+ * of the SHACL Core constraint components instead of the native executors.
+ * The focus nodes are validated in small batches, so that most SPARQL queries are executed for several batches.
+ */
+@RunWith(Parameterized.class)
+public class TestDASHTestCasesSPARQL extends TestDASHTestCases {
+	
+	private static int oldBatchSize;
+	
+	
+	@BeforeClass
+	public static void preferSPARQL() {
+		ConstraintExecutors.get().setNativePreferred(false);
+		oldBatchSize = AbstractSPARQLExecutor.batchSize;
+		AbstractSPARQLExecutor.batchSize = 4;
+	}
+	
+	
+	@AfterClass
+	public static void preferNative() {
+		ConstraintExecutors.get().setNativePreferred(true);
+		AbstractSPARQLExecutor.batchSize = oldBatchSize;
+	}
+
+	
+	public TestDASHTestCasesSPARQL(TestCase testCase) {
+		super(testCase);
+	}
+}
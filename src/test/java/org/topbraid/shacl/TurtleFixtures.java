@@ -0,0 +1,138 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URI;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.compose.MultiUnion;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.util.FileUtils;
+import org.topbraid.shacl.arq.SHACLFunctions;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.rules.RuleEngine;
+import org.topbraid.shacl.rules.RuleUtil;
+import org.topbraid.shacl.util.SHACLSystemModel;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.validation.ValidationEngineFactory;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.spin.arq.ARQFactory;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Helpers to create small in-memory test models from Turtle snippets or test resources, and engines for them.
+ */
+public class TurtleFixtures {
+	
+	public final static String EX = "http://example.org/ns#";
+	
+	public final static URI SHAPES_GRAPH_URI = URI.create("urn:x-test:shapes");
+	
+	public final static String PREFIXES =
+			"@prefix ex: <" + EX + "> .\n" +
+			"@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n" +
+			"@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n" +
+			"@prefix sh: <http://www.w3.org/ns/shacl#> .\n" +
+			"@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n";
+
+	
+	/**
+	 * Parses the given lines of Turtle into a new memory model.
+	 * The prefixes ex, rdf, rdfs, sh and xsd are pre-declared.
+	 * @param lines  the Turtle lines
+	 * @return a new Model
+	 */
+	public static Model parse(String... lines) {
+		StringBuilder sb = new StringBuilder(PREFIXES);
+		for(String line : lines) {
+			sb.append(line);
+			sb.append('\n');
+		}
+		Model model = JenaUtil.createMemoryModel();
+		model.read(new StringReader(sb.toString()), "urn:dummy", FileUtils.langTurtle);
+		return model;
+	}
+	
+	
+	/**
+	 * Reads a Turtle file from the test resources, for example one of the DASH test cases under sh/tests.
+	 * @param path  the path of the file relative to the root of the test resources
+	 * @return a new memory Model
+	 */
+	public static Model read(String path) {
+		InputStream is = TurtleFixtures.class.getResourceAsStream("/" + path);
+		if(is == null) {
+			throw new IllegalArgumentException("Missing test resource " + path);
+		}
+		Model model = JenaUtil.createMemoryModel();
+		model.read(is, "urn:dummy", FileUtils.langTurtle);
+		return model;
+	}
+	
+	
+	/**
+	 * Creates a RuleEngine for a Model that holds both the data and the shapes, similar to
+	 * {@link RuleUtil#executeRules(Model, Model, Model, org.topbraid.spin.progress.ProgressMonitor)}.
+	 * The inferred triples go into a new Model that is visible in the data graph.
+	 * @param model  the data and shapes Model
+	 * @return a new RuleEngine
+	 */
+	public static RuleEngine createRuleEngine(Model model) {
+		SHACLFunctions.registerFunctions(model);
+		Model inferences = JenaUtil.createDefaultModel();
+		Model dataModel = ModelFactory.createModelForGraph(new MultiUnion(new Graph[] {
+			model.getGraph(),
+			inferences.getGraph()
+		}));
+		Model shapesModel = ModelFactory.createModelForGraph(new MultiUnion(new Graph[] {
+			SHACLSystemModel.getSHACLModel().getGraph(),
+			model.getGraph()
+		}));
+		Dataset dataset = ARQFactory.get().getDataset(dataModel);
+		dataset.addNamedModel(SHAPES_GRAPH_URI.toString(), shapesModel);
+		return new RuleEngine(dataset, SHAPES_GRAPH_URI, new ShapesGraph(shapesModel), inferences);
+	}
+	
+	
+	/**
+	 * Creates a ValidationEngine for a Model that holds both the data and the shapes.
+	 * The shapes are compiled using {@link ValidationUtil#createShapesGraph(Model, boolean)}
+	 * without the meta shapes.
+	 * @param model  the data and shapes Model
+	 * @return a new ValidationEngine
+	 */
+	public static ValidationEngine createValidationEngine(Model model) {
+		return createValidationEngine(model, ValidationUtil.createShapesGraph(model, false));
+	}
+	
+	
+	/**
+	 * Creates a ValidationEngine for a given data Model and a ShapesGraph.
+	 * @param dataModel  the data Model
+	 * @param shapesGraph  the ShapesGraph
+	 * @return a new ValidationEngine
+	 */
+	public static ValidationEngine createValidationEngine(Model dataModel, ShapesGraph shapesGraph) {
+		Dataset dataset = ARQFactory.get().getDataset(dataModel);
+		dataset.addNamedModel(SHAPES_GRAPH_URI.toString(), shapesGraph.getShapesModel());
+		return ValidationEngineFactory.get().create(dataset, SHAPES_GRAPH_URI, shapesGraph, null);
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Helpers to compare validation reports in tests.
+ */
+public class ValidationReports {
+
+	/**
+	 * Gets a sorted list of strings with the focus node, path, value, component and
+	 * message of each result in a given report, suitable for assertEquals.
+	 * Results that only differ in blank nodes (e.g. nested shapes) produce the same string.
+	 * @param report  the sh:ValidationReport
+	 * @return a sorted List that may contain duplicates
+	 */
+	public static List<String> describeResults(Resource report) {
+		List<String> results = new ArrayList<>();
+		for(RDFNode node : report.getModel().listObjectsOfProperty(report, SH.result).toList()) {
+			Resource result = (Resource) node;
+			StringBuilder sb = new StringBuilder();
+			append(sb, result, RDF.type);
+			append(sb, result, SH.focusNode);
+			append(sb, result, SH.resultPath);
+			append(sb, result, SH.value);
+			append(sb, result, SH.sourceConstraintComponent);
+			append(sb, result, SH.sourceShape);
+			append(sb, result, SH.resultMessage);
+			results.add(sb.toString());
+		}
+		Collections.sort(results);
+		return results;
+	}
+	
+	
+	private static void append(StringBuilder sb, Resource result, Property property) {
+		Statement s = result.getProperty(property);
+		RDFNode node = s != null ? s.getObject() : null;
+		if(sb.length() > 0) {
+			sb.append(" | ");
+		}
+		if(node == null) {
+			sb.append("-");
+		}
+		else if(node.isAnon()) {
+			sb.append("_");
+		}
+		else {
+			sb.append(node);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.arq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.path.Path;
+import org.apache.jena.sparql.path.PathParser;
+import org.apache.jena.sparql.path.eval.PathEval;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+
+/**
+ * Checks that CompiledPaths produce the same value nodes as ARQ's path evaluation.
+ */
+public class TestCompiledPath {
+	
+	// The SHACL paths over the same graph are checked by this DASH test case
+	private final static Model MODEL = TurtleFixtures.read("sh/tests/core/path/path-complex-002.test.ttl");
+	
+	private final static String NS = "http://datashapes.org/sh/tests/core/path/path-complex-002.test#";
+	
+	private final static String[] PATHS = {
+			"ex:p",
+			"^ex:p",
+			"ex:p/ex:q",
+			"ex:p|ex:q",
+			"ex:p*",
+			"ex:p+",
+			"ex:p?",
+			"(ex:p|^ex:q)*",
+			"(ex:p/ex:q)+",
+			"^(ex:p/ex:q)",
+			"ex:p*/ex:r",
+			"!ex:p"
+	};
+	
+	private final static String[] NODES = { "a", "b", "c", "d", "e", "f" };
+	
+	private final static PrefixMapping PREFIXES = PrefixMapping.Factory.create().setNsPrefix("ex", NS);
+	
+	
+	private static Set<Node> evalARQ(Path path, Node start) {
+		Set<Node> results = new HashSet<>();
+		PathEval.eval(MODEL.getGraph(), start, path, ARQ.getContext()).forEachRemaining(results::add);
+		return results;
+	}
+	
+	
+	@Test
+	public void testSameAsARQ() {
+		Graph graph = MODEL.getGraph();
+		PathClosureCache closureCache = new PathClosureCache();
+		for(String pathString : PATHS) {
+			Path path = PathParser.parse(pathString, PREFIXES);
+			CompiledPath compiled = CompiledPath.get(path);
+			for(String name : NODES) {
+				Node start = MODEL.getResource(NS + name).asNode();
+				Set<Node> expected = evalARQ(path, start);
+				assertEquals(pathString + " from " + name, expected, compiled.eval(graph, start, null));
+				assertEquals(pathString + " from " + name + " (cached)", expected, compiled.eval(graph, start, closureCache));
+			}
+		}
+		assertTrue(closureCache.size() > 0);
+	}
+}
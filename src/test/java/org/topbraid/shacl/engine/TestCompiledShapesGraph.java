@@ -0,0 +1,116 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jena.rdf.model.Model;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.ValidationReports;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.shacl.validation.profiling.ValidationProfiler;
+import org.topbraid.shacl.validation.profiling.ValidationProfiler.CacheStatistics;
+
+/**
+ * Checks that a compiled ShapesGraph can be reused for many data graphs, also concurrently.
+ */
+public class TestCompiledShapesGraph {
+	
+	private final static Model SHAPES = TurtleFixtures.parse(
+			"ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;",
+			"	sh:property [ sh:path ex:name ; sh:minCount 1 ] ;",
+			"	sh:property [ sh:path ex:friend ; sh:node ex:NamedShape ] ;",
+			"	sh:property [ sh:path ex:child ; sh:qualifiedValueShape ex:NamedShape ; sh:qualifiedMinCount 1 ] .",
+			"ex:NamedShape a sh:NodeShape ; sh:property [ sh:path ex:name ; sh:datatype xsd:string ] .");
+	
+	
+	private static Model createDataModel(int seed) {
+		List<String> lines = new ArrayList<>();
+		for(int i = 0; i < 50; i++) {
+			lines.add("ex:p" + i + " a ex:Person ; ex:friend ex:p" + ((i + seed) % 50) + " ; ex:child ex:p" + ((i * seed) % 50) + " .");
+			if((i + seed) % 3 != 0) {
+				lines.add("ex:p" + i + " ex:name " + ((i + seed) % 4 == 0 ? "1" : "\"P\"") + " .");
+			}
+		}
+		return TurtleFixtures.parse(lines.toArray(new String[0]));
+	}
+	
+	
+	@Test
+	public void testReuseAcrossDataGraphs() throws Exception {
+		ShapesGraph shapesGraph = ValidationUtil.createShapesGraph(SHAPES, false);
+		assertTrue(shapesGraph.isCompiled());
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Model> dataModels = new ArrayList<>();
+			List<Future<List<String>>> futures = new ArrayList<>();
+			for(int seed = 1; seed <= 8; seed++) {
+				Model dataModel = createDataModel(seed);
+				dataModels.add(dataModel);
+				futures.add(threads.submit(() -> ValidationReports.describeResults(ValidationUtil.validateModel(dataModel, shapesGraph))));
+			}
+			for(int i = 0; i < dataModels.size(); i++) {
+				List<String> expected = ValidationReports.describeResults(ValidationUtil.validateModel(dataModels.get(i), SHAPES, false));
+				assertFalse(expected.isEmpty());
+				assertEquals(expected, futures.get(i).get());
+			}
+		}
+		finally {
+			threads.shutdown();
+		}
+	}
+	
+	
+	@Test
+	public void testExecutorsPreparedByCompile() {
+		Model shapesModel = TurtleFixtures.parse(
+				"ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;",
+				"	sh:property [ sh:path ex:name ; sh:minCount 1 ] ;",
+				"	sh:or ( [ sh:property [ sh:path ex:age ; sh:datatype xsd:integer ] ] [ sh:property [ sh:path ex:birthYear ; sh:minCount 1 ] ] ) ;",
+				"	sh:xone ( [ sh:class ex:Adult ] [ sh:class ex:Minor ] ) .");
+		ShapesGraph shapesGraph = ValidationUtil.createShapesGraph(shapesModel, false);
+		ValidationProfiler oldProfiler = ValidationProfiler.get();
+		ValidationProfiler profiler = new ValidationProfiler();
+		profiler.setEnabled(true);
+		ValidationProfiler.set(profiler);
+		try {
+			Model dataModel = TurtleFixtures.parse("ex:Alice a ex:Person, ex:Adult ; ex:age \"old\" .");
+			assertFalse(ValidationReports.describeResults(ValidationUtil.validateModel(dataModel, shapesGraph)).isEmpty());
+			CacheStatistics stats = profiler.getCaches().get("ConstraintExecutorCache");
+			assertTrue(stats.getHitCount() > 0);
+			assertEquals(0, stats.getMissCount());
+		}
+		finally {
+			ValidationProfiler.set(oldProfiler);
+		}
+	}
+	
+	
+	@Test(expected = IllegalStateException.class)
+	public void testCompiledIsFrozen() {
+		ValidationUtil.createShapesGraph(SHAPES, false).setShapeFilter(shape -> true);
+	}
+}
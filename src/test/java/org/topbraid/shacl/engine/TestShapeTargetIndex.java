@@ -0,0 +1,73 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.spin.arq.ARQFactory;
+
+/**
+ * Checks that the ShapeTargetIndex finds the same shapes as the targets of each shape.
+ */
+public class TestShapeTargetIndex {
+	
+	// The shapes and data are also a DASH test case, which checks the target nodes of each shape
+	private final static String NS = "http://datashapes.org/sh/tests/core/targets/multipleTargets-002.test#";
+	
+	private final static String[] SHAPE_NAMES = {
+			"Animal", "ClassShape", "NodeShape", "SubjectsShape", "ObjectsShape", "SPARQLShape", "MixedShape"
+	};
+	
+	
+	@Test
+	public void testSameAsTargets() {
+		Model model = TurtleFixtures.read("sh/tests/core/targets/multipleTargets-002.test.ttl");
+		Dataset dataset = ARQFactory.get().getDataset(model);
+		ShapeTargetIndex index = ValidationUtil.createShapesGraph(model, false).getShapeTargetIndex();
+		
+		Set<RDFNode> nodes = new HashSet<>();
+		nodes.addAll(model.listSubjects().toList());
+		nodes.addAll(model.listObjects().toList());
+		for(RDFNode node : nodes) {
+			Set<Resource> expected = new HashSet<>();
+			for(String name : SHAPE_NAMES) {
+				Resource shape = model.getResource(NS + name);
+				if(SHACLUtil.getTargetNodes(shape, dataset).contains(node)) {
+					expected.add(shape);
+				}
+			}
+			Set<Resource> actual = new HashSet<>();
+			for(Resource shape : index.getShapesForNode(node, dataset)) {
+				if(shape.isURIResource() && shape.getURI().startsWith(NS)) {
+					actual.add(shape);
+				}
+			}
+			assertEquals(node.toString(), expected, actual);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.util.SHACLUtil;
+import org.topbraid.spin.arq.ARQFactory;
+
+/**
+ * Checks that a TargetNodeIndex computes the same target nodes as SHACLUtil.
+ */
+public class TestTargetNodeIndex {
+	
+	// The same shapes and data are a DASH test case, which also checks the target nodes of each shape
+	private final static String FILE = "sh/tests/core/targets/multipleTargets-002.test.ttl";
+	
+	private final static String NS = "http://datashapes.org/sh/tests/core/targets/multipleTargets-002.test#";
+	
+	private final static String[] SHAPE_NAMES = {
+			"Animal", "ClassShape", "NodeShape", "SubjectsShape", "ObjectsShape", "SPARQLShape", "MixedShape"
+	};
+	
+	
+	private static void assertSameTargets(Model model, Dataset dataset, TargetNodeIndex index) {
+		for(String name : SHAPE_NAMES) {
+			Resource shape = model.getResource(NS + name);
+			Set<RDFNode> expected = new HashSet<>(SHACLUtil.getTargetNodes(shape, dataset));
+			assertEquals(name, expected, new HashSet<>(index.getTargetNodes(shape)));
+		}
+	}
+	
+	
+	@Test
+	public void testSameAsSHACLUtil() {
+		Model model = TurtleFixtures.read(FILE);
+		Dataset dataset = ARQFactory.get().getDataset(model);
+		assertSameTargets(model, dataset, new TargetNodeIndex(dataset));
+	}
+	
+	
+	@Test
+	public void testClear() {
+		Model model = TurtleFixtures.read(FILE);
+		Dataset dataset = ARQFactory.get().getDataset(model);
+		TargetNodeIndex index = new TargetNodeIndex(dataset);
+		assertSameTargets(model, dataset, index);
+		model.add(model.getResource(NS + "pup"), RDF.type, model.getResource(NS + "Puppy"));
+		model.add(model.getResource(NS + "pup"), model.createProperty(NS + "owner"), model.getResource(NS + "carol"));
+		index.clear();
+		assertSameTargets(model, dataset, index);
+	}
+}
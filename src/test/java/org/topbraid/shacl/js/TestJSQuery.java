@@ -0,0 +1,149 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.js;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.graph.GraphWrapper;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.junit.After;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.js.graal.GraalJSScriptEngine;
+import org.topbraid.shacl.js.model.JSFactory;
+
+/**
+ * Checks that the native query objects produced by JSGraph.query() deliver the same
+ * results as the JavaScript implementation of rdfquery.js, and stream their solutions
+ * into the functions that are handed over to JavaScript.
+ */
+public class TestJSQuery {
+	
+	private final static Graph GRAPH = TurtleFixtures.parse(
+			"ex:a ex:p ex:b, ex:c ;",
+			"    rdfs:label \"A\" .",
+			"ex:b ex:p ex:c ;",
+			"    rdfs:label \"B\" .",
+			"ex:c ex:q ex:a .",
+			"ex:d rdfs:label \"b\" .",
+			"ex:e rdfs:label \"a\" .").getGraph();
+	
+	
+	@After
+	public void tearDown() {
+		JSGraph.nativeQueries = true;
+		JSFactory.clearTermCache();
+	}
+	
+	
+	private static JSScriptEngine createEngine(boolean graal) throws Exception {
+		return createEngine(graal, GRAPH);
+	}
+	
+	
+	private static JSScriptEngine createEngine(boolean graal, Graph graph) throws Exception {
+		JSScriptEngine engine = graal ? new GraalJSScriptEngine() : new NashornScriptEngine();
+		engine.executeScriptFromURL(NashornScriptEngine.RDFQUERY_JS);
+		engine.eval("TermFactory.registerNamespace('ex', '" + TurtleFixtures.EX + "')");
+		engine.put("$data", new JSGraph(graph, engine));
+		return engine;
+	}
+	
+	
+	// Evaluates the given expression with both query implementations and returns the native result
+	private static String query(JSScriptEngine engine, String expr) throws Exception {
+		JSGraph.nativeQueries = false;
+		String expected = (String) engine.eval("String(" + expr + ")");
+		JSGraph.nativeQueries = true;
+		String actual = (String) engine.eval("String(" + expr + ")");
+		assertEquals(expr, expected, actual);
+		return actual;
+	}
+	
+	
+	private static void checkQueries(boolean graal) throws Exception {
+		JSScriptEngine engine = createEngine(graal);
+		assertTrue(engine.eval("$data.query()") instanceof JSQuery);
+		
+		assertEquals("3", query(engine, "$data.query().match('?s', 'ex:p', '?o').getCount()"));
+		assertEquals("1", query(engine, "$data.query().match('?s', 'ex:p', '?o').match('?o', 'rdfs:label', '?label').getCount()"));
+		assertEquals("B", query(engine, "$data.query().match('ex:a', 'ex:p', '?o').match('?o', 'rdfs:label', '?label').getNode('?label').lex"));
+		assertEquals("a,A,b,B", query(engine, "$data.query().match('?s', 'rdfs:label', '?label').orderBy('?label').getNodeArray('?label').map(function(n) { return n.lex; }).join(',')"));
+		assertEquals("1", query(engine, "$data.query().match('?s', 'ex:p', '?o').limit(1).getCount()"));
+		assertEquals("false", query(engine, "$data.query().match('ex:c', 'ex:p', '?o').hasSolution()"));
+		assertEquals("A", query(engine, "$data.query().match('?s', 'ex:p', 'ex:b').getObject('?s', 'rdfs:label').lex"));
+		
+		// Path walks
+		assertEquals("2", query(engine, "$data.query().path(T('ex:a'), { oneOrMore : T('ex:p') }, '?o').getNodeSet('?o').size()"));
+		assertEquals("2", query(engine, "$data.query().path(T('ex:c'), [ T('ex:q'), T('ex:p') ], '?o').getCount()"));
+		assertEquals("1", query(engine, "$data.query().path(T('ex:a'), { inverse : T('ex:q') }, '?s').getCount()"));
+		assertEquals("2", query(engine, "$data.query().path(T('ex:b'), { or : [ T('ex:p'), T('rdfs:label') ] }, '?o').getCount()"));
+		
+		// Functions that are handed over to the JavaScript implementation
+		assertEquals("2", query(engine, "$data.query().match('?s', 'ex:p', '?o').filter(function(sol) { return sol.o.uri.indexOf('#c') > 0; }).getCount()"));
+		assertEquals("3", query(engine, "(function() { var count = 0; $data.query().match('?s', 'ex:p', '?o').forEach(function(sol) { count++; }); return count; })()"));
+		assertEquals("1", query(engine, "$data.query().match('ex:b', 'ex:p', '?o').getArray().length"));
+	}
+	
+	
+	// Checks that the solutions are handed over to JavaScript without reading all triples first
+	private static void checkStreaming(boolean graal) throws Exception {
+		AtomicInteger count = new AtomicInteger();
+		Graph graph = new GraphWrapper(GRAPH) {
+			@Override
+			public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+				return super.find(s, p, o).mapWith(triple -> {
+					count.incrementAndGet();
+					return triple;
+				});
+			}
+		};
+		JSScriptEngine engine = createEngine(graal, graph);
+		assertEquals(true, engine.eval("$data.query().match('?s', 'ex:p', '?o').filter(function(sol) { return true; }).hasSolution()"));
+		assertEquals(1, count.get());
+	}
+	
+	
+	@Test
+	public void testNashorn() throws Exception {
+		checkQueries(false);
+	}
+	
+	
+	@Test
+	public void testGraal() throws Exception {
+		checkQueries(true);
+	}
+	
+	
+	@Test
+	public void testNashornStreaming() throws Exception {
+		checkStreaming(false);
+	}
+	
+	
+	@Test
+	public void testGraalStreaming() throws Exception {
+		checkStreaming(true);
+	}
+}
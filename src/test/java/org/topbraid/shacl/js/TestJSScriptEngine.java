@@ -0,0 +1,191 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.js;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.script.ScriptException;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.XSD;
+import org.junit.Test;
+import org.topbraid.shacl.js.graal.GraalJSScriptEngine;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Checks the default methods of JSScriptEngine, the JavaScript arrays of the engines,
+ * the life cycle of the GraalJS engines and the pooling by shapes graph.
+ */
+public class TestJSScriptEngine {
+	
+	// Only implements the abstract methods, delegating to Nashorn
+	private static class MinimalEngine implements JSScriptEngine {
+		
+		private NashornScriptEngine delegate = new NashornScriptEngine();
+		
+		
+		@Override
+		public Object eval(String expr) throws ScriptException {
+			return delegate.eval(expr);
+		}
+		
+		
+		@Override
+		public void executeLibraries(Resource exec) throws Exception {
+			delegate.executeLibraries(exec);
+		}
+		
+		
+		@Override
+		public void executeScriptFromURL(String url) throws Exception {
+			delegate.executeScriptFromURL(url);
+		}
+		
+		
+		@Override
+		public Object get(String varName) {
+			return delegate.get(varName);
+		}
+		
+		
+		@Override
+		public Object invokeFunction(String functionName, QuerySolution bindings) throws ScriptException, NoSuchMethodException {
+			return delegate.invokeFunction(functionName, bindings);
+		}
+		
+		
+		@Override
+		public Object invokeFunctionOrdered(String functionName, Object[] args) throws ScriptException, NoSuchMethodException {
+			return delegate.invokeFunctionOrdered(functionName, args);
+		}
+		
+		
+		@Override
+		public void put(String varName, Object value) {
+			delegate.put(varName, value);
+		}
+	}
+	
+	
+	private static void checkArrays(JSScriptEngine engine) throws Exception {
+		engine.eval("function describe(/* the items */ $items, $suffix) { return Array.isArray($items) + ' ' + $items.map(function(item) { return item + $suffix; }).join(','); }");
+		Map<String,Object> args = new HashMap<>();
+		args.put("items", engine.createArray(new Object[] { "a", "b" }));
+		args.put("suffix", "!");
+		assertEquals("true a!,b!", engine.invokeFunctionWithArgs("describe", args));
+	}
+	
+	
+	@Test
+	public void testDefaultInvokeFunctionWithArgs() throws Exception {
+		JSScriptEngine engine = new MinimalEngine();
+		engine.eval("function combine(b, $a) { return 10 * $a + b; }");
+		Map<String,Object> args = new HashMap<>();
+		args.put("a", 5);
+		args.put("b", 3);
+		args.put("c", 1);
+		assertEquals(53, ((Number) engine.invokeFunctionWithArgs("combine", args)).intValue());
+	}
+	
+	
+	@Test
+	public void testDefaultCreateArray() throws Exception {
+		Object[] items = new Object[] { "a" };
+		assertEquals(items, new MinimalEngine().createArray(items));
+	}
+	
+	
+	@Test
+	public void testNashornArrays() throws Exception {
+		checkArrays(new NashornScriptEngine());
+	}
+	
+	
+	@Test
+	public void testGraalArrays() throws Exception {
+		checkArrays(new GraalJSScriptEngine());
+	}
+	
+	
+	@Test
+	public void testGraalNumberArguments() throws Exception {
+		JSScriptEngine engine = new GraalJSScriptEngine();
+		engine.put("xsdInteger", engine.eval("TermFactory.namedNode('" + XSD.integer.getURI() + "')"));
+		assertEquals("2", engine.eval("TermFactory.literal(1 + 1, xsdInteger).lex"));
+		engine.close();
+	}
+	
+	
+	@Test
+	public void testPoolClosesGraalEngines() throws Exception {
+		JSScriptEngineFactory oldFactory = JSScriptEngineFactory.get();
+		JSScriptEngineFactory.set(new JSScriptEngineFactory() {
+			@Override
+			public JSScriptEngine createScriptEngine() {
+				return new GraalJSScriptEngine();
+			}
+		});
+		SHACLScriptEngineManager.setMaxPoolSize(0);
+		try {
+			boolean nested = SHACLScriptEngineManager.begin();
+			JSScriptEngine engine = SHACLScriptEngineManager.getCurrentEngine();
+			SHACLScriptEngineManager.end(nested);
+			try {
+				engine.eval("1");
+				fail("Context of dropped engine must be closed");
+			}
+			catch(IllegalStateException ex) {
+				// Expected
+			}
+		}
+		finally {
+			SHACLScriptEngineManager.setMaxPoolSize(Runtime.getRuntime().availableProcessors());
+			JSScriptEngineFactory.set(oldFactory);
+		}
+	}
+	
+	
+	private static JSScriptEngine evalInBlock(Graph shapesGraph, String expr, Object expected) throws Exception {
+		boolean nested = SHACLScriptEngineManager.begin();
+		try {
+			JSScriptEngine engine = SHACLScriptEngineManager.getCurrentEngine(shapesGraph);
+			assertEquals(expected, engine.eval(expr));
+			return engine;
+		}
+		finally {
+			SHACLScriptEngineManager.end(nested);
+		}
+	}
+	
+	
+	@Test
+	public void testPoolByShapesGraph() throws Exception {
+		Graph graph1 = JenaUtil.createMemoryGraph();
+		Graph graph2 = JenaUtil.createMemoryGraph();
+		SHACLScriptEngineManager.clearPool();
+		JSScriptEngine engine = evalInBlock(graph1, "var leaked = true; typeof leaked", "boolean");
+		assertSame(engine, evalInBlock(graph1, "typeof leaked", "boolean"));
+		assertSame(engine, evalInBlock(graph2, "typeof leaked", "undefined"));
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.js;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.topbraid.shacl.js.graal.GraalJSScriptEngine;
+
+/**
+ * Checks that the libraries that are shared by the JSScriptEngines are reloaded when
+ * the scripts change, that resetVariables() forgets the parameters of redefined functions,
+ * and that reset() discards the libraries and any other global state.
+ */
+public class TestScriptCaches {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	
+	private static JSScriptEngine createEngine(boolean graal) {
+		return graal ? new GraalJSScriptEngine() : new NashornScriptEngine();
+	}
+	
+	
+	private static int asInt(Object value) {
+		return ((Number) value).intValue();
+	}
+	
+	
+	private void checkChangedScript(boolean graal) throws Exception {
+		File file = folder.newFile("lib.js");
+		String url = file.toURI().toString();
+		Files.write(file.toPath(), "function answer() { return 1; }".getBytes(StandardCharsets.UTF_8));
+		JSScriptEngine first = createEngine(graal);
+		first.executeScriptFromURL(url);
+		assertEquals(1, asInt(first.invokeFunctionOrdered("answer", new Object[0])));
+		
+		Files.write(file.toPath(), "function answer() { return 2; }".getBytes(StandardCharsets.UTF_8));
+		JSScriptEngine second = createEngine(graal);
+		second.executeScriptFromURL(url);
+		assertEquals(2, asInt(second.invokeFunctionOrdered("answer", new Object[0])));
+	}
+	
+	
+	private void checkReset(boolean graal) throws Exception {
+		JSScriptEngine engine = createEngine(graal);
+		engine.eval("function combine(a, b) { return 10 * a + b; }");
+		Map<String,Object> args = new HashMap<>();
+		args.put("a", 5);
+		args.put("b", 3);
+		assertEquals(53, asInt(engine.invokeFunctionWithArgs("combine", args)));
+		engine.resetVariables();
+		engine.eval("function combine(b, a) { return 10 * a + b; }");
+		assertEquals(53, asInt(engine.invokeFunctionWithArgs("combine", args)));
+	}
+	
+	
+	private void checkFullReset(boolean graal) throws Exception {
+		File file = folder.newFile("counter.js");
+		String url = file.toURI().toString();
+		Files.write(file.toPath(), "var counter = (typeof counter == 'undefined' ? 0 : counter) + 1;".getBytes(StandardCharsets.UTF_8));
+		JSScriptEngine engine = createEngine(graal);
+		engine.executeScriptFromURL(url);
+		engine.eval("TermFactory.registerNamespace('ex', 'http://example.org/ns#'); var leaked = true;");
+		assertEquals("http://example.org/ns#a", engine.eval("TermFactory.term('ex:a').uri"));
+		assertTrue(engine.reset());
+		assertEquals("undefined", engine.eval("typeof leaked"));
+		try {
+			engine.eval("TermFactory.term('ex:a')");
+			fail("Namespace must not survive reset()");
+		}
+		catch(Exception ex) {
+			// Expected
+		}
+		engine.executeScriptFromURL(url);
+		assertEquals(1, asInt(engine.eval("counter")));
+	}
+	
+	
+	@Test
+	public void testNashornChangedScript() throws Exception {
+		checkChangedScript(false);
+	}
+	
+	
+	@Test
+	public void testNashornReset() throws Exception {
+		checkReset(false);
+	}
+	
+	
+	@Test
+	public void testNashornSubclasses() throws Exception {
+		String url = "http://example.org/lib.js";
+		JSScriptEngine one = new NashornScriptEngine() {
+			@Override
+			protected Reader createScriptReader(String u) {
+				return new StringReader("function answer() { return 1; }");
+			}
+		};
+		one.executeScriptFromURL(url);
+		JSScriptEngine two = new NashornScriptEngine() {
+			@Override
+			protected Reader createScriptReader(String u) {
+				return new StringReader("function answer() { return 2; }");
+			}
+		};
+		two.executeScriptFromURL(url);
+		assertEquals(1, asInt(one.invokeFunctionOrdered("answer", new Object[0])));
+		assertEquals(2, asInt(two.invokeFunctionOrdered("answer", new Object[0])));
+	}
+	
+	
+	@Test
+	public void testNashornFullReset() throws Exception {
+		checkFullReset(false);
+	}
+	
+	
+	@Test
+	public void testGraalChangedScript() throws Exception {
+		checkChangedScript(true);
+	}
+	
+	
+	@Test
+	public void testGraalReset() throws Exception {
+		checkReset(true);
+	}
+	
+	
+	@Test
+	public void testGraalFullReset() throws Exception {
+		checkFullReset(true);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.js.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.js.JSGraph;
+import org.topbraid.shacl.js.SHACLScriptEngineManager;
+
+/**
+ * Checks the sharing of JSTerms and their life cycle.
+ */
+public class TestJSFactory {
+	
+	private final static Node A = NodeFactory.createURI(TurtleFixtures.EX + "a");
+	
+	
+	@Test
+	public void testSharedTerms() {
+		boolean nested = SHACLScriptEngineManager.begin();
+		try {
+			JSTerm term = JSFactory.asJSTerm(A);
+			assertSame(term, JSFactory.asJSTerm(A));
+			assertEquals(A, term.getNode());
+			
+			JSTerm literal = JSFactory.asJSTerm(NodeFactory.createLiteral("1", XSDDatatype.XSDinteger));
+			assertSame(JSFactory.asJSTerm(NodeFactory.createURI(XSDDatatype.XSDinteger.getURI())), literal.getDatatype());
+		}
+		finally {
+			SHACLScriptEngineManager.end(nested);
+		}
+	}
+	
+	
+	@Test
+	public void testEndClearsCache() {
+		boolean nested = SHACLScriptEngineManager.begin();
+		JSTerm term;
+		try {
+			term = JSFactory.asJSTerm(A);
+			boolean inner = SHACLScriptEngineManager.begin();
+			SHACLScriptEngineManager.end(inner);
+			assertSame(term, JSFactory.asJSTerm(A));
+		}
+		finally {
+			SHACLScriptEngineManager.end(nested);
+		}
+		assertNotSame(term, JSFactory.asJSTerm(A));
+		JSFactory.clearTermCache();
+	}
+	
+	
+	@Test
+	public void testFindAll() {
+		Graph graph = TurtleFixtures.parse(
+				"ex:a ex:p ex:b, ex:c .",
+				"ex:b ex:p ex:c .").getGraph();
+		JSGraph jsGraph = new JSGraph(graph, null);
+		JSTriple[] triples = jsGraph.findAll(JSFactory.asJSTerm(A), null, null);
+		assertEquals(2, triples.length);
+		for(JSTriple triple : triples) {
+			Triple t = Triple.create(triple.getSubject().getNode(), triple.getPredicate().getNode(), triple.getObject().getNode());
+			assertTrue(graph.contains(t));
+			assertSame(JSFactory.asJSTerm(A), triple.getSubject());
+		}
+		assertEquals(3, jsGraph.findAll(null, null, null).length);
+		JSFactory.clearTermCache();
+	}
+}
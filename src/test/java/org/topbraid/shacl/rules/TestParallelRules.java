@@ -0,0 +1,162 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.engine.Shape;
+
+/**
+ * Checks that the parallel execution of rules infers the same triples as the sequential execution,
+ * unless the stratified mode is activated.
+ */
+public class TestParallelRules {
+	
+	private final static String PREFIXES = "PREFIX ex: <" + TurtleFixtures.EX + ">\n";
+	
+	private final static ForkJoinPool POOL = new ForkJoinPool(4);
+	
+	private final static Property P = ResourceFactory.createProperty(TurtleFixtures.EX + "p");
+	
+	private final static Property Q = ResourceFactory.createProperty(TurtleFixtures.EX + "q");
+	
+	
+	// ex:Shape1 infers ex:p and ex:Shape2 infers ex:q from ex:p, with both shapes having the same sh:order
+	private static Model createDependentModel() {
+		return TurtleFixtures.parse(
+				"ex:Shape1 a sh:NodeShape ; sh:targetNode ex:a ;",
+				"	sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate ex:p ; sh:object true ] .",
+				"ex:Shape2 a sh:NodeShape ; sh:targetNode ex:a ;",
+				"	sh:rule [ a sh:SPARQLRule ; sh:construct \"\"\"" + PREFIXES + "CONSTRUCT { $this ex:q ?v } WHERE { $this ex:p ?v }\"\"\" ] .");
+	}
+	
+	
+	private static Model executeRules(Model model, boolean parallel, boolean stratified) throws InterruptedException {
+		RuleEngine engine = TurtleFixtures.createRuleEngine(model);
+		if(parallel) {
+			engine.setExecutor(POOL);
+		}
+		engine.setStratified(stratified);
+		engine.executeAll();
+		return engine.getInferencesModel();
+	}
+	
+	
+	@AfterClass
+	public static void shutdownPool() {
+		POOL.shutdown();
+	}
+	
+	
+	@Test
+	public void testSameOrder() throws InterruptedException {
+		Model sequential = executeRules(createDependentModel(), false, false);
+		assertEquals(1, sequential.size());
+		assertTrue(sequential.contains(null, P));
+		Model parallel = executeRules(createDependentModel(), true, false);
+		assertTrue(parallel.isIsomorphicWith(sequential));
+	}
+	
+	
+	@Test
+	public void testStratified() throws InterruptedException {
+		Model model = createDependentModel();
+		RuleEngine engine = TurtleFixtures.createRuleEngine(model);
+		engine.setExecutor(POOL);
+		engine.setStratified(true);
+		engine.executeAll();
+		Model stratified = engine.getInferencesModel();
+		
+		// ex:Shape2 only sees the inferences of ex:Shape1 if ex:Shape1 comes first in the sequential execution order
+		List<Node> shapes = new ArrayList<>();
+		for(Shape shape : engine.getShapesGraph().getRootShapes()) {
+			shapes.add(shape.getShapeResource().asNode());
+		}
+		boolean shape1First = shapes.indexOf(NodeFactory.createURI(TurtleFixtures.EX + "Shape1")) < shapes.indexOf(NodeFactory.createURI(TurtleFixtures.EX + "Shape2"));
+		assertEquals(shape1First ? 2 : 1, stratified.size());
+		assertEquals(shape1First, stratified.contains(null, Q));
+	}
+	
+	
+	@Test
+	public void testStratifiedTargetClass() throws InterruptedException {
+		// ex:Shape1 makes ex:a an instance of the target class of ex:Shape2
+		Model model = TurtleFixtures.parse(
+				"ex:Shape1 a sh:NodeShape ; sh:targetNode ex:a ;",
+				"	sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate rdf:type ; sh:object ex:Person ] .",
+				"ex:Shape2 a sh:NodeShape ; sh:targetClass ex:Person ;",
+				"	sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate ex:q ; sh:object true ] .");
+		RuleEngine engine = TurtleFixtures.createRuleEngine(model);
+		engine.setExecutor(POOL);
+		engine.setStratified(true);
+		engine.executeAll();
+		Model stratified = engine.getInferencesModel();
+		
+		List<Node> shapes = new ArrayList<>();
+		for(Shape shape : engine.getShapesGraph().getRootShapes()) {
+			shapes.add(shape.getShapeResource().asNode());
+		}
+		boolean shape1First = shapes.indexOf(NodeFactory.createURI(TurtleFixtures.EX + "Shape1")) < shapes.indexOf(NodeFactory.createURI(TurtleFixtures.EX + "Shape2"));
+		assertEquals(shape1First, stratified.contains(ResourceFactory.createResource(TurtleFixtures.EX + "a"), Q));
+	}
+	
+	
+	@Test
+	public void testRuleOrders() throws InterruptedException {
+		// The sequential mode adds the inferences of ex:Shape1 and of the first rule of ex:Shape2 before its second rule
+		Model model = TurtleFixtures.parse(
+				"ex:Shape1 a sh:NodeShape ; sh:targetNode ex:a ;",
+				"	sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate ex:p ; sh:object 1 ] .",
+				"ex:Shape2 a sh:NodeShape ; sh:targetNode ex:a ;",
+				"	sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate ex:p ; sh:object 2 ] ;",
+				"	sh:rule [ a sh:SPARQLRule ; sh:order 1 ; sh:construct \"\"\"" + PREFIXES + "CONSTRUCT { $this ex:q ?v } WHERE { $this ex:p ?v }\"\"\" ] .");
+		Model sequential = executeRules(model, false, false);
+		Model parallel = executeRules(model, true, false);
+		assertTrue(parallel.isIsomorphicWith(sequential));
+	}
+	
+	
+	@Test
+	public void testManyShapes() throws InterruptedException {
+		List<String> lines = new ArrayList<>();
+		for(int s = 0; s < 20; s++) {
+			lines.add("ex:S" + s + " a sh:NodeShape ; sh:targetClass ex:Person ; sh:order " + (s % 3) + " ;");
+			lines.add("	sh:rule [ a sh:SPARQLRule ; sh:construct \"\"\"" + PREFIXES + "CONSTRUCT { $this ex:q" + (s + 1) + " ?v } WHERE { $this ex:q" + s + " ?v }\"\"\" ] .");
+		}
+		for(int i = 0; i < 100; i++) {
+			lines.add("ex:p" + i + " a ex:Person ; ex:q" + (i % 20) + " " + i + " .");
+		}
+		Model model = TurtleFixtures.parse(lines.toArray(new String[0]));
+		Model sequential = executeRules(model, false, false);
+		Model parallel = executeRules(model, true, false);
+		assertTrue(sequential.size() > 100);
+		assertTrue(parallel.isIsomorphicWith(sequential));
+	}
+}
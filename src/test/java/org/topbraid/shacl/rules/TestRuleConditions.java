@@ -0,0 +1,123 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.rules;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.validation.NodeConformanceValidationReportSink;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Checks that the sh:conditions of rules, which are evaluated for all target nodes at once,
+ * select the same nodes as validating each node individually.
+ */
+public class TestRuleConditions {
+	
+	private final static int PERSONS = 60;
+	
+	private final static Property ADULT = ResourceFactory.createProperty(TurtleFixtures.EX + "adult");
+	
+	private final static Property DRIVER = ResourceFactory.createProperty(TurtleFixtures.EX + "driver");
+	
+	
+	private static Model createModel() {
+		List<String> lines = new ArrayList<>();
+		lines.add("ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;");
+		lines.add("	sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate ex:adult ; sh:object true ; sh:condition ex:AdultShape ] ;");
+		lines.add("	sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate ex:driver ; sh:object true ; sh:condition ex:AdultShape, ex:LicenseShape ] .");
+		lines.add("ex:AdultShape a sh:NodeShape ; sh:property [ sh:path ex:age ; sh:minCount 1 ; sh:minInclusive 18 ] .");
+		lines.add("ex:LicenseShape a sh:NodeShape ; sh:property [ sh:path ex:license ; sh:minCount 1 ; sh:node ex:ValidLicenseShape ] .");
+		lines.add("ex:ValidLicenseShape a sh:NodeShape ; sh:property [ sh:path ex:valid ; sh:hasValue true ] .");
+		for(int i = 0; i < PERSONS; i++) {
+			String age = i % 7 == 0 ? "" : " ; ex:age " + (i % 40);
+			String license = i % 3 == 0 ? "" : " ; ex:license [ ex:valid " + (i % 4 != 0) + " ]";
+			lines.add("ex:p" + i + " a ex:Person" + age + license + " .");
+		}
+		return TurtleFixtures.parse(lines.toArray(new String[0]));
+	}
+	
+	
+	private static boolean isAdult(int i) {
+		return i % 7 != 0 && i % 40 >= 18;
+	}
+	
+	
+	private static boolean hasValidLicense(int i) {
+		return i % 3 != 0 && i % 4 != 0;
+	}
+	
+	
+	@Test
+	public void testConditions() throws InterruptedException {
+		RuleEngine engine = TurtleFixtures.createRuleEngine(createModel());
+		engine.executeAll();
+		Set<String> adults = new TreeSet<>();
+		Set<String> drivers = new TreeSet<>();
+		for(int i = 0; i < PERSONS; i++) {
+			if(isAdult(i)) {
+				adults.add(TurtleFixtures.EX + "p" + i);
+				if(hasValidLicense(i)) {
+					drivers.add(TurtleFixtures.EX + "p" + i);
+				}
+			}
+		}
+		assertEquals(adults, getSubjects(engine.getInferencesModel(), ADULT));
+		assertEquals(drivers, getSubjects(engine.getInferencesModel(), DRIVER));
+	}
+	
+	
+	@Test
+	public void testValidateConformanceOfNodes() throws InterruptedException {
+		Model model = createModel();
+		List<RDFNode> persons = model.listSubjectsWithProperty(RDF.type, model.getResource(TurtleFixtures.EX + "Person")).mapWith(r -> (RDFNode) r).toList();
+		for(String shape : new String[] { "AdultShape", "LicenseShape" }) {
+			ValidationEngine engine = TurtleFixtures.createValidationEngine(model);
+			NodeConformanceValidationReportSink check = engine.validateConformanceOfNodes(persons, NodeFactory.createURI(TurtleFixtures.EX + shape), null);
+			for(RDFNode person : persons) {
+				Resource report = TurtleFixtures.createValidationEngine(model).validateNodesAgainstShape(
+						Collections.singletonList(person), NodeFactory.createURI(TurtleFixtures.EX + shape));
+				boolean conforms = !report.hasProperty(SH.result);
+				assertEquals(person + " against " + shape, conforms, check.getConforms(person.asNode()));
+			}
+		}
+	}
+	
+	
+	private static Set<String> getSubjects(Model model, Property predicate) {
+		Set<String> results = new TreeSet<>();
+		for(Resource subject : model.listSubjectsWithProperty(predicate).toList()) {
+			results.add(subject.getURI());
+		}
+		return results;
+	}
+}
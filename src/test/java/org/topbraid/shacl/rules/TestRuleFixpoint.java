@@ -0,0 +1,176 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.After;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.spin.statistics.SPINStatistics;
+import org.topbraid.spin.statistics.SPINStatisticsManager;
+
+/**
+ * Checks that the fixpoint mode of the RuleEngine infers the same triples as repeated executions
+ * of all rules, while skipping the rules that cannot produce anything new.
+ */
+public class TestRuleFixpoint {
+	
+	private final static int CHAIN = 10;
+	
+	private final static Property ANCESTOR = ResourceFactory.createProperty(TurtleFixtures.EX + "ancestor");
+	
+	private final static String PREFIXES = "PREFIX ex: <" + TurtleFixtures.EX + ">\n";
+	
+	
+	// A chain of ex:parent triples and rules that compute ex:ancestor as their transitive closure
+	private static Model createAncestorModel() {
+		List<String> lines = new ArrayList<>();
+		lines.add("ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;");
+		lines.add("	sh:rule ex:ParentRule, ex:AncestorRule .");
+		lines.add("ex:ParentRule a sh:SPARQLRule ; sh:construct \"\"\"" + PREFIXES + "CONSTRUCT { $this ex:ancestor ?p } WHERE { $this ex:parent ?p }\"\"\" .");
+		lines.add("ex:AncestorRule a sh:SPARQLRule ; sh:order 1 ; sh:construct \"\"\"" + PREFIXES + "CONSTRUCT { $this ex:ancestor ?a } WHERE { $this ex:parent/ex:ancestor ?a }\"\"\" .");
+		for(int i = 0; i < CHAIN; i++) {
+			lines.add("ex:p" + i + " a ex:Person" + (i > 0 ? " ; ex:parent ex:p" + (i - 1) : "") + " .");
+		}
+		return TurtleFixtures.parse(lines.toArray(new String[0]));
+	}
+	
+	
+	@After
+	public void stopRecording() {
+		SPINStatisticsManager.get().setRecording(false);
+		SPINStatisticsManager.get().reset();
+	}
+	
+	
+	@Test
+	public void testTransitiveClosure() throws InterruptedException {
+		
+		// Naive: repeat all rules for all target nodes until nothing changes
+		RuleEngine naive = TurtleFixtures.createRuleEngine(createAncestorModel());
+		long oldSize;
+		do {
+			oldSize = naive.getInferencesModel().size();
+			naive.executeAll();
+		}
+		while(naive.getInferencesModel().size() > oldSize);
+		assertEquals(CHAIN * (CHAIN - 1) / 2, naive.getInferencesModel().size());
+		
+		RuleEngine engine = TurtleFixtures.createRuleEngine(createAncestorModel());
+		engine.setFixpoint(true);
+		SPINStatisticsManager.get().setRecording(true);
+		engine.executeAll();
+		assertTrue(engine.getInferencesModel().isIsomorphicWith(naive.getInferencesModel()));
+		
+		// ex:ParentRule does not read ex:ancestor and there are no new target nodes after the first iteration
+		assertEquals(1, countExecutions("ParentRule"));
+		assertTrue(countExecutions("AncestorRule") > 1);
+	}
+	
+	
+	@Test
+	public void testWithoutFixpoint() throws InterruptedException {
+		RuleEngine engine = TurtleFixtures.createRuleEngine(createAncestorModel());
+		engine.executeAll();
+		assertTrue(engine.getInferencesModel().size() < CHAIN * (CHAIN - 1) / 2);
+	}
+	
+	
+	@Test
+	public void testNewTargetNodes() throws InterruptedException {
+		Model model = TurtleFixtures.parse(
+				"ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;",
+				"	sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate ex:checked ; sh:object true ] .",
+				"ex:HumanShape a sh:NodeShape ; sh:targetClass ex:Human ;",
+				"	sh:rule [ a sh:TripleRule ; sh:subject sh:this ; sh:predicate rdf:type ; sh:object ex:Person ] .",
+				"ex:alice a ex:Person .",
+				"ex:bob a ex:Human .",
+				"ex:carol a ex:Human .");
+		RuleEngine engine = TurtleFixtures.createRuleEngine(model);
+		engine.setFixpoint(true);
+		engine.executeAll();
+		Property checked = ResourceFactory.createProperty(TurtleFixtures.EX + "checked");
+		assertEquals(3, engine.getInferencesModel().listSubjectsWithProperty(checked).toList().size());
+		assertEquals(2, engine.getInferencesModel().listSubjectsWithProperty(RDF.type).toList().size());
+	}
+	
+	
+	@Test
+	public void testMaxIterations() throws InterruptedException {
+		// Every iteration produces a new target node
+		Model model = TurtleFixtures.parse(
+				"ex:NextShape a sh:NodeShape ; sh:targetSubjectsOf ex:next ;",
+				"	sh:rule [ a sh:SPARQLRule ; sh:construct \"\"\"" + PREFIXES + "CONSTRUCT { ?n ex:next $this } WHERE { BIND (BNODE() AS ?n) }\"\"\" ] .",
+				"ex:start ex:next ex:end .");
+		RuleEngine engine = TurtleFixtures.createRuleEngine(model);
+		engine.setFixpoint(true);
+		engine.setMaxIterations(5);
+		engine.executeAll();
+		assertEquals(5, engine.getInferencesModel().size());
+	}
+	
+	
+	@Test
+	public void testReadPredicates() {
+		assertEquals(nodes("p", "q", "r"), QueryAnalysis.getReadPredicates(QueryFactory.create(PREFIXES +
+				"CONSTRUCT { $this ex:s ?y } WHERE { $this ex:p ?x . ?x ex:q/^ex:r ?y . FILTER EXISTS { ?y ex:p ?z } }")));
+		assertNull(QueryAnalysis.getReadPredicates(QueryFactory.create(PREFIXES +
+				"CONSTRUCT { $this ex:s ?y } WHERE { $this ?p ?y }")));
+		assertNull(QueryAnalysis.getReadPredicates(QueryFactory.create(PREFIXES +
+				"CONSTRUCT { $this ex:s ?y } WHERE { $this ex:p ?y . FILTER ex:myFunction(?y) }")));
+		assertEquals(nodes("s", "t"), QueryAnalysis.getWrittenPredicates(QueryFactory.create(PREFIXES +
+				"CONSTRUCT { $this ex:s ?y . ?y ex:t $this } WHERE { $this ?p ?y }")));
+		assertNull(QueryAnalysis.getWrittenPredicates(QueryFactory.create(PREFIXES +
+				"CONSTRUCT { $this ?p ?y } WHERE { $this ?p ?y }")));
+	}
+	
+	
+	private static int countExecutions(String localName) {
+		Node rule = NodeFactory.createURI(TurtleFixtures.EX + localName);
+		int count = 0;
+		for(SPINStatistics stats : SPINStatisticsManager.get().getStatistics()) {
+			if(rule.equals(stats.getContext())) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	
+	private static Set<Node> nodes(String... localNames) {
+		Set<Node> results = new HashSet<>();
+		for(String localName : localNames) {
+			results.add(NodeFactory.createURI(TurtleFixtures.EX + localName));
+		}
+		return results;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.After;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.validation.sparql.SPARQLSubstitutions;
+
+/**
+ * Checks that executing SPARQL rules for batches of focus nodes infers the same triples as
+ * executing them once per focus node.
+ */
+public class TestSPARQLRuleBatching {
+	
+	private final static int PERSONS = 450;
+	
+	private final static String PREFIXES = "PREFIX ex: <" + TurtleFixtures.EX + ">\n";
+	
+	private final static int OLD_BATCH_SIZE = SPARQLRule.batchSize;
+	
+	
+	private static Model createModel(String... constructs) {
+		List<String> lines = new ArrayList<>();
+		lines.add("ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person .");
+		for(String construct : constructs) {
+			lines.add("ex:PersonShape sh:rule [ a sh:SPARQLRule ; sh:construct \"\"\"" + PREFIXES + construct + "\"\"\" ] .");
+		}
+		for(int i = 0; i < PERSONS; i++) {
+			lines.add("ex:p" + i + " a ex:Person ; ex:age " + (i % 90) + (i % 3 == 0 ? "" : " ; ex:friend ex:p" + ((i * 7) % PERSONS)) + " .");
+		}
+		return TurtleFixtures.parse(lines.toArray(new String[0]));
+	}
+	
+	
+	private static Model executeRules(Model model, int batchSize) throws InterruptedException {
+		SPARQLRule.batchSize = batchSize;
+		RuleEngine engine = TurtleFixtures.createRuleEngine(model);
+		engine.executeAll();
+		return engine.getInferencesModel();
+	}
+	
+	
+	private static void assertSameInferences(String... constructs) throws InterruptedException {
+		Model model = createModel(constructs);
+		Model batched = executeRules(model, OLD_BATCH_SIZE);
+		Model single = executeRules(model, 1);
+		assertFalse(single.isEmpty());
+		assertEquals(single.size(), batched.size());
+		assertTrue(single.isIsomorphicWith(batched));
+	}
+	
+	
+	@After
+	public void restoreBatchSize() {
+		SPARQLRule.batchSize = OLD_BATCH_SIZE;
+	}
+	
+	
+	@Test
+	public void testSimplePatterns() throws InterruptedException {
+		assertSameInferences(
+				"CONSTRUCT { $this ex:adult true } WHERE { $this ex:age ?age . FILTER (?age >= 18) }",
+				"CONSTRUCT { ?f ex:friendOf $this } WHERE { $this ex:friend ?f }");
+	}
+	
+	
+	@Test
+	public void testOptionalAndNegation() throws InterruptedException {
+		assertSameInferences(
+				"CONSTRUCT { $this ex:label ?label } WHERE { OPTIONAL { $this ex:friend ?f } BIND (COALESCE(STR(?f), \"none\") AS ?label) }",
+				"CONSTRUCT { $this ex:lonely true } WHERE { FILTER NOT EXISTS { ?other ex:friend $this } }");
+	}
+	
+	
+	@Test
+	public void testBlankNodes() throws InterruptedException {
+		assertSameInferences(
+				"CONSTRUCT { $this ex:record _:r . _:r ex:age ?age } WHERE { $this ex:age ?age }");
+	}
+	
+	
+	@Test
+	public void testSubQuery() throws InterruptedException {
+		assertSameInferences(
+				"CONSTRUCT { $this ex:friendCount ?c } WHERE { { SELECT $this (COUNT(?f) AS ?c) WHERE { $this ex:friend ?f } GROUP BY $this } }");
+	}
+	
+	
+	@Test
+	public void testCorrelatedSubQuery() throws InterruptedException {
+		String construct = "CONSTRUCT { $this ex:friendCount ?c } WHERE { $this a ex:Person { SELECT (COUNT(?f) AS ?c) WHERE { $this ex:friend ?f } } }";
+		assertNull(createBatchQuery(construct));
+		Model model = createModel(construct);
+		assertTrue(executeRules(model, OLD_BATCH_SIZE).isIsomorphicWith(executeRules(model, 1)));
+		Model inferences = executeRules(model, OLD_BATCH_SIZE);
+		Resource p0 = model.getResource(TurtleFixtures.EX + "p0");
+		Resource p1 = model.getResource(TurtleFixtures.EX + "p1");
+		Property friendCount = model.getProperty(TurtleFixtures.EX + "friendCount");
+		assertEquals(0, inferences.getRequiredProperty(p0, friendCount).getInt());
+		assertEquals(1, inferences.getRequiredProperty(p1, friendCount).getInt());
+	}
+	
+	
+	@Test
+	public void testUnsupportedQueries() throws InterruptedException {
+		assertNull(createBatchQuery("CONSTRUCT { $this ex:some ?f } WHERE { $this ex:friend ?f } LIMIT 1"));
+		assertNull(createBatchQuery("CONSTRUCT { $this ex:some ?f } WHERE { $this ex:friend ?f } VALUES ?f { ex:p0 }"));
+		assertNull(createBatchQuery("CONSTRUCT { $this ex:some ?f } WHERE { ?f ex:age ?age OPTIONAL { $this ex:friend ?f } }"));
+		assertNotNull(createBatchQuery("CONSTRUCT { $this ex:some ?f } WHERE { $this ex:friend ?f }"));
+		
+		// These fall back to one query per focus node
+		assertSameInferences(
+				"CONSTRUCT { $this ex:some ?f } WHERE { $this ex:friend ?f } LIMIT 1");
+	}
+	
+	
+	private static Query createBatchQuery(String construct) {
+		return SPARQLSubstitutions.createBatchQuery(QueryFactory.create(PREFIXES + construct));
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.junit.After;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.ValidationReports;
+
+/**
+ * Checks that nested shape conformance checks are only performed once per (node, shape) pair.
+ */
+public class TestConformanceCache {
+	
+	// Six persons with either ex:Hub or ex:Nobody as friend, and one result each
+	private final static Model MODEL = TurtleFixtures.read("sh/tests/core/property/node-003.test.ttl");
+	
+	private final static String NS = "http://datashapes.org/sh/tests/core/property/node-003.test#";
+	
+	private final static int PERSONS = 6;
+	
+	
+	@After
+	public void restoreNative() {
+		ConstraintExecutors.get().setNativePreferred(true);
+	}
+	
+	
+	@Test
+	public void testNestedChecksAreMemoized() throws InterruptedException {
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(MODEL);
+		List<String> results = ValidationReports.describeResults(engine.validateAll());
+		assertEquals(PERSONS, results.size());
+		
+		ConformanceCache cache = engine.getConformanceCache();
+		assertEquals(2, cache.size());
+		assertEquals(Boolean.TRUE, cache.get(NodeFactory.createURI(NS + "Hub"), NodeFactory.createURI(NS + "NamedShape")).getConforms());
+		assertEquals(Boolean.FALSE, cache.get(NodeFactory.createURI(NS + "Nobody"), NodeFactory.createURI(NS + "NamedShape")).getConforms());
+	}
+	
+	
+	@Test
+	public void testSPARQLValidatorsUseCache() throws InterruptedException {
+		List<String> nativeResults = ValidationReports.describeResults(TurtleFixtures.createValidationEngine(MODEL).validateAll());
+		ConstraintExecutors.get().setNativePreferred(false);
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(MODEL);
+		List<String> sparqlResults = ValidationReports.describeResults(engine.validateAll());
+		assertEquals(nativeResults.size(), sparqlResults.size());
+		assertEquals(2, engine.getConformanceCache().size());
+	}
+}
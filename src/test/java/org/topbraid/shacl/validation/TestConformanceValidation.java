@@ -0,0 +1,84 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Checks the early-exit conformance checks of ValidationEngine.
+ */
+public class TestConformanceValidation {
+	
+	private final static String SHAPES =
+			"ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;\n" +
+			"	sh:property [ sh:path ex:name ; sh:minCount 1 ] .\n" +
+			"ex:NicknameShape a sh:NodeShape ; sh:targetClass ex:Person ; sh:severity sh:Warning ;\n" +
+			"	sh:property [ sh:path ex:nickname ; sh:minCount 1 ; sh:severity sh:Warning ] .";
+	
+	
+	@Test
+	public void testConforms() throws InterruptedException {
+		Model model = TurtleFixtures.parse(SHAPES, "ex:a a ex:Person ; ex:name \"A\" ; ex:nickname \"a\" .");
+		assertNull(TurtleFixtures.createValidationEngine(model).validateConformance(null));
+	}
+	
+	
+	@Test
+	public void testViolation() throws InterruptedException {
+		Model model = TurtleFixtures.parse(SHAPES, "ex:a a ex:Person ; ex:nickname \"a\" .", "ex:b a ex:Person ; ex:nickname \"b\" .");
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(model);
+		Resource result = engine.validateConformance(SH.Violation);
+		assertNotNull(result);
+		assertEquals(SH.MinCountConstraintComponent, result.getPropertyResourceValue(SH.sourceConstraintComponent));
+		assertFalse(engine.getReport().hasProperty(SH.result));
+	}
+	
+	
+	@Test
+	public void testMinSeverity() throws InterruptedException {
+		Model model = TurtleFixtures.parse(SHAPES, "ex:a a ex:Person ; ex:name \"A\" .");
+		assertNull(TurtleFixtures.createValidationEngine(model).validateConformance(SH.Violation));
+		Resource warning = TurtleFixtures.createValidationEngine(model).validateConformance(SH.Warning);
+		assertNotNull(warning);
+		assertEquals(SH.Warning, warning.getPropertyResourceValue(SH.resultSeverity));
+	}
+	
+	
+	@Test
+	public void testNodesAgainstShape() {
+		Model model = TurtleFixtures.parse(SHAPES, "ex:a a ex:Person ; ex:name \"A\" .", "ex:b a ex:Person .");
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(model);
+		List<RDFNode> a = Arrays.asList(model.getResource(TurtleFixtures.EX + "a"));
+		List<RDFNode> ab = Arrays.asList(model.getResource(TurtleFixtures.EX + "a"), model.getResource(TurtleFixtures.EX + "b"));
+		assertNull(engine.validateConformance(a, NodeFactory.createURI(TurtleFixtures.EX + "PersonShape"), null));
+		assertNotNull(engine.validateConformance(ab, NodeFactory.createURI(TurtleFixtures.EX + "PersonShape"), null));
+	}
+}
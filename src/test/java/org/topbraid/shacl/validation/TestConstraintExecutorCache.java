@@ -0,0 +1,135 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.compose.MultiUnion;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.engine.Constraint;
+import org.topbraid.shacl.engine.ShapesGraph;
+import org.topbraid.shacl.util.SHACLSystemModel;
+import org.topbraid.shacl.validation.profiling.ValidationProfiler;
+import org.topbraid.shacl.validation.profiling.ValidationProfiler.CacheStatistics;
+
+/**
+ * Checks the scope of the executors in a ConstraintExecutorCache.
+ */
+public class TestConstraintExecutorCache {
+	
+	private final static Model MODEL = TurtleFixtures.parse(
+			"ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;",
+			"	sh:sparql [ sh:select \"SELECT $this WHERE { $this a <http://example.org/ns#Robot> }\" ] .");
+	
+	
+	private static Constraint getConstraint(ShapesGraph shapesGraph) {
+		return shapesGraph.getShape(ResourceFactory.createResource(TurtleFixtures.EX + "PersonShape").asNode()).getConstraints().iterator().next();
+	}
+	
+	
+	@Test
+	public void testSharedWithinShapesGraph() {
+		ConstraintExecutorCache cache = new ConstraintExecutorCache();
+		ShapesGraph shapesGraph = ValidationUtil.createShapesGraph(MODEL, false);
+		Constraint constraint = getConstraint(shapesGraph);
+		ConstraintExecutor executor = cache.getExecutor(constraint, TurtleFixtures.createValidationEngine(MODEL, shapesGraph));
+		assertNotNull(executor);
+		assertSame(executor, cache.getExecutor(constraint, TurtleFixtures.createValidationEngine(MODEL, shapesGraph)));
+	}
+	
+	
+	@Test
+	public void testSharedAcrossShapesGraphs() {
+		ConstraintExecutorCache cache = new ConstraintExecutorCache();
+		ShapesGraph shapesGraph1 = ValidationUtil.createShapesGraph(MODEL, false);
+		ShapesGraph shapesGraph2 = ValidationUtil.createShapesGraph(MODEL, false);
+		assertSame(
+				cache.getExecutor(getConstraint(shapesGraph1), TurtleFixtures.createValidationEngine(MODEL, shapesGraph1)),
+				cache.getExecutor(getConstraint(shapesGraph2), TurtleFixtures.createValidationEngine(MODEL, shapesGraph2)));
+	}
+	
+	
+	@Test
+	public void testSharedAcrossValidateModelCalls() {
+		ValidationProfiler oldProfiler = ValidationProfiler.get();
+		ValidationProfiler profiler = new ValidationProfiler();
+		profiler.setEnabled(true);
+		ValidationProfiler.set(profiler);
+		try {
+			Model shapesModel = TurtleFixtures.parse(
+					"ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;",
+					"	sh:sparql [ sh:select \"SELECT $this WHERE { $this a <http://example.org/ns#Robot> }\" ] .");
+			Model dataModel = TurtleFixtures.parse("ex:Alice a ex:Person, ex:Robot .");
+			ValidationUtil.validateModel(dataModel, shapesModel, false);
+			CacheStatistics stats = profiler.getCaches().get("ConstraintExecutorCache");
+			assertEquals(0, stats.getHitCount());
+			long misses = stats.getMissCount();
+			ValidationUtil.validateModel(dataModel, shapesModel, false);
+			assertTrue(stats.getHitCount() > 0);
+			assertEquals(misses, stats.getMissCount());
+		}
+		finally {
+			ValidationProfiler.set(oldProfiler);
+		}
+	}
+	
+	
+	@Test
+	public void testInvalidatedOnChange() {
+		ConstraintExecutorCache cache = new ConstraintExecutorCache();
+		Model shapesModel = ModelFactory.createDefaultModel().add(MODEL);
+		ShapesGraph shapesGraph = ValidationUtil.createShapesGraph(shapesModel, false);
+		Constraint constraint = getConstraint(shapesGraph);
+		ConstraintExecutor executor = cache.getExecutor(constraint, TurtleFixtures.createValidationEngine(MODEL, shapesGraph));
+		shapesModel.add(OWL.Thing, RDF.type, OWL.Class);
+		assertNotSame(executor, cache.getExecutor(constraint, TurtleFixtures.createValidationEngine(MODEL, shapesGraph)));
+	}
+	
+	
+	@Test
+	public void testShapesGraphNotRetained() throws InterruptedException {
+		ConstraintExecutorCache cache = new ConstraintExecutorCache();
+		Model shapesModel = ModelFactory.createDefaultModel().add(MODEL);
+		ShapesGraph shapesGraph = new ShapesGraph(ModelFactory.createModelForGraph(new MultiUnion(new Graph[] {
+				SHACLSystemModel.getSHACLModel().getGraph(),
+				shapesModel.getGraph()
+		})));
+		assertNotNull(cache.getExecutor(getConstraint(shapesGraph), TurtleFixtures.createValidationEngine(MODEL, shapesGraph)));
+		WeakReference<Graph> ref = new WeakReference<>(shapesModel.getGraph());
+		shapesModel = null;
+		shapesGraph = null;
+		for(int i = 0; i < 50 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(ref.get());
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.rdf.model.Model;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.ValidationReports;
+import org.topbraid.spin.util.JenaUtil;
+
+/**
+ * Checks that validateIncrementally produces the same results as a full validateAll.
+ */
+public class TestIncrementalValidation {
+	
+	private static void assertSameAsFull(Model model, Model added, Model removed) throws InterruptedException {
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(model);
+		engine.validateAll();
+		model.add(added);
+		model.remove(removed);
+		List<String> incremental = ValidationReports.describeResults(engine.validateIncrementally(added.getGraph(), removed.getGraph()));
+		List<String> full = ValidationReports.describeResults(TurtleFixtures.createValidationEngine(model).validateAll());
+		assertEquals(full, incremental);
+	}
+	
+	
+	@Test
+	public void testSPARQLTarget() throws InterruptedException {
+		Model model = TurtleFixtures.parse(
+				"ex:FlaggedShape a sh:NodeShape ;",
+				"	sh:target [ a sh:SPARQLTarget ; sh:select \"SELECT ?this WHERE { ?this <http://example.org/ns#flag> true }\" ] ;",
+				"	sh:property [ sh:path ex:name ; sh:minCount 1 ] .",
+				"ex:b ex:flag true ; ex:name \"B\" .");
+		Model added = TurtleFixtures.parse("ex:a ex:flag true .");
+		assertSameAsFull(model, added, JenaUtil.createMemoryModel());
+		
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(model);
+		assertEquals(1, ValidationReports.describeResults(engine.validateAll()).size());
+	}
+	
+	
+	@Test
+	public void testPathsAndTargetClasses() throws InterruptedException {
+		Model model = TurtleFixtures.parse(
+				"ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;",
+				"	sh:property [ sh:path ( ex:friend ex:name ) ; sh:minCount 1 ] ;",
+				"	sh:property [ sh:path [ sh:inversePath ex:parent ] ; sh:maxCount 1 ] .",
+				"ex:a a ex:Person ; ex:friend ex:b .",
+				"ex:b ex:name \"B\" .",
+				"ex:c a ex:Person ; ex:friend ex:d .",
+				"ex:x ex:parent ex:c .");
+		Model added = TurtleFixtures.parse(
+				"ex:d ex:name \"D\" .",
+				"ex:e a ex:Person .",
+				"ex:y ex:parent ex:c .");
+		Model removed = TurtleFixtures.parse("ex:b ex:name \"B\" .");
+		assertSameAsFull(model, added, removed);
+	}
+	
+	
+	@Test
+	public void testNoChanges() throws InterruptedException {
+		Graph empty = JenaUtil.createMemoryModel().getGraph();
+		Model model = TurtleFixtures.parse(
+				"ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;",
+				"	sh:property [ sh:path ex:name ; sh:minCount 1 ] .",
+				"ex:a a ex:Person .");
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(model);
+		List<String> before = ValidationReports.describeResults(engine.validateAll());
+		assertEquals(before, ValidationReports.describeResults(engine.validateIncrementally(empty, empty)));
+	}
+	
+	
+	@Test
+	public void testRedundantAddThenRemove() throws InterruptedException {
+		Model model = TurtleFixtures.parse(
+				"ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;",
+				"	sh:property [ sh:path ex:name ; sh:minCount 1 ] .",
+				"ex:a a ex:Person ; ex:name \"A\" .");
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(model);
+		assertEquals(0, ValidationReports.describeResults(engine.validateAll()).size());
+		GraphDelta delta = new GraphDelta();
+		model.register(delta);
+		Model name = TurtleFixtures.parse("ex:a ex:name \"A\" .");
+		model.add(name);
+		model.remove(name);
+		List<String> incremental = ValidationReports.describeResults(engine.validateIncrementally(delta.getAdded(), delta.getRemoved()));
+		List<String> full = ValidationReports.describeResults(TurtleFixtures.createValidationEngine(model).validateAll());
+		assertEquals(1, full.size());
+		assertEquals(full, incremental);
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Checks the lifecycle of ValidationReportSinks.
+ */
+public class TestValidationReportSinks {
+	
+	// A DASH test case with 21 expected results, five of them for ex:rex
+	private final static Model MODEL = TurtleFixtures.read("sh/tests/core/targets/multipleTargets-002.test.ttl");
+	
+	private final static String NS = "http://datashapes.org/sh/tests/core/targets/multipleTargets-002.test#";
+	
+	private final static int RESULTS = MODEL.getResource(NS + "GraphValidationTestCase").getPropertyResourceValue(DASH.expectedResult).listProperties(SH.result).toList().size();
+	
+	
+	private static class RecordingSink extends CountingValidationReportSink {
+		
+		int finished;
+		
+		@Override
+		public void finish(Resource report) {
+			super.finish(report);
+			finished++;
+		}
+	}
+	
+	
+	@Test
+	public void testValidateAll() throws InterruptedException {
+		RecordingSink sink = new RecordingSink();
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(MODEL);
+		engine.setReportSink(sink);
+		Resource report = engine.validateAll();
+		assertEquals(RESULTS, sink.getCount());
+		assertEquals(1, sink.finished);
+		assertTrue(report.hasLiteral(SH.conforms, false));
+		assertEquals(0, report.listProperties(SH.result).toList().size());
+	}
+	
+	
+	@Test
+	public void testValidateAllParallel() throws InterruptedException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			RecordingSink sink = new RecordingSink();
+			ValidationEngine engine = TurtleFixtures.createValidationEngine(MODEL);
+			engine.setParallelExecutor(pool);
+			engine.setPartitionSize(2);
+			engine.setReportSink(sink);
+			engine.validateAll();
+			assertEquals(RESULTS, sink.getCount());
+			assertEquals(1, sink.finished);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
+	
+	@Test
+	public void testValidateNode() throws InterruptedException {
+		RecordingSink sink = new RecordingSink();
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(MODEL);
+		engine.setReportSink(sink);
+		engine.validateNode(NodeFactory.createURI(NS + "rex"));
+		assertEquals(5, sink.getCount());
+		assertEquals(1, sink.finished);
+	}
+	
+	
+	@Test
+	public void testValidateNodesAgainstShape() {
+		RecordingSink sink = new RecordingSink();
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(MODEL);
+		engine.setReportSink(sink);
+		Node shape = NodeFactory.createURI(NS + "ClassShape");
+		List<RDFNode> focusNodes = Collections.singletonList(MODEL.getResource(NS + "rex"));
+		engine.validateNodesAgainstShape(focusNodes, shape);
+		assertEquals(1, sink.getCount());
+		assertEquals(1, sink.finished);
+	}
+	
+	
+	@Test
+	public void testLimited() throws InterruptedException {
+		RecordingSink delegate = new RecordingSink();
+		LimitedValidationReportSink sink = new LimitedValidationReportSink(delegate, 5);
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(MODEL);
+		engine.setReportSink(sink);
+		engine.validateAll();
+		assertEquals(5, delegate.getCount());
+		assertEquals(1, delegate.finished);
+		assertTrue(sink.isDone());
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.After;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.validation.ConstraintExecutors;
+import org.topbraid.shacl.validation.ValidationUtil;
+import org.topbraid.shacl.validation.sparql.AbstractSPARQLExecutor;
+import org.topbraid.shacl.vocabulary.DASH;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Checks that the native executors produce the same result messages and success results as the SPARQL validators.
+ */
+public class TestNativeConstraintExecutors {
+	
+	// The shapes and expected results are in the DASH test suite, which runs them with both kinds of executors
+	private final static Model MODEL = TurtleFixtures.read("sh/tests/core/complex/components-001.test.ttl");
+	
+	private final static Model COUNT_MODEL = TurtleFixtures.read("sh/tests/core/property/maxCount-003.test.ttl");
+	
+	
+	@After
+	public void restoreNative() {
+		ConstraintExecutors.get().setNativePreferred(true);
+		AbstractSPARQLExecutor.createSuccessResults = false;
+	}
+	
+	
+	@Test
+	public void testMessagesMatchSPARQLValidators() {
+		Set<String> nativeMessages = getMessages();
+		ConstraintExecutors.get().setNativePreferred(false);
+		Set<String> sparqlMessages = getMessages();
+		assertFalse(nativeMessages.isEmpty());
+		assertEquals(sparqlMessages, nativeMessages);
+	}
+	
+	
+	@Test
+	public void testClassAndXoneMessages() {
+		Set<String> messages = getMessages();
+		assertEquals(1, messages.stream().filter(m -> m.startsWith("ClassShape-p: Value does not have class")).count());
+		assertEquals(1, messages.stream().filter(m -> m.equals("XoneShape-p: Value node has 0 of the shapes from the 'exactly one' list")).count());
+		assertEquals(1, messages.stream().filter(m -> m.equals("XoneNodeShape: Focus node has 0 of the shapes from the 'exactly one' list")).count());
+	}
+	
+	
+	@Test
+	public void testSuccessResults() {
+		AbstractSPARQLExecutor.createSuccessResults = true;
+		Set<String> nativeSuccesses = getSuccesses();
+		assertEquals(3, nativeSuccesses.size());
+		assertTrue(nativeSuccesses.contains("a MinCountConstraintComponent"));
+		assertTrue(nativeSuccesses.contains("a MaxCountConstraintComponent"));
+		assertTrue(nativeSuccesses.contains("b MaxCountConstraintComponent"));
+		ConstraintExecutors.get().setNativePreferred(false);
+		assertEquals(getSuccesses(), nativeSuccesses);
+	}
+	
+	
+	// Returns "<focus node local name> <component local name>" for each dash:SuccessResult
+	private static Set<String> getSuccesses() {
+		Resource report = ValidationUtil.validateModel(COUNT_MODEL, COUNT_MODEL, false);
+		Set<String> successes = new TreeSet<>();
+		for(Resource result : report.getModel().listSubjectsWithProperty(RDF.type, DASH.SuccessResult).toList()) {
+			successes.add(result.getPropertyResourceValue(SH.focusNode).getLocalName() + " " +
+					result.getPropertyResourceValue(SH.sourceConstraintComponent).getLocalName());
+		}
+		return successes;
+	}
+	
+	
+	// Returns "<local name of the source shape>: <message>" for each result
+	private static Set<String> getMessages() {
+		Resource report = ValidationUtil.validateModel(MODEL, MODEL, false);
+		Set<String> messages = new TreeSet<>();
+		for(Statement s : report.getModel().listStatements(null, SH.resultMessage, (Resource)null).toList()) {
+			Resource shape = s.getSubject().getPropertyResourceValue(SH.sourceShape);
+			messages.add(shape.getLocalName() + ": " + s.getString());
+		}
+		return messages;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.js;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Checks that the batches of dash:jsBatch functions are limited by the batch size,
+ * also if a single focus node has more value nodes.
+ */
+public class TestJSBatchSize {
+	
+	private final static int OLD_BATCH_SIZE = AbstractJSExecutor.getBatchSize();
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	
+	@After
+	public void restoreBatchSize() {
+		AbstractJSExecutor.setBatchSize(OLD_BATCH_SIZE);
+	}
+	
+	
+	@Test
+	public void testValueNodesOfOneFocusNode() throws Exception {
+		File file = folder.newFile("batch.js");
+		Files.write(file.toPath(), ("function batchSizes($value) {\n" +
+				"	return $value.map(function(value) { return '' + $value.length; });\n" +
+				"}").getBytes(StandardCharsets.UTF_8));
+		Model model = TurtleFixtures.parse(
+				"@prefix dash: <http://datashapes.org/dash#> .",
+				"ex:BatchConstraintComponent a sh:ConstraintComponent ;",
+				"	sh:parameter [ sh:path ex:batch ] ;",
+				"	sh:validator [ a sh:JSValidator ; sh:jsFunctionName \"batchSizes\" ; dash:jsBatch true ;",
+				"		sh:jsLibrary [ sh:jsLibraryURL \"" + file.toURI() + "\" ] ] .",
+				"ex:TestShape a sh:PropertyShape ; sh:targetNode ex:a, ex:b ; sh:path ex:value ; ex:batch true .",
+				"ex:a ex:value 1, 2, 3, 4, 5 .",
+				"ex:b ex:value 6 .");
+		AbstractJSExecutor.setBatchSize(2);
+		Resource report = TurtleFixtures.createValidationEngine(model).validateAll();
+		List<String> sizes = new ArrayList<>();
+		for(Statement s : report.listProperties(SH.result).toList()) {
+			sizes.add(s.getResource().getProperty(SH.resultMessage).getString());
+		}
+		Collections.sort(sizes);
+		assertEquals(6, sizes.size());
+		assertEquals("[2, 2, 2, 2, 2, 2]", sizes.toString());
+	}
+	
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBatchSize() {
+		AbstractJSExecutor.setBatchSize(0);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.profiling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.validation.ValidationEngine;
+import org.topbraid.shacl.vocabulary.SH;
+import org.topbraid.shacl.vocabulary.SHPROF;
+
+/**
+ * Checks the counts that the ValidationProfiler collects during validation.
+ */
+public class TestValidationProfiler {
+	
+	private final static int PERSONS = 20;
+	
+	private ValidationProfiler oldProfiler;
+	
+	private ValidationProfiler profiler;
+	
+	
+	private static Model createModel() {
+		List<String> lines = new ArrayList<>();
+		lines.add("ex:PersonShape a sh:NodeShape ; sh:targetClass ex:Person ;");
+		lines.add("	sh:property ex:PersonShape-name .");
+		lines.add("ex:PersonShape-name sh:path ex:name ; sh:minCount 1 ; sh:datatype xsd:string .");
+		for(int i = 0; i < PERSONS; i++) {
+			// Every 5th person has no name, every 4th of the others has a number as name
+			String name = i % 5 == 0 ? "" : (i % 4 == 0 ? " ; ex:name " + i : " ; ex:name \"P" + i + "\"");
+			lines.add("ex:p" + i + " a ex:Person" + name + " .");
+		}
+		return TurtleFixtures.parse(lines.toArray(new String[0]));
+	}
+	
+	
+	@Before
+	public void installProfiler() {
+		oldProfiler = ValidationProfiler.get();
+		profiler = new ValidationProfiler();
+		profiler.setEnabled(true);
+		ValidationProfiler.set(profiler);
+	}
+	
+	
+	@After
+	public void restoreProfiler() {
+		ValidationProfiler.set(oldProfiler);
+	}
+	
+	
+	@Test
+	public void testCounts() throws InterruptedException {
+		ValidationEngine engine = TurtleFixtures.createValidationEngine(createModel());
+		int results = engine.validateAll().listProperties(SH.result).toList().size();
+		
+		Map<Node,ConstraintProfile> byComponent = profiler.getProfilesByComponent();
+		ConstraintProfile minCount = byComponent.get(SH.MinCountConstraintComponent.asNode());
+		assertEquals(4, minCount.getResultCount());
+		assertEquals(PERSONS, minCount.getFocusNodeCount());
+		ConstraintProfile datatype = byComponent.get(SH.DatatypeConstraintComponent.asNode());
+		assertEquals(4, datatype.getResultCount());
+		assertEquals(PERSONS, datatype.getFocusNodeCount());
+		assertEquals(PERSONS - 4, datatype.getValueNodeCount());
+		assertEquals(results, minCount.getResultCount() + datatype.getResultCount());
+		
+		// The sh:property constraint includes the nested constraints in its total but not in its self time
+		ConstraintProfile property = byComponent.get(SH.PropertyConstraintComponent.asNode());
+		assertTrue(property.getTotalNanos() >= minCount.getTotalNanos() + datatype.getTotalNanos());
+		assertTrue(property.getSelfNanos() <= property.getTotalNanos() - minCount.getTotalNanos() - datatype.getTotalNanos());
+		long self = 0;
+		for(ConstraintProfile profile : profiler.getProfiles()) {
+			self += profile.getSelfNanos();
+			assertEquals(profile.getExecutionCount(), sum(profile.getHistogram()));
+		}
+		assertEquals(property.getTotalNanos(), self);
+		
+		Map<Node,ConstraintProfile> byShape = profiler.getProfilesByShape();
+		assertEquals(2, byShape.size());
+		assertEquals(8, byShape.get(TurtleFixtures.parse().createResource(TurtleFixtures.EX + "PersonShape-name").asNode()).getResultCount());
+	}
+	
+	
+	@Test
+	public void testDisabled() throws InterruptedException {
+		profiler.setEnabled(false);
+		TurtleFixtures.createValidationEngine(createModel()).validateAll();
+		assertEquals(0, profiler.getConstraintCount());
+		assertEquals(0, profiler.getExecutionCount());
+	}
+	
+	
+	@Test
+	public void testReset() throws InterruptedException {
+		TurtleFixtures.createValidationEngine(createModel()).validateAll();
+		assertEquals(3, profiler.getConstraintCount());
+		profiler.reset();
+		assertEquals(0, profiler.getConstraintCount());
+		assertTrue(profiler.getCaches().isEmpty());
+	}
+	
+	
+	@Test
+	public void testToModel() throws InterruptedException {
+		TurtleFixtures.createValidationEngine(createModel()).validateAll();
+		profiler.recordCacheAccess("TestCache", true);
+		profiler.recordCacheAccess("TestCache", false);
+		profiler.recordCacheAccess("TestCache", true);
+		Resource report = profiler.toModel();
+		assertEquals(3, report.listProperties(SHPROF.constraintProfile).toList().size());
+		long results = 0;
+		for(Resource profile : report.listProperties(SHPROF.constraintProfile).mapWith(s -> s.getResource()).toList()) {
+			results += profile.getProperty(SHPROF.results).getLong();
+		}
+		assertEquals(8, results);
+		Resource cache = report.getPropertyResourceValue(SHPROF.cache);
+		assertEquals(2, cache.getProperty(SHPROF.hits).getLong());
+		assertEquals(1, cache.getProperty(SHPROF.misses).getLong());
+		assertEquals(2.0 / 3, profiler.getCaches().get("TestCache").getHitRate(), 0.0001);
+	}
+	
+	
+	private static long sum(long[] values) {
+		long sum = 0;
+		for(long value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.query.ResultSetFormatter;
+import org.apache.jena.rdf.model.Model;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+import org.topbraid.shacl.vocabulary.SH;
+
+/**
+ * Checks which queries can be executed for batches of focus nodes with VALUES.
+ * The validation results of batches are covered by TestDASHTestCasesSPARQL, which uses a small batch size.
+ */
+public class TestSPARQLBatchExecution {
+	
+	@Test
+	public void testCorrelatedSubQuery() {
+		String prefix = "PREFIX ex: <" + TurtleFixtures.EX + ">\n";
+		Query query = QueryFactory.create(prefix +
+				"SELECT $this ?c WHERE { { SELECT (COUNT(?v) AS ?c) WHERE { $this ex:p ?v } } FILTER (?c > 1) }");
+		assertNull(SPARQLSubstitutions.createBatchQuery(query));
+		assertNull(SPARQLSubstitutions.createBatchQuery(QueryFactory.create(prefix +
+				"SELECT $this ?c WHERE { $this ex:q ?o { SELECT ?o WHERE { { SELECT (COUNT(?v) AS ?c) WHERE { $this ex:p ?v } } } } }")));
+		assertNotNull(SPARQLSubstitutions.createBatchQuery(QueryFactory.create(prefix +
+				"SELECT $this ?c WHERE { { SELECT $this (COUNT(?v) AS ?c) WHERE { $this ex:p ?v } GROUP BY $this } FILTER (?c > 1) }")));
+		
+		// Batching this query would count the values of all focus nodes together
+		Model model = TurtleFixtures.parse("ex:x ex:p 1, 2 .", "ex:y ex:p 3 .");
+		QuerySolutionMap bindings = new QuerySolutionMap();
+		bindings.add(SH.thisVar.getVarName(), model.getResource(TurtleFixtures.EX + "y"));
+		try(QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(query, DatasetFactory.create(model), bindings)) {
+			assertEquals(0, ResultSetFormatter.consume(qexec.execSelect()));
+		}
+		Query batchQuery = SPARQLSubstitutions.withFocusNodes(query, Arrays.asList(model.getResource(TurtleFixtures.EX + "x"), model.getResource(TurtleFixtures.EX + "y")));
+		try(QueryExecution qexec = SPARQLSubstitutions.createQueryExecution(batchQuery, DatasetFactory.create(model), null)) {
+			assertEquals(2, ResultSetFormatter.consume(qexec.execSelect()));
+		}
+	}
+}
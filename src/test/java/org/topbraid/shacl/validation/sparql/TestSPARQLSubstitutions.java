@@ -0,0 +1,88 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.shacl.validation.sparql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.path.Path;
+import org.apache.jena.sparql.path.PathParser;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+
+/**
+ * Checks the substitution of ?PATH with complex paths in SPARQL queries.
+ */
+public class TestSPARQLSubstitutions {
+	
+	private final static Model MODEL = TurtleFixtures.parse(
+			"ex:a ex:p ex:b . ex:c ex:q ex:b .",
+			"ex:c ex:p ex:d . ex:e ex:q ex:d .");
+	
+	// Uses ?PATH in the main pattern, in FILTER EXISTS and in a sub-query
+	private final static String QUERY =
+			"SELECT ?s ?o ?n WHERE {\n" +
+			"	?s $PATH ?o .\n" +
+			"	FILTER EXISTS { ?o $PATH ?z }\n" +
+			"	{ SELECT ?s (COUNT(?x) AS ?n) WHERE { ?s $PATH ?x } GROUP BY ?s }\n" +
+			"}";
+	
+	private final static String PATH = "<" + TurtleFixtures.EX + "p>/^<" + TurtleFixtures.EX + "q>";
+	
+	
+	private static List<String> execute(Query query) {
+		List<String> rows = new ArrayList<>();
+		try(QueryExecution qexec = QueryExecutionFactory.create(query, MODEL)) {
+			ResultSet rs = qexec.execSelect();
+			while(rs.hasNext()) {
+				QuerySolution qs = rs.next();
+				rows.add(qs.get("s") + " " + qs.get("o") + " " + qs.getLiteral("n").getInt());
+			}
+		}
+		Collections.sort(rows);
+		return rows;
+	}
+	
+	
+	@Test
+	public void testSubstitutePaths() {
+		Path path = PathParser.parse(PATH, PrefixMapping.Standard);
+		List<String> rows = execute(SPARQLSubstitutions.substitutePaths(QueryFactory.create(QUERY), path));
+		assertEquals(Collections.singletonList(TurtleFixtures.EX + "a " + TurtleFixtures.EX + "c 1"), rows);
+	}
+	
+	
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testMatchesStringSubstitution() {
+		Path path = PathParser.parse(PATH, PrefixMapping.Standard);
+		assertEquals(
+				execute(SPARQLSubstitutions.substitutePaths(QueryFactory.create(QUERY), PATH, MODEL)),
+				execute(SPARQLSubstitutions.substitutePaths(QueryFactory.create(QUERY), path)));
+	}
+}
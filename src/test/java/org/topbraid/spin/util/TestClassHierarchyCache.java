@@ -0,0 +1,135 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+package org.topbraid.spin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.compose.MultiUnion;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topbraid.shacl.TurtleFixtures;
+
+/**
+ * Checks that the cached class hierarchies produce the same results as walking the graphs.
+ */
+public class TestClassHierarchyCache {
+	
+	private final static String[] CLASSES = { "A", "B", "C", "D", "E", "X", "Y" };
+	
+	private ClassHierarchyCache oldCache;
+	
+	
+	@Before
+	public void installCache() {
+		oldCache = ClassHierarchyCache.get();
+		ClassHierarchyCache cache = new ClassHierarchyCache();
+		cache.setEnabled(true);
+		ClassHierarchyCache.set(cache);
+	}
+	
+	
+	@After
+	public void restoreCache() {
+		ClassHierarchyCache.set(oldCache);
+	}
+	
+	
+	private static String describe(Model model, boolean cached) {
+		ClassHierarchyCache.get().setEnabled(cached);
+		StringBuilder sb = new StringBuilder();
+		for(String name : CLASSES) {
+			Resource cls = model.getResource(TurtleFixtures.EX + name);
+			sb.append(name + " super " + getURIs(JenaUtil.getAllSuperClasses(cls)) + "\n");
+			sb.append(name + " sub " + getURIs(JenaUtil.getAllSubClasses(cls)) + "\n");
+			for(String other : CLASSES) {
+				if(JenaUtil.hasSuperClass(cls, model.getResource(TurtleFixtures.EX + other))) {
+					sb.append(name + " < " + other + "\n");
+				}
+			}
+		}
+		ClassHierarchyCache.get().setEnabled(true);
+		return sb.toString();
+	}
+	
+	
+	private static Set<String> getURIs(Set<Resource> classes) {
+		Set<String> uris = new TreeSet<>();
+		for(Resource cls : classes) {
+			uris.add(cls.getURI());
+		}
+		return uris;
+	}
+	
+	
+	@Test
+	public void testDisabledByDefault() {
+		ClassHierarchyCache cache = new ClassHierarchyCache();
+		assertFalse(cache.isEnabled());
+		assertNull(cache.getClassHierarchy(JenaUtil.createMemoryModel().getGraph()));
+	}
+	
+	
+	@Test
+	public void testSameAsUncached() {
+		Model model = TurtleFixtures.parse(
+				"ex:B rdfs:subClassOf ex:A .",
+				"ex:C rdfs:subClassOf ex:B, ex:X .",
+				"ex:D rdfs:subClassOf ex:C .",
+				"ex:E rdfs:subClassOf ex:D . ex:D rdfs:subClassOf ex:E .",
+				"ex:Y rdfs:subClassOf ex:Y .");
+		assertEquals(describe(model, false), describe(model, true));
+	}
+	
+	
+	@Test
+	public void testInvalidation() {
+		Model model = TurtleFixtures.parse("ex:B rdfs:subClassOf ex:A .");
+		Resource a = model.getResource(TurtleFixtures.EX + "A");
+		Resource c = model.getResource(TurtleFixtures.EX + "C");
+		assertFalse(JenaUtil.hasSuperClass(c, a));
+		model.add(c, RDFS.subClassOf, model.getResource(TurtleFixtures.EX + "B"));
+		assertTrue(JenaUtil.hasSuperClass(c, a));
+		assertEquals(describe(model, false), describe(model, true));
+		model.removeAll(null, RDFS.subClassOf, a);
+		assertFalse(JenaUtil.hasSuperClass(c, a));
+	}
+	
+	
+	@Test
+	public void testUnionMemberInvalidation() {
+		Model base = TurtleFixtures.parse("ex:B rdfs:subClassOf ex:A .");
+		Model other = TurtleFixtures.parse();
+		Model union = ModelFactory.createModelForGraph(new MultiUnion(new Graph[] { base.getGraph(), other.getGraph() }));
+		Resource a = union.getResource(TurtleFixtures.EX + "A");
+		Resource c = union.getResource(TurtleFixtures.EX + "C");
+		assertFalse(JenaUtil.hasSuperClass(c, a));
+		other.add(other.getResource(c.getURI()), RDFS.subClassOf, other.getResource(TurtleFixtures.EX + "B"));
+		assertTrue(JenaUtil.hasSuperClass(c, a));
+	}
+}
@@ -0,0 +1,5 @@
+function maxLengthBatch($value, $maxLength) {
+	return $value.map(function(value) {
+		return value.lex.length <= $maxLength.lex;
+	});
+}
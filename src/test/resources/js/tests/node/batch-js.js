@@ -0,0 +1,8 @@
+function simpleBatch($this, $value) {
+	if(!Array.isArray($this) || !Array.isArray($value) || $this.length != $value.length) {
+		throw "Arrays expected";
+	}
+	return $value.map(function(value) {
+		return value.isURI() ? true : "IRIs expected";
+	});
+}